@@ -0,0 +1,21 @@
+#!/bin/bash
+# Benchmarks jstall's collectors and analyzers against the scenario apps (see
+# ScenarioBenchmark for all options).
+#
+# Usage: ./run-bench.sh [--update-baseline] [<app,app,...>|all] [<command,command,...>]
+# Output: target/jstall-bench/results.json, compared against ai-eval/bench-baseline.json
+# (machine-specific and not checked in: record it with --update-baseline on the first run)
+
+set -euo pipefail
+
+EVAL_DIR="$(cd "$(dirname "$0")" && pwd)"
+PROPS=(-Djstall.bench=true)
+if [[ "${1:-}" == "--update-baseline" ]]; then
+    PROPS+=(-Djstall.bench.update-baseline=true)
+    shift
+fi
+[[ -n "${1:-}" ]] && PROPS+=("-Djstall.bench.apps=$1")
+[[ -n "${2:-}" ]] && PROPS+=("-Djstall.bench.commands=$2")
+
+cd "$EVAL_DIR/.."
+mvn -q test -Dtest=ScenarioBenchmark -Dsurefire.failIfNoSpecifiedTests=false "${PROPS[@]}"
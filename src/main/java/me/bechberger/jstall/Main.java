@@ -10,10 +10,12 @@ import me.bechberger.jstall.provider.ReplayProvider;
 import me.bechberger.jstall.util.CommandExecutor;
 import me.bechberger.jstall.util.CommandExecutor.SSHCommandException;
 import me.bechberger.jstall.util.JVMDiscovery;
+import me.bechberger.jstall.util.Timings;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.Callable;
 
 /**
  * Main entry point for JStall.
@@ -29,7 +31,14 @@ import java.nio.file.Path;
         MostWorkCommand.class,
         FlameCommand.class,
         ThreadsCommand.class,
+        GrepStacksCommand.class,
         WaitingThreadsCommand.class,
+        LockContentionCommand.class,
+        AllocationCommand.class,
+        JfrCommand.class,
+        WallCommand.class,
+        LeakSuspectsCommand.class,
+        NativeMemoryCommand.class,
         DependencyGraphCommand.class,
         DependencyTreeCommand.class,
         VmVitalsCommand.class,
@@ -37,6 +46,7 @@ import java.nio.file.Path;
         VmClassloaderStatsCommand.class,
         VmMetaspaceCommand.class,
         CompilerQueueCommand.class,
+        JitCommand.class,
         AiCommand.class,
         ListCommand.class,
         SystemProcessCommand.class,
@@ -63,6 +73,9 @@ public class Main implements Runnable {
     @Option(names = {"-v", "--verbose"}, description = "Enable verbose logging of remote SSH commands and their outputs")
     private boolean verbose;
 
+    @Option(names = "--timings", description = "Print how long attach, jcmd calls, parsing and analysis took to stderr")
+    private boolean timings;
+
     private volatile CommandExecutor cachedExecutor;
 
     public @NotNull synchronized CommandExecutor executor() {
@@ -124,12 +137,20 @@ public class Main implements Runnable {
         System.out.println("  most-work         - Show threads doing the most work");
         System.out.println("  flame             - Generate flame graph");
         System.out.println("  threads           - List all threads");
+        System.out.println("  grep-stacks       - Search stack frames of all dumps for a regex");
         System.out.println("  waiting-threads   - Identify threads waiting without progress");
+        System.out.println("  lock-contention   - Rank contended locks over time");
+        System.out.println("  allocation        - Rank threads and stacks by allocation rate");
+        System.out.println("  jfr               - Summarize JFR data (hot methods, locks, GC, allocation)");
+        System.out.println("  wall              - Break down wall-clock time per thread pool (CPU, network, DB, locks)");
+        System.out.println("  leak-suspects     - Rank classes growing steadily across class histograms");
+        System.out.println("  native-memory     - Rank native memory categories by growth (requires NMT)");
         System.out.println("  dependency-graph  - Show thread dependencies (lock wait relationships)");
         System.out.println("  dependency-tree   - Show non deadlock thread dependencies over time");
         System.out.println("  vm-vitals         - Show VM.vitals (if available)");
         System.out.println("  gc-heap-info      - Show GC.heap_info last absolute values and deltas");
         System.out.println("  compiler-queue    - Show compiler queue");
+        System.out.println("  jit               - Show code cache usage and JIT pressure");
         System.out.println("  vm-classloader-stats - Show VM classloader statistics");
         System.out.println("  vm-metaspace      - Show VM metaspace info");
         System.out.println("  jvm-support       - Check whether the target JVM is likely still supported");
@@ -152,4 +173,24 @@ public class Main implements Runnable {
     public Path getReplayFile() {
         return replayFile;
     }
+
+    /**
+     * Runs a subcommand, recording {@link Timings} spans and printing them as a waterfall to
+     * stderr afterwards if {@code --timings} is set.
+     */
+    public Integer withTimings(Callable<Integer> command) throws Exception {
+        if (!timings) {
+            return command.call();
+        }
+        boolean enabled = Timings.enable();
+        try (Timings.Span span = Timings.span("total")) {
+            return command.call();
+        } finally {
+            System.err.println();
+            System.err.print(Timings.renderWaterfall());
+            if (enabled) {
+                Timings.disable();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -147,6 +147,11 @@ public sealed interface Cell permits Cell.TextCell, Cell.IntegerCell, Cell.Bytes
         return bytes + " bytes";
     }
 
+    /** Like {@link #formatBytes}, with a leading sign, for changes and rates. */
+    static String formatSignedBytes(double bytes) {
+        return (bytes < 0 ? "-" : "+") + formatBytes((long) Math.abs(bytes));
+    }
+
     /** Internal helper for pattern-based numeric extraction (interfaces can't have private fields). */
     final class Patterns {
         private Patterns() {}
@@ -463,16 +463,28 @@ public class ThreadActivityCategorizer {
      * @return The category of activity, never null
      */
     public static Category categorize(ThreadInfo thread) {
-        if (thread.stackTrace() == null || thread.stackTrace().isEmpty()) {
+        return categorize(thread.stackTrace(), thread.state());
+    }
+
+    /**
+     * Categorizes a stack trace (top frame first) of a thread in the given state,
+     * e.g. a profiler sample correlated with a thread dump.
+     *
+     * @param stackTrace The frames, top frame first; may be null
+     * @param state The thread state used as fallback, may be null
+     * @return The category of activity, never null
+     */
+    public static Category categorize(List<StackFrame> stackTrace, Thread.State state) {
+        if (stackTrace == null || stackTrace.isEmpty()) {
             return Category.UNKNOWN;
         }
 
         // Scan top frames for first matching category
         // Categories are ordered by specificity in enum declaration, so first match is most accurate
-        int maxDepth = Math.min(MAX_STACK_DEPTH, thread.stackTrace().size());
+        int maxDepth = Math.min(MAX_STACK_DEPTH, stackTrace.size());
 
         for (int i = 0; i < maxDepth; i++) {
-            StackFrame frame = thread.stackTrace().get(i);
+            StackFrame frame = stackTrace.get(i);
             for (Category category : Category.values()) {
                 if (category.matches(frame)) {
                     return category;
@@ -481,7 +493,7 @@ public class ThreadActivityCategorizer {
         }
 
         // No specific category found - check thread state as fallback
-        if (thread.state() == Thread.State.RUNNABLE) {
+        if (state == Thread.State.RUNNABLE) {
             return Category.COMPUTATION;
         }
 
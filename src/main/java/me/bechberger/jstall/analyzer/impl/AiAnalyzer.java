@@ -7,12 +7,12 @@ import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
 import me.bechberger.jstall.util.llm.AiChatLoop;
 import me.bechberger.jstall.util.llm.AiTools;
-import me.bechberger.jstall.util.llm.ContextCompressor;
 import me.bechberger.jstall.util.llm.JstallCommandTool;
 import me.bechberger.jstall.util.llm.LlmProvider;
 import me.bechberger.jstall.util.llm.OpenAiLlmProvider;
 import me.bechberger.jstall.util.llm.SourceTools;
 import me.bechberger.jstall.util.llm.ToolDefinition;
+import me.bechberger.jstall.util.llm.ToolCallRunner;
 import me.bechberger.jstall.util.llm.ToolExecutor;
 import me.bechberger.jstall.analyzer.ThreadActivityCategorizer;
 import me.bechberger.jstall.util.render.MarkdownRenderer;
@@ -23,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -107,6 +108,9 @@ public class AiAnalyzer extends BaseAnalyzer {
         options.add("chat");
         options.add("verbose");
         options.add("save");
+        options.add("token-budget");
+        options.add("tool-parallelism");
+        options.add("tool-timeout");
         return options;
     }
 
@@ -152,6 +156,12 @@ public class AiAnalyzer extends BaseAnalyzer {
             useTools = true;
         }
 
+        if (llmProvider instanceof OpenAiLlmProvider openAiProvider) {
+            openAiProvider.setToolExecution(
+                getIntOption(options, "tool-parallelism", ToolCallRunner.DEFAULT_PARALLELISM),
+                Duration.ofSeconds(getIntOption(options, "tool-timeout", (int) ToolCallRunner.DEFAULT_TIMEOUT.toSeconds())));
+        }
+
         // Enable intelligent filtering by default
         Map<String, Object> statusOptions = new HashMap<>(options);
 
@@ -170,10 +180,14 @@ public class AiAnalyzer extends BaseAnalyzer {
             );
         }
 
-        String analysis = statusResult.output();
-
-        // Compress context for local providers (small models, token budget matters)
-        boolean compact = (llmProvider instanceof OpenAiLlmProvider);
+        // Local providers (small models) always get a token-budgeted prompt built from the
+        // structured findings; other providers get the full status text unless a budget is given
+        int tokenBudget = getIntOption(options, "token-budget", 0);
+        boolean compact = tokenBudget > 0 || (llmProvider instanceof OpenAiLlmProvider);
+        String analysis = compact
+            ? new AiPromptBuilder(tokenBudget > 0 ? tokenBudget : AiPromptBuilder.DEFAULT_TOKEN_BUDGET)
+                .build(data, statusResult.structured())
+            : statusResult.output();
 
         // Build prompts. In chat mode the first turn uses a short-summary prompt so
         // the REPL prompt appears quickly; tools and the bullet-rules prompt are
@@ -244,8 +258,7 @@ public class AiAnalyzer extends BaseAnalyzer {
         return buildUserPrompt(analysis, customQuestion, compact, List.of());
     }
 
-    private String buildUserPrompt(String analysis, String customQuestion, boolean compact, List<String> targets) {
-        String context = compact ? ContextCompressor.compress(analysis) : analysis;
+    private String buildUserPrompt(String context, String customQuestion, boolean compact, List<String> targets) {
         StringBuilder prompt = new StringBuilder();
         if (!targets.isEmpty()) {
             prompt.append("Target JVM: ").append(String.join(", ", targets)).append("\n\n");
@@ -257,8 +270,8 @@ public class AiAnalyzer extends BaseAnalyzer {
         prompt.append(DEFAULT_USER_PROMPT);
         if (compact) {
             prompt.append("\n[Stacks truncated to ")
-                  .append(ContextCompressor.MAX_STACK_FRAMES)
-                  .append(" frames; top threads by CPU shown only]\n");
+                  .append(AiPromptBuilder.MAX_STACK_FRAMES)
+                  .append(" frames; most important findings first within a token budget]\n");
         }
 
         // Add provider-specific instructions
@@ -283,8 +296,7 @@ public class AiAnalyzer extends BaseAnalyzer {
      * history (so follow-up questions still have all the data available), but asks
      * for a 3-5 bullet summary so the REPL prompt appears quickly.
      */
-    private String buildChatSeedPrompt(String analysis, String customQuestion, boolean compact, List<String> targets) {
-        String context = compact ? ContextCompressor.compress(analysis) : analysis;
+    private String buildChatSeedPrompt(String context, String customQuestion, boolean compact, List<String> targets) {
         StringBuilder prompt = new StringBuilder();
         if (!targets.isEmpty()) {
             prompt.append("Target JVM: ").append(String.join(", ", targets)).append("\n\n");
@@ -299,8 +311,8 @@ public class AiAnalyzer extends BaseAnalyzer {
         prompt.append("The user will ask follow-up questions; do not invite them, just summarize.\n");
         if (compact) {
             prompt.append("\n[Stacks truncated to ")
-                  .append(ContextCompressor.MAX_STACK_FRAMES)
-                  .append(" frames; top threads by CPU shown only]\n");
+                  .append(AiPromptBuilder.MAX_STACK_FRAMES)
+                  .append(" frames; most important findings first within a token budget]\n");
         }
 
         String additionalInstructions = llmProvider.getAdditionalInstructions();
@@ -336,6 +348,12 @@ public class AiAnalyzer extends BaseAnalyzer {
         boolean showThinking = getBooleanOption(options, "think", false);
         double cpuThreshold = getDoubleOption(options, "cpu-threshold", 1.0);
 
+        if (llmProvider instanceof OpenAiLlmProvider openAiProvider) {
+            openAiProvider.setToolExecution(
+                getIntOption(options, "tool-parallelism", ToolCallRunner.DEFAULT_PARALLELISM),
+                Duration.ofSeconds(getIntOption(options, "tool-timeout", (int) ToolCallRunner.DEFAULT_TIMEOUT.toSeconds())));
+        }
+
         // Enable intelligent filtering by default
         Map<String, Object> statusOptions = new HashMap<>(options);
         if (!statusOptions.containsKey("intelligent-filter")) {
@@ -601,22 +619,6 @@ public class AiAnalyzer extends BaseAnalyzer {
                         ? jstallTool.execute(call)
                         : baseExecutor.execute(call);
             }
-            if (verbose) {
-                ToolExecutor inner = combined;
-                combined = call -> {
-                    if ("run_jstall_command".equals(call.name())) {
-                        long start = System.nanoTime();
-                        try {
-                            return inner.execute(call);
-                        } finally {
-                            long ms = (System.nanoTime() - start) / 1_000_000;
-                            System.err.println("[tool] run_jstall_command finished in " + ms + " ms");
-                        }
-                    }
-                    return inner.execute(call);
-                };
-            }
-
             if (verbose) System.err.println("[ai] Sending to model with " + (tools != null ? tools.size() : 0) + " tools available...");
 
             java.util.function.Consumer<String> downstream = buildResponseHandler(prettyMode, verbose);
@@ -0,0 +1,578 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.util.render.AnsiCodes;
+import me.bechberger.jthreaddump.model.LockInfo;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds the data part of the AI prompt directly from the thread dump models, the collected
+ * data and the structured {@code status} output, within an explicit token budget.
+ * <p>
+ * Every finding becomes a {@link Fact} with a {@link Priority}; facts are packed from a priority
+ * queue (deadlocks, then blocked lock chains, hot threads, heap trend, thread states and finally
+ * the remaining status sections) until the budget is used up. Facts that do not fit are skipped
+ * so that smaller facts of lower priority can still use the rest of the budget; only the status
+ * sections are cut to fit. The result is deterministic for the same input.
+ * <p>
+ * Tokens are estimated as {@value #CHARS_PER_TOKEN} characters per token, which is close enough
+ * for English text and stack frames with the common tokenizers.
+ */
+final class AiPromptBuilder {
+
+    static final int DEFAULT_TOKEN_BUDGET = 4000;
+    static final int MAX_STACK_FRAMES = 4;
+    static final int CHARS_PER_TOKEN = 4;
+    private static final int MAX_HOT_THREADS = 5;
+    private static final int MAX_WAITERS_SHOWN = 6;
+    private static final int MAX_CHAIN_LENGTH = 8;
+    /** A cut status section must keep at least this many tokens to be worth including. */
+    private static final int MIN_SECTION_TOKENS = 40;
+
+    /** Status sections that are covered by facts built from the models. */
+    private static final Set<String> COVERED_SECTIONS = Set.of(
+        "uptime", "deadlock", "dependency-tree", "most-work", "threads", "gc-heap-info");
+
+    private static final Set<String> JVM_INTERNAL_THREADS = Set.of(
+        "C1 CompilerThread0", "C2 CompilerThread0", "C2 CompilerThread1",
+        "JVMCI-native CompilerThread0", "JVMCI CompilerThread0",
+        "Monitor Deflation Thread", "Service Thread", "Notification Thread",
+        "Reference Handler", "Finalizer", "Signal Dispatcher",
+        "Common-Cleaner", "Attach Listener", "G1 Main Marker",
+        "G1 Refine#0", "G1 Service", "G1 Conc#0",
+        "VM Thread", "VM Periodic Task Thread"
+    );
+
+    /** Fact categories in packing order; the heading is used in the prompt. */
+    enum Priority {
+        DEADLOCK("deadlocks"),
+        BLOCKED_CHAIN("blocked lock chains"),
+        HOT_THREAD("hot threads"),
+        HEAP_TREND("heap"),
+        THREAD_STATES("thread states"),
+        SECTION(null);
+
+        final String heading;
+
+        Priority(String heading) {
+            this.heading = heading;
+        }
+    }
+
+    /**
+     * One self-contained finding.
+     *
+     * @param weight ranks facts of the same priority, higher first
+     * @param heading prompt heading, null to use the priority's heading
+     * @param truncatable whether the fact may be cut to fit the remaining budget
+     */
+    record Fact(Priority priority, double weight, String heading, String text, boolean truncatable) {
+
+        String effectiveHeading() {
+            return heading != null ? heading : priority.heading;
+        }
+    }
+
+    private final int tokenBudget;
+
+    AiPromptBuilder(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Builds the prompt context.
+     *
+     * @param status structured output of the status analyzer, may be null
+     */
+    String build(ResolvedData data, AnalyzerOutput status) {
+        List<ThreadDump> dumps = data.dumps().stream().map(ThreadDumpSnapshot::parsed).toList();
+        Map<String, AnalyzerOutput> sections = sections(status);
+
+        List<Fact> facts = new ArrayList<>();
+        addDeadlocks(facts, dumps, sections.get("deadlock"));
+        addBlockedChains(facts, dumps);
+        addHotThreads(facts, dumps);
+        addHeapTrend(facts, data.collectedData("gc-heap-info"));
+        addThreadStates(facts, dumps);
+        addSections(facts, sections);
+
+        StringBuilder out = new StringBuilder(overview(dumps, sections.get("uptime")));
+        return out.append(pack(facts, tokenBudget - estimateTokens(out.toString()))).toString().stripTrailing();
+    }
+
+    /**
+     * Packs the facts in priority order into at most {@code budget} tokens and renders them
+     * grouped under their headings.
+     */
+    static String pack(List<Fact> facts, int budget) {
+        PriorityQueue<Fact> queue = new PriorityQueue<>(Comparator
+            .comparing(Fact::priority)
+            .thenComparing(Comparator.comparingDouble(Fact::weight).reversed()));
+        queue.addAll(facts);
+
+        Map<String, List<String>> accepted = new LinkedHashMap<>();
+        int remaining = budget;
+        int omitted = 0;
+        while (!queue.isEmpty()) {
+            Fact fact = queue.poll();
+            String heading = fact.effectiveHeading();
+            int headingTokens = accepted.containsKey(heading) ? 0 : estimateTokens("=== " + heading + " ===\n\n");
+            String text = fact.text().stripTrailing();
+            int tokens = headingTokens + estimateTokens(text + "\n");
+            if (tokens > remaining) {
+                text = fact.truncatable() ? truncate(text, remaining - headingTokens) : null;
+                if (text == null) {
+                    omitted++;
+                    continue;
+                }
+                tokens = headingTokens + estimateTokens(text + "\n");
+            }
+            accepted.computeIfAbsent(heading, h -> new ArrayList<>()).add(text);
+            remaining -= tokens;
+        }
+
+        StringBuilder out = new StringBuilder();
+        accepted.forEach((heading, texts) -> {
+            out.append("=== ").append(heading).append(" ===\n");
+            texts.forEach(text -> out.append(text).append('\n'));
+            out.append('\n');
+        });
+        if (omitted > 0) {
+            out.append("[").append(omitted).append(" lower-priority fact(s) omitted to fit the token budget]\n");
+        }
+        return out.toString();
+    }
+
+    /** Keeps whole lines up to {@code tokens}, null if too little would remain. */
+    private static String truncate(String text, int tokens) {
+        String marker = "... (truncated)";
+        int maxChars = tokens * CHARS_PER_TOKEN - marker.length() - 2;
+        if (tokens < MIN_SECTION_TOKENS || maxChars <= 0) {
+            return null;
+        }
+        int end = text.lastIndexOf('\n', maxChars);
+        if (end <= 0) {
+            return null;
+        }
+        return text.substring(0, end) + "\n" + marker;
+    }
+
+    private static String overview(List<ThreadDump> dumps, AnalyzerOutput uptime) {
+        StringBuilder sb = new StringBuilder();
+        if (uptime instanceof AnalyzerOutput.TextOutput text) {
+            sb.append(AnsiCodes.strip(text.text()).strip()).append('\n');
+        }
+        if (!dumps.isEmpty()) {
+            ThreadDump last = dumps.get(dumps.size() - 1);
+            sb.append(dumps.size()).append(" thread dump(s)");
+            if (dumps.size() > 1) {
+                sb.append(String.format(Locale.US, " over %.1fs", elapsedSec(dumps)));
+            }
+            sb.append(", ").append(last.threads().size()).append(" threads in the last dump\n");
+        }
+        return sb.append('\n').toString();
+    }
+
+    // ── deadlocks ────────────────────────────────────────────────────────────
+
+    private static void addDeadlocks(List<Fact> facts, List<ThreadDump> dumps, AnalyzerOutput deadlockSection) {
+        if (dumps.isEmpty()) {
+            return;
+        }
+        List<ThreadInfo> threads = dumps.get(dumps.size() - 1).threads();
+        Map<String, ThreadInfo> owners = owners(threads);
+        Set<String> seen = new TreeSet<>();
+        for (ThreadInfo start : threads) {
+            List<ThreadInfo> cycle = cycleFrom(start, owners);
+            if (cycle == null) {
+                continue;
+            }
+            TreeSet<String> key = new TreeSet<>();
+            cycle.forEach(t -> key.add(t.name()));
+            if (!seen.add(String.join("\u0000", key))) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder("Deadlock between ").append(cycle.size()).append(" threads:\n");
+            for (ThreadInfo thread : cycle) {
+                LockInfo lock = waitedLock(thread, owners);
+                sb.append("  \"").append(thread.name()).append("\" waits for ").append(describe(lock))
+                    .append(" held by \"").append(owners.get(lock.lockId()).name()).append("\"");
+                String frame = topFrame(thread);
+                if (frame != null) {
+                    sb.append(" at ").append(frame);
+                }
+                sb.append('\n');
+            }
+            facts.add(new Fact(Priority.DEADLOCK, cycle.size(), null, sb.toString(), false));
+        }
+        // The JVM's own deadlock report also covers deadlocks the lock model cannot see (e.g. JNI)
+        if (seen.isEmpty() && deadlockSection instanceof AnalyzerOutput.TextOutput text && !text.text().isBlank()) {
+            facts.add(new Fact(Priority.DEADLOCK, 0, null, AnsiCodes.strip(text.text()), true));
+        }
+    }
+
+    /** Returns the wait-for cycle through {@code start}, or null if following its waits does not lead back. */
+    private static List<ThreadInfo> cycleFrom(ThreadInfo start, Map<String, ThreadInfo> owners) {
+        List<ThreadInfo> path = new ArrayList<>();
+        ThreadInfo current = start;
+        while (path.size() < MAX_CHAIN_LENGTH) {
+            path.add(current);
+            LockInfo lock = waitedLock(current, owners);
+            if (lock == null) {
+                return null;
+            }
+            current = owners.get(lock.lockId());
+            if (current == start) {
+                return path;
+            }
+            if (path.contains(current)) {
+                return null; // cycle that does not include start, reported from one of its members
+            }
+        }
+        return null;
+    }
+
+    // ── blocked chains ───────────────────────────────────────────────────────
+
+    private static void addBlockedChains(List<Fact> facts, List<ThreadDump> dumps) {
+        if (dumps.isEmpty()) {
+            return;
+        }
+        // In how many dumps each lock had queued threads
+        Map<String, Integer> contendedDumps = new HashMap<>();
+        for (ThreadDump dump : dumps) {
+            Map<String, ThreadInfo> owners = owners(dump.threads());
+            Set<String> contended = new LinkedHashSet<>();
+            for (ThreadInfo thread : dump.threads()) {
+                LockInfo lock = waitedLock(thread, owners);
+                if (lock != null) {
+                    contended.add(lock.lockId());
+                }
+            }
+            contended.forEach(id -> contendedDumps.merge(id, 1, Integer::sum));
+        }
+
+        List<ThreadInfo> threads = dumps.get(dumps.size() - 1).threads();
+        Map<String, ThreadInfo> owners = owners(threads);
+        Map<String, List<ThreadInfo>> waiters = new LinkedHashMap<>();
+        Map<String, LockInfo> locks = new HashMap<>();
+        for (ThreadInfo thread : threads) {
+            LockInfo lock = waitedLock(thread, owners);
+            if (lock != null) {
+                waiters.computeIfAbsent(lock.lockId(), id -> new ArrayList<>()).add(thread);
+                locks.putIfAbsent(lock.lockId(), lock);
+            }
+        }
+        for (Map.Entry<String, List<ThreadInfo>> e : waiters.entrySet()) {
+            ThreadInfo owner = owners.get(e.getKey());
+            List<ThreadInfo> queued = e.getValue();
+            int persistence = contendedDumps.getOrDefault(e.getKey(), 1);
+            StringBuilder sb = new StringBuilder(describe(locks.get(e.getKey())))
+                .append(" held by ").append(describeThread(owner)).append('\n');
+            sb.append("  ").append(queued.size()).append(" waiting: ");
+            for (int i = 0; i < Math.min(queued.size(), MAX_WAITERS_SHOWN); i++) {
+                sb.append(i > 0 ? ", " : "").append('"').append(queued.get(i).name()).append('"');
+            }
+            if (queued.size() > MAX_WAITERS_SHOWN) {
+                sb.append(" (+").append(queued.size() - MAX_WAITERS_SHOWN).append(" more)");
+            }
+            sb.append('\n');
+            if (dumps.size() > 1) {
+                sb.append("  contended in ").append(persistence).append('/').append(dumps.size()).append(" dumps\n");
+            }
+            String chain = ownerChain(owner, owners);
+            if (chain != null) {
+                sb.append("  owner is itself blocked: ").append(chain).append('\n');
+            }
+            facts.add(new Fact(Priority.BLOCKED_CHAIN, queued.size() * (double) persistence, null, sb.toString(), false));
+        }
+    }
+
+    /** Follows the owner's own waits, e.g. {@code "a" -> "b" -> "c" (RUNNABLE)}; null if the owner is not waiting. */
+    private static String ownerChain(ThreadInfo owner, Map<String, ThreadInfo> owners) {
+        StringBuilder sb = new StringBuilder("\"").append(owner.name()).append('"');
+        List<ThreadInfo> seen = new ArrayList<>(List.of(owner));
+        ThreadInfo current = owner;
+        while (seen.size() < MAX_CHAIN_LENGTH) {
+            LockInfo lock = waitedLock(current, owners);
+            if (lock == null) {
+                break;
+            }
+            current = owners.get(lock.lockId());
+            sb.append(" -> \"").append(current.name()).append('"');
+            if (seen.contains(current)) {
+                sb.append(" (deadlock)");
+                return sb.toString();
+            }
+            seen.add(current);
+        }
+        if (seen.size() == 1) {
+            return null;
+        }
+        String frame = topFrame(current);
+        return sb.append(" (").append(current.state()).append(frame != null ? " at " + frame : "").append(')').toString();
+    }
+
+    // ── hot threads ──────────────────────────────────────────────────────────
+
+    private static void addHotThreads(List<Fact> facts, List<ThreadDump> dumps) {
+        if (dumps.size() < 2) {
+            return;
+        }
+        double elapsed = elapsedSec(dumps);
+        Map<Object, ThreadInfo> first = new HashMap<>();
+        for (ThreadInfo thread : dumps.get(0).threads()) {
+            first.put(key(thread), thread);
+        }
+        List<Fact> hot = new ArrayList<>();
+        for (ThreadInfo thread : dumps.get(dumps.size() - 1).threads()) {
+            ThreadInfo before = first.get(key(thread));
+            if (before == null || before.cpuTimeSec() == null || thread.cpuTimeSec() == null || isInternal(thread.name())) {
+                continue;
+            }
+            double cpu = thread.cpuTimeSec() - before.cpuTimeSec();
+            if (cpu <= 0) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder("\"").append(thread.name()).append("\" ")
+                .append(String.format(Locale.US, "%.2fs CPU", cpu));
+            if (elapsed > 0) {
+                sb.append(String.format(Locale.US, " (%.0f%% of a core)", cpu * 100 / elapsed));
+            }
+            sb.append(", ").append(thread.state()).append('\n');
+            List<StackFrame> frames = thread.stackTrace();
+            for (int i = 0; i < Math.min(frames.size(), MAX_STACK_FRAMES); i++) {
+                sb.append("    at ").append(frames.get(i).className()).append('.').append(frames.get(i).methodName()).append('\n');
+            }
+            hot.add(new Fact(Priority.HOT_THREAD, cpu, null, sb.toString(), false));
+        }
+        hot.sort(Comparator.comparingDouble(Fact::weight).reversed());
+        facts.addAll(hot.subList(0, Math.min(hot.size(), MAX_HOT_THREADS)));
+    }
+
+    // ── heap ─────────────────────────────────────────────────────────────────
+
+    private static void addHeapTrend(List<Fact> facts, List<CollectedData> samples) {
+        CollectedData firstSample = null;
+        CollectedData lastSample = null;
+        GcHeapInfoAnalyzer.HeapInfo first = null;
+        GcHeapInfoAnalyzer.HeapInfo last = null;
+        for (CollectedData sample : samples) {
+            GcHeapInfoAnalyzer.HeapInfo info = GcHeapInfoAnalyzer.parseGcHeapInfo(sample.rawData());
+            if (info == null) {
+                continue;
+            }
+            if (first == null) {
+                first = info;
+                firstSample = sample;
+            }
+            last = info;
+            lastSample = sample;
+        }
+        if (last == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "Heap used %s of %s committed (%.1f%%)",
+            kib(last.heapUsedK()), kib(last.heapTotalK()), last.heapUsagePercent()));
+        if (last.heapMaxK() != null) {
+            sb.append(", max ").append(kib(last.heapMaxK()));
+        }
+        long intervalMs = lastSample.timestamp() - firstSample.timestamp();
+        if (first != last && intervalMs > 0) {
+            long delta = last.heapUsedK() - first.heapUsedK();
+            sb.append(String.format(Locale.US, "; %s%s over %.0fs (%s%s/min)",
+                delta < 0 ? "-" : "+", kib(Math.abs(delta)), intervalMs / 1000.0,
+                delta < 0 ? "-" : "+", kib(Math.round(Math.abs(delta) * 60_000.0 / intervalMs))));
+        }
+        sb.append('\n');
+        if (last.metaspaceUsedK() != null) {
+            sb.append("Metaspace used ").append(kib(last.metaspaceUsedK()))
+                .append(" of ").append(kib(last.metaspaceCommittedK())).append(" committed\n");
+        }
+        facts.add(new Fact(Priority.HEAP_TREND, last.heapUsagePercent(), null, sb.toString(), false));
+    }
+
+    // ── thread states ────────────────────────────────────────────────────────
+
+    private static void addThreadStates(List<Fact> facts, List<ThreadDump> dumps) {
+        if (dumps.isEmpty()) {
+            return;
+        }
+        List<ThreadInfo> threads = dumps.get(dumps.size() - 1).threads();
+        Map<Thread.State, Integer> counts = new EnumMap<>(Thread.State.class);
+        for (ThreadInfo thread : threads) {
+            if (thread.state() != null) {
+                counts.merge(thread.state(), 1, Integer::sum);
+            }
+        }
+        StringBuilder sb = new StringBuilder("Threads by state:");
+        counts.forEach((state, count) -> sb.append(' ').append(state).append(' ').append(count).append(','));
+        sb.setLength(sb.length() - 1);
+        sb.append('\n');
+
+        if (dumps.size() > 1) {
+            Map<Object, ThreadInfo> first = new HashMap<>();
+            dumps.get(0).threads().forEach(t -> first.put(key(t), t));
+            int idleRunnable = 0;
+            for (ThreadInfo thread : threads) {
+                ThreadInfo before = first.get(key(thread));
+                if (thread.state() == Thread.State.RUNNABLE && before != null && before.state() == Thread.State.RUNNABLE
+                    && thread.cpuTimeSec() != null && before.cpuTimeSec() != null
+                    && thread.cpuTimeSec() - before.cpuTimeSec() < 0.001 && !isInternal(thread.name())) {
+                    idleRunnable++;
+                }
+            }
+            if (idleRunnable >= 4) {
+                sb.append(idleRunnable).append(" RUNNABLE threads used no CPU between the dumps: likely blocked in native code"
+                    + " (socket/file I/O, JNI); call get_threads_by_state RUNNABLE to inspect their stacks\n");
+            }
+        }
+        if (counts.getOrDefault(Thread.State.WAITING, 0) >= 2) {
+            sb.append("WAITING threads with 0 CPU are normal for threads parked on a ReentrantLock or Semaphore;"
+                + " call get_threads_by_state WAITING to check whether they are stuck on a lock\n");
+        }
+        if (threads.size() > 200) {
+            sb.append("WARNING: ").append(threads.size()).append(" threads, possible thread leak or oversized pool\n");
+        }
+        facts.add(new Fact(Priority.THREAD_STATES, 0, null, sb.toString(), false));
+    }
+
+    // ── remaining status sections ────────────────────────────────────────────
+
+    private static void addSections(List<Fact> facts, Map<String, AnalyzerOutput> sections) {
+        int index = 0;
+        for (Map.Entry<String, AnalyzerOutput> e : sections.entrySet()) {
+            index++;
+            if (COVERED_SECTIONS.contains(e.getKey())) {
+                continue;
+            }
+            String text = render(e.getValue()).strip();
+            if (!text.isEmpty()) {
+                // Earlier sections first, as in the status output
+                facts.add(new Fact(Priority.SECTION, -index, e.getKey(), text, true));
+            }
+        }
+    }
+
+    private static Map<String, AnalyzerOutput> sections(AnalyzerOutput status) {
+        Map<String, AnalyzerOutput> sections = new LinkedHashMap<>();
+        if (status instanceof AnalyzerOutput.CompositeOutput composite) {
+            for (AnalyzerOutput.CompositeOutput.Section section : composite.sections()) {
+                sections.put(section.name(), section.content());
+            }
+        }
+        return sections;
+    }
+
+    /** Renders structured output compactly: tables as one {@code a | b | c} line per row. */
+    static String render(AnalyzerOutput output) {
+        StringBuilder sb = new StringBuilder();
+        if (output instanceof AnalyzerOutput.TextOutput text) {
+            sb.append(AnsiCodes.strip(text.text())).append('\n');
+        } else if (output instanceof AnalyzerOutput.TableOutput table) {
+            table.preambleLines().forEach(line -> sb.append(AnsiCodes.strip(line)).append('\n'));
+            TableModel model = table.table();
+            sb.append(String.join(" | ", model.getColumns().stream().map(TableModel.Column::header).toList())).append('\n');
+            for (Cell[] row : model.getRows()) {
+                for (int i = 0; i < row.length; i++) {
+                    sb.append(i > 0 ? " | " : "").append(AnsiCodes.strip(row[i].display()).strip());
+                }
+                sb.append('\n');
+            }
+        } else if (output instanceof AnalyzerOutput.CompositeOutput composite) {
+            for (AnalyzerOutput.CompositeOutput.Section section : composite.sections()) {
+                sb.append("-- ").append(section.name()).append(" --\n").append(render(section.content()));
+            }
+        }
+        return sb.toString();
+    }
+
+    // ── helpers ──────────────────────────────────────────────────────────────
+
+    private static Map<String, ThreadInfo> owners(List<ThreadInfo> threads) {
+        Map<String, ThreadInfo> owners = new HashMap<>();
+        for (ThreadInfo thread : threads) {
+            for (LockInfo lock : thread.locks()) {
+                if (lock.isLocked() && lock.lockId() != null) {
+                    owners.putIfAbsent(lock.lockId(), thread);
+                }
+            }
+        }
+        return owners;
+    }
+
+    /** The lock the thread is queued on and whose owner is known, or null. */
+    private static LockInfo waitedLock(ThreadInfo thread, Map<String, ThreadInfo> owners) {
+        Map<String, String> ownerNames = new HashMap<>();
+        for (LockInfo lock : thread.locks()) {
+            ThreadInfo owner = lock.lockId() != null ? owners.get(lock.lockId()) : null;
+            if (owner != null) {
+                ownerNames.put(lock.lockId(), owner.name());
+            }
+        }
+        LockInfo lock = LockContentionAnalyzer.ContentionTracker.contendedLock(thread, ownerNames);
+        return lock != null && ownerNames.containsKey(lock.lockId()) ? lock : null;
+    }
+
+    private static String describe(LockInfo lock) {
+        return (lock.className() != null ? lock.className() + " " : "") + "<" + lock.lockId() + ">";
+    }
+
+    private static String describeThread(ThreadInfo thread) {
+        String frame = topFrame(thread);
+        return "\"" + thread.name() + "\" (" + thread.state() + (frame != null ? " at " + frame : "") + ")";
+    }
+
+    private static String topFrame(ThreadInfo thread) {
+        if (thread.stackTrace().isEmpty()) {
+            return null;
+        }
+        StackFrame frame = thread.stackTrace().get(0);
+        return frame.className() + "." + frame.methodName();
+    }
+
+    private static Object key(ThreadInfo thread) {
+        return thread.threadId() != null ? thread.threadId() : thread.name();
+    }
+
+    private static boolean isInternal(String name) {
+        return JVM_INTERNAL_THREADS.contains(name) || MostWorkAnalyzer.isJmxInfrastructureThread(name);
+    }
+
+    private static double elapsedSec(List<ThreadDump> dumps) {
+        ThreadDump first = dumps.get(0);
+        ThreadDump last = dumps.get(dumps.size() - 1);
+        if (first.timestamp() == null || last.timestamp() == null) {
+            return 0;
+        }
+        return (last.timestamp().toEpochMilli() - first.timestamp().toEpochMilli()) / 1000.0;
+    }
+
+    private static String kib(long kib) {
+        return Cell.formatBytes(kib * 1024);
+    }
+}
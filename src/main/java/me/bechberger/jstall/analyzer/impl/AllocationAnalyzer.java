@@ -0,0 +1,270 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement.ThreadSample;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.util.*;
+
+/**
+ * Ranks threads and stack groups by allocation rate (bytes per second).
+ * <p>
+ * Allocated bytes per thread are sampled with the bulk {@code ThreadMXBean.getThreadAllocatedBytes(long[])}
+ * operation alongside every thread dump, which only reads per-thread TLAB counters and does not walk
+ * the heap like {@code GC.class_histogram}. Each thread's rate is the difference between its first
+ * and last sample divided by the time between them. Threads are joined to the stacks of the latest
+ * thread dump by thread id; threads with the same top frames form a stack group.
+ * <p>
+ * Requires a JMX connection to the target JVM; without one no samples are collected.
+ */
+public class AllocationAnalyzer extends BaseAnalyzer {
+
+    /** Number of top frames (class + method, ignoring line numbers) that identify a stack group. */
+    static final int STACK_GROUP_DEPTH = 5;
+
+    @Override
+    public String name() {
+        return "allocation";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.MANY;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .addThreadDumps(count, intervalMs)
+            .addMXBeanMetrics(MXBeanMetricsRequirement.Kind.THREADS, count, intervalMs)
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        int topN = getIntOption(options, "top", 10);
+
+        Map<Long, ThreadRate> rates = new LinkedHashMap<>();
+        long firstTimestamp = Long.MAX_VALUE;
+        long lastTimestamp = Long.MIN_VALUE;
+        int sampleCount = 0;
+        for (CollectedData sample : data.collectedData(MXBeanMetricsRequirement.Kind.THREADS.type())) {
+            List<ThreadSample> threads = MXBeanMetricsRequirement.parseThreads(sample.rawData());
+            if (threads.isEmpty()) {
+                continue;
+            }
+            sampleCount++;
+            firstTimestamp = Math.min(firstTimestamp, sample.timestamp());
+            lastTimestamp = Math.max(lastTimestamp, sample.timestamp());
+            for (ThreadSample thread : threads) {
+                if (thread.allocatedBytes() < 0 || MostWorkAnalyzer.isJmxInfrastructureThread(thread.name())) {
+                    continue;
+                }
+                rates.computeIfAbsent(thread.id(), ThreadRate::new)
+                    .observe(sample.timestamp(), thread);
+            }
+        }
+        if (sampleCount < 2 || lastTimestamp <= firstTimestamp) {
+            return AnalyzerResult.ok("No per-thread allocation data (needs at least 2 samples over a JMX connection to the target JVM)");
+        }
+
+        joinStacks(rates, data.dumps());
+
+        List<ThreadRate> ranked = rates.values().stream()
+            .filter(r -> r.spanMs > 0)
+            .sorted(Comparator.comparingDouble(ThreadRate::bytesPerSecond).reversed()
+                .thenComparingLong(r -> r.id))
+            .toList();
+        double spanSec = (lastTimestamp - firstTimestamp) / 1000.0;
+        long totalBytes = ranked.stream().mapToLong(r -> r.allocatedBytes).sum();
+        double totalRate = totalBytes / spanSec;
+
+        List<StackGroup> groups = groupByStack(ranked);
+
+        List<String> threadPreamble = List.of(
+            String.format(Locale.US, "Allocation rate (%d samples over %.1fs): %s total",
+                sampleCount, spanSec, formatRate(totalRate)),
+            shownOf(Math.min(limit(topN), ranked.size()), ranked.size(), "threads"));
+        TableModel.Builder threadTable = TableModel.builder()
+            .setMaxCellWidth(60)
+            .addColumn("THREAD", TableModel.Alignment.LEFT)
+            .addColumn("RATE", TableModel.Alignment.RIGHT)
+            .addColumn("ALLOCATED", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT)
+            .addColumn("STATE", TableModel.Alignment.LEFT)
+            .addColumn("TOP FRAME", TableModel.Alignment.LEFT);
+        for (ThreadRate r : ranked.subList(0, Math.min(limit(topN), ranked.size()))) {
+            threadTable.addRow(
+                Cell.text(r.name),
+                rateCell(r.bytesPerSecond(), totalRate),
+                Cell.bytes(r.allocatedBytes),
+                shareCell(r.allocatedBytes, totalBytes),
+                Cell.text(r.state),
+                Cell.text(r.topFrame()));
+        }
+
+        TableModel.Builder stackTable = TableModel.builder()
+            .setMaxCellWidth(60)
+            .addColumn("STACK", TableModel.Alignment.LEFT)
+            .addColumn("THREADS", TableModel.Alignment.RIGHT)
+            .addColumn("RATE", TableModel.Alignment.RIGHT)
+            .addColumn("ALLOCATED", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT)
+            .addColumn("EXAMPLE THREAD", TableModel.Alignment.LEFT);
+        for (StackGroup g : groups.subList(0, Math.min(limit(topN), groups.size()))) {
+            stackTable.addRow(
+                Cell.text(g.label),
+                Cell.integer(g.threads.size()),
+                rateCell(g.allocatedBytes / spanSec, totalRate),
+                Cell.bytes(g.allocatedBytes),
+                shareCell(g.allocatedBytes, totalBytes),
+                Cell.text(g.threads.get(0).name));
+        }
+
+        List<AnalyzerOutput.CompositeOutput.Section> sections = new ArrayList<>();
+        sections.add(new AnalyzerOutput.CompositeOutput.Section("Threads",
+            new AnalyzerOutput.TableOutput(threadPreamble, threadTable.build())));
+        sections.add(new AnalyzerOutput.CompositeOutput.Section("Stacks",
+            new AnalyzerOutput.TableOutput(
+                List.of(shownOf(Math.min(limit(topN), groups.size()), groups.size(),
+                    "stack groups (top " + STACK_GROUP_DEPTH + " frames of the latest dump)")),
+                stackTable.build())));
+        return AnalyzerResult.ok(new AnalyzerOutput.CompositeOutput(sections));
+    }
+
+    /** Attaches the stack and state of the latest dump that contains each thread. */
+    private static void joinStacks(Map<Long, ThreadRate> rates, List<ThreadDumpSnapshot> dumps) {
+        for (int i = dumps.size() - 1; i >= 0; i--) {
+            for (ThreadInfo thread : dumps.get(i).parsed().threads()) {
+                if (thread.threadId() == null) {
+                    continue;
+                }
+                ThreadRate rate = rates.get(thread.threadId());
+                if (rate != null && rate.stack == null) {
+                    rate.stack = thread.stackTrace() == null ? List.of() : thread.stackTrace();
+                    if (thread.state() != null) {
+                        rate.state = thread.state().name();
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<StackGroup> groupByStack(List<ThreadRate> threads) {
+        Map<List<String>, StackGroup> groups = new LinkedHashMap<>();
+        for (ThreadRate thread : threads) {
+            List<String> key = thread.stackKey();
+            StackGroup group = groups.computeIfAbsent(key, k -> new StackGroup(
+                k.isEmpty() ? "<no stack>" : String.join(" ← ", k)));
+            group.threads.add(thread);
+            group.allocatedBytes += thread.allocatedBytes;
+        }
+        return groups.values().stream()
+            .sorted(Comparator.comparingLong((StackGroup g) -> g.allocatedBytes).reversed())
+            .toList();
+    }
+
+    private static int limit(int topN) {
+        return topN > 0 ? topN : Integer.MAX_VALUE;
+    }
+
+    private static String shownOf(int shown, int total, String what) {
+        return shown < total ? "Showing top " + shown + " of " + total + " " + what : total + " " + what;
+    }
+
+    private static Cell rateCell(double bytesPerSecond, double totalRate) {
+        double share = totalRate > 0 ? bytesPerSecond / totalRate : 0;
+        return Cell.number(formatRate(bytesPerSecond), bytesPerSecond,
+            share >= 0.5 ? Cell.Color.RED : share >= 0.2 ? Cell.Color.YELLOW : null);
+    }
+
+    private static Cell shareCell(long bytes, long totalBytes) {
+        double pct = totalBytes > 0 ? bytes * 100.0 / totalBytes : 0;
+        return Cell.number(String.format(Locale.US, "%.1f%%", pct), pct);
+    }
+
+    private static String formatRate(double bytesPerSecond) {
+        return Cell.formatBytes((long) bytesPerSecond) + "/s";
+    }
+
+    /** Allocation of one thread between its first and last sample. */
+    private static final class ThreadRate {
+        final long id;
+        String name;
+        String state;
+        long firstBytes;
+        long firstTimestamp = -1;
+        long allocatedBytes;
+        long spanMs;
+        List<StackFrame> stack;
+
+        ThreadRate(long id) {
+            this.id = id;
+        }
+
+        void observe(long timestamp, ThreadSample sample) {
+            name = sample.name();
+            state = sample.state();
+            if (firstTimestamp < 0) {
+                firstTimestamp = timestamp;
+                firstBytes = sample.allocatedBytes();
+                return;
+            }
+            allocatedBytes = Math.max(0, sample.allocatedBytes() - firstBytes);
+            spanMs = timestamp - firstTimestamp;
+        }
+
+        double bytesPerSecond() {
+            return spanMs > 0 ? allocatedBytes * 1000.0 / spanMs : 0;
+        }
+
+        List<String> stackKey() {
+            if (stack == null || stack.isEmpty()) {
+                return List.of();
+            }
+            List<String> key = new ArrayList<>(STACK_GROUP_DEPTH);
+            for (int i = 0; i < Math.min(STACK_GROUP_DEPTH, stack.size()); i++) {
+                key.add(frameName(stack.get(i)));
+            }
+            return key;
+        }
+
+        String topFrame() {
+            return stack == null || stack.isEmpty() ? "" : frameName(stack.get(0));
+        }
+
+        private static String frameName(StackFrame frame) {
+            String className = frame.className();
+            int dot = className.lastIndexOf('.');
+            return (dot >= 0 ? className.substring(dot + 1) : className) + "." + frame.methodName();
+        }
+    }
+
+    private static final class StackGroup {
+        final String label;
+        final List<ThreadRate> threads = new ArrayList<>();
+        long allocatedBytes;
+
+        StackGroup(String label) {
+            this.label = label;
+        }
+    }
+}
@@ -7,24 +7,27 @@ import me.bechberger.jstall.analyzer.Cell;
 import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.analyzer.TableModel;
-import me.bechberger.jstall.model.ClassHistogram;
-import me.bechberger.jstall.model.ClassHistogramEntry;
-import me.bechberger.jstall.parser.ClassHistogramParser;
 import me.bechberger.jstall.provider.requirement.CollectedData;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.histogram.ClassHistogramSeries;
+import me.bechberger.jstall.util.histogram.ClassNameTable;
+import me.bechberger.jstall.util.histogram.TopK;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntToLongFunction;
 
 /**
  * Compares class histograms captured alongside thread dumps and reports the biggest deltas.
  * <p>
- * Requires at least two histogram captures.
+ * Requires at least two histogram captures. All captures are streamed through a
+ * {@link ClassHistogramSeries} (primitive arrays per interned class, no row objects), the deltas
+ * are first against last histogram and the top classes are selected with {@link TopK} instead of
+ * sorting every class. With more than two captures the delta table also shows in how many
+ * intervals each class grew.
  */
 public class ClassHistogramDiffAnalyzer extends BaseAnalyzer {
 
@@ -76,67 +79,54 @@ public class ClassHistogramDiffAnalyzer extends BaseAnalyzer {
             return AnalyzerResult.nothing();
         }
 
-        String beforeRaw = histogramData.get(0).rawData();
-        String afterRaw = histogramData.get(histogramData.size() - 1).rawData();
-
-        if (beforeRaw == null || beforeRaw.isBlank() || afterRaw == null || afterRaw.isBlank()) {
-            return AnalyzerResult.nothing();
+        ClassHistogramSeries series = new ClassHistogramSeries();
+        for (CollectedData sample : histogramData) {
+            if (sample.rawData() != null && !sample.rawData().isBlank()) {
+                series.add(sample.timestamp(), sample.rawData());
+            }
         }
-
-        ClassHistogram before = ClassHistogramParser.parse(beforeRaw);
-        ClassHistogram after = ClassHistogramParser.parse(afterRaw);
-        if (before.entries().isEmpty() || after.entries().isEmpty()) {
+        if (series.samples() < 2) {
             return AnalyzerResult.nothing();
         }
 
         int top = getIntOption(options, "top", 10);
         String sort = getStringOption(options, "sort", "bytes");
 
-        Map<String, Agg> b = aggregate(before);
-        Map<String, Agg> a = aggregate(after);
-
-        Map<String, Delta> deltas = new HashMap<>();
-        for (var e : b.entrySet()) {
-            String key = e.getKey();
-            Agg bb = e.getValue();
-            Agg aa = a.getOrDefault(key, Agg.ZERO);
-            deltas.put(key, new Delta(key, bb.module, bb.instances, bb.bytes, aa.instances, aa.bytes));
-        }
-        for (var e : a.entrySet()) {
-            String key = e.getKey();
-            if (deltas.containsKey(key)) {
-                continue;
-            }
-            Agg aa = e.getValue();
-            deltas.put(key, new Delta(key, aa.module, 0, 0, aa.instances, aa.bytes));
-        }
-
-        Comparator<Delta> cmp = switch (sort) {
-            case "instances" -> Comparator.comparingLong(Delta::deltaInstances).reversed();
-            default -> Comparator.comparingLong(Delta::deltaBytes).reversed();
+        IntToLongFunction key = switch (sort) {
+            case "instances" -> series::deltaInstances;
+            default -> series::deltaBytes;
         };
-
-        List<Delta> topGrowers = deltas.values().stream().sorted(cmp).limit(top).toList();
+        int[] topGrowers = TopK.largest(series.classCount(), top, key);
 
         NumberFormat nf = NumberFormat.getIntegerInstance();
+        ClassNameTable names = series.names();
+        boolean trend = series.intervals() > 1;
 
         TableModel.Builder deltaTable = TableModel.builder()
             .addColumn("Δbytes", TableModel.Alignment.RIGHT)
-            .addColumn("Δinst", TableModel.Alignment.RIGHT)
+            .addColumn("Δinst", TableModel.Alignment.RIGHT);
+        if (trend) {
+            deltaTable.addColumn("grew", TableModel.Alignment.RIGHT);
+        }
+        deltaTable
             .addColumn("class", TableModel.Alignment.LEFT)
             .addColumn("module", TableModel.Alignment.LEFT);
 
-        for (var d : topGrowers) {
-            deltaTable.addRow(
-                Cell.number(nf.format(d.deltaBytes()), d.deltaBytes()),
-                Cell.number(nf.format(d.deltaInstances()), d.deltaInstances()),
-                Cell.text(d.className),
-                Cell.text(d.module == null ? "" : d.module)
-            );
+        for (int id : topGrowers) {
+            List<Cell> row = new ArrayList<>();
+            row.add(Cell.number(nf.format(series.deltaBytes(id)), series.deltaBytes(id)));
+            row.add(Cell.number(nf.format(series.deltaInstances(id)), series.deltaInstances(id)));
+            if (trend) {
+                // intervals in which the class grew, e.g. "4/4" for steady growth
+                row.add(Cell.number(series.grownIntervals(id) + "/" + series.intervals(), series.grownIntervals(id)));
+            }
+            row.add(Cell.text(names.name(id)));
+            row.add(Cell.text(names.module(id) == null ? "" : names.module(id)));
+            deltaTable.addRow(row.toArray(Cell[]::new));
         }
 
-        long bytesBefore = before.totalBytes();
-        long bytesAfter = after.totalBytes();
+        long bytesBefore = series.firstTotalBytes();
+        long bytesAfter = series.lastTotalBytes();
         
         // Top classes by bytes in last dump
         TableModel.Builder topClassesTable = TableModel.builder()
@@ -145,52 +135,27 @@ public class ClassHistogramDiffAnalyzer extends BaseAnalyzer {
             .addColumn("class", TableModel.Alignment.LEFT)
             .addColumn("module", TableModel.Alignment.LEFT);
         
-        for (var entry : after.topByBytes(top)) {
+        for (int id : TopK.largest(series.classCount(), top, series::lastBytes)) {
+            if (series.lastBytes(id) == 0) {
+                break; // classes only present in earlier histograms
+            }
             topClassesTable.addRow(
-                Cell.number(nf.format(entry.bytes()), entry.bytes()),
-                Cell.number(nf.format(entry.instances()), entry.instances()),
-                Cell.text(entry.className()),
-                Cell.text(entry.module() == null ? "" : entry.module())
+                Cell.number(nf.format(series.lastBytes(id)), series.lastBytes(id)),
+                Cell.number(nf.format(series.lastInstances(id)), series.lastInstances(id)),
+                Cell.text(names.name(id)),
+                Cell.text(names.module(id) == null ? "" : names.module(id))
             );
         }
 
         String totalLine = "Total bytes: " + nf.format(bytesBefore) + " -> " + nf.format(bytesAfter) + " (Δ " + nf.format(bytesAfter - bytesBefore) + ")";
+        String deltaLine = "Class histogram delta (first -> last of " + series.samples() + " histograms)";
 
         List<AnalyzerOutput.CompositeOutput.Section> sections = new ArrayList<>();
         sections.add(new AnalyzerOutput.CompositeOutput.Section("Delta",
-            new AnalyzerOutput.TableOutput(List.of("Class histogram delta (first -> last dump)"), deltaTable.build())));
+            new AnalyzerOutput.TableOutput(List.of(deltaLine), deltaTable.build())));
         sections.add(new AnalyzerOutput.CompositeOutput.Section("Top Classes",
             new AnalyzerOutput.TableOutput(List.of(totalLine, "", "Top " + top + " allocated classes in last dump:"), topClassesTable.build())));
 
         return AnalyzerResult.ok(new AnalyzerOutput.CompositeOutput(sections));
     }
-
-    private static Map<String, Agg> aggregate(ClassHistogram h) {
-        Map<String, Agg> map = new HashMap<>();
-        for (ClassHistogramEntry e : h.entries()) {
-            map.merge(e.className(), new Agg(e.module(), e.instances(), e.bytes()), Agg::merge);
-        }
-        return map;
-    }
-
-    private record Agg(String module, long instances, long bytes) {
-        static final Agg ZERO = new Agg(null, 0, 0);
-
-        Agg merge(Agg other) {
-            String mod = module != null ? module : other.module;
-            return new Agg(mod, instances + other.instances, bytes + other.bytes);
-        }
-    }
-
-    private record Delta(String className, String module,
-                         long beforeInstances, long beforeBytes,
-                         long afterInstances, long afterBytes) {
-        long deltaInstances() {
-            return afterInstances - beforeInstances;
-        }
-
-        long deltaBytes() {
-            return afterBytes - beforeBytes;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.provider.requirement.AsyncProfilerWindowRequirement;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.util.flame.FlameProfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sums the async-profiler windows of resolved data into one {@link FlameProfile}.
+ * <p>
+ * Live collection stores them under {@link AsyncProfilerWindowRequirement#typeFor the event's type},
+ * replays under the archive directory ({@code flamegraphs} for CPU; only the {@code .collapsed}
+ * files are profiles).
+ */
+final class CollectedProfiles {
+
+    private static final String CPU_EVENT = "cpu";
+
+    private CollectedProfiles() {
+    }
+
+    /** Returns the summed CPU profile, or null if there are no collapsed-stack windows. */
+    static FlameProfile sum(ResolvedData data) {
+        return sum(data, CPU_EVENT);
+    }
+
+    /** Returns the summed profile of {@code event} windows, or null if there are none. */
+    static FlameProfile sum(ResolvedData data, String event) {
+        FlameProfile profile = null;
+        for (CollectedData window : windows(data, event)) {
+            FlameProfile parsed = FlameProfile.parseCollapsed(window.rawData());
+            profile = profile == null ? parsed : profile.merge(parsed);
+        }
+        return profile;
+    }
+
+    /** Returns the non-empty collapsed-stack windows of {@code event}, live ones first. */
+    static List<CollectedData> windows(ResolvedData data, String event) {
+        List<CollectedData> windows = new ArrayList<>();
+        for (String type : List.of(AsyncProfilerWindowRequirement.typeFor(event), AsyncProfilerWindowRequirement.directoryFor(event))) {
+            for (CollectedData window : data.collectedData(type)) {
+                if (isCollapsed(window) && window.rawData() != null && !window.rawData().isBlank()) {
+                    windows.add(window);
+                }
+            }
+        }
+        return windows;
+    }
+
+    private static boolean isCollapsed(CollectedData window) {
+        return AsyncProfilerWindowRequirement.FORMAT_COLLAPSED.equals(window.metadata().get(AsyncProfilerWindowRequirement.FORMAT_KEY))
+            || window.metadata().getOrDefault("file", "").endsWith(".collapsed");
+    }
+}
@@ -19,6 +19,9 @@ import java.util.stream.Collectors;
  * Analyzes thread dependencies across all dumps, building BFS dependency graphs per dump,
  * aggregating by root thread and rendering tree output showing
  * potential bottleneck roots with their blocked thread trees.
+ * <p>
+ * The lock graph is kept in an {@link IncrementalLockGraph} that only applies the edges that
+ * changed between consecutive dumps, and root groups are updated in place while streaming.
  */
 public class DependencyTreeAnalyzer extends BaseAnalyzer {
 
@@ -42,7 +45,20 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
         }
     }
 
-    record RootGroup(ThreadInfo root, List<DependencyGraph> graphs) {
+    /**
+     * All graphs of one root thread, in dump order.
+     *
+     * @param seenNodes every thread that appeared in any of the graphs, with the info from its first appearance
+     */
+    record RootGroup(ThreadInfo root, List<DependencyGraph> graphs, Map<Long, ThreadInfo> seenNodes) {
+        RootGroup(ThreadInfo root) {
+            this(root, new ArrayList<>(), new LinkedHashMap<>());
+        }
+
+        void add(DependencyGraph graph) {
+            graphs.add(graph);
+            graph.nodes().forEach(seenNodes::putIfAbsent);
+        }
     }
 
     @Override
@@ -71,21 +87,23 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
             return analyzeGraphFormat(dumps);
         }
 
-        List<DependencyGraph> allGraphs = new ArrayList<>();
+        IncrementalLockGraph lockGraph = new IncrementalLockGraph();
+        Map<Long, RootGroup> groupsByRoot = new LinkedHashMap<>();
         for (ThreadDump dump : dumps) {
             LockDependencies dependencies = buildLockDependencies(dump.threads());
-            List<ThreadInfo> roots = findRootThreads(dependencies);
+            lockGraph.update(dump.threads(), dependencies);
             Instant ts = dump.timestamp();
-            for (ThreadInfo root : roots) {
-                DependencyGraph graph = buildGraph(dependencies, root, ts);
+            for (ThreadInfo root : findRootThreads(dependencies)) {
+                if (root.threadId() == null) continue;
+                DependencyGraph graph = lockGraph.treeFrom(root, ts);
                 if (graph.size() > 1) { // Only include graphs with blocked threads (more than 1 dependency)
-                    allGraphs.add(graph);
+                    groupsByRoot.computeIfAbsent(root.threadId(), k -> new RootGroup(root)).add(graph);
                 }
             }
         }
 
         String deadlockSummary = extractDeadlockSummary(data.dumps());
-        if (allGraphs.isEmpty()) {
+        if (groupsByRoot.isEmpty()) {
             if (!deadlockSummary.isBlank()) {
                 return AnalyzerResult.ok(deadlockSummary);
             }
@@ -94,7 +112,7 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
                 + "No lock-based dependency trees found across collected dumps.");
         }
 
-        List<RootGroup> groups = aggregateGraphs(allGraphs);
+        List<RootGroup> groups = sortGroups(groupsByRoot.values());
 
         Map<Long, Instant> firstSeenTimes = computeFirstSeenTimes(groups);
 
@@ -156,43 +174,9 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
     }
 
     private boolean hasCycle(Map<ThreadInfo, Set<ThreadInfo>> dependencies) {
-        Map<Long, Set<Long>> graph = new HashMap<>();
-        for (Map.Entry<ThreadInfo, Set<ThreadInfo>> e : dependencies.entrySet()) {
-            if (e.getKey().threadId() == null) {
-                continue;
-            }
-            Set<Long> ownerIds = new HashSet<>();
-            for (ThreadInfo owner : e.getValue()) {
-                if (owner.threadId() != null) {
-                    ownerIds.add(owner.threadId());
-                }
-            }
-            graph.put(e.getKey().threadId(), ownerIds);
-        }
-        Set<Long> visited = new HashSet<>();
-        Set<Long> inStack = new HashSet<>();
-        for (Long node : graph.keySet()) {
-            if (!visited.contains(node) && dfsHasCycle(node, graph, visited, inStack)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean dfsHasCycle(Long node, Map<Long, Set<Long>> graph, Set<Long> visited, Set<Long> inStack) {
-        visited.add(node);
-        inStack.add(node);
-        for (Long neighbor : graph.getOrDefault(node, Set.of())) {
-            if (!visited.contains(neighbor)) {
-                if (dfsHasCycle(neighbor, graph, visited, inStack)) {
-                    return true;
-                }
-            } else if (inStack.contains(neighbor)) {
-                return true;
-            }
-        }
-        inStack.remove(node);
-        return false;
+        IncrementalLockGraph graph = new IncrementalLockGraph();
+        dependencies.forEach((waiter, owners) -> owners.forEach(owner -> graph.addEdge(waiter, owner)));
+        return graph.hasCycle();
     }
 
     private String formatSimpleGraph(Map<ThreadInfo, Set<ThreadInfo>> dependencies,
@@ -295,69 +279,8 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
             .toList();
     }
 
-    DependencyGraph buildGraph(LockDependencies dependencies, ThreadInfo root, Instant timestamp) {
-        Set<Link> links = buildLinks(dependencies);
-
-        Map<Long, ThreadInfo> nodes = new HashMap<>();
-        Map<Long, List<Long>> adjacency = new HashMap<>();
-
-        Set<Long> visited = new HashSet<>();
-        Queue<ThreadInfo> queue = new ArrayDeque<>();
-        queue.add(root);
-        visited.add(root.threadId());
-
-        while (!queue.isEmpty()) {
-            ThreadInfo current = queue.poll();
-            nodes.put(current.threadId(), current);
-            adjacency.putIfAbsent(current.threadId(), new ArrayList<>());
-
-            for (Link link : links) {
-                if (Objects.equals(link.owner.threadId(), current.threadId()) && visited.add(link.waiter.threadId())) {
-                    queue.add(link.waiter);
-                    adjacency.computeIfAbsent(current.threadId(), k -> new ArrayList<>())
-                            .add(link.waiter.threadId());
-                }
-            }
-        }
-
-        return new DependencyGraph(root, timestamp, nodes, adjacency);
-    }
-
-    private record Link(ThreadInfo owner, ThreadInfo waiter) {
-    }
-
-    private Set<Link> buildLinks(LockDependencies dependencies) {
-        Map<String, Set<ThreadInfo>> waitersByResource = new HashMap<>();
-        dependencies.waiters().forEach((thread, resources) -> {
-            for (String resource : resources) {
-                waitersByResource.computeIfAbsent(resource, k -> new HashSet<>()).add(thread);
-            }
-        });
-
-        Set<Link> links = new LinkedHashSet<>();
-        dependencies.owners().forEach((owner, resources) -> {
-            for (String resource : resources) {
-                Set<ThreadInfo> waiting = waitersByResource.get(resource);
-                if (waiting != null) {
-                    for (ThreadInfo waiter : waiting) {
-                        links.add(new Link(owner, waiter));
-                    }
-                }
-            }
-        });
-        return links;
-    }
-
-    List<RootGroup> aggregateGraphs(List<DependencyGraph> allGraphs) {
-        Map<Long, RootGroup> byRootId = new LinkedHashMap<>();
-
-        for (DependencyGraph graph : allGraphs) {
-            long rootId = graph.root().threadId();
-            byRootId.computeIfAbsent(rootId, k -> new RootGroup(graph.root(), new ArrayList<>()))
-                    .graphs().add(graph);
-        }
-
-        return byRootId.values().stream()
+    List<RootGroup> sortGroups(Collection<RootGroup> groups) {
+        return groups.stream()
             .sorted(Comparator
                 .comparingInt((RootGroup rg) -> rg.graphs().size()).reversed()
                 .thenComparing(rg -> rg.root().threadId(), Comparator.nullsLast(Long::compareTo))
@@ -413,22 +336,18 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
         Set<Long> biggestNodeIds = biggest.nodes().keySet();
         Set<Long> disappeared = new LinkedHashSet<>();
 
-        for (DependencyGraph graph : group.graphs()) {
-            for (Long threadId : graph.nodes().keySet()) {
-                if (!biggestNodeIds.contains(threadId)) {
-                    disappeared.add(threadId);
-                }
+        for (Long threadId : group.seenNodes().keySet()) {
+            if (!biggestNodeIds.contains(threadId)) {
+                disappeared.add(threadId);
             }
         }
 
+        // Every seen node not in the latest graph was in an earlier one
         DependencyGraph latest = group.graphs().get(group.graphs().size() - 1);
         Set<Long> latestNodeIds = latest.nodes().keySet();
-        for (DependencyGraph graph : group.graphs()) {
-            if (graph == latest) continue;
-            for (Long threadId : graph.nodes().keySet()) {
-                if (!latestNodeIds.contains(threadId) && !Objects.equals(threadId, group.root().threadId())) {
-                    disappeared.add(threadId);
-                }
+        for (Long threadId : group.seenNodes().keySet()) {
+            if (!latestNodeIds.contains(threadId) && !Objects.equals(threadId, group.root().threadId())) {
+                disappeared.add(threadId);
             }
         }
 
@@ -451,11 +370,7 @@ public class DependencyTreeAnalyzer extends BaseAnalyzer {
 
         long rootId = biggest.root().threadId();
         for (Long disappearedId : disappearedIds) {
-            ThreadInfo disappeared = null;
-            for (DependencyGraph g : group.graphs()) {
-                disappeared = g.nodes().get(disappearedId);
-                if (disappeared != null) break;
-            }
+            ThreadInfo disappeared = group.seenNodes().get(disappearedId);
             if (disappeared == null) continue;
 
             mergedNodes.put(disappearedId, disappeared);
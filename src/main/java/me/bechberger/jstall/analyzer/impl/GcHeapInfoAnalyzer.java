@@ -6,9 +6,13 @@ import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.provider.requirement.CollectedData;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement.CollectorSample;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement.MemorySample;
 import me.bechberger.jstall.util.TablePrinter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -17,12 +21,30 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Analyzes GC.heap_info samples.
+ * Analyzes heap, metaspace and garbage collector usage.
  * <p>
- * Shows absolute values from the last dump plus the change compared to the previous dump.
+ * Shows absolute values from the last sample plus the change compared to the previous sample.
+ * Used and committed sizes come from the memory MXBeans and the collector counters from the
+ * garbage collector MXBeans when a JMX connection was available; the region counts and reserved
+ * sizes, which no MXBean exposes, come from {@code GC.heap_info}, which is also the fallback for
+ * everything else (remote targets, recordings without MXBean samples).
  */
 public class GcHeapInfoAnalyzer implements Analyzer {
 
+    // Old G1GC format: "heap total 12345K, used 123K [0x00000000c0000000, 0x0000000100000000)"
+    private static final Pattern HEAP_PATTERN_OLD = Pattern.compile(".*\\bheap\\s+total\\s+(\\d+)K,\\s+used\\s+(\\d+)K(?:\\s+\\[0x([0-9a-fA-F]+),\\s*0x([0-9a-fA-F]+)\\))?.*");
+    // New G1GC format (JDK 21+): "garbage-first heap   total reserved NxK, committed NxK, used NxK"
+    private static final Pattern HEAP_PATTERN_NEW = Pattern.compile(".*\\bheap\\s+total\\s+reserved\\s+(\\d+)K,\\s+committed\\s+(\\d+)K,\\s+used\\s+(\\d+)K.*");
+    // Old region format: "region size 1024K, 5 young (5120K), 1 survivors (1024K)"
+    private static final Pattern REGION_PATTERN_OLD = Pattern.compile("region size\\s+\\d+K,\\s+(\\d+) young \\((\\d+)K\\),\\s+(\\d+) survivors \\((\\d+)K\\).*");
+    // New region format (JDK 21+): "region size 8M, 1 eden (8M), 1 survivor (8M), ..."
+    private static final Pattern REGION_PATTERN_NEW = Pattern.compile("region size\\s+\\d+[KMG],\\s+(\\d+)\\s+eden\\s+\\((\\d+)([KMG])\\),\\s+(\\d+)\\s+survivor\\s+\\((\\d+)([KMG])\\).*");
+    private static final Pattern METASPACE_PATTERN = Pattern.compile("Metaspace\\s+used\\s+(\\d+)K,\\s+committed\\s+(\\d+)K,\\s+reserved\\s+(\\d+)K.*");
+    private static final Pattern CLASS_SPACE_PATTERN = Pattern.compile("class space\\s+used\\s+(\\d+)K,\\s+committed\\s+(\\d+)K,\\s+reserved\\s+(\\d+)K.*");
+
+    private static final String METASPACE_POOL = "Metaspace";
+    private static final String CLASS_SPACE_POOL = "Compressed Class Space";
+
     @Override
     public String name() {
         return "gc-heap-info";
@@ -45,12 +67,16 @@ public class GcHeapInfoAnalyzer implements Analyzer {
         return DataRequirements.builder()
             .addThreadDump()
             .addJcmd("GC.heap_info", count, intervalMs)
+            .addMXBeanMetrics(MXBeanMetricsRequirement.Kind.MEMORY, count, intervalMs)
+            .addMXBeanMetrics(MXBeanMetricsRequirement.Kind.GC, count, intervalMs)
             .build();
     }
 
     @Override
     public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
-        String output = formatGcHeapInfoAnalysis(data.collectedData("gc-heap-info"));
+        String output = formatGcHeapInfoAnalysis(data.collectedData("gc-heap-info"),
+            data.collectedData(MXBeanMetricsRequirement.Kind.MEMORY.type()),
+            data.collectedData(MXBeanMetricsRequirement.Kind.GC.type()));
         if (output.isEmpty()) {
             return AnalyzerResult.nothing();
         }
@@ -77,19 +103,42 @@ public class GcHeapInfoAnalyzer implements Analyzer {
         return defaultValue;
     }
 
-    private String formatGcHeapInfoAnalysis(List<CollectedData> samples) {
-        if (samples == null || samples.isEmpty()) {
-            return "";
+    private String formatGcHeapInfoAnalysis(List<CollectedData> samples, List<CollectedData> memorySamples,
+                                            List<CollectedData> gcSamples) {
+        List<MemorySample> memory = new ArrayList<>();
+        for (CollectedData sample : memorySamples) {
+            MemorySample parsed = MXBeanMetricsRequirement.parseMemory(sample.rawData());
+            if (parsed != null) {
+                memory.add(parsed);
+            }
         }
-
-        HeapInfo latest = parseGcHeapInfo(samples.get(samples.size() - 1).rawData());
-        if (latest == null) {
-            return "";
+        List<HeapInfo> heapInfos = new ArrayList<>();
+        for (CollectedData sample : samples == null ? List.<CollectedData>of() : samples) {
+            HeapInfo parsed = parseGcHeapInfo(sample.rawData());
+            if (parsed != null) {
+                heapInfos.add(parsed);
+            }
         }
-
-        HeapInfo previous = null;
-        if (samples.size() > 1) {
-            previous = parseGcHeapInfo(samples.get(samples.size() - 2).rawData());
+        boolean fromMXBeans = !memory.isEmpty();
+
+        HeapInfo latest;
+        HeapInfo previous;
+        if (fromMXBeans) {
+            HeapInfo jcmd = heapInfos.isEmpty() ? null : heapInfos.get(heapInfos.size() - 1);
+            latest = fromMXBean(memory.get(memory.size() - 1), jcmd);
+            previous = memory.size() > 1
+                ? fromMXBean(memory.get(memory.size() - 2), heapInfos.size() > 1 ? heapInfos.get(heapInfos.size() - 2) : null)
+                : null;
+        } else {
+            // Only use the last two samples as before, even if an earlier one was unparseable
+            if (samples == null || samples.isEmpty()) {
+                return "";
+            }
+            latest = parseGcHeapInfo(samples.get(samples.size() - 1).rawData());
+            if (latest == null) {
+                return "";
+            }
+            previous = samples.size() > 1 ? parseGcHeapInfo(samples.get(samples.size() - 2).rawData()) : null;
         }
 
         List<Row> rows = new ArrayList<>();
@@ -127,6 +176,8 @@ public class GcHeapInfoAnalyzer implements Analyzer {
                 formatDelta(latest.classSpaceReservedK(), prev == null ? null : prev.classSpaceReservedK())));
         }
 
+        addCollectorRows(rows, gcSamples);
+
         TablePrinter table = new TablePrinter()
             .addColumn("Metric", TablePrinter.Alignment.LEFT)
             .addColumn("Value", TablePrinter.Alignment.RIGHT)
@@ -137,7 +188,77 @@ public class GcHeapInfoAnalyzer implements Analyzer {
             table.addRow(row.metric(), row.value(), row.details(), row.delta());
         }
 
-        return "GC.heap_info (last dump absolute + change):\n" + table.render();
+        String title = fromMXBeans
+            ? "Heap and metaspace from MXBeans (last sample absolute + change):\n"
+            : "GC.heap_info (last dump absolute + change):\n";
+        return title + table.render();
+    }
+
+    /**
+     * Heap and metaspace usage of an MXBean sample; region counts and reserved sizes, which the
+     * MXBeans don't expose, are taken from the {@code GC.heap_info} sample of the same cycle.
+     */
+    static HeapInfo fromMXBean(MemorySample sample, HeapInfo jcmd) {
+        MXBeanMetricsRequirement.Usage heap = sample.heap();
+        MXBeanMetricsRequirement.Usage metaspace = sample.pools().get(METASPACE_POOL);
+        MXBeanMetricsRequirement.Usage classSpace = sample.pools().get(CLASS_SPACE_POOL);
+        Long heapMax = heap.max() > 0 ? heap.max() / 1024 : (jcmd != null ? jcmd.heapMaxK() : null);
+        return new HeapInfo(heap.committed() / 1024, heap.used() / 1024, heapMax,
+            jcmd != null ? jcmd.youngRegionCount() : null, jcmd != null ? jcmd.youngRegionTotalK() : null,
+            jcmd != null ? jcmd.survivorRegionCount() : null, jcmd != null ? jcmd.survivorRegionTotalK() : null,
+            metaspace != null ? metaspace.used() / 1024 : null,
+            metaspace != null ? metaspace.committed() / 1024 : null,
+            jcmd != null ? jcmd.metaspaceReservedK() : null,
+            classSpace != null ? classSpace.used() / 1024 : null,
+            classSpace != null ? classSpace.committed() / 1024 : null,
+            jcmd != null ? jcmd.classSpaceReservedK() : null);
+    }
+
+    /** One row per garbage collector with its collection count and time, and their change. */
+    private void addCollectorRows(List<Row> rows, List<CollectedData> gcSamples) {
+        List<List<CollectorSample>> parsed = new ArrayList<>();
+        for (CollectedData sample : gcSamples) {
+            List<CollectorSample> collectors = MXBeanMetricsRequirement.parseCollectors(sample.rawData());
+            if (!collectors.isEmpty()) {
+                parsed.add(collectors);
+            }
+        }
+        if (parsed.isEmpty()) {
+            return;
+        }
+        Map<String, CollectorSample> previous = new HashMap<>();
+        if (parsed.size() > 1) {
+            for (CollectorSample collector : parsed.get(parsed.size() - 2)) {
+                previous.put(collector.name(), collector);
+            }
+        }
+        for (CollectorSample collector : parsed.get(parsed.size() - 1)) {
+            CollectorSample before = previous.get(collector.name());
+            String delta = before == null ? "n/a"
+                : String.format(Locale.ROOT, "Δ %+,d / %+,d ms",
+                    collector.count() - before.count(), collector.timeMs() - before.timeMs());
+            rows.add(new Row("GC " + collector.name(),
+                String.format(Locale.ROOT, "%,d", collector.count()),
+                String.format(Locale.ROOT, "%,d ms total", collector.timeMs()),
+                delta));
+        }
+    }
+
+    /**
+     * Maximum heap size in KiB from the latest parseable {@code GC.heap_info} sample: the reserved
+     * size (JDK 21+) or the reserved address range of the heap (older G1 output), null if unknown.
+     */
+    static Long maxHeapKib(List<CollectedData> samples) {
+        if (samples == null) {
+            return null;
+        }
+        for (int i = samples.size() - 1; i >= 0; i--) {
+            HeapInfo info = parseGcHeapInfo(samples.get(i).rawData());
+            if (info != null && info.heapMaxK() != null) {
+                return info.heapMaxK();
+            }
+        }
+        return null;
     }
 
         private String formatKib(Long kib) {
@@ -177,24 +298,14 @@ public class GcHeapInfoAnalyzer implements Analyzer {
         return "Δ " + signedK + " / " + signedHuman;
     }
 
-    private HeapInfo parseGcHeapInfo(String raw) {
+    static HeapInfo parseGcHeapInfo(String raw) {
         if (raw == null || raw.isBlank()) {
             return null;
         }
 
-        // Old G1GC format: "heap total 12345K, used 123K"
-        Pattern heapPatternOld = Pattern.compile(".*\\bheap\\s+total\\s+(\\d+)K,\\s+used\\s+(\\d+)K.*");
-        // New G1GC format (JDK 21+): "garbage-first heap   total reserved NxK, committed NxK, used NxK"
-        Pattern heapPatternNew = Pattern.compile(".*\\bheap\\s+total\\s+reserved\\s+\\d+K,\\s+committed\\s+(\\d+)K,\\s+used\\s+(\\d+)K.*");
-        // Old region format: "region size 1024K, 5 young (5120K), 1 survivors (1024K)"
-        Pattern regionPatternOld = Pattern.compile("region size\\s+\\d+K,\\s+(\\d+) young \\((\\d+)K\\),\\s+(\\d+) survivors \\((\\d+)K\\).*");
-        // New region format (JDK 21+): "region size 8M, 1 eden (8M), 1 survivor (8M), ..."
-        Pattern regionPatternNew = Pattern.compile("region size\\s+\\d+[KMG],\\s+(\\d+)\\s+eden\\s+\\((\\d+)([KMG])\\),\\s+(\\d+)\\s+survivor\\s+\\((\\d+)([KMG])\\).*");
-        Pattern metaspacePattern = Pattern.compile("Metaspace\\s+used\\s+(\\d+)K,\\s+committed\\s+(\\d+)K,\\s+reserved\\s+(\\d+)K.*");
-        Pattern classSpacePattern = Pattern.compile("class space\\s+used\\s+(\\d+)K,\\s+committed\\s+(\\d+)K,\\s+reserved\\s+(\\d+)K.*");
-
         Long heapTotal = null;
         Long heapUsed = null;
+        Long heapMax = null;
         Integer youngRegionCount = null;
         Long youngRegionTotal = null;
         Integer survivorRegionCount = null;
@@ -208,20 +319,24 @@ public class GcHeapInfoAnalyzer implements Analyzer {
 
         for (String line : raw.lines().toList()) {
             String trimmed = line.trim();
-            Matcher heapMatcher = heapPatternOld.matcher(trimmed);
+            Matcher heapMatcher = HEAP_PATTERN_OLD.matcher(trimmed);
             if (heapMatcher.matches()) {
                 heapTotal = Long.parseLong(heapMatcher.group(1));
                 heapUsed = Long.parseLong(heapMatcher.group(2));
+                if (heapMatcher.group(3) != null) {
+                    heapMax = (Long.parseUnsignedLong(heapMatcher.group(4), 16) - Long.parseUnsignedLong(heapMatcher.group(3), 16)) / 1024;
+                }
                 continue;
             }
-            Matcher heapMatcherNew = heapPatternNew.matcher(trimmed);
+            Matcher heapMatcherNew = HEAP_PATTERN_NEW.matcher(trimmed);
             if (heapMatcherNew.matches()) {
-                heapTotal = Long.parseLong(heapMatcherNew.group(1));
-                heapUsed = Long.parseLong(heapMatcherNew.group(2));
+                heapMax = Long.parseLong(heapMatcherNew.group(1));
+                heapTotal = Long.parseLong(heapMatcherNew.group(2));
+                heapUsed = Long.parseLong(heapMatcherNew.group(3));
                 continue;
             }
 
-            Matcher regionMatcher = regionPatternOld.matcher(trimmed);
+            Matcher regionMatcher = REGION_PATTERN_OLD.matcher(trimmed);
             if (regionMatcher.matches()) {
                 youngRegionCount = Integer.parseInt(regionMatcher.group(1));
                 youngRegionTotal = Long.parseLong(regionMatcher.group(2));
@@ -229,7 +344,7 @@ public class GcHeapInfoAnalyzer implements Analyzer {
                 survivorRegionTotal = Long.parseLong(regionMatcher.group(4));
                 continue;
             }
-            Matcher regionMatcherNew = regionPatternNew.matcher(trimmed);
+            Matcher regionMatcherNew = REGION_PATTERN_NEW.matcher(trimmed);
             if (regionMatcherNew.matches()) {
                 youngRegionCount = Integer.parseInt(regionMatcherNew.group(1));
                 youngRegionTotal = toKilobytes(Long.parseLong(regionMatcherNew.group(2)), regionMatcherNew.group(3));
@@ -238,7 +353,7 @@ public class GcHeapInfoAnalyzer implements Analyzer {
                 continue;
             }
 
-            Matcher metaspaceMatcher = metaspacePattern.matcher(trimmed);
+            Matcher metaspaceMatcher = METASPACE_PATTERN.matcher(trimmed);
             if (metaspaceMatcher.matches()) {
                 metaspaceUsed = Long.parseLong(metaspaceMatcher.group(1));
                 metaspaceCommitted = Long.parseLong(metaspaceMatcher.group(2));
@@ -246,7 +361,7 @@ public class GcHeapInfoAnalyzer implements Analyzer {
                 continue;
             }
 
-            Matcher classSpaceMatcher = classSpacePattern.matcher(trimmed);
+            Matcher classSpaceMatcher = CLASS_SPACE_PATTERN.matcher(trimmed);
             if (classSpaceMatcher.matches()) {
                 classSpaceUsed = Long.parseLong(classSpaceMatcher.group(1));
                 classSpaceCommitted = Long.parseLong(classSpaceMatcher.group(2));
@@ -258,7 +373,7 @@ public class GcHeapInfoAnalyzer implements Analyzer {
             return null;
         }
 
-        return new HeapInfo(heapTotal, heapUsed,
+        return new HeapInfo(heapTotal, heapUsed, heapMax,
             youngRegionCount, youngRegionTotal,
             survivorRegionCount, survivorRegionTotal,
             metaspaceUsed, metaspaceCommitted, metaspaceReserved,
@@ -273,8 +388,9 @@ public class GcHeapInfoAnalyzer implements Analyzer {
             };
         }
 
-    private record HeapInfo(long heapTotalK,
+    record HeapInfo(long heapTotalK,
                             long heapUsedK,
+                            Long heapMaxK,
                             Integer youngRegionCount,
                             Long youngRegionTotalK,
                             Integer survivorRegionCount,
@@ -0,0 +1,129 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.util.stacks.StackIndex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Searches the stack frames of all dumps for a regular expression, using a {@link StackIndex}.
+ * <p>
+ * One row per thread, frame and stack depth, with the number of dumps it was seen in, ordered by
+ * first occurrence. Exits with 1 when nothing matches, like grep.
+ */
+public class GrepStacksAnalyzer extends BaseAnalyzer {
+
+    @Override
+    public String name() {
+        return "grep-stacks";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "pattern", "ignore-case", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.ANY;
+    }
+
+    @Override
+    public int defaultDumpCount() {
+        return 1;
+    }
+
+    private static final class Row {
+        final String thread;
+        final int depth;
+        final String frame;
+        Thread.State state;
+        int dumps;
+        int lastDump = -1;
+
+        Row(String thread, int depth, String frame) {
+            this.thread = thread;
+            this.depth = depth;
+            this.frame = frame;
+        }
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        String regex = getStringOption(options, "pattern", "");
+        if (regex.isEmpty()) {
+            return AnalyzerResult.withExitCode("No pattern given", 2);
+        }
+        if (data.dumps().isEmpty()) {
+            return AnalyzerResult.ok("No thread dumps available");
+        }
+        Pattern pattern = Pattern.compile(regex, getBooleanOption(options, "ignore-case", false) ? Pattern.CASE_INSENSITIVE : 0);
+        int top = getIntOption(options, "top", 50);
+
+        StackIndex index = StackIndex.build(data.dumps().stream().map(ThreadDumpSnapshot::parsed).toList());
+        List<StackIndex.Match> matches = index.find(pattern);
+        if (matches.isEmpty()) {
+            return AnalyzerResult.withExitCode("No frames matching /" + regex + "/ in " + plural(index.dumpCount(), "dump"), 1);
+        }
+
+        Map<String, Row> rows = new LinkedHashMap<>();
+        Set<String> threads = new HashSet<>();
+        for (StackIndex.Match match : matches) {
+            String thread = match.thread().name();
+            threads.add(thread);
+            Row row = rows.computeIfAbsent(thread + '\0' + match.depth() + '\0' + match.frameText(),
+                k -> new Row(thread, match.depth(), match.frameText()));
+            row.state = match.thread().state();
+            if (row.lastDump != match.dump()) {
+                row.lastDump = match.dump();
+                row.dumps++;
+            }
+        }
+
+        List<String> preamble = new ArrayList<>();
+        String summary = plural(matches.size(), "frame") + " matching /" + regex + "/ in "
+            + plural(threads.size(), "thread") + " across " + plural(index.dumpCount(), "dump");
+        if (top > 0 && rows.size() > top) {
+            summary += " (showing first " + top + " of " + rows.size() + " rows)";
+        }
+        preamble.add(summary);
+
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(60)
+            .addColumn("THREAD", TableModel.Alignment.LEFT)
+            .addColumn("STATE", TableModel.Alignment.LEFT)
+            .addColumn("DUMPS", TableModel.Alignment.RIGHT)
+            .addColumn("DEPTH", TableModel.Alignment.RIGHT)
+            .addColumn("FRAME", TableModel.Alignment.LEFT);
+        int shown = 0;
+        for (Row row : rows.values()) {
+            if (top > 0 && shown++ >= top) {
+                break;
+            }
+            table.addRow(
+                Cell.text(row.thread),
+                Cell.text(row.state != null ? row.state.name() : ""),
+                Cell.text(row.dumps + "/" + index.dumpCount()),
+                Cell.integer(row.depth),
+                Cell.text(row.frame));
+        }
+        return AnalyzerResult.ok(new AnalyzerOutput.TableOutput(preamble, table.build()));
+    }
+
+    private static String plural(int count, String noun) {
+        return count + " " + noun + (count == 1 ? "" : "s");
+    }
+}
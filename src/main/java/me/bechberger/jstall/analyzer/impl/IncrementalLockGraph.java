@@ -0,0 +1,305 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.impl.DependencyTreeAnalyzer.DependencyGraph;
+import me.bechberger.jstall.analyzer.impl.DependencyTreeAnalyzer.LockDependencies;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Wait-for graph between threads (waiter → owner) that is kept across dumps and updated
+ * with per-dump edge deltas instead of being rebuilt.
+ * <p>
+ * Threads are mapped to dense int indices on first sight; edges are stored as primitive
+ * adjacency lists in both directions. Cycle detection is online: an added edge
+ * {@code w → o} closes a cycle iff {@code w} is reachable from {@code o}, which is checked with
+ * a DFS over the primitive lists. Removing edges can only break cycles, so a known cycle is
+ * re-verified lazily with an iterative Tarjan SCC pass.
+ */
+final class IncrementalLockGraph {
+
+    private final Map<Long, Integer> indexByThreadId = new HashMap<>();
+    private ThreadInfo[] threads = new ThreadInfo[16];
+    private IntList[] ownersOf = new IntList[16];  // waiter -> owners
+    private IntList[] waitersOf = new IntList[16]; // owner -> waiters
+    private int nodeCount;
+
+    private long[] edges = new long[0]; // sorted (waiter << 32 | owner)
+    private boolean cycle;
+    private boolean cycleStale;
+
+    private int[] visitMark = new int[16];
+    private int visitEpoch;
+
+    /**
+     * Replaces the current edge set with the edges of one dump, applying only the difference.
+     * Threads seen in the dump also update the {@link ThreadInfo} used when building trees.
+     */
+    void update(List<ThreadInfo> dumpThreads, LockDependencies dependencies) {
+        for (ThreadInfo thread : dumpThreads) {
+            if (thread.threadId() != null) {
+                threads[indexOf(thread)] = thread;
+            }
+        }
+
+        Map<String, List<ThreadInfo>> waitersByResource = new HashMap<>();
+        dependencies.waiters().forEach((thread, resources) -> {
+            for (String resource : resources) {
+                waitersByResource.computeIfAbsent(resource, k -> new ArrayList<>()).add(thread);
+            }
+        });
+        long[] next = new long[16];
+        int n = 0;
+        for (Map.Entry<ThreadInfo, Set<String>> e : dependencies.owners().entrySet()) {
+            ThreadInfo owner = e.getKey();
+            if (owner.threadId() == null) continue;
+            int ownerIdx = indexOf(owner);
+            for (String resource : e.getValue()) {
+                for (ThreadInfo waiter : waitersByResource.getOrDefault(resource, List.of())) {
+                    if (waiter.threadId() == null) continue;
+                    int waiterIdx = indexOf(waiter);
+                    if (waiterIdx == ownerIdx) continue;
+                    if (n == next.length) next = Arrays.copyOf(next, n * 2);
+                    next[n++] = pack(waiterIdx, ownerIdx);
+                }
+            }
+        }
+        Arrays.sort(next, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || next[unique - 1] != next[i]) next[unique++] = next[i];
+        }
+        next = Arrays.copyOf(next, unique);
+
+        // Merge-diff old and new sorted edge sets: removals first, so additions see the final graph
+        long[] added = new long[next.length];
+        int addedCount = 0;
+        int i = 0;
+        int j = 0;
+        while (i < edges.length || j < next.length) {
+            if (j == next.length || (i < edges.length && edges[i] < next[j])) {
+                removeEdge(edges[i++]);
+            } else if (i == edges.length || next[j] < edges[i]) {
+                added[addedCount++] = next[j++];
+            } else {
+                i++;
+                j++;
+            }
+        }
+        for (int k = 0; k < addedCount; k++) {
+            addEdge(added[k]);
+        }
+        edges = next;
+    }
+
+    /** Adds a single waiter → owner edge (threads without id are ignored). */
+    void addEdge(ThreadInfo waiter, ThreadInfo owner) {
+        if (waiter.threadId() == null || owner.threadId() == null) return;
+        int waiterIdx = indexOf(waiter);
+        int ownerIdx = indexOf(owner);
+        threads[waiterIdx] = waiter;
+        threads[ownerIdx] = owner;
+        long edge = pack(waiterIdx, ownerIdx);
+        int pos = Arrays.binarySearch(edges, edge);
+        if (waiterIdx == ownerIdx || pos >= 0) return;
+        addEdge(edge);
+        int insert = -pos - 1;
+        long[] grown = new long[edges.length + 1];
+        System.arraycopy(edges, 0, grown, 0, insert);
+        grown[insert] = edge;
+        System.arraycopy(edges, insert, grown, insert + 1, edges.length - insert);
+        edges = grown;
+    }
+
+    int edgeCount() {
+        return edges.length;
+    }
+
+    /** Returns true if the current graph contains a dependency cycle. */
+    boolean hasCycle() {
+        if (cycleStale) {
+            cycle = tarjanHasCycle();
+            cycleStale = false;
+        }
+        return cycle;
+    }
+
+    /**
+     * Builds the tree of threads (transitively) waiting on {@code root}, breadth first,
+     * using the thread infos of the latest update.
+     */
+    DependencyGraph treeFrom(ThreadInfo root, Instant timestamp) {
+        Map<Long, ThreadInfo> nodes = new HashMap<>();
+        Map<Long, List<Long>> adjacency = new HashMap<>();
+        int rootIdx = indexOf(root);
+        int epoch = nextEpoch();
+        visitMark[rootIdx] = epoch;
+        IntList queue = new IntList();
+        queue.add(rootIdx);
+        for (int q = 0; q < queue.size; q++) {
+            int current = queue.data[q];
+            ThreadInfo info = current == rootIdx ? root : threads[current];
+            nodes.put(info.threadId(), info);
+            List<Long> children = adjacency.computeIfAbsent(info.threadId(), k -> new ArrayList<>());
+            IntList waiters = waitersOf[current];
+            for (int k = 0; k < waiters.size; k++) {
+                int waiter = waiters.data[k];
+                if (visitMark[waiter] != epoch) {
+                    visitMark[waiter] = epoch;
+                    queue.add(waiter);
+                    children.add(threads[waiter].threadId());
+                }
+            }
+        }
+        return new DependencyGraph(root, timestamp, nodes, adjacency);
+    }
+
+    private void addEdge(long edge) {
+        int waiter = (int) (edge >>> 32);
+        int owner = (int) edge;
+        ownersOf[waiter].add(owner);
+        waitersOf[owner].add(waiter);
+        if (!cycle && !cycleStale && reaches(owner, waiter)) {
+            cycle = true;
+        }
+    }
+
+    private void removeEdge(long edge) {
+        int waiter = (int) (edge >>> 32);
+        int owner = (int) edge;
+        ownersOf[waiter].remove(owner);
+        waitersOf[owner].remove(waiter);
+        if (cycle) {
+            cycleStale = true;
+        }
+    }
+
+    /** DFS along waiter → owner edges. */
+    private boolean reaches(int from, int target) {
+        int epoch = nextEpoch();
+        IntList stack = new IntList();
+        stack.add(from);
+        visitMark[from] = epoch;
+        while (stack.size > 0) {
+            int node = stack.data[--stack.size];
+            if (node == target) return true;
+            IntList owners = ownersOf[node];
+            for (int k = 0; k < owners.size; k++) {
+                int next = owners.data[k];
+                if (visitMark[next] != epoch) {
+                    visitMark[next] = epoch;
+                    stack.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Iterative Tarjan SCC; a component with more than one node is a cycle (self edges are never stored). */
+    private boolean tarjanHasCycle() {
+        int[] index = new int[nodeCount];
+        int[] low = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] sccStack = new int[nodeCount];
+        int[] callNode = new int[nodeCount];
+        int[] callEdge = new int[nodeCount];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int sccTop = 0;
+        for (int start = 0; start < nodeCount; start++) {
+            if (index[start] >= 0 || ownersOf[start].size == 0) continue;
+            int depth = 0;
+            callNode[0] = start;
+            callEdge[0] = 0;
+            index[start] = low[start] = counter++;
+            sccStack[sccTop++] = start;
+            onStack[start] = true;
+            while (depth >= 0) {
+                int node = callNode[depth];
+                IntList owners = ownersOf[node];
+                if (callEdge[depth] < owners.size) {
+                    int next = owners.data[callEdge[depth]++];
+                    if (index[next] < 0) {
+                        index[next] = low[next] = counter++;
+                        sccStack[sccTop++] = next;
+                        onStack[next] = true;
+                        depth++;
+                        callNode[depth] = next;
+                        callEdge[depth] = 0;
+                    } else if (onStack[next]) {
+                        low[node] = Math.min(low[node], index[next]);
+                    }
+                    continue;
+                }
+                if (low[node] == index[node]) {
+                    int size = 0;
+                    int member;
+                    do {
+                        member = sccStack[--sccTop];
+                        onStack[member] = false;
+                        size++;
+                    } while (member != node);
+                    if (size > 1) return true;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(ThreadInfo thread) {
+        Integer idx = indexByThreadId.get(thread.threadId());
+        if (idx != null) return idx;
+        int created = nodeCount++;
+        if (created == threads.length) {
+            int capacity = threads.length * 2;
+            threads = Arrays.copyOf(threads, capacity);
+            ownersOf = Arrays.copyOf(ownersOf, capacity);
+            waitersOf = Arrays.copyOf(waitersOf, capacity);
+            visitMark = Arrays.copyOf(visitMark, capacity);
+        }
+        threads[created] = thread;
+        ownersOf[created] = new IntList();
+        waitersOf[created] = new IntList();
+        indexByThreadId.put(thread.threadId(), created);
+        return created;
+    }
+
+    private int nextEpoch() {
+        if (++visitEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitMark, 0);
+            visitEpoch = 1;
+        }
+        return visitEpoch;
+    }
+
+    private static long pack(int waiter, int owner) {
+        return ((long) waiter << 32) | (owner & 0xFFFFFFFFL);
+    }
+
+    /** Minimal growable int list (adjacency lists, work stacks). */
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (data[i] == value) {
+                    System.arraycopy(data, i + 1, data, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.jfr.JfrChunks;
+import me.bechberger.jstall.util.jfr.JfrEventAggregator;
+import me.bechberger.jstall.util.jfr.JfrEventAggregator.Counter;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.Util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Summarizes JFR data: hot methods, lock-contention sites, GC pauses and allocation hotspots.
+ * <p>
+ * Sources, all merged into one {@link JfrEventAggregator}:
+ * <ul>
+ *   <li>{@code jfr/*.jfr} recordings of {@code record --full} archives, extracted to a temporary
+ *       file by the replay provider and read chunk by chunk, with the chunks aggregated in parallel
+ *       ({@link JfrChunks#aggregate})</li>
+ *   <li>{@code jfr-events} window summaries, streamed from the target while sampling</li>
+ * </ul>
+ * Memory is bounded by the number of distinct methods, classes and threads, not by the file size.
+ */
+public class JfrAnalyzer extends BaseAnalyzer {
+
+    static final String JFR_TYPE = "jfr";
+    static final String JFR_EVENTS_TYPE = "jfr-events";
+
+    @Override
+    public String name() {
+        return "jfr";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.ANY;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .withDefaults(count, intervalMs)
+            .addThreadDumps()
+            .addJfrEvents()
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        int topN = getIntOption(options, "top", 10);
+
+        JfrEventAggregator aggregator = new JfrEventAggregator();
+        List<String> sources = new ArrayList<>();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        for (CollectedData sample : data.collectedData(JFR_TYPE)) {
+            Path file = sample.tempFiles().get(JFR_TYPE);
+            if (file == null) {
+                continue;
+            }
+            try {
+                aggregator.merge(JfrChunks.aggregate(file, parallelism));
+                sources.add(sample.metadata().getOrDefault("file", file.getFileName().toString()));
+            } catch (IOException e) {
+                return AnalyzerResult.withExitCode("Failed to read JFR recording: " + e.getMessage(), 1);
+            }
+        }
+        int windows = 0;
+        for (CollectedData sample : data.collectedData(JFR_EVENTS_TYPE)) {
+            if (sample.rawData() == null || sample.rawData().isBlank()) {
+                continue;
+            }
+            try {
+                aggregator.merge(JfrEventAggregator.fromMap(Util.asMap(JSONParser.parse(sample.rawData()))));
+                windows++;
+            } catch (RuntimeException ignored) {
+                // a damaged window summary must not hide the others
+            }
+        }
+        if (windows > 0) {
+            sources.add(windows + (windows == 1 ? " event window" : " event windows"));
+        }
+        if (sources.isEmpty() || aggregator.eventCount() == 0) {
+            return AnalyzerResult.ok("No JFR data (record with `jstall record --full` or sample at least 2 dumps over a JMX connection)");
+        }
+
+        List<AnalyzerOutput.CompositeOutput.Section> sections = new ArrayList<>();
+        sections.add(section("Hot methods", hotMethods(aggregator, topN, sources)));
+        sections.add(section("Lock contention", lockSites(aggregator, topN)));
+        sections.add(section("GC pauses", gcPauses(aggregator)));
+        sections.add(section("Allocation", allocationSites(aggregator, topN)));
+        return AnalyzerResult.ok(new AnalyzerOutput.CompositeOutput(sections));
+    }
+
+    private static AnalyzerOutput.CompositeOutput.Section section(String name, AnalyzerOutput.TableOutput table) {
+        return new AnalyzerOutput.CompositeOutput.Section(name, table);
+    }
+
+    private static AnalyzerOutput.TableOutput hotMethods(JfrEventAggregator aggregator, int topN, List<String> sources) {
+        List<Map.Entry<String, Counter>> ranked = JfrEventAggregator.ranked(aggregator.hotMethods());
+        long total = ranked.stream().mapToLong(e -> e.getValue().count()).sum();
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(80)
+            .addColumn("METHOD", TableModel.Alignment.LEFT)
+            .addColumn("SAMPLES", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT);
+        for (Map.Entry<String, Counter> e : head(ranked, topN)) {
+            table.addRow(Cell.text(e.getKey()), Cell.integer(e.getValue().count()), shareCell(e.getValue().count(), total));
+        }
+        List<String> preamble = List.of(
+            String.format(Locale.US, "JFR events: %,d (%s)", aggregator.eventCount(), String.join(", ", sources)),
+            shownOf(head(ranked, topN).size(), ranked.size(), "methods") + ", " + total + " execution samples");
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    private static AnalyzerOutput.TableOutput lockSites(JfrEventAggregator aggregator, int topN) {
+        List<Map.Entry<String, Counter>> ranked = JfrEventAggregator.ranked(aggregator.monitorSites());
+        long totalNanos = ranked.stream().mapToLong(e -> e.getValue().total()).sum();
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(80)
+            .addColumn("SITE", TableModel.Alignment.LEFT)
+            .addColumn("ENTERS", TableModel.Alignment.RIGHT)
+            .addColumn("BLOCKED", TableModel.Alignment.RIGHT)
+            .addColumn("MAX", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT);
+        for (Map.Entry<String, Counter> e : head(ranked, topN)) {
+            Counter c = e.getValue();
+            table.addRow(Cell.text(e.getKey()), Cell.integer(c.count()), durationCell(c.total()),
+                durationCell(c.max()), shareCell(c.total(), totalNanos));
+        }
+        List<String> preamble = new ArrayList<>();
+        preamble.add(shownOf(head(ranked, topN).size(), ranked.size(), "contended monitor enter sites")
+            + ", " + formatNanos(totalNanos) + " blocked");
+        List<Map.Entry<String, Counter>> classes = JfrEventAggregator.ranked(aggregator.monitorsByClass());
+        if (!classes.isEmpty()) {
+            preamble.add("Most contended monitor class: " + classes.get(0).getKey());
+        }
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    private static AnalyzerOutput.TableOutput gcPauses(JfrEventAggregator aggregator) {
+        Counter all = aggregator.gcPauses();
+        TableModel.Builder table = TableModel.builder()
+            .addColumn("COLLECTOR", TableModel.Alignment.LEFT)
+            .addColumn("COUNT", TableModel.Alignment.RIGHT)
+            .addColumn("TOTAL PAUSE", TableModel.Alignment.RIGHT)
+            .addColumn("AVG", TableModel.Alignment.RIGHT)
+            .addColumn("MAX", TableModel.Alignment.RIGHT);
+        for (Map.Entry<String, Counter> e : JfrEventAggregator.ranked(aggregator.gcByName())) {
+            Counter c = e.getValue();
+            table.addRow(Cell.text(e.getKey()), Cell.integer(c.count()), durationCell(c.total()),
+                durationCell(c.count() > 0 ? c.total() / c.count() : 0), durationCell(c.max()));
+        }
+        List<String> preamble = List.of(all.count() + " collections, " + formatNanos(all.total())
+            + " total pause, max " + formatNanos(all.max()));
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    private static AnalyzerOutput.TableOutput allocationSites(JfrEventAggregator aggregator, int topN) {
+        List<Map.Entry<String, Counter>> ranked = JfrEventAggregator.ranked(aggregator.allocationSites());
+        long totalBytes = ranked.stream().mapToLong(e -> e.getValue().total()).sum();
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(80)
+            .addColumn("SITE", TableModel.Alignment.LEFT)
+            .addColumn("SAMPLES", TableModel.Alignment.RIGHT)
+            .addColumn("WEIGHT", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT);
+        for (Map.Entry<String, Counter> e : head(ranked, topN)) {
+            Counter c = e.getValue();
+            table.addRow(Cell.text(e.getKey()), Cell.integer(c.count()), Cell.bytes(c.total()), shareCell(c.total(), totalBytes));
+        }
+        List<String> preamble = new ArrayList<>();
+        preamble.add(shownOf(head(ranked, topN).size(), ranked.size(), "allocation sites")
+            + ", " + Cell.formatBytes(totalBytes) + " sampled weight");
+        List<Map.Entry<String, Counter>> classes = JfrEventAggregator.ranked(aggregator.allocationByClass());
+        if (!classes.isEmpty()) {
+            preamble.add("Top allocated types: " + String.join(", ", head(classes, 3).stream()
+                .map(e -> e.getKey() + " (" + Cell.formatBytes(e.getValue().total()) + ")").toList()));
+        }
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    private static <T> List<T> head(List<T> list, int topN) {
+        return topN > 0 && list.size() > topN ? list.subList(0, topN) : list;
+    }
+
+    private static String shownOf(int shown, int total, String what) {
+        return shown < total ? "Showing top " + shown + " of " + total + " " + what : total + " " + what;
+    }
+
+    private static Cell shareCell(long value, long total) {
+        double pct = total > 0 ? value * 100.0 / total : 0;
+        return Cell.number(String.format(Locale.US, "%.1f%%", pct), pct,
+            pct >= 50 ? Cell.Color.RED : pct >= 20 ? Cell.Color.YELLOW : null);
+    }
+
+    private static Cell durationCell(long nanos) {
+        return Cell.number(formatNanos(nanos), nanos / 1_000_000.0);
+    }
+
+    static String formatNanos(long nanos) {
+        double ms = nanos / 1_000_000.0;
+        if (ms < 10) {
+            return String.format(Locale.US, "%.2fms", ms);
+        }
+        if (ms < 1000) {
+            return String.format(Locale.US, "%.0fms", ms);
+        }
+        return String.format(Locale.US, "%.1fs", ms / 1000.0);
+    }
+}
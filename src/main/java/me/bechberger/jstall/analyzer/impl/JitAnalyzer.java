@@ -0,0 +1,337 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.CodeCacheParser;
+import me.bechberger.jstall.util.CodeCacheParser.CodeCacheSnapshot;
+import me.bechberger.jstall.util.CodeCacheParser.Segment;
+import me.bechberger.jstall.util.CompilerQueueParser;
+import me.bechberger.jstall.util.CompilerQueueParser.CompileTask;
+import me.bechberger.jstall.util.CompilerQueueParser.CompilerQueueSnapshot;
+import me.bechberger.jstall.util.LinearTrend;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Code cache and JIT pressure: when the code cache fills up, the JIT is switched off and
+ * throughput collapses.
+ * <p>
+ * Samples {@code Compiler.codecache} per segment (non-profiled, profiled, non-nmethods) and
+ * projects from the least-squares growth of each segment when it will be full (given at least
+ * {@value #MIN_PROJECTION_SAMPLES} samples over a minute). Combines this with the
+ * {@code Compiler.queue} backlog and the CPU time of the compiler threads in the thread dumps,
+ * and warns about disabled compilation, segments that are (projected to be) full, code
+ * cache flushing churn and C2 compilations or queues that do not make progress.
+ */
+public class JitAnalyzer extends BaseAnalyzer {
+
+    /** Segments at or above this usage are reported. */
+    static final double FULL_WARNING_PERCENT = 90;
+    /** Projected exhaustion within this many hours is reported. */
+    static final double EXHAUSTION_WARNING_HOURS = 24;
+    /** Exhaustion is only projected from at least this many samples, like {@link LeakSuspectAnalyzer#MIN_HISTOGRAMS}. */
+    static final int MIN_PROJECTION_SAMPLES = 3;
+    /** Exhaustion is only projected from samples spanning at least this long; warm-up bursts are shorter. */
+    static final long MIN_PROJECTION_SPAN_MS = 60_000;
+    /** A single C2 compilation active for longer than this is reported as stuck. */
+    static final long STUCK_COMPILE_MS = 30_000;
+
+    @Override
+    public String name() {
+        return "jit";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.ANY;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .addThreadDumps(count, intervalMs)
+            .addJcmd("Compiler.codecache", count, intervalMs)
+            .addJcmd("Compiler.queue", count, intervalMs)
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        List<CollectedData> samples = data.collectedData("compiler-codecache");
+        if (samples.isEmpty()) {
+            return AnalyzerResult.nothing();
+        }
+        List<Sample> codeCache = new ArrayList<>();
+        for (CollectedData sample : samples) {
+            CodeCacheSnapshot snapshot = CodeCacheParser.parse(sample.rawData());
+            if (snapshot != null) {
+                codeCache.add(new Sample(sample.timestamp(), snapshot));
+            }
+        }
+        if (codeCache.isEmpty()) {
+            return AnalyzerResult.ok("Code cache information not available (JVM may not support Compiler.codecache)");
+        }
+        CodeCacheSnapshot first = codeCache.get(0).snapshot();
+        CodeCacheSnapshot last = codeCache.get(codeCache.size() - 1).snapshot();
+
+        List<String> preamble = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        long total = last.segments().stream().mapToLong(Segment::size).sum();
+        long used = last.segments().stream().mapToLong(Segment::used).sum();
+        preamble.add(String.format(Locale.US, "Code cache %s of %s used (%.1f%%)%s, compilation %s",
+            Cell.formatBytes(used), Cell.formatBytes(total), total > 0 ? used * 100.0 / total : 0,
+            last.nmethods() >= 0 ? ", " + last.nmethods() + " nmethods" : "",
+            last.compilationEnabled() ? "enabled" : "DISABLED"));
+        if (!last.compilationEnabled()) {
+            warnings.add("JIT compilation is disabled" + (last.disabledReason() != null ? " (" + last.disabledReason() + ")" : "")
+                + ": new hot code runs interpreted");
+        }
+        if (last.fullCount() > 0) {
+            warnings.add("Code cache was full " + last.fullCount() + " time(s)");
+        }
+        String churn = churn(codeCache);
+        if (churn != null) {
+            warnings.add(churn);
+        }
+
+        List<QueueSample> queues = parseQueues(data.collectedData("compiler-queue"));
+        String backlog = backlogLine(queues);
+        if (backlog != null) {
+            preamble.add(backlog);
+        }
+        warnings.addAll(queueWarnings(queues));
+        String compilerCpu = compilerThreadCpu(data.dumps());
+        if (compilerCpu != null) {
+            preamble.add(compilerCpu);
+        }
+
+        boolean trend = codeCache.size() > 1 && codeCache.get(codeCache.size() - 1).timestamp() > codeCache.get(0).timestamp();
+        TableModel.Builder table = TableModel.builder()
+            .addColumn("SEGMENT", TableModel.Alignment.LEFT)
+            .addColumn("SIZE", TableModel.Alignment.RIGHT)
+            .addColumn("USED", TableModel.Alignment.RIGHT)
+            .addColumn("MAX USED", TableModel.Alignment.RIGHT)
+            .addColumn("USE%", TableModel.Alignment.RIGHT);
+        if (trend) {
+            table.addColumn("Δ USED", TableModel.Alignment.RIGHT)
+                .addColumn("RATE/H", TableModel.Alignment.RIGHT)
+                .addColumn("FULL IN", TableModel.Alignment.RIGHT);
+        }
+        for (Segment segment : last.segments()) {
+            double percent = segment.usedPercent();
+            if (percent >= FULL_WARNING_PERCENT) {
+                warnings.add(String.format(Locale.US, "'%s' is %.1f%% full", segment.name(), percent));
+            }
+            List<Cell> row = new ArrayList<>(List.of(
+                Cell.text(segment.name()),
+                Cell.bytes(segment.size()),
+                Cell.bytes(segment.used()),
+                Cell.bytes(segment.maxUsed()),
+                Cell.number(String.format(Locale.US, "%.1f%%", percent), percent)));
+            if (trend) {
+                Segment firstSegment = first.segment(segment.name());
+                long delta = segment.used() - (firstSegment != null ? firstSegment.used() : 0);
+                LinearTrend usedTrend = usedTrend(codeCache, segment.name());
+                double perHour = usedTrend.slopePerHour();
+                boolean projectable = usedTrend.count() >= MIN_PROJECTION_SAMPLES
+                    && usedTrend.spanMs() >= MIN_PROJECTION_SPAN_MS;
+                double hoursLeft = projectable && perHour > 0 ? segment.free() / perHour : Double.POSITIVE_INFINITY;
+                if (hoursLeft < EXHAUSTION_WARNING_HOURS && percent < FULL_WARNING_PERCENT) {
+                    warnings.add("'" + segment.name() + "' projected full in " + LeakSuspectAnalyzer.formatHours(hoursLeft)
+                        + " at " + Cell.formatSignedBytes(perHour) + "/h");
+                }
+                row.add(Cell.number(Cell.formatSignedBytes(delta), delta));
+                row.add(Cell.number(Cell.formatSignedBytes(perHour), perHour));
+                row.add(Double.isInfinite(hoursLeft)
+                    ? Cell.text("-")
+                    : Cell.number(LeakSuspectAnalyzer.formatHours(hoursLeft), hoursLeft));
+            }
+            table.addRow(row.toArray(Cell[]::new));
+        }
+        for (String warning : warnings) {
+            preamble.add("⚠ " + warning);
+        }
+        return AnalyzerResult.ok(new AnalyzerOutput.TableOutput(preamble, table.build()));
+    }
+
+    record Sample(long timestamp, CodeCacheSnapshot snapshot) {
+    }
+
+    record QueueSample(long timestamp, CompilerQueueSnapshot snapshot) {
+    }
+
+    /**
+     * Detects code cache flushing: compilation stopped and restarted between samples, or compiled
+     * methods removed from the code cache (nmethod count drops).
+     */
+    static String churn(List<Sample> samples) {
+        CodeCacheSnapshot first = samples.get(0).snapshot();
+        CodeCacheSnapshot last = samples.get(samples.size() - 1).snapshot();
+        int restarts = last.restartedCount() - first.restartedCount();
+        long flushed = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            int before = samples.get(i - 1).snapshot().nmethods();
+            int after = samples.get(i).snapshot().nmethods();
+            if (before >= 0 && after >= 0 && after < before) {
+                flushed += before - after;
+            }
+        }
+        if (restarts > 0) {
+            return "Compilation was stopped and restarted " + restarts + " time(s) between samples"
+                + (flushed > 0 ? ", " + flushed + " nmethods flushed" : "") + ": the code cache is churning";
+        }
+        if (flushed > 0 && last.nmethods() > 0 && flushed * 20 >= last.nmethods()) {
+            return flushed + " nmethods flushed between samples (" + last.nmethods()
+                + " left): compiled code is evicted and recompiled";
+        }
+        return null;
+    }
+
+    static List<QueueSample> parseQueues(List<CollectedData> samples) {
+        List<QueueSample> result = new ArrayList<>();
+        for (CollectedData sample : samples) {
+            CompilerQueueSnapshot snapshot = CompilerQueueParser.parse(sample.rawData());
+            if (snapshot != null) {
+                result.add(new QueueSample(sample.timestamp(), snapshot));
+            }
+        }
+        return result;
+    }
+
+    private static String backlogLine(List<QueueSample> queues) {
+        if (queues.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("Compile queues:");
+        for (String queue : queues.get(queues.size() - 1).snapshot().queuesByName().keySet()) {
+            int firstCount = queues.get(0).snapshot().queuedCountForQueue(queue);
+            int lastCount = queues.get(queues.size() - 1).snapshot().queuedCountForQueue(queue);
+            int max = queues.stream().mapToInt(q -> q.snapshot().queuedCountForQueue(queue)).max().orElse(0);
+            sb.append(' ').append(queue).append(' ');
+            sb.append(queues.size() > 1 ? firstCount + " -> " + lastCount + " (max " + max + ")" : String.valueOf(lastCount));
+            sb.append(',');
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    /**
+     * A C2 compilation active in every sample for at least {@link #STUCK_COMPILE_MS}, or a C2
+     * queue that is never empty and does not shrink over at least three samples.
+     */
+    static List<String> queueWarnings(List<QueueSample> queues) {
+        List<String> warnings = new ArrayList<>();
+        if (queues.size() < 2) {
+            return warnings;
+        }
+        long span = queues.get(queues.size() - 1).timestamp() - queues.get(0).timestamp();
+        if (span >= STUCK_COMPILE_MS) {
+            Set<Integer> stillActive = null;
+            for (QueueSample queue : queues) {
+                Set<Integer> ids = new HashSet<>();
+                for (CompileTask task : queue.snapshot().activeCompiles()) {
+                    if (isC2(task)) {
+                        ids.add(task.compileId());
+                    }
+                }
+                if (stillActive == null) {
+                    stillActive = ids;
+                } else {
+                    stillActive.retainAll(ids);
+                }
+            }
+            for (CompileTask task : queues.get(queues.size() - 1).snapshot().activeCompiles()) {
+                if (stillActive.contains(task.compileId())) {
+                    warnings.add(String.format(Locale.US, "C2 compilation %d of %s active for at least %s",
+                        task.compileId(), task.methodName(), LeakSuspectAnalyzer.formatHours(span / 3_600_000.0)));
+                }
+            }
+        }
+        if (queues.size() >= 3) {
+            boolean neverEmpty = queues.stream().allMatch(q -> q.snapshot().queuedCountForQueue("C2") > 0);
+            int firstCount = queues.get(0).snapshot().queuedCountForQueue("C2");
+            int lastCount = queues.get(queues.size() - 1).snapshot().queuedCountForQueue("C2");
+            if (neverEmpty && lastCount >= firstCount) {
+                warnings.add("C2 queue is not draining (" + firstCount + " -> " + lastCount + " tasks over "
+                    + queues.size() + " samples)");
+            }
+        }
+        return warnings;
+    }
+
+    /** Tier 4 is C2 with tiered compilation; without tiers, compiles are C2 unless marked otherwise. */
+    private static boolean isC2(CompileTask task) {
+        return task.tier() == null || task.tier() == 4;
+    }
+
+    /**
+     * CPU time of the JIT compiler threads between the first and last dump, as share of one core.
+     */
+    String compilerThreadCpu(List<ThreadDumpSnapshot> snapshots) {
+        if (snapshots.size() < 2) {
+            return null;
+        }
+        List<ThreadDump> dumps = snapshots.stream().map(ThreadDumpSnapshot::parsed).toList();
+        Map<Long, CompilerThread> threads = trackThreadActivity(dumps, false, CompilerThread::new);
+        threads.values().removeIf(t -> !isCompilerThread(t.threadName) || !t.hasCpuTime());
+        double elapsed = calculateElapsedTime(dumps);
+        if (threads.isEmpty() || elapsed <= 0) {
+            return null;
+        }
+        double cpu = threads.values().stream().mapToDouble(CompilerThread::getTotalCpuTimeSec).sum();
+        return String.format(Locale.US, "Compiler threads: %d, %.2fs CPU in %.1fs (%.1f%% of one core)",
+            threads.size(), cpu, elapsed, cpu * 100 / elapsed);
+    }
+
+    static boolean isCompilerThread(String name) {
+        return name != null && (name.startsWith("C1 CompilerThread") || name.startsWith("C2 CompilerThread")
+            || name.startsWith("JVMCI CompilerThread"));
+    }
+
+    private static class CompilerThread extends ThreadActivityBase {
+
+        CompilerThread(ThreadInfo thread) {
+            super(thread);
+        }
+
+        @Override
+        public void addOccurrence(ThreadInfo thread) {
+            occurrenceCount++;
+            trackCpuTime(thread);
+        }
+    }
+
+    /** Least-squares trend of the used bytes of {@code segment}. */
+    static LinearTrend usedTrend(List<Sample> samples, String segment) {
+        LinearTrend trend = new LinearTrend();
+        for (Sample sample : samples) {
+            Segment s = sample.snapshot().segment(segment);
+            if (s != null) {
+                trend.add(sample.timestamp(), s.used());
+            }
+        }
+        return trend;
+    }
+}
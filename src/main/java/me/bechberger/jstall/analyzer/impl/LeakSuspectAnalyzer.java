@@ -0,0 +1,189 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.histogram.ClassHistogramSeries;
+import me.bechberger.jstall.util.histogram.ClassNameTable;
+import me.bechberger.jstall.util.histogram.TopK;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds classes whose live heap footprint grows steadily over a series of class histograms.
+ * <p>
+ * Streams all {@code GC.class_histogram} captures (e.g. every 10 minutes of a day-long
+ * {@code record}) through a {@link ClassHistogramSeries}, which fits a least-squares line per class
+ * with constant memory per class. A class is a suspect if its bytes grow by at least
+ * {@link #MIN_BYTES_PER_HOUR}, grew in at least half of the intervals and shrank in at most
+ * {@link #MAX_SHRINK_SHARE} of them; suspects are ranked by slope. {@code GC.class_histogram}
+ * triggers a full GC, so the counts are the live set, not garbage waiting for collection.
+ * <p>
+ * With {@code GC.heap_info} samples, the time until the heap's maximum size
+ * ({@link GcHeapInfoAnalyzer#maxHeapKib}) is reached is projected from the growth of all classes.
+ */
+public class LeakSuspectAnalyzer extends BaseAnalyzer {
+
+    static final int MIN_HISTOGRAMS = 3;
+    static final double MIN_BYTES_PER_HOUR = 1024 * 1024;
+    static final double MAX_SHRINK_SHARE = 0.1;
+
+    @Override
+    public String name() {
+        return "leak-suspects";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.ANY;
+    }
+
+    @Override
+    public int defaultDumpCount() {
+        return 5;
+    }
+
+    @Override
+    public long defaultIntervalMs() {
+        return 10000;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .addJcmd("GC.class_histogram", count, intervalMs)
+            .addJcmd("GC.heap_info", count, intervalMs)
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        int topN = getIntOption(options, "top", 10);
+        ClassHistogramSeries series = new ClassHistogramSeries();
+        for (CollectedData sample : data.collectedData("gc-class-histogram")) {
+            if (sample.rawData() != null && !sample.rawData().isBlank()) {
+                series.add(sample.timestamp(), sample.rawData());
+            }
+        }
+        if (series.samples() < MIN_HISTOGRAMS || series.lastTimestamp() <= series.firstTimestamp()) {
+            return AnalyzerResult.ok("Need at least " + MIN_HISTOGRAMS + " class histograms over time, got "
+                + series.samples() + " (e.g. `jstall record --include GC.class_histogram --dump-count 12 --interval 10m`)");
+        }
+
+        int suspects = 0;
+        double suspectSlope = 0;
+        for (int id = 0; id < series.classCount(); id++) {
+            if (isSuspect(series, id)) {
+                suspects++;
+                suspectSlope += series.bytesSlope(id);
+            }
+        }
+
+        List<String> preamble = new ArrayList<>();
+        double hours = (series.lastTimestamp() - series.firstTimestamp()) / 3_600_000.0;
+        preamble.add(String.format(Locale.US, "%d class histograms over %s, %,d classes; live heap %s -> %s (trend %s/h)",
+            series.samples(), formatHours(hours), series.classCount(),
+            Cell.formatBytes(series.firstTotalBytes()), Cell.formatBytes(series.lastTotalBytes()),
+            Cell.formatSignedBytes(series.totalBytesSlope() * 3600)));
+        Long maxHeapKib = GcHeapInfoAnalyzer.maxHeapKib(data.collectedData("gc-heap-info"));
+        if (maxHeapKib != null) {
+            preamble.add(projection(maxHeapKib * 1024, series.lastTotalBytes(), series.totalBytesSlope(), suspectSlope));
+        }
+        if (suspects == 0) {
+            preamble.add("No leak suspects: no class grew steadily by at least "
+                + Cell.formatBytes((long) MIN_BYTES_PER_HOUR) + "/h");
+            return AnalyzerResult.ok(String.join("\n", preamble));
+        }
+
+        ClassNameTable names = series.names();
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(80)
+            .addColumn("CLASS", TableModel.Alignment.LEFT)
+            .addColumn("BYTES/H", TableModel.Alignment.RIGHT)
+            .addColumn("INSTANCES/H", TableModel.Alignment.RIGHT)
+            .addColumn("BYTES", TableModel.Alignment.RIGHT)
+            .addColumn("Δ BYTES", TableModel.Alignment.RIGHT)
+            .addColumn("GREW", TableModel.Alignment.RIGHT)
+            .addColumn("MODULE", TableModel.Alignment.LEFT);
+        int[] shown = TopK.largest(series.classCount(), Math.min(topN > 0 ? topN : suspects, suspects),
+            id -> isSuspect(series, id) ? (long) (series.bytesSlope(id) * 3600) : Long.MIN_VALUE);
+        for (int id : shown) {
+            double bytesPerHour = series.bytesSlope(id) * 3600;
+            double instancesPerHour = series.instancesSlope(id) * 3600;
+            table.addRow(
+                Cell.text(names.name(id)),
+                Cell.number(Cell.formatSignedBytes(bytesPerHour), bytesPerHour),
+                Cell.number(String.format(Locale.US, "%+,.0f", instancesPerHour), instancesPerHour),
+                Cell.bytes(series.lastBytes(id)),
+                Cell.number(Cell.formatSignedBytes(series.deltaBytes(id)), series.deltaBytes(id)),
+                Cell.number(series.grownIntervals(id) + "/" + series.intervals(), series.grownIntervals(id)),
+                Cell.text(names.module(id) == null ? "" : names.module(id)));
+        }
+        preamble.add(shown.length < suspects
+            ? "Showing top " + shown.length + " of " + suspects + " leak suspects (steady growth, by bytes/h)"
+            : suspects + " leak suspects (steady growth, by bytes/h)");
+        return AnalyzerResult.ok(new AnalyzerOutput.TableOutput(preamble, table.build()));
+    }
+
+    /**
+     * Grows by at least {@link #MIN_BYTES_PER_HOUR}, grew in at least half of the intervals and
+     * shrank in at most {@link #MAX_SHRINK_SHARE} of them.
+     */
+    static boolean isSuspect(ClassHistogramSeries series, int classId) {
+        int intervals = series.intervals();
+        return series.bytesSlope(classId) * 3600 >= MIN_BYTES_PER_HOUR
+            && series.grownIntervals(classId) * 2 >= intervals
+            && series.shrunkIntervals(classId) <= Math.floor(intervals * MAX_SHRINK_SHARE);
+    }
+
+    /**
+     * Time until the live set reaches the maximum heap size, at the overall growth trend and
+     * at the suspects' growth alone.
+     */
+    static String projection(long maxHeapBytes, long liveBytes, double totalSlope, double suspectSlope) {
+        long free = Math.max(0, maxHeapBytes - liveBytes);
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "Max heap %s, %s free after the last full GC",
+            Cell.formatBytes(maxHeapBytes), Cell.formatBytes(free)));
+        if (totalSlope <= 0 && suspectSlope <= 0) {
+            return sb.append("; live heap is not growing").toString();
+        }
+        sb.append("; projected OOM in");
+        if (totalSlope > 0) {
+            sb.append(' ').append(formatHours(free / totalSlope / 3600)).append(" at the overall trend");
+        }
+        if (suspectSlope > 0) {
+            sb.append(totalSlope > 0 ? ", " : " ").append(formatHours(free / suspectSlope / 3600)).append(" from the suspects alone");
+        }
+        return sb.toString();
+    }
+
+    static String formatHours(double hours) {
+        if (hours < 1.0 / 60) {
+            return String.format(Locale.US, "%.0fs", hours * 3600);
+        }
+        if (hours < 1) {
+            return String.format(Locale.US, "%.0fmin", hours * 60);
+        }
+        if (hours < 48) {
+            return String.format(Locale.US, "%.1fh", hours);
+        }
+        return String.format(Locale.US, "%.1fd", hours / 24);
+    }
+}
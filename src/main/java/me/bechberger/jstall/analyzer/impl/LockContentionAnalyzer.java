@@ -0,0 +1,377 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.util.render.Sparkline;
+import me.bechberger.jthreaddump.model.LockInfo;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Ranks contended locks over a series of thread dumps (e.g. 60 dumps at 1s from a recording).
+ * <p>
+ * The dumps are processed in a single pass. Each lock keeps a fixed amount of state: queue
+ * length totals, a bucketed queue-length series for the sparkline, the current and longest
+ * owner residency, the number of owner changes and a log-scale histogram of estimated wait
+ * durations. A thread's wait is estimated from the consecutive dumps it was seen queued on the
+ * same lock, so durations are accurate to about one sampling interval.
+ * <p>
+ * A thread counts as queued when it is blocked entering a monitor, or parked on a lock
+ * synchronizer such as {@code ReentrantLock$NonfairSync}. Parking on conditions, latches or
+ * futures and {@code Object.wait()} are waits for an event, not contention, and are ignored.
+ */
+public class LockContentionAnalyzer extends BaseAnalyzer {
+
+    /** Number of sparkline buckets (dumps are folded into these, keeping the max queue length). */
+    static final int SPARKLINE_WIDTH = 30;
+
+    @Override
+    public String name() {
+        return "lock-contention";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.MANY;
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        List<ThreadDump> dumps = data.dumps().stream().map(ThreadDumpSnapshot::parsed).toList();
+        if (dumps.isEmpty()) {
+            return AnalyzerResult.ok("No thread dumps available");
+        }
+        int topN = getIntOption(options, "top", 10);
+
+        Instant first = dumps.get(0).timestamp();
+        Instant last = dumps.get(dumps.size() - 1).timestamp();
+        boolean timed = first != null && last != null && dumps.size() > 1
+            && dumps.stream().allMatch(d -> d.timestamp() != null);
+        double intervalMs = timed ? (last.toEpochMilli() - first.toEpochMilli()) / (double) (dumps.size() - 1) : 0;
+
+        ContentionTracker tracker = new ContentionTracker(dumps.size(), intervalMs);
+        for (int i = 0; i < dumps.size(); i++) {
+            ThreadDump dump = dumps.get(i);
+            long timeMs = timed ? dump.timestamp().toEpochMilli() : 0;
+            tracker.observe(i, timeMs, dump.threads());
+        }
+        tracker.finish();
+
+        List<LockStats> ranked = tracker.locks.values().stream()
+            .sorted(Comparator.comparingLong((LockStats s) -> s.waiterSamples).reversed()
+                .thenComparing(s -> s.lockId))
+            .toList();
+        if (ranked.isEmpty()) {
+            return AnalyzerResult.ok("No lock contention found across " + dumps.size() + " dumps");
+        }
+        if (topN > 0 && ranked.size() > topN) {
+            ranked = ranked.subList(0, topN);
+        }
+        return AnalyzerResult.ok(buildOutput(ranked, tracker.locks.size(), dumps.size(), timed, intervalMs));
+    }
+
+    private AnalyzerOutput buildOutput(List<LockStats> locks, int totalLocks, int totalDumps,
+                                       boolean timed, double intervalMs) {
+        List<String> preamble = new ArrayList<>();
+        StringBuilder header = new StringBuilder("Lock contention (").append(totalDumps).append(" dumps");
+        if (timed) {
+            header.append(", ").append(formatMillis(intervalMs * (totalDumps - 1))).append(" span, ~")
+                .append(formatMillis(intervalMs)).append(" interval");
+        }
+        header.append("):");
+        preamble.add(header.toString());
+        if (locks.size() < totalLocks) {
+            preamble.add("Showing top " + locks.size() + " of " + totalLocks + " contended locks by queued thread samples");
+        }
+        if (timed) {
+            preamble.add("Wait durations are estimated from consecutive samples (±" + formatMillis(intervalMs) + ")");
+        }
+
+        double maxQueue = locks.stream().mapToInt(s -> s.maxQueue).max().orElse(0);
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(50)
+            .addColumn("LOCK", TableModel.Alignment.LEFT)
+            .addColumn("CONTENDED", TableModel.Alignment.RIGHT)
+            .addColumn("AVG QUEUE", TableModel.Alignment.RIGHT)
+            .addColumn("MAX QUEUE", TableModel.Alignment.RIGHT)
+            .addColumn("OWNER CHANGES", TableModel.Alignment.RIGHT)
+            .addColumn("LONGEST OWNER", TableModel.Alignment.LEFT)
+            .addColumn("P50 WAIT", TableModel.Alignment.RIGHT)
+            .addColumn("P99 WAIT", TableModel.Alignment.RIGHT)
+            .addColumn("QUEUE OVER TIME", TableModel.Alignment.LEFT);
+
+        for (LockStats s : locks) {
+            double avgQueue = s.waiterSamples / (double) s.contendedSamples;
+            double contendedPct = s.contendedSamples * 100.0 / totalDumps;
+            String owner = s.longestOwner == null ? "unknown"
+                : s.longestOwner + " (" + formatResidency(s.longestRun, timed, intervalMs) + ")";
+            table.addRow(
+                Cell.text(s.label()),
+                Cell.number(String.format(Locale.US, "%d/%d", s.contendedSamples, totalDumps), contendedPct,
+                    contendedPct >= 50 ? Cell.Color.RED : contendedPct >= 20 ? Cell.Color.YELLOW : null),
+                Cell.number(String.format(Locale.US, "%.1f", avgQueue), avgQueue),
+                Cell.integer(s.maxQueue),
+                Cell.integer(s.ownerChanges),
+                Cell.text(owner),
+                waitCell(s.waits, 0.50, timed),
+                waitCell(s.waits, 0.99, timed),
+                Cell.text(Sparkline.render(s.queueSeries, maxQueue))
+            );
+        }
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    private static Cell waitCell(WaitHistogram waits, double quantile, boolean timed) {
+        if (!timed || waits.count() == 0) {
+            return Cell.text("N/A");
+        }
+        double ms = waits.quantile(quantile);
+        return Cell.number(formatMillis(ms), ms);
+    }
+
+    private static String formatResidency(int samples, boolean timed, double intervalMs) {
+        if (timed) {
+            return formatMillis(samples * intervalMs);
+        }
+        return samples + (samples == 1 ? " dump" : " dumps");
+    }
+
+    private static String formatMillis(double ms) {
+        if (ms < 1000) {
+            return String.format(Locale.US, "%.0fms", ms);
+        }
+        return String.format(Locale.US, "%.1fs", ms / 1000.0);
+    }
+
+    /**
+     * Streams over the dumps, maintaining per-lock statistics and the open wait episode
+     * of every currently queued thread.
+     */
+    static final class ContentionTracker {
+        final Map<String, LockStats> locks = new LinkedHashMap<>();
+        private final Map<String, Episode> openWaits = new HashMap<>();
+        private final int totalDumps;
+        private final double intervalMs;
+
+        ContentionTracker(int totalDumps, double intervalMs) {
+            this.totalDumps = totalDumps;
+            this.intervalMs = intervalMs;
+        }
+
+        void observe(int index, long timeMs, List<ThreadInfo> threads) {
+            Map<String, String> owners = new HashMap<>();
+            for (ThreadInfo thread : threads) {
+                for (LockInfo lock : thread.locks()) {
+                    if (lock.isLocked() && lock.lockId() != null) {
+                        owners.putIfAbsent(lock.lockId(), thread.name());
+                    }
+                }
+            }
+
+            Map<String, Integer> queueLengths = new LinkedHashMap<>();
+            Map<String, String> lockClasses = new HashMap<>();
+            Set<String> stillWaiting = new HashSet<>();
+            for (ThreadInfo thread : threads) {
+                LockInfo lock = contendedLock(thread, owners);
+                if (lock == null) {
+                    continue;
+                }
+                String lockId = lock.lockId();
+                queueLengths.merge(lockId, 1, Integer::sum);
+                lockClasses.putIfAbsent(lockId, lock.className());
+
+                String key = threadKey(thread);
+                stillWaiting.add(key);
+                Episode episode = openWaits.get(key);
+                if (episode != null && episode.lockId.equals(lockId)) {
+                    episode.lastMs = timeMs;
+                } else {
+                    if (episode != null) {
+                        close(episode);
+                    }
+                    openWaits.put(key, new Episode(lockId, timeMs));
+                }
+            }
+
+            // Threads no longer queued on their lock finished waiting
+            Iterator<Map.Entry<String, Episode>> it = openWaits.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Episode> e = it.next();
+                if (!stillWaiting.contains(e.getKey())) {
+                    close(e.getValue());
+                    it.remove();
+                }
+            }
+
+            for (Map.Entry<String, Integer> e : queueLengths.entrySet()) {
+                LockStats stats = locks.computeIfAbsent(e.getKey(),
+                    id -> new LockStats(id, lockClasses.get(id), Math.min(SPARKLINE_WIDTH, totalDumps)));
+                stats.observe(index, totalDumps, e.getValue(), owners.get(e.getKey()));
+            }
+        }
+
+        /** Closes waits still open after the last dump (their real duration is at least the estimate). */
+        void finish() {
+            openWaits.values().forEach(this::close);
+            openWaits.clear();
+        }
+
+        private void close(Episode episode) {
+            LockStats stats = locks.get(episode.lockId);
+            if (stats != null) {
+                // Seen in k consecutive dumps: waited roughly k intervals
+                stats.waits.record(episode.lastMs - episode.startMs + intervalMs);
+            }
+        }
+
+        /** Returns the lock the thread is queued on, or null if it is not waiting for a lock. */
+        static LockInfo contendedLock(ThreadInfo thread, Map<String, String> owners) {
+            for (LockInfo lock : thread.locks()) {
+                if (lock.lockId() == null || thread.name().equals(owners.get(lock.lockId()))) {
+                    continue;
+                }
+                if (lock.isWaitingToLock() || (lock.isParking() && isLockSynchronizer(lock.className()))) {
+                    return lock;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isLockSynchronizer(String className) {
+            return className != null && className.contains("Lock") && !className.contains("ConditionObject");
+        }
+
+        private static String threadKey(ThreadInfo thread) {
+            return thread.threadId() != null ? "#" + thread.threadId() : thread.name();
+        }
+    }
+
+    /** A thread's current wait on one lock. */
+    private static final class Episode {
+        final String lockId;
+        final long startMs;
+        long lastMs;
+
+        Episode(String lockId, long startMs) {
+            this.lockId = lockId;
+            this.startMs = startMs;
+            this.lastMs = startMs;
+        }
+    }
+
+    /** Constant-size statistics for a single lock. */
+    static final class LockStats {
+        final String lockId;
+        final String className;
+        final double[] queueSeries;
+        final WaitHistogram waits = new WaitHistogram();
+        int contendedSamples;
+        long waiterSamples;
+        int maxQueue;
+        int ownerChanges;
+        String longestOwner;
+        int longestRun;
+        private String currentOwner;
+        private int currentRun;
+        private int lastIndex = -2;
+
+        LockStats(String lockId, String className, int buckets) {
+            this.lockId = lockId;
+            this.className = className;
+            this.queueSeries = new double[buckets];
+        }
+
+        void observe(int index, int totalDumps, int queueLength, String owner) {
+            contendedSamples++;
+            waiterSamples += queueLength;
+            maxQueue = Math.max(maxQueue, queueLength);
+            int bucket = (int) ((long) index * queueSeries.length / totalDumps);
+            queueSeries[bucket] = Math.max(queueSeries[bucket], queueLength);
+
+            if (owner != null) {
+                if (owner.equals(currentOwner) && lastIndex == index - 1) {
+                    currentRun++;
+                } else {
+                    if (currentOwner != null && !owner.equals(currentOwner)) {
+                        ownerChanges++;
+                    }
+                    currentOwner = owner;
+                    currentRun = 1;
+                }
+                if (currentRun > longestRun) {
+                    longestRun = currentRun;
+                    longestOwner = currentOwner;
+                }
+            }
+            lastIndex = index;
+        }
+
+        String label() {
+            if (className == null || className.isEmpty()) {
+                return "<" + lockId + ">";
+            }
+            return className.substring(className.lastIndexOf('.') + 1) + " <" + lockId + ">";
+        }
+    }
+
+    /**
+     * Log-scale histogram of wait durations in milliseconds (4 buckets per power of two,
+     * i.e. about 19% relative error), so quantiles need constant memory per lock.
+     */
+    static final class WaitHistogram {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private double min = Double.MAX_VALUE;
+        private double max;
+
+        void record(double ms) {
+            double value = Math.max(ms, 0);
+            counts[bucket(value)]++;
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        long count() {
+            return count;
+        }
+
+        /** Returns the estimated value at {@code q} (0..1), clamped to the observed range. */
+        double quantile(double q) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    double mid = i == 0 ? 0.5 : Math.pow(2, (i - 0.5) / SUB_BUCKETS);
+                    return Math.max(min, Math.min(max, mid));
+                }
+            }
+            return max;
+        }
+
+        private static int bucket(double ms) {
+            if (ms < 1) return 0;
+            int b = (int) Math.floor(Math.log(ms) / Math.log(2) * SUB_BUCKETS) + 1;
+            return Math.min(b, BUCKETS - 1);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.analyzer.ThreadActivityCategorizer;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.util.flame.FlameProfile;
 import me.bechberger.jthreaddump.model.ThreadDump;
 import me.bechberger.jthreaddump.model.ThreadInfo;
 
@@ -14,10 +15,15 @@ import java.util.*;
 /**
  * Identifies threads doing the most work across multiple dumps.
  * <p>
- * Aggregates CPU time per thread and groups by shared stack traces.
+ * Aggregates CPU time per thread and groups by shared stack traces. If async-profiler windows
+ * were recorded alongside the dumps (e.g. {@code record --full}), each thread also lists the
+ * methods its profiler samples were taken in, attributing its CPU time below the thread level.
  */
 public class MostWorkAnalyzer extends BaseAnalyzer {
 
+    /** Number of profiled methods shown per thread. */
+    static final int PROFILED_METHODS = 3;
+
     @Override
     public String name() {
         return "most-work";
@@ -62,10 +68,12 @@ public class MostWorkAnalyzer extends BaseAnalyzer {
         // Sort threads using base class method
         List<ThreadActivity> topThreads = sortThreadsByCpuTime(threadActivities.values(), topN);
 
-        return AnalyzerResult.ok(formatAsText(topThreads, dumps.size(), totalCpuTimeSec, elapsedTimeSec, stackDepth, intelligentFilter));
+        FlameProfile profile = CollectedProfiles.sum(data);
+
+        return AnalyzerResult.ok(formatAsText(topThreads, dumps.size(), totalCpuTimeSec, elapsedTimeSec, stackDepth, intelligentFilter, profile));
     }
 
-    private String formatAsText(List<ThreadActivity> topThreads, int totalDumps, double totalCpuTimeSec, double elapsedTimeSec, int stackDepth, boolean intelligentFilter) {
+    private String formatAsText(List<ThreadActivity> topThreads, int totalDumps, double totalCpuTimeSec, double elapsedTimeSec, int stackDepth, boolean intelligentFilter, FlameProfile profile) {
         if (topThreads.isEmpty()) {
             return "No threads found";
         }
@@ -137,6 +145,13 @@ public class MostWorkAnalyzer extends BaseAnalyzer {
                 sb.append("   Activity: ").append(activityDistribution).append("\n");
             }
 
+            if (profile != null) {
+                String hotMethods = formatProfiledMethods(profile, activity.threadName);
+                if (!hotMethods.isEmpty()) {
+                    sb.append("   Profiled in: ").append(hotMethods).append("\n");
+                }
+            }
+
             // Show common stack prefix
             if (!activity.threadInfos.isEmpty()) {
                 ThreadInfo firstThread = activity.threadInfos.get(0);
@@ -161,11 +176,31 @@ public class MostWorkAnalyzer extends BaseAnalyzer {
         return sb.toString().trim();
     }
 
+    /**
+     * Formats the methods with the most self samples of the given thread in the profile,
+     * e.g. {@code "Worker.compute (62.5%), HashMap.get (12.5%) of 16 samples"}.
+     */
+    static String formatProfiledMethods(FlameProfile profile, String threadName) {
+        FlameProfile threadProfile = profile.filterThreads(threadName::equals);
+        if (threadProfile.isEmpty()) {
+            return "";
+        }
+        long total = threadProfile.totalSamples();
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, Long> e : threadProfile.selfSamples().entrySet()) {
+            if (parts.size() == PROFILED_METHODS) {
+                break;
+            }
+            parts.add(String.format(Locale.US, "%s (%.1f%%)", e.getKey(), e.getValue() * 100.0 / total));
+        }
+        return String.join(", ", parts) + " of " + total + " samples";
+    }
+
     /**
      * Returns true for JMX/RMI threads that jstall itself injects into the target JVM
      * when it connects via JMX. These threads would otherwise skew CPU analysis.
      */
-    private static boolean isJmxInfrastructureThread(String name) {
+    static boolean isJmxInfrastructureThread(String name) {
         return name.startsWith("RMI TCP Connection")
             || name.startsWith("JMX server connection timeout")
             || name.startsWith("RMI Scheduler")
@@ -0,0 +1,296 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.NativeMemoryDiffRequirement;
+import me.bechberger.jstall.util.LinearTrend;
+import me.bechberger.jstall.util.render.Sparkline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ranks native memory categories by growth rate from NMT ({@code -XX:NativeMemoryTracking=summary}).
+ * <p>
+ * Uses the samples of {@link NativeMemoryDiffRequirement} (a summary at the NMT baseline, then
+ * {@code summary.diff} against it) and falls back to plain {@code VM.native_memory summary}
+ * captures. A diff only lists the NMT categories that changed, so every NMT category keeps its
+ * last known committed size until it is reported again. NMT categories are folded into
+ * {@link Category} time series (the Java heap is left out), ranked by their least-squares growth
+ * per hour. The Thread category is joined with the thread counts of the thread dumps to tell
+ * more threads apart from growing per-thread memory.
+ */
+public class NativeMemoryAnalyzer extends BaseAnalyzer {
+
+    /** Native memory series shown by the analyzer; NMT categories not listed go to {@link #OTHER}. */
+    enum Category {
+        THREAD("Thread"),
+        CLASS("Class"),
+        CODE("Code"),
+        GC("GC"),
+        INTERNAL("Internal"),
+        ARENA("Arena"),
+        OTHER("Other");
+
+        final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        /** Maps an NMT category name, or returns null for the Java heap. */
+        static Category of(String nmtName) {
+            return switch (nmtName) {
+                case "Java Heap" -> null;
+                case "Thread" -> THREAD;
+                case "Class" -> CLASS;
+                case "Code" -> CODE;
+                case "GC" -> GC;
+                case "Internal" -> INTERNAL;
+                case "Arena Chunk" -> ARENA;
+                default -> OTHER;
+            };
+        }
+    }
+
+    // "-                    Thread (reserved=22583KB +2064KB, committed=2751KB +2064KB)"
+    private static final Pattern CATEGORY_PATTERN = Pattern.compile(
+        "^-\\s+(.+?)\\s+\\(reserved=(\\d+)([KMG]?B)?[^,]*,\\s*committed=(\\d+)([KMG]?B)?");
+    // "                            (thread #22 +2)"
+    private static final Pattern THREAD_COUNT_PATTERN = Pattern.compile("^\\s*\\(thread #(\\d+)");
+
+    @Override
+    public String name() {
+        return "native-memory";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.ANY;
+    }
+
+    @Override
+    public int defaultDumpCount() {
+        return 5;
+    }
+
+    @Override
+    public long defaultIntervalMs() {
+        return 10000;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .addThreadDumps(count, intervalMs)
+            .addNativeMemoryDiffs(count, intervalMs)
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        List<CollectedData> samples = data.collectedData(NativeMemoryDiffRequirement.TYPE);
+        if (samples.isEmpty()) {
+            samples = data.collectedData("vm-native-memory");
+        }
+        if (samples.isEmpty()) {
+            return AnalyzerResult.nothing();
+        }
+        List<Snapshot> snapshots = parseSeries(samples);
+        if (snapshots.isEmpty()) {
+            String first = samples.get(0).rawData();
+            return AnalyzerResult.ok(first != null && first.contains("not enabled")
+                ? "Native memory tracking is not enabled (start the JVM with -XX:NativeMemoryTracking=summary)"
+                : "No parseable VM.native_memory output");
+        }
+
+        Snapshot first = snapshots.get(0);
+        Snapshot last = snapshots.get(snapshots.size() - 1);
+        double hours = (last.timestamp() - first.timestamp()) / 3_600_000.0;
+        List<String> preamble = new ArrayList<>();
+        preamble.add(String.format(Locale.US, "Native memory (NMT, excluding Java heap), %d sample%s over %s: committed %s -> %s",
+            snapshots.size(), snapshots.size() == 1 ? "" : "s", LeakSuspectAnalyzer.formatHours(hours),
+            Cell.formatBytes(first.total()), Cell.formatBytes(last.total())));
+        String threads = threadLine(snapshots, data.dumps());
+        if (threads != null) {
+            preamble.add(threads);
+        }
+
+        Category[] ranked = Category.values().clone();
+        double[] slopes = new double[ranked.length];
+        for (Category category : ranked) {
+            slopes[category.ordinal()] = slopePerHour(snapshots, category);
+        }
+        Arrays.sort(ranked, (a, b) -> Double.compare(slopes[b.ordinal()], slopes[a.ordinal()]));
+
+        boolean trend = snapshots.size() > 1;
+        TableModel.Builder table = TableModel.builder()
+            .addColumn("CATEGORY", TableModel.Alignment.LEFT)
+            .addColumn("COMMITTED", TableModel.Alignment.RIGHT)
+            .addColumn("RESERVED", TableModel.Alignment.RIGHT);
+        if (trend) {
+            table.addColumn("Δ COMMITTED", TableModel.Alignment.RIGHT)
+                .addColumn("RATE/H", TableModel.Alignment.RIGHT)
+                .addColumn("TREND", TableModel.Alignment.LEFT);
+        }
+        for (Category category : ranked) {
+            int c = category.ordinal();
+            if (!trend) {
+                table.addRow(Cell.text(category.label), Cell.bytes(last.committed()[c]), Cell.bytes(last.reserved()[c]));
+                continue;
+            }
+            long delta = last.committed()[c] - first.committed()[c];
+            double[] values = new double[snapshots.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = snapshots.get(i).committed()[c];
+            }
+            table.addRow(
+                Cell.text(category.label),
+                Cell.bytes(last.committed()[c]),
+                Cell.bytes(last.reserved()[c]),
+                Cell.number(Cell.formatSignedBytes(delta), delta),
+                Cell.number(Cell.formatSignedBytes(slopes[c]), slopes[c]),
+                Cell.text(Sparkline.render(values)));
+        }
+        return AnalyzerResult.ok(new AnalyzerOutput.TableOutput(preamble, table.build()));
+    }
+
+    /**
+     * Committed and reserved bytes per {@link Category} at one sample, and the NMT thread count
+     * (-1 if not reported).
+     */
+    record Snapshot(long timestamp, long[] committed, long[] reserved, int threads) {
+
+        long total() {
+            return Arrays.stream(committed).sum();
+        }
+    }
+
+    /**
+     * Parses summaries and diffs in order; NMT categories missing from a diff keep their previous
+     * sizes. Samples without any category lines (e.g. NMT disabled) are skipped.
+     */
+    static List<Snapshot> parseSeries(List<CollectedData> samples) {
+        Map<String, long[]> current = new HashMap<>();
+        int threads = -1;
+        List<Snapshot> result = new ArrayList<>();
+        for (CollectedData sample : samples) {
+            String raw = sample.rawData();
+            if (raw == null) {
+                continue;
+            }
+            boolean parsed = false;
+            for (String line : raw.lines().toList()) {
+                Matcher m = CATEGORY_PATTERN.matcher(line);
+                if (m.find()) {
+                    current.put(m.group(1).trim(), new long[]{
+                        toBytes(m.group(4), m.group(5)), toBytes(m.group(2), m.group(3))});
+                    parsed = true;
+                    continue;
+                }
+                Matcher t = THREAD_COUNT_PATTERN.matcher(line);
+                if (t.find()) {
+                    threads = Integer.parseInt(t.group(1));
+                }
+            }
+            if (!parsed) {
+                continue;
+            }
+            long[] committed = new long[Category.values().length];
+            long[] reserved = new long[Category.values().length];
+            for (Map.Entry<String, long[]> entry : current.entrySet()) {
+                Category category = Category.of(entry.getKey());
+                if (category != null) {
+                    committed[category.ordinal()] += entry.getValue()[0];
+                    reserved[category.ordinal()] += entry.getValue()[1];
+                }
+            }
+            result.add(new Snapshot(sample.timestamp(), committed, reserved, threads));
+        }
+        return result;
+    }
+
+    /**
+     * Joins the Thread category with the thread counts of the first and last dump: how much
+     * committed thread memory each added thread accounts for, or that it grows without new threads.
+     */
+    static String threadLine(List<Snapshot> snapshots, List<ThreadDumpSnapshot> dumps) {
+        Snapshot first = snapshots.get(0);
+        Snapshot last = snapshots.get(snapshots.size() - 1);
+        int c = Category.THREAD.ordinal();
+        long threadBytes = last.committed()[c];
+        if (dumps.isEmpty()) {
+            return last.threads() > 0
+                ? String.format(Locale.US, "Thread: %s committed for %d threads (%s per thread)",
+                    Cell.formatBytes(threadBytes), last.threads(), Cell.formatBytes(threadBytes / last.threads()))
+                : null;
+        }
+        int firstThreads = dumps.get(0).parsed().threads().size();
+        int lastThreads = dumps.get(dumps.size() - 1).parsed().threads().size();
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "Thread: %s committed for %d threads in the last dump",
+            Cell.formatBytes(threadBytes), lastThreads));
+        if (last.threads() > 0 && last.threads() != lastThreads) {
+            sb.append(" (NMT: ").append(last.threads()).append(')');
+        }
+        if (lastThreads > 0) {
+            sb.append(", ").append(Cell.formatBytes(threadBytes / lastThreads)).append(" per thread");
+        }
+        long delta = threadBytes - first.committed()[c];
+        if (snapshots.size() < 2 || dumps.size() < 2 || delta == 0) {
+            return sb.toString();
+        }
+        int addedThreads = lastThreads - firstThreads;
+        sb.append(String.format(Locale.US, "; threads %d -> %d, Thread memory %s", firstThreads, lastThreads,
+            Cell.formatSignedBytes(delta)));
+        if (addedThreads > 0 && delta > 0) {
+            sb.append(" (").append(Cell.formatBytes(delta / addedThreads)).append(" per added thread)");
+        } else if (addedThreads <= 0 && delta > 0) {
+            sb.append(" without more threads (deeper stacks or growing per-thread buffers)");
+        }
+        return sb.toString();
+    }
+
+    /** Least-squares slope of the committed bytes of {@code category}, per hour. */
+    static double slopePerHour(List<Snapshot> snapshots, Category category) {
+        LinearTrend trend = new LinearTrend();
+        for (Snapshot snapshot : snapshots) {
+            trend.add(snapshot.timestamp(), snapshot.committed()[category.ordinal()]);
+        }
+        return trend.slopePerHour();
+    }
+
+    private static long toBytes(String value, String unit) {
+        long v = Long.parseLong(value);
+        if (unit == null) {
+            return v;
+        }
+        return switch (unit) {
+            case "KB" -> v * 1024;
+            case "MB" -> v * 1024 * 1024;
+            case "GB" -> v * 1024 * 1024 * 1024;
+            default -> v;
+        };
+    }
+}
@@ -8,6 +8,7 @@ import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.provider.requirement.CollectedData;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.Timings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +29,7 @@ public class StatusAnalyzer extends BaseAnalyzer {
         new VmClassloaderStatsAnalyzer(),
         new VmMetaspaceAnalyzer(),
         new CompilerQueueAnalyzer(),
+        new JitAnalyzer(),
         new DeadLockAnalyzer(),
         new MostWorkAnalyzer(),
         new ThreadsAnalyzer(),
@@ -36,7 +38,9 @@ public class StatusAnalyzer extends BaseAnalyzer {
         new JvmSupportAnalyzer()
     );
 
-    private final List<Analyzer> EXPENSIVE_ANALYZERS = List.of(
+    /** Added with {@code --full}: expensive analyzers and those needing extra data sources. */
+    private final List<Analyzer> FULL_ANALYZERS = List.of(
+        new AllocationAnalyzer(),
         new ClassHistogramDiffAnalyzer()
     );
 
@@ -64,7 +68,7 @@ public class StatusAnalyzer extends BaseAnalyzer {
         List<Analyzer> analyzers = ANALYZERS;
         if (getBooleanOption(options, "full", false)) {
             analyzers = new java.util.ArrayList<>(ANALYZERS);
-            analyzers.addAll(EXPENSIVE_ANALYZERS);
+            analyzers.addAll(FULL_ANALYZERS);
         }
         return analyzers;
     }
@@ -95,7 +99,7 @@ public class StatusAnalyzer extends BaseAnalyzer {
                 // Not enough dumps yet — show placeholder
                 sectionContent = new AnalyzerOutput.TextOutput("Collecting data... (need 2 samples)");
             } else {
-                try {
+                try (Timings.Span span = Timings.span("analyze", sub.name())) {
                     ResolvedData subData = new ResolvedData(
                         filterDumps(sub, data.dumps()),
                         data.systemProperties(),
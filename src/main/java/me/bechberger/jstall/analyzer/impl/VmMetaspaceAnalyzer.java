@@ -290,7 +290,7 @@ public class VmMetaspaceAnalyzer implements Analyzer {
                     Cell.bytes(latestRow.usedBytes()),
                     Cell.bytes(latestRow.committedBytes()),
                     Cell.bytes(latestRow.freeBytes()),
-                    Cell.text(arrow + " " + formatSignedBytes(delta) + " used"));
+                    Cell.text(arrow + " " + Cell.formatSignedBytes(delta) + " used"));
             } else {
                 usageTable.addRow(
                     Cell.text(label),
@@ -398,10 +398,6 @@ public class VmMetaspaceAnalyzer implements Analyzer {
         return Cell.formatBytes(bytes);
     }
 
-    private static String formatSignedBytes(long bytes) {
-        return (bytes >= 0 ? "+" : "-") + Cell.formatBytes(Math.abs(bytes));
-    }
-
     private int getIntOption(Map<String, Object> options, String key, int defaultValue) {
         Object value = options.get(key);
         if (value instanceof Integer i) return i;
@@ -6,9 +6,12 @@ import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.provider.requirement.CollectedData;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement;
+import me.bechberger.jstall.util.TablePrinter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -16,6 +19,9 @@ import java.util.Set;
  * Displays VM vitals information from VM.vitals jcmd command (SapMachine-specific).
  * <p>
  * Shows the last n rows of VM.vitals data (configurable via --top option, default: 5).
+ * VM.vitals keeps a history that no MXBean offers, so it stays the primary source; on other
+ * JVMs the current values of the {@code OperatingSystem} MXBean (CPU load, memory, file
+ * descriptors) are shown instead.
  */
 public class VmVitalsAnalyzer implements Analyzer {
 
@@ -39,30 +45,79 @@ public class VmVitalsAnalyzer implements Analyzer {
         return DataRequirements.builder()
             .addThreadDump()
             .addJcmdOnce("VM.vitals")
+            .addMXBeanMetrics(MXBeanMetricsRequirement.Kind.OS, 1, 0)
             .build();
     }
 
     @Override
     public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
         List<CollectedData> vitalsSamples = data.collectedData("vm-vitals");
+        String osOutput = formatOsMetrics(data.collectedData(MXBeanMetricsRequirement.Kind.OS.type()));
         if (vitalsSamples.isEmpty()) {
-            return AnalyzerResult.ok("VM.vitals not available (requires SapMachine JVM)");
+            return AnalyzerResult.ok(osOutput.isEmpty() ? "VM.vitals not available (requires SapMachine JVM)" : osOutput);
         }
 
         String rawVitals = vitalsSamples.get(vitalsSamples.size() - 1).rawData();
-        if (rawVitals == null || rawVitals.isBlank()) {
-            return AnalyzerResult.nothing();
-        }
-
         int top = getIntOption(options, "top", 5);
-        String vmVitalsOutput = formatVmVitals(rawVitals, top);
+        String vmVitalsOutput = rawVitals == null || rawVitals.isBlank() ? "" : formatVmVitals(rawVitals, top);
         if (vmVitalsOutput.isEmpty()) {
-            return AnalyzerResult.nothing();
+            return osOutput.isEmpty() ? AnalyzerResult.nothing() : AnalyzerResult.ok(osOutput);
         }
 
         return AnalyzerResult.ok(vmVitalsOutput);
     }
 
+    /**
+     * Formats the latest {@code OperatingSystem} MXBean sample, empty if there is none.
+     */
+    private String formatOsMetrics(List<CollectedData> samples) {
+        Map<String, Number> os = Map.of();
+        for (int i = samples.size() - 1; i >= 0 && os.isEmpty(); i--) {
+            os = MXBeanMetricsRequirement.parseOs(samples.get(i).rawData());
+        }
+        if (os.isEmpty()) {
+            return "";
+        }
+        TablePrinter table = new TablePrinter()
+            .addColumn("Metric", TablePrinter.Alignment.LEFT)
+            .addColumn("Value", TablePrinter.Alignment.RIGHT);
+        addPercent(table, "Process CPU load", os.get("ProcessCpuLoad"));
+        addPercent(table, "System CPU load", os.get("CpuLoad") != null ? os.get("CpuLoad") : os.get("SystemCpuLoad"));
+        Number loadAverage = os.get("SystemLoadAverage");
+        if (loadAverage != null && loadAverage.doubleValue() >= 0) {
+            table.addRow("System load average", String.format(Locale.ROOT, "%.2f", loadAverage.doubleValue()));
+        }
+        if (os.get("AvailableProcessors") != null) {
+            table.addRow("Available processors", String.valueOf(os.get("AvailableProcessors").intValue()));
+        }
+        Number processCpuTime = os.get("ProcessCpuTime");
+        if (processCpuTime != null && processCpuTime.longValue() >= 0) {
+            table.addRow("Process CPU time", String.format(Locale.ROOT, "%,d ms", processCpuTime.longValue() / 1_000_000));
+        }
+        addBytes(table, "Committed virtual memory", os.get("CommittedVirtualMemorySize"));
+        addBytes(table, "Physical memory total", os.get("TotalMemorySize"));
+        addBytes(table, "Physical memory free", os.get("FreeMemorySize"));
+        Number openFds = os.get("OpenFileDescriptorCount");
+        if (openFds != null) {
+            Number maxFds = os.get("MaxFileDescriptorCount");
+            table.addRow("Open file descriptors", String.format(Locale.ROOT, "%,d", openFds.longValue())
+                + (maxFds != null ? String.format(Locale.ROOT, " of %,d", maxFds.longValue()) : ""));
+        }
+        return "VM.vitals not available (requires SapMachine JVM), OperatingSystem MXBean:\n" + table.render();
+    }
+
+    private static void addPercent(TablePrinter table, String metric, Number fraction) {
+        if (fraction != null && fraction.doubleValue() >= 0) {
+            table.addRow(metric, String.format(Locale.ROOT, "%.1f%%", fraction.doubleValue() * 100));
+        }
+    }
+
+    private static void addBytes(TablePrinter table, String metric, Number bytes) {
+        if (bytes != null && bytes.longValue() >= 0) {
+            table.addRow(metric, String.format(Locale.ROOT, "%,d MiB", bytes.longValue() / (1024 * 1024)));
+        }
+    }
+
     private int getIntOption(Map<String, Object> options, String key, int defaultValue) {
         Object value = options.get(key);
         if (value instanceof Integer i) {
@@ -0,0 +1,304 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.BaseAnalyzer;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.analyzer.ThreadActivityCategorizer;
+import me.bechberger.jstall.analyzer.ThreadActivityCategorizer.Category;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.AsyncProfilerWindowRequirement;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.util.flame.FlameProfile;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.Util;
+
+import java.util.*;
+
+/**
+ * Breaks down where thread pools spend wall-clock time: CPU, network, database, locks or I/O.
+ * <p>
+ * async-profiler runs in {@code wall} mode with one root frame per thread ({@code [name tid=N]})
+ * in the windows between the thread dumps. Each profiler thread is matched to the dump taken
+ * before its window by {@link ThreadInfo#nativeId()}; every sample is categorized by
+ * {@link ThreadActivityCategorizer} from its Java frames, with the matched thread's state as the
+ * fallback (RUNNABLE counts as CPU). Network and I/O samples below a JDBC frame count as database
+ * time. Threads are grouped into pools by their name without the trailing number
+ * ({@code http-nio-8080-exec-#}).
+ * <p>
+ * Unlike the state snapshot of two dumps, every thread is sampled every {@link #SAMPLE_INTERVAL_NANOS},
+ * so short but frequent waits show up with their actual share.
+ */
+public class WallClockAnalyzer extends BaseAnalyzer {
+
+    static final String EVENT = "wall";
+    /** async-profiler's default wall-clock interval, every thread is sampled this often. */
+    static final long SAMPLE_INTERVAL_NANOS = 50_000_000L;
+
+    /** Where a wall-clock sample was spent, derived from its {@link Category}. */
+    enum Bucket {
+        CPU("CPU"), NETWORK("NETWORK"), DB("DB"), LOCK("LOCK"), IO("I/O"), OTHER("OTHER");
+
+        final String header;
+
+        Bucket(String header) {
+            this.header = header;
+        }
+    }
+
+    /** Wall-clock samples of one thread pool. */
+    static final class Group {
+        final String name;
+        final Set<Long> threads = new HashSet<>();
+        final long[] samples = new long[Bucket.values().length];
+        final Map<String, Long> waitSites = new HashMap<>();
+        long total;
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        long samples(Bucket bucket) {
+            return samples[bucket.ordinal()];
+        }
+
+        String topWaitSite() {
+            return waitSites.entrySet().stream()
+                .max(Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry::getKey, Comparator.reverseOrder()))
+                .map(Map.Entry::getKey).orElse("");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "wall";
+    }
+
+    @Override
+    public Set<String> supportedOptions() {
+        return Set.of("dump-count", "interval", "keep", "top");
+    }
+
+    @Override
+    public DumpRequirement dumpRequirement() {
+        return DumpRequirement.MANY;
+    }
+
+    @Override
+    public DataRequirements getDataRequirements(Map<String, Object> options) {
+        int count = getIntOption(options, "dump-count", defaultDumpCount());
+        long intervalMs = options.get("interval") instanceof Number n ? n.longValue() : defaultIntervalMs();
+        return DataRequirements.builder()
+            .withDefaults(count, intervalMs)
+            .addThreadDumps()
+            .addAsyncProfilerWindows(EVENT, SAMPLE_INTERVAL_NANOS)
+            .build();
+    }
+
+    @Override
+    public AnalyzerResult analyze(ResolvedData data, Map<String, Object> options) {
+        int topN = getIntOption(options, "top", 10);
+        List<CollectedData> windows = CollectedProfiles.windows(data, EVENT);
+        if (windows.isEmpty()) {
+            return AnalyzerResult.ok("No wall-clock profile (needs async-profiler and at least 2 dumps)");
+        }
+        List<ThreadDump> dumps = data.dumps().stream().map(ThreadDumpSnapshot::parsed).toList();
+
+        Map<String, Group> groups = new HashMap<>();
+        Set<Long> profiled = new HashSet<>();
+        Set<Long> matched = new HashSet<>();
+        for (CollectedData window : windows) {
+            Map<Long, ThreadInfo> byNativeId = threadsByNativeId(dumpBefore(dumps, window.timestamp()));
+            for (Iterator<FlameProfile.Stack> it = FlameProfile.parseCollapsed(window.rawData()).stacks(); it.hasNext(); ) {
+                FlameProfile.Stack stack = it.next();
+                String threadFrame = stack.frames().get(0);
+                String threadName = FlameProfile.threadName(threadFrame);
+                if (threadName == null || MostWorkAnalyzer.isJmxInfrastructureThread(threadName)) {
+                    continue;
+                }
+                Long tid = FlameProfile.threadId(threadFrame);
+                ThreadInfo thread = tid != null ? byNativeId.get(tid) : null;
+                if (tid != null) {
+                    profiled.add(tid);
+                    if (thread != null) {
+                        matched.add(tid);
+                    }
+                }
+                List<StackFrame> frames = javaFrames(stack.frames());
+                Bucket bucket = bucket(frames, thread != null ? thread.state() : null);
+
+                Group group = groups.computeIfAbsent(poolName(threadName), Group::new);
+                group.threads.add(tid != null ? tid : -1L);
+                group.samples[bucket.ordinal()] += stack.samples();
+                group.total += stack.samples();
+                if (bucket != Bucket.CPU && !frames.isEmpty()) {
+                    group.waitSites.merge(frames.get(0).className() + "." + frames.get(0).methodName(), stack.samples(), Long::sum);
+                }
+            }
+        }
+        if (groups.isEmpty()) {
+            return AnalyzerResult.ok("No thread samples in the wall-clock profile (async-profiler must run with --threads)");
+        }
+        return AnalyzerResult.ok(format(groups.values(), topN, windows.size(), intervalNanos(data), profiled.size(), matched.size()));
+    }
+
+    private static AnalyzerOutput.TableOutput format(Collection<Group> groups, int topN, int windowCount,
+                                                     long intervalNanos, int profiled, int matched) {
+        List<Group> ranked = new ArrayList<>(groups);
+        ranked.sort(Comparator.comparingLong((Group g) -> -g.total).thenComparing(g -> g.name));
+        long[] overall = new long[Bucket.values().length];
+        long total = 0;
+        for (Group group : ranked) {
+            for (Bucket bucket : Bucket.values()) {
+                overall[bucket.ordinal()] += group.samples(bucket);
+            }
+            total += group.total;
+        }
+
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(60)
+            .addColumn("GROUP", TableModel.Alignment.LEFT)
+            .addColumn("THREADS", TableModel.Alignment.RIGHT)
+            .addColumn("WALL", TableModel.Alignment.RIGHT);
+        for (Bucket bucket : Bucket.values()) {
+            table.addColumn(bucket.header, TableModel.Alignment.RIGHT);
+        }
+        table.addColumn("TOP WAIT SITE", TableModel.Alignment.LEFT);
+        List<Group> shown = topN > 0 && ranked.size() > topN ? ranked.subList(0, topN) : ranked;
+        for (Group group : shown) {
+            List<Cell> row = new ArrayList<>();
+            row.add(Cell.text(group.name));
+            row.add(Cell.integer(group.threads.size()));
+            row.add(Cell.number(formatSeconds(group.total * intervalNanos), group.total * intervalNanos / 1e9));
+            for (Bucket bucket : Bucket.values()) {
+                row.add(shareCell(group.samples(bucket), group.total, bucket != Bucket.CPU && bucket != Bucket.OTHER));
+            }
+            row.add(Cell.text(group.topWaitSite()));
+            table.addRow(row.toArray(Cell[]::new));
+        }
+
+        List<String> preamble = new ArrayList<>();
+        preamble.add(String.format(Locale.US, "Wall-clock samples: %,d in %d %s (every %dms), %d threads, %d matched to thread dumps",
+            total, windowCount, windowCount == 1 ? "window" : "windows", intervalNanos / 1_000_000, profiled, matched));
+        StringBuilder split = new StringBuilder("Overall:");
+        for (Bucket bucket : Bucket.values()) {
+            split.append(String.format(Locale.US, " %s %.1f%%", bucket.header, total > 0 ? overall[bucket.ordinal()] * 100.0 / total : 0));
+        }
+        preamble.add(split.toString());
+        if (shown.size() < ranked.size()) {
+            preamble.add("Showing top " + shown.size() + " of " + ranked.size() + " thread groups");
+        }
+        return new AnalyzerOutput.TableOutput(preamble, table.build());
+    }
+
+    /**
+     * Bucket of one sample: the categorizer's category of the Java frames (top frame first),
+     * with I/O and network below a JDBC frame counted as database time.
+     */
+    static Bucket bucket(List<StackFrame> frames, Thread.State state) {
+        Category category = ThreadActivityCategorizer.categorize(frames, state);
+        return switch (category.getGroup()) {
+            case NETWORKING, IO -> category == Category.DB || frames.stream().anyMatch(Category.DB::matches) ? Bucket.DB
+                : category.getGroup() == ThreadActivityCategorizer.CategoryGroup.NETWORKING ? Bucket.NETWORK : Bucket.IO;
+            case LOCKING -> Bucket.LOCK;
+            case COMPUTATION -> Bucket.CPU;
+            default -> Bucket.OTHER;
+        };
+    }
+
+    /**
+     * Java frames of a collapsed stack (root first) as stack frames, top frame first. Thread,
+     * native, JVM-internal ({@code ::}) and kernel frames are dropped; both {@code java/lang/Thread.run}
+     * and {@code java.lang.Thread.run} names are understood, frame type suffixes ({@code _[j]}) removed.
+     */
+    static List<StackFrame> javaFrames(List<String> collapsedFrames) {
+        List<StackFrame> frames = new ArrayList<>();
+        for (int i = collapsedFrames.size() - 1; i >= 0; i--) {
+            String frame = collapsedFrames.get(i);
+            if (frame.endsWith("]") && frame.length() > 4 && frame.startsWith("_[", frame.length() - 4)) {
+                if (frame.endsWith("_[k]")) {
+                    continue;
+                }
+                frame = frame.substring(0, frame.length() - 4);
+            }
+            if (frame.startsWith("[") || frame.startsWith("/") || frame.contains("::")
+                || frame.contains(" ") || frame.contains("(")) {
+                continue;
+            }
+            int dot = frame.lastIndexOf('.');
+            if (dot <= 0 || dot == frame.length() - 1) {
+                continue;
+            }
+            char first = frame.charAt(dot + 1);
+            if (!Character.isJavaIdentifierStart(first) && first != '<') {
+                continue;
+            }
+            frames.add(new StackFrame(frame.substring(0, dot).replace('/', '.'), frame.substring(dot + 1), null, null));
+        }
+        return frames;
+    }
+
+    /** Thread pool of a thread: its name without the trailing number. */
+    static String poolName(String threadName) {
+        return threadName.replaceFirst("\\d+$", "#");
+    }
+
+    /** The last dump taken at or before {@code timestamp}, else the first dump. */
+    private static ThreadDump dumpBefore(List<ThreadDump> dumps, long timestamp) {
+        ThreadDump result = dumps.isEmpty() ? null : dumps.get(0);
+        for (ThreadDump dump : dumps) {
+            if (dump.timestamp() != null && dump.timestamp().toEpochMilli() <= timestamp) {
+                result = dump;
+            }
+        }
+        return result;
+    }
+
+    private static Map<Long, ThreadInfo> threadsByNativeId(ThreadDump dump) {
+        Map<Long, ThreadInfo> result = new HashMap<>();
+        if (dump != null) {
+            for (ThreadInfo thread : dump.threads()) {
+                if (thread.nativeId() != null) {
+                    result.put(thread.nativeId(), thread);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Sample interval from the recorded {@code flame.meta.json}, else {@link #SAMPLE_INTERVAL_NANOS}. */
+    private static long intervalNanos(ResolvedData data) {
+        for (CollectedData meta : data.collectedData(AsyncProfilerWindowRequirement.directoryFor(EVENT))) {
+            if (!"flame.meta.json".equals(meta.metadata().get("file"))) {
+                continue;
+            }
+            try {
+                Object interval = Util.asMap(JSONParser.parse(meta.rawData())).get("intervalNanos");
+                if (interval != null) {
+                    return Long.parseLong(interval.toString());
+                }
+            } catch (RuntimeException ignored) {
+                // fall back to the default interval
+            }
+        }
+        return SAMPLE_INTERVAL_NANOS;
+    }
+
+    private static Cell shareCell(long value, long total, boolean highlight) {
+        double pct = total > 0 ? value * 100.0 / total : 0;
+        return Cell.number(String.format(Locale.US, "%.1f%%", pct), pct,
+            highlight && pct >= 50 ? Cell.Color.RED : highlight && pct >= 20 ? Cell.Color.YELLOW : null);
+    }
+
+    private static String formatSeconds(long nanos) {
+        double seconds = nanos / 1e9;
+        return seconds < 10 ? String.format(Locale.US, "%.2fs", seconds) : String.format(Locale.US, "%.1fs", seconds);
+    }
+}
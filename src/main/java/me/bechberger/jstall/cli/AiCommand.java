@@ -7,6 +7,7 @@ import me.bechberger.femtocli.annotations.Option;
 import me.bechberger.jstall.Main;
 import me.bechberger.jstall.util.llm.AiConfig;
 import me.bechberger.jstall.util.llm.LlmProvider;
+import me.bechberger.jstall.util.llm.LlmResponseCache;
 import me.bechberger.jstall.util.llm.LlmProviderFactory;
 
 import java.io.BufferedReader;
@@ -97,6 +98,25 @@ public class AiCommand extends BaseAnalyzerCommand {
         description = "Save the final analysis to a file")
     private String saveTo;
 
+    @Option(names = "--token-budget",
+        description = "Approximate token budget for the analysis data in the prompt; the most important findings are packed first (default: 4000 for local models, unlimited otherwise)",
+        defaultValue = "0")
+    private int tokenBudget = 0;
+
+    @Option(names = "--tool-parallelism",
+        description = "Maximum number of tool calls of one model turn that run concurrently (default: 4)",
+        defaultValue = "4")
+    private int toolParallelism = 4;
+
+    @Option(names = "--tool-timeout",
+        description = "Seconds a single tool call may run before it is cancelled (default: 120)",
+        defaultValue = "120")
+    private int toolTimeout = 120;
+
+    @Option(names = "--no-cache",
+        description = "Always query the model instead of replaying cached responses to identical requests")
+    private boolean noCache;
+
     private Analyzer analyzer;
 
     @Override
@@ -110,6 +130,9 @@ public class AiCommand extends BaseAnalyzerCommand {
                     ProviderResolver.resolve(provider, model, baseUrl);
                 LlmProvider llmProvider = resolved.provider();
                 model = resolved.model();
+                if (!noCache) {
+                    llmProvider.setResponseCache(LlmResponseCache.openDefault());
+                }
                 analyzer = new AiAnalyzer(llmProvider, spec.getParent(Main.class).executor());
             } catch (AiConfig.ConfigNotFoundException | IllegalArgumentException e) {
                 System.err.println("Error: " + e.getMessage());
@@ -167,6 +190,15 @@ public class AiCommand extends BaseAnalyzerCommand {
         if (saveTo != null && !saveTo.isBlank()) {
             options.put("save", saveTo);
         }
+        if (tokenBudget > 0) {
+            options.put("token-budget", tokenBudget);
+        }
+        if (toolParallelism > 0) {
+            options.put("tool-parallelism", toolParallelism);
+        }
+        if (toolTimeout > 0) {
+            options.put("tool-timeout", toolTimeout);
+        }
 
         // Pass the analysis target(s) so tools like run_jstall_command can use the correct PID
         if (targets != null && !targets.isEmpty()) {
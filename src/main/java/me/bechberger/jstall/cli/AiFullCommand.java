@@ -8,6 +8,7 @@ import me.bechberger.femtocli.annotations.Option;
 import me.bechberger.jstall.Main;
 import me.bechberger.jstall.util.llm.AiConfig;
 import me.bechberger.jstall.util.llm.LlmProvider;
+import me.bechberger.jstall.util.llm.LlmResponseCache;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -87,6 +88,10 @@ public class AiFullCommand implements Callable<Integer> {
         description = "Suppress progress output")
     private boolean quiet;
 
+    @Option(names = "--no-cache",
+        description = "Always query the model instead of replaying cached responses to identical requests")
+    private boolean noCache;
+
     Spec spec;
 
     @Override
@@ -96,6 +101,9 @@ public class AiFullCommand implements Callable<Integer> {
                 ProviderResolver.resolve(provider, model, baseUrl);
             LlmProvider llmProvider = resolved.provider();
             model = resolved.model();
+            if (!noCache) {
+                llmProvider.setResponseCache(LlmResponseCache.openDefault());
+            }
 
             AiAnalyzer analyzer = new AiAnalyzer(llmProvider, spec.getParent(Main.class).executor());
 
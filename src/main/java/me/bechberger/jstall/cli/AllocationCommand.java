@@ -0,0 +1,39 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.AllocationAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ranks threads and stack groups by allocation rate.
+ */
+@Command(
+    name = "allocation",
+    description = "Rank threads and stacks by allocation rate (bytes/s, needs a JMX connection)"
+)
+public class AllocationCommand extends BaseAnalyzerCommand {
+
+    @Option(names = "--top", description = "Number of top threads and stack groups to show (default: 10, -1 for all)")
+    private int top = 10;
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new AllocationAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all threads");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("top", top);
+        return options;
+    }
+}
@@ -1,6 +1,7 @@
 package me.bechberger.jstall.cli;
 
 import me.bechberger.jstall.Main;
+import me.bechberger.jstall.cli.live.ContinuousProfiler;
 import me.bechberger.jstall.analyzer.Analyzer;
 import me.bechberger.jstall.analyzer.AnalyzerResult;
 import me.bechberger.jstall.analyzer.DumpRequirement;
@@ -20,13 +21,17 @@ import me.bechberger.jstall.util.CommandExecutor.SSHCommandException;
 import me.bechberger.jstall.util.JVMDiscovery;
 import me.bechberger.femtocli.annotations.Parameters;
 import me.bechberger.jstall.util.ResolvedTarget;
+import me.bechberger.jstall.util.Timings;
+import me.bechberger.jstall.util.render.NdjsonWriter;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -66,12 +71,21 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
 
     @Option(names = "--keep-samples", defaultValue = "0", description = "Number of last samples to persist as recording ZIP on quit of live mode (0 = don't persist)")
     protected int keepSamples = 0;
+
+    @Option(names = "--history", defaultValue = "10m", description = "How far back live mode keeps samples for scrubbing with [ and ]")
+    protected Duration history;
+    @Option(names = "--profile", description = "Live mode: keep async-profiler attached at a low sampling rate (50ms) and show the hottest methods of the last minute in a Profile tab")
+    protected boolean profile = false;
+
     @Option(names = {"-f", "--file"}, description = "Replay ZIP file to analyze (works before or after subcommand)")
     protected Path replayFile;
 
     @Option(names = "--color", description = "Enable colored output in live mode")
     protected boolean color = false;
 
+    @Option(names = "--output", defaultValue = "text", description = "Output format: text or ndjson (one JSON record per section and table row, one frame per tick in live mode)")
+    protected String output = "text";
+
     Spec spec;
     private Path positionalReplayFile;
 
@@ -127,6 +141,11 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
 
     @Override
     public Integer call() throws Exception {
+        Main main = spec != null ? spec.getParent(Main.class) : null;
+        return main != null ? main.withTimings(this::analyzeTargets) : analyzeTargets();
+    }
+
+    private Integer analyzeTargets() throws Exception {
         setupReplayFile();
         // Validate common options
         if (count != null && count < 1) {
@@ -149,6 +168,18 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
             System.err.println("Error: --keep-samples must be >= 0");
             return 1;
         }
+        if (live && history != null && history.isNegative()) {
+            System.err.println("Error: --history must not be negative");
+            return 1;
+        }
+        if (profile && !live) {
+            System.err.println("Error: --profile requires --live");
+            return 1;
+        }
+        if (!output.equals("text") && !output.equals("ndjson")) {
+            System.err.println("Error: --output must be 'text' or 'ndjson'");
+            return 1;
+        }
         if (live && resolveExecutor().isRemote()) {
             System.err.println("Warning: --live with --ssh/--cf opens a new SSH connection per jcmd call each cycle.");
             System.err.println("         This may be slow and can fail if the remote endpoint rate-limits connections.");
@@ -198,7 +229,14 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
                     context.executor(), pidTarget.pid(), pidTarget.mainClass(),
                     context.analyzer(), context.options(),
                     interval != null ? interval : Duration.ofSeconds(5),
-                    keepSamples, color);
+                    keepSamples, color,
+                    history != null ? history : Duration.ofMinutes(10));
+            if (profile) {
+                runner.enableProfiling(ContinuousProfiler.DEFAULT_INTERVAL);
+            }
+            if (isNdjson()) {
+                runner.enableNdjson(new NdjsonWriter(System.out));
+            }
             return runner.run();
         }
 
@@ -343,7 +381,7 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
         }
 
         ResolvedData data = ResolvedData.fromDumps(threadDumps);
-        return analyzeAndPrintResult(data, context);
+        return analyzeAndPrintResult(data, context, null);
     }
 
     private Integer processSingleTarget(ResolvedTarget target, AnalysisContext context) throws Exception {
@@ -357,7 +395,7 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
         }
 
         ResolvedData data = ResolvedData.fromDumpsAndCollectedData(targetData.threadDumps(), targetData.collectedDataByType());
-        return analyzeAndPrintResult(data, context);
+        return analyzeAndPrintResult(data, context, target);
     }
 
     private void printTargetLoadError(ResolvedTarget target, Exception error) {
@@ -425,7 +463,10 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
             }
 
             ResolvedData data = ResolvedData.fromDumpsAndCollectedData(targetData.threadDumps(), targetData.collectedDataByType());
-            AnalyzerResult result = context.analyzer.analyze(data, context.options);
+            AnalyzerResult result;
+            try (Timings.Span span = Timings.span("analyze", context.analyzer.name())) {
+                result = context.analyzer.analyze(data, context.options);
+            }
             return new TargetResult(target, result, null);
         } catch (Exception e) {
             return new TargetResult(target, null, e);
@@ -437,6 +478,10 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
         boolean first = true;
 
         for (TargetResult targetResult : results) {
+            if (isNdjson()) {
+                maxExitCode = Math.max(maxExitCode, writeNdjson(targetResult.target, targetResult.result, targetResult.error));
+                continue;
+            }
             if (!first) {
                 System.out.println();
             }
@@ -456,12 +501,50 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
         return maxExitCode;
     }
 
-    private int analyzeAndPrintResult(ResolvedData data, AnalysisContext context) {
-        AnalyzerResult result = context.analyzer.analyze(data, context.options);
+    private int analyzeAndPrintResult(ResolvedData data, AnalysisContext context, ResolvedTarget target) {
+        AnalyzerResult result;
+        try (Timings.Span span = Timings.span("analyze", context.analyzer.name())) {
+            result = context.analyzer.analyze(data, context.options);
+        }
+        if (isNdjson()) {
+            return writeNdjson(target, result, null);
+        }
         System.out.println(result.output());
         return result.exitCode();
     }
 
+    private boolean isNdjson() {
+        return "ndjson".equals(output);
+    }
+
+    /**
+     * Writes one result (or the error analyzing it) as NDJSON records to stdout.
+     */
+    private int writeNdjson(ResolvedTarget target, AnalyzerResult result, Exception error) {
+        NdjsonWriter writer = new NdjsonWriter(System.out);
+        String analyzer = getAnalyzer().name();
+        Map<String, Object> targetJson = targetJson(target);
+        if (error != null) {
+            writer.writeError(analyzer, targetJson, 0, error.getMessage() != null ? error.getMessage() : error.toString());
+            return 1;
+        }
+        writer.writeResult(analyzer, targetJson, 0, Instant.now().toString(), result);
+        return result.exitCode();
+    }
+
+    private static Map<String, Object> targetJson(ResolvedTarget target) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        if (target instanceof ResolvedTarget.Pid pid) {
+            json.put("pid", pid.pid());
+            json.put("mainClass", pid.mainClass());
+        } else if (target instanceof ResolvedTarget.File file) {
+            json.put("file", file.path().toString());
+        } else {
+            return null;
+        }
+        return json;
+    }
+
     private int computeDumpCount(Analyzer analyzer) {
         return count != null ? count : analyzer.defaultDumpCount();
     }
@@ -519,8 +602,12 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
     private LoadedTargetData loadDataFromCollection(CommandExecutor executor, ResolvedTarget.Pid pid, Analyzer analyzer, Map<String, Object> options) throws IOException {
         Map<String, List<CollectedData>> collectedDataByType = collectAll(executor, pid.pid(), analyzer, options);
         List<CollectedData> dumpData = collectedDataByType.getOrDefault(ThreadDumpRequirement.TYPE, List.of());
+        SystemEnvironment environment;
+        try (Timings.Span span = Timings.span("system environment")) {
+            environment = SystemEnvironment.create(executor);
+        }
         List<ThreadDumpSnapshot> threadDumps = ThreadDumpRequirement.toSnapshots(dumpData,
-                CollectedDataHelper.extractSystemProps(collectedDataByType), SystemEnvironment.create(executor));
+                CollectedDataHelper.extractSystemProps(collectedDataByType), environment);
         if (keep && !dumpData.isEmpty()) {
             ThreadDumpRequirement.persistToDirectory(dumpData, Path.of("dumps"));
         }
@@ -586,9 +673,11 @@ public abstract class BaseAnalyzerCommand implements Callable<Integer> {
     private Map<String, List<CollectedData>> collectAll(CommandExecutor executor, long pid,
                                                         Analyzer analyzer, Map<String, Object> options) throws IOException {
         DataRequirements requirements = analyzer.getDataRequirements(options);
-        DataCollector collector = new DataCollector(executor.diagnosticHelper(pid), requirements);
-        Map<DataRequirement, List<CollectedData>> collected = collector.collectAll();
-        return CollectedDataHelper.toByTypeMap(collected);
+        try (Timings.Span span = Timings.span("collect PID", pid)) {
+            DataCollector collector = new DataCollector(executor.diagnosticHelper(pid), requirements);
+            Map<DataRequirement, List<CollectedData>> collected = collector.collectAll();
+            return CollectedDataHelper.toByTypeMap(collected);
+        }
     }
 
     private JVMDiscovery.ResolutionResult resolveTargetsFromReplay(List<String> requestedTargets) {
@@ -13,17 +13,36 @@ import me.bechberger.jstall.util.JMXDiagnosticHelper;
 import me.bechberger.jstall.util.JVMDiscovery;
 import me.bechberger.femtocli.annotations.Parameters;
 import me.bechberger.jstall.util.ResolvedTarget;
+import me.bechberger.jstall.util.flame.FlameDiff;
+import me.bechberger.jstall.util.flame.FlameGraphHtml;
+import me.bechberger.jstall.util.flame.FlameProfile;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.Callable;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 /**
  * Generates a flamegraph using async-profiler via ap-loader.
+ * <p>
+ * The profiler produces collapsed stacks, which are parsed into a {@link FlameProfile}; the HTML
+ * is rendered from that profile, or the collapsed stacks are written as they are when the output
+ * file ends with {@code .collapsed} or {@code .txt}.
+ * <p>
+ * With {@code --diff} or {@code --diff-windows} a differential flamegraph of two profiles is
+ * generated instead ({@link FlameDiff}), from recordings or collapsed files.
  */
 @Command(
     name = "flame",
@@ -34,6 +53,14 @@ import java.util.concurrent.Callable;
               # Allocation flamegraph for a JVM running MyAppMainClass with a 20s duration
               # open flamegraph automatically after generation
               jstall flame MyAppMainClass --event alloc --duration 20s --open
+              # Only the worker threads, summed over all windows of a recording
+              jstall -f recording.zip flame --thread worker --output workers.html
+              # Collapsed stacks for other tools
+              jstall flame 12345 --output profile.collapsed
+              # Differential flamegraph: what got more expensive from before.zip to after.zip
+              jstall flame --diff before.zip after.zip --output diff.html
+              # Compare the first five windows of a recording with the next five
+              jstall -f recording.zip flame --diff-windows 0-4:5-9
             """
 )
 public class FlameCommand implements Callable<Integer> {
@@ -41,7 +68,7 @@ public class FlameCommand implements Callable<Integer> {
     @Parameters(arity = "0..1", description = "PID or filter (filters JVMs by main class name)")
     String target;
 
-    @Option(names = {"-o", "--output"}, description = "Output HTML file (default: flame.html)")
+    @Option(names = {"-o", "--output"}, description = "Output HTML file, or collapsed stacks if it ends with .collapsed or .txt (default: flame.html)")
     private String outputFile = "flame.html";
 
     @Option(names = {"-d", "--duration"}, defaultValue = "10s", description = "Profiling duration (default: 10s)")
@@ -56,11 +83,23 @@ public class FlameCommand implements Callable<Integer> {
     @Option(names = {"--open"}, description = "Automatically open the generated HTML file in browser")
     private boolean open = false;
 
+    @Option(names = {"--thread"}, description = "Only include threads whose name contains this text (case-insensitive)")
+    private String threadFilter;
+
+    @Option(names = {"--diff"}, paramLabel = "<baseline>",
+            description = "Differential flamegraph against a baseline recording or .collapsed file; the target (or the replay file) is compared to it")
+    private String diffBaseline;
+
+    @Option(names = {"--diff-windows"}, paramLabel = "<before>:<after>",
+            description = "Differential flamegraph between profiling windows of the replay file, as 0-based index ranges, e.g. 0-4:5-9")
+    private String diffWindows;
+
     Spec spec;
 
     @Override
     public Integer call() {
         var replayFile = spec.getParent(Main.class).getReplayFile();
+        if (diffBaseline != null || diffWindows != null) return diff(replayFile);
         if (replayFile != null) return useReplayFile(replayFile);
 
         var executor = spec.getParent(Main.class).executor();
@@ -130,14 +169,9 @@ public class FlameCommand implements Callable<Integer> {
                     System.err.println("Error: profiling was skipped: " + result.metadata().getOrDefault("reason", "unknown"));
                     return 1;
                 }
-                Path outputPath = Paths.get(outputFile).toAbsolutePath();
-                if (outputPath.getParent() != null) Files.createDirectories(outputPath.getParent());
-                if (result.tempFiles().containsKey("flame")) {
-                    Files.copy(result.tempFiles().get("flame"), outputPath,
-                            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                } else {
-                    Files.writeString(outputPath, result.rawData(), java.nio.charset.StandardCharsets.UTF_8);
-                }
+                FlameProfile profile = filter(FlameProfile.parseCollapsed(result.rawData()));
+                if (profile == null) return 1;
+                Path outputPath = writeProfile(profile, "PID " + pid.pid() + " (" + pid.mainClass() + ")");
                 System.out.println("\n✓ Flamegraph successfully generated!");
                 reportOutput(outputPath);
             } finally {
@@ -188,21 +222,36 @@ public class FlameCommand implements Callable<Integer> {
         try {
             ReplayProvider replay = new ReplayProvider(replayFile);
 
-            long targetPid = resolveReplayPid(replay);
+            long targetPid = resolveReplayPid(replay, target);
             if (targetPid < 0) return 1;
 
-            ReplayProvider.FlamegraphData flamegraph = replay.getFlamegraph(targetPid);
-            if (flamegraph == null) {
-                System.err.println("Error: replay file does not contain a flamegraph for PID " + targetPid);
-                return 1;
+            ReplayProvider.ProfileData profileData = replay.getProfile(targetPid);
+            ReplayProvider.FlamegraphData flamegraph;
+            Path outputPath;
+            if (profileData != null) {
+                FlameProfile profile = filter(profileData.profile());
+                if (profile == null) return 1;
+                outputPath = writeProfile(profile, "PID " + targetPid + " (" + profileData.windows() + " windows)");
+                flamegraph = new ReplayProvider.FlamegraphData("", 0, profileData.metadata());
+            } else {
+                // Archives of older versions only contain the rendered HTML
+                flamegraph = replay.getFlamegraph(targetPid);
+                if (flamegraph == null) {
+                    System.err.println("Error: replay file does not contain a flamegraph for PID " + targetPid);
+                    return 1;
+                }
+                if (threadFilter != null || isCollapsedOutput()) {
+                    System.err.println("Error: replay file only contains a rendered flamegraph, --thread and collapsed output are not available");
+                    return 1;
+                }
+                outputPath = Paths.get(outputFile).toAbsolutePath();
+                if (outputPath.getParent() != null) Files.createDirectories(outputPath.getParent());
+                flamegraph.writeTo(outputPath);
             }
 
-            Path outputPath = Paths.get(outputFile).toAbsolutePath();
-            if (outputPath.getParent() != null) Files.createDirectories(outputPath.getParent());
-            flamegraph.writeTo(outputPath);
-
             System.out.println("\n✓ Flamegraph successfully extracted from replay file!");
             System.out.println("PID: " + targetPid);
+            if (profileData != null) System.out.println("Windows: " + profileData.windows());
             String fg_event = flamegraph.getEvent();
             if (!fg_event.equals("unknown")) System.out.println("Event: " + fg_event);
             String fg_duration = flamegraph.getDuration();
@@ -217,8 +266,210 @@ public class FlameCommand implements Callable<Integer> {
         }
     }
 
-    /** Resolves the target PID from a replay file, returns -1 on error. */
-    private long resolveReplayPid(ReplayProvider replay) {
+    /** One side of a differential flamegraph, streamed as sorted stacks. */
+    private record DiffSide(String label, Iterator<FlameProfile.Stack> stacks, Closeable resource) implements Closeable {
+        @Override
+        public void close() throws IOException {
+            if (resource != null) resource.close();
+        }
+    }
+
+    private int diff(Path replayFile) {
+        if (diffBaseline != null && diffWindows != null) {
+            System.err.println("Error: --diff and --diff-windows cannot be combined");
+            return 1;
+        }
+        try {
+            if (diffWindows != null) {
+                return diffWindows(replayFile);
+            }
+            // "--diff before after" or "-f after flame --diff before [filter]"
+            String after = replayFile != null ? replayFile.toString() : target;
+            String pidFilter = replayFile != null ? target : null;
+            if (after == null) {
+                System.err.println("Error: --diff needs a second recording or .collapsed file to compare with " + diffBaseline);
+                return 1;
+            }
+            try {
+                return writeDiff(() -> openSide(diffBaseline, pidFilter, false), () -> openSide(after, pidFilter, false),
+                    diffBaseline + " → " + after);
+            } catch (IllegalStateException e) {
+                // Collapsed files of other tools are not sorted, load them into a profile first
+                return writeDiff(() -> openSide(diffBaseline, pidFilter, true), () -> openSide(after, pidFilter, true),
+                    diffBaseline + " → " + after);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error reading profiles: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private int diffWindows(Path replayFile) throws IOException {
+        if (replayFile == null) {
+            System.err.println("Error: --diff-windows needs a replay file (jstall -f recording.zip flame --diff-windows ...)");
+            return 1;
+        }
+        String[] ranges = diffWindows.split(":");
+        IntPredicate before = ranges.length == 2 ? parseWindowRange(ranges[0]) : null;
+        IntPredicate after = ranges.length == 2 ? parseWindowRange(ranges[1]) : null;
+        if (before == null || after == null) {
+            System.err.println("Error: invalid --diff-windows '" + diffWindows + "', expected <before>:<after> like 0-4:5-9");
+            return 1;
+        }
+        ReplayProvider replay = new ReplayProvider(replayFile);
+        long pid = resolveReplayPid(replay, target);
+        if (pid < 0) return 1;
+        ReplayProvider.ProfileData beforeProfile = replay.getProfile(pid, before);
+        ReplayProvider.ProfileData afterProfile = replay.getProfile(pid, after);
+        if (beforeProfile == null || afterProfile == null) {
+            System.err.println("Error: replay file has no collapsed profile windows in " + (beforeProfile == null ? ranges[0] : ranges[1]));
+            return 1;
+        }
+        return writeDiff(
+            () -> new DiffSide("windows " + ranges[0], beforeProfile.profile().stacks(), null),
+            () -> new DiffSide("windows " + ranges[1], afterProfile.profile().stacks(), null),
+            "PID " + pid + ": windows " + ranges[0] + " → " + ranges[1]);
+    }
+
+    /** Parses {@code n} or {@code n-m} (inclusive); returns null if malformed. */
+    static IntPredicate parseWindowRange(String range) {
+        try {
+            int dash = range.indexOf('-');
+            int from = Integer.parseInt((dash < 0 ? range : range.substring(0, dash)).trim());
+            int to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).trim());
+            return from < 0 || to < from ? null : i -> i >= from && i <= to;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SideOpener {
+        DiffSide open() throws IOException;
+    }
+
+    /**
+     * Opens a recording (summed profile windows) or a collapsed file. Collapsed files are streamed
+     * as they are unless {@code loadFully} is set, which also accepts unsorted files.
+     */
+    private DiffSide openSide(String file, String pidFilter, boolean loadFully) throws IOException {
+        Path path = Paths.get(file);
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("File not found: " + file);
+        }
+        if (file.endsWith(".collapsed") || file.endsWith(".txt")) {
+            BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+            if (!loadFully) {
+                return new DiffSide(file, FlameDiff.sortedStacks(reader), reader);
+            }
+            try (reader) {
+                return new DiffSide(file, FlameProfile.parseCollapsed(reader).stacks(), null);
+            }
+        }
+        ReplayProvider replay = new ReplayProvider(path);
+        long pid = resolveReplayPid(replay, pidFilter);
+        if (pid < 0) {
+            throw new IOException("cannot select a JVM in " + file);
+        }
+        ReplayProvider.ProfileData profile = replay.getProfile(pid);
+        if (profile == null) {
+            throw new IOException(file + " does not contain collapsed profile windows for PID " + pid);
+        }
+        return new DiffSide(file, profile.profile().stacks(), null);
+    }
+
+    /** Merges both sides and writes the differential flamegraph (HTML) or differential collapsed stacks. */
+    private int writeDiff(SideOpener beforeOpener, SideOpener afterOpener, String title) throws IOException {
+        Path outputPath = Paths.get(outputFile).toAbsolutePath();
+        if (outputPath.getParent() != null) Files.createDirectories(outputPath.getParent());
+        try (DiffSide before = beforeOpener.open(); DiffSide after = afterOpener.open()) {
+            Iterator<FlameProfile.Stack> beforeStacks = filterStacks(before.stacks());
+            Iterator<FlameProfile.Stack> afterStacks = filterStacks(after.stacks());
+            FlameDiff.Totals totals;
+            FlameProfile diff = null;
+            if (isCollapsedOutput()) {
+                try (Writer writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+                    totals = FlameDiff.writeDiffCollapsed(beforeStacks, afterStacks, writer);
+                }
+            } else {
+                diff = FlameDiff.diff(beforeStacks, afterStacks);
+                totals = new FlameDiff.Totals(diff.baselineSamples(), diff.totalSamples());
+            }
+            if (totals.before() == 0 || totals.after() == 0) {
+                Files.deleteIfExists(outputPath);
+                System.err.println("Error: " + (totals.before() == 0 ? before.label() : after.label()) + " contains no samples"
+                    + (threadFilter != null ? " for threads matching '" + threadFilter + "'" : ""));
+                return 1;
+            }
+            if (diff != null) {
+                Files.writeString(outputPath, FlameGraphHtml.render(diff, title), StandardCharsets.UTF_8);
+            }
+
+            System.out.println("\n✓ Differential flamegraph successfully generated!");
+            System.out.println("Baseline: " + before.label() + " (" + totals.before() + " samples)");
+            System.out.println("Compared: " + after.label() + " (" + totals.after() + " samples)");
+            if (diff != null) {
+                List<FlameDiff.Change> changes = FlameDiff.topChanges(diff, 10);
+                if (!changes.isEmpty()) {
+                    System.out.println("Largest changes of self share:");
+                    for (FlameDiff.Change change : changes) {
+                        System.out.printf(Locale.US, "  %7s  %s (%.1f%% → %.1f%%)%n", FlameDiff.formatDelta(change.delta()),
+                            change.frame(), change.beforeShare() * 100, change.afterShare() * 100);
+                    }
+                }
+            }
+            reportOutput(outputPath);
+            return 0;
+        }
+    }
+
+    private Iterator<FlameProfile.Stack> filterStacks(Iterator<FlameProfile.Stack> stacks) {
+        Predicate<String> threads = threadPredicate();
+        return threads == null ? stacks : FlameDiff.filterThreads(stacks, threads);
+    }
+
+    /** The {@code --thread} filter, null if not set. */
+    private Predicate<String> threadPredicate() {
+        if (threadFilter == null || threadFilter.isBlank()) {
+            return null;
+        }
+        String needle = threadFilter.toLowerCase();
+        return name -> name.toLowerCase().contains(needle);
+    }
+
+    /** Applies {@code --thread}; prints an error and returns null if nothing is left. */
+    private FlameProfile filter(FlameProfile profile) {
+        Predicate<String> threads = threadPredicate();
+        if (threads != null) {
+            profile = profile.filterThreads(threads);
+        }
+        if (profile.isEmpty()) {
+            System.err.println("Error: profile contains no samples" + (threadFilter != null ? " for threads matching '" + threadFilter + "'" : ""));
+            return null;
+        }
+        return profile;
+    }
+
+    private boolean isCollapsedOutput() {
+        return outputFile.endsWith(".collapsed") || outputFile.endsWith(".txt");
+    }
+
+    /** Writes the profile as collapsed stacks or rendered HTML, depending on the output file name. */
+    private Path writeProfile(FlameProfile profile, String title) throws IOException {
+        Path outputPath = Paths.get(outputFile).toAbsolutePath();
+        if (outputPath.getParent() != null) Files.createDirectories(outputPath.getParent());
+        try (Writer writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            if (isCollapsedOutput()) {
+                profile.writeCollapsed(writer);
+            } else {
+                writer.write(FlameGraphHtml.render(profile, title));
+            }
+        }
+        return outputPath;
+    }
+
+    /** Resolves the PID matching {@code target} (all if null) from a replay file, returns -1 on error. */
+    private long resolveReplayPid(ReplayProvider replay, String target) {
         List<JVMDiscovery.JVMProcess> jvms = replay.listRecordedJvms(null);
         if (jvms.isEmpty()) {
             System.err.println("Error: replay file does not contain any recorded JVMs");
@@ -0,0 +1,67 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.GrepStacksAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Searches the stack frames of all dumps for a regular expression.
+ * <p>
+ * The first positional argument is the pattern, the remaining ones are the usual targets.
+ */
+@Command(
+    name = "grep-stacks",
+    description = "Search stack frames of all dumps for a regex: grep-stacks <regex> <target>"
+)
+public class GrepStacksCommand extends BaseAnalyzerCommand {
+
+    @Option(names = {"-i", "--ignore-case"}, description = "Match case-insensitively")
+    private boolean ignoreCase = false;
+
+    @Option(names = "--top", description = "Number of rows to show (default: 50, -1 for all)")
+    private int top = 50;
+
+    private String pattern;
+
+    @Override
+    public Integer call() throws Exception {
+        if (targets == null || targets.isEmpty()) {
+            System.err.println("Error: missing <regex>, usage: jstall grep-stacks <regex> <target>");
+            return 1;
+        }
+        pattern = targets.get(0);
+        targets = new ArrayList<>(targets.subList(1, targets.size()));
+        return super.call();
+    }
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new GrepStacksAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all rows");
+        }
+        try {
+            Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid regex '" + pattern + "': " + e.getDescription());
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("pattern", pattern);
+        options.put("ignore-case", ignoreCase);
+        options.put("top", top);
+        return options;
+    }
+}
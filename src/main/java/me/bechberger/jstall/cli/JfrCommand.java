@@ -0,0 +1,44 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.JfrAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Summarizes JFR recordings and streamed JFR events.
+ */
+@Command(
+    name = "jfr",
+    description = "Summarize JFR data: hot methods, lock contention, GC pauses, allocation sites",
+    footer = """
+            Examples:
+              jstall -f recording.zip jfr all
+              jstall jfr 12345 --dump-count 5 --interval 2s
+            """
+)
+public class JfrCommand extends BaseAnalyzerCommand {
+
+    @Option(names = "--top", description = "Number of top entries per table (default: 10, -1 for all)")
+    private int top = 10;
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new JfrAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all entries");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("top", top);
+        return options;
+    }
+}
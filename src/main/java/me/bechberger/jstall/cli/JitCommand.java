@@ -0,0 +1,27 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.JitAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+
+/**
+ * Command for analyzing code cache usage and JIT pressure.
+ * <p>
+ * Shows code cache segments over time, the compile queue backlog and compiler thread CPU.
+ */
+@Command(
+    name = "jit",
+    description = "Analyze code cache usage per segment and JIT pressure, warning before the JIT is switched off",
+    footer = """
+            Examples:
+              jstall jit 12345 --dump-count 5 --interval 10s
+              jstall jit MyApp
+            """
+)
+public class JitCommand extends BaseAnalyzerCommand {
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new JitAnalyzer();
+    }
+}
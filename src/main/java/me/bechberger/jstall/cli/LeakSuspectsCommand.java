@@ -0,0 +1,45 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.LeakSuspectAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ranks classes whose live heap footprint grows steadily across a series of class histograms.
+ */
+@Command(
+    name = "leak-suspects",
+    description = "Rank classes growing steadily across class histograms and project the time to OOM",
+    footer = """
+            Examples:
+              jstall leak-suspects 12345 --dump-count 6 --interval 1m
+              jstall record 12345 --include GC.class_histogram --dump-count 144 --interval 10m -o day.zip
+              jstall leak-suspects day.zip --top 20
+            """
+)
+public class LeakSuspectsCommand extends BaseAnalyzerCommand {
+
+    @Option(names = "--top", description = "Number of suspect classes to show (default: 10, -1 for all)")
+    private int top = 10;
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new LeakSuspectAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all entries");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("top", top);
+        return options;
+    }
+}
@@ -5,10 +5,12 @@ import me.bechberger.jstall.analyzer.Analyzer;
 import me.bechberger.jstall.analyzer.AnalyzerOutput;
 import me.bechberger.jstall.analyzer.AnalyzerResult;
 import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.cli.live.ContinuousProfiler;
 import me.bechberger.jstall.cli.live.InteractiveRenderer;
 import me.bechberger.jstall.cli.live.KeyEvent;
 import me.bechberger.jstall.cli.live.LiveViewState;
 import me.bechberger.jstall.cli.live.RawTerminal;
+import me.bechberger.jstall.cli.live.SampleHistory;
 import me.bechberger.jstall.cli.live.TableViewModel;
 import me.bechberger.jstall.model.SystemEnvironment;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
@@ -21,6 +23,9 @@ import me.bechberger.jstall.provider.requirement.ThreadDumpRequirement;
 import me.bechberger.jstall.util.CommandExecutor;
 import me.bechberger.jstall.util.JMXDiagnosticHelper;
 import me.bechberger.jstall.util.JVMDiscovery;
+import me.bechberger.jstall.util.Timings;
+import me.bechberger.jstall.util.flame.FlameProfile;
+import me.bechberger.jstall.util.render.NdjsonWriter;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -33,13 +38,23 @@ import java.util.concurrent.*;
 
 /**
  * Runs an analyzer in live/watch mode: repeatedly collects data, analyzes,
- * clears the screen and displays the result. On shutdown (Ctrl+C), optionally
- * persists the last N samples as a recording ZIP.
+ * clears the screen and displays the result. Collected samples are kept in a
+ * fixed-size {@link SampleHistory} so the interactive view can scrub back to past ticks.
+ * On shutdown (Ctrl+C), optionally persists the last N samples as a recording ZIP.
+ * <p>
+ * With {@link #enableProfiling} a {@link ContinuousProfiler} stays attached for the whole session;
+ * each tick stores the profile delta with the other data and the result gets a "Profile" tab
+ * with the hottest methods of the last minute.
+ * <p>
+ * With {@link #enableNdjson} each tick is written as one NDJSON frame instead of redrawing the screen.
  */
 public class LiveModeRunner {
 
     private static final String CLEAR_SCREEN = "\033[2J\033[H";
     private static final DateTimeFormatter TIMESTAMP_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter HISTORY_TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /** Upper bound for history ticks, regardless of --history / --interval. */
+    static final int MAX_HISTORY_TICKS = 3600;
 
     private final CommandExecutor executor;
     private final long pid;
@@ -51,26 +66,34 @@ public class LiveModeRunner {
     private final boolean colorEnabled;
 
     private volatile boolean running = true;
-    private final ArrayDeque<LiveSample> sampleBuffer;
+    private final SampleHistory history;
+    private volatile AnalyzerResult latestResult;
+    private long viewedSequence = -1; // -1 = follow the newest tick
+    private boolean scrubPending = false;
     private int sampleCount = 0;
     private volatile long lastCollectionMs = -1;
     private volatile long lastAnalysisMs = -1;
     private volatile boolean forceCollection = false;
     private boolean secondarySortPending = false;
-    private Map<DataRequirement, List<CollectedData>> previousRawCollected = null;
     private Map<String, List<CollectedData>> previousByType = null;
     private JMXDiagnosticHelper helper;
     private ScheduledExecutorService sharedScheduler;
     private ExecutorService collectionExecutor;
     private volatile RawTerminal activeTerminal;
+    private Duration profilingInterval;
+    private volatile ContinuousProfiler profiler;
+    private NdjsonWriter ndjson;
 
-    record LiveSample(Instant timestamp, Map<DataRequirement, List<CollectedData>> rawCollected,
-                      Map<String, List<CollectedData>> collectedByType, AnalyzerResult result) {
+    public LiveModeRunner(CommandExecutor executor, long pid, String mainClass,
+                          Analyzer analyzer, Map<String, Object> options,
+                          Duration liveInterval, int keepSamples, boolean colorEnabled) {
+        this(executor, pid, mainClass, analyzer, options, liveInterval, keepSamples, colorEnabled, Duration.ZERO);
     }
 
     public LiveModeRunner(CommandExecutor executor, long pid, String mainClass,
                           Analyzer analyzer, Map<String, Object> options,
-                          Duration liveInterval, int keepSamples, boolean colorEnabled) {
+                          Duration liveInterval, int keepSamples, boolean colorEnabled,
+                          Duration historyWindow) {
         this.executor = executor;
         this.pid = pid;
         this.mainClass = mainClass;
@@ -79,13 +102,51 @@ public class LiveModeRunner {
         this.liveInterval = liveInterval;
         this.keepSamples = keepSamples;
         this.colorEnabled = colorEnabled;
-        this.sampleBuffer = new ArrayDeque<>(keepSamples > 0 ? keepSamples + 1 : 4);
+        this.history = new SampleHistory(historyCapacity(historyWindow, liveInterval, keepSamples));
+    }
+
+    /**
+     * Number of ticks needed to cover {@code historyWindow} at {@code interval}, but at least
+     * {@code keepSamples} (so they can be persisted) and at most {@link #MAX_HISTORY_TICKS}.
+     */
+    static int historyCapacity(Duration historyWindow, Duration interval, int keepSamples) {
+        long intervalMs = Math.max(interval.toMillis(), 1);
+        long windowTicks = historyWindow == null ? 0 : (historyWindow.toMillis() + intervalMs - 1) / intervalMs;
+        long ticks = Math.max(Math.max(windowTicks, keepSamples), 1);
+        return (int) Math.min(ticks, Math.max(MAX_HISTORY_TICKS, keepSamples));
+    }
+
+    /**
+     * Keeps async-profiler attached at {@code samplingInterval} while running and adds a
+     * "Profile" tab with the hottest methods of the last minute.
+     */
+    public LiveModeRunner enableProfiling(Duration samplingInterval) {
+        this.profilingInterval = samplingInterval;
+        return this;
+    }
+
+    /**
+     * Writes every tick as an NDJSON frame (see {@link NdjsonWriter}) instead of clearing the
+     * screen; always uses the non-interactive loop so stdout stays machine-readable.
+     */
+    public LiveModeRunner enableNdjson(NdjsonWriter writer) {
+        this.ndjson = writer;
+        return this;
     }
 
     public int run() {
         Thread shutdownHook = new Thread(this::onShutdown);
         Runtime.getRuntime().addShutdownHook(shutdownHook);
         this.helper = executor.diagnosticHelper(pid);
+        if (profilingInterval != null) {
+            ContinuousProfiler continuousProfiler = new ContinuousProfiler(helper, profilingInterval);
+            try {
+                continuousProfiler.start();
+                this.profiler = continuousProfiler;
+            } catch (IOException e) {
+                System.err.println("Warning: could not start async-profiler, continuing without profiling: " + e.getMessage());
+            }
+        }
         this.sharedScheduler = Executors.newScheduledThreadPool(2);
         this.collectionExecutor = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "jstall-collection");
@@ -94,7 +155,7 @@ public class LiveModeRunner {
         });
 
         int lastExitCode;
-        if (RawTerminal.isInteractiveSupported()) {
+        if (ndjson == null && RawTerminal.isInteractiveSupported()) {
             lastExitCode = runInteractive(shutdownHook);
         } else {
             lastExitCode = runSimple(shutdownHook);
@@ -141,12 +202,16 @@ public class LiveModeRunner {
             // Show placeholder tabs immediately before data collection
             if (analyzer instanceof me.bechberger.jstall.analyzer.impl.StatusAnalyzer statusAnalyzer) {
                 AnalyzerOutput placeholder = statusAnalyzer.buildPlaceholderOutput(options);
+                if (profiler != null) {
+                    placeholder = withProfileTab(placeholder, new AnalyzerOutput.TextOutput("Collecting data..."));
+                }
                 viewState = applyColor(LiveViewState.fromStructured(placeholder));
                 renderFrame(renderer, viewState);
             }
 
             // Collect first sample asynchronously so the UI stays responsive
             Future<Integer> pendingCollection = collectionExecutor.submit(this::collectSample);
+            Future<AnalyzerResult> pendingScrub = null;
             long lastCollectionTime = System.currentTimeMillis();
 
             while (running) {
@@ -166,6 +231,28 @@ public class LiveModeRunner {
                 }
                 if (!running) break;
 
+                if (terminal.consumeDisturbed()) {
+                    renderer.invalidate();
+                    needsRender = true;
+                }
+
+                if (scrubPending) {
+                    scrubPending = false;
+                    if (pendingScrub != null) {
+                        pendingScrub.cancel(false);
+                    }
+                    long sequence = viewedSequence;
+                    if (sequence < 0) {
+                        pendingScrub = null;
+                        if (latestResult != null) {
+                            viewState = applyColor(viewState.refreshFromResult(latestResult));
+                        }
+                    } else {
+                        pendingScrub = collectionExecutor.submit(() -> analyzeHistoryTick(sequence));
+                    }
+                    renderer.setHistoryInfo(historyInfo());
+                }
+
                 if (needsRender) {
                     // Update model filter from renderer
                     if (viewState.model() != null) {
@@ -174,6 +261,19 @@ public class LiveModeRunner {
                     renderFrame(renderer, viewState);
                 }
 
+                // Check if a past tick finished re-analysis
+                if (pendingScrub != null && pendingScrub.isDone()) {
+                    try {
+                        if (viewedSequence >= 0) {
+                            viewState = applyColor(viewState.refreshFromResult(pendingScrub.get()));
+                        }
+                    } catch (ExecutionException | CancellationException e) {
+                        // Keep showing the previous frame
+                    }
+                    pendingScrub = null;
+                    renderFrame(renderer, viewState);
+                }
+
                 // Check if async collection finished
                 if (pendingCollection != null && pendingCollection.isDone()) {
                     try {
@@ -183,9 +283,16 @@ public class LiveModeRunner {
                     }
                     pendingCollection = null;
                     lastCollectionTime = System.currentTimeMillis();
-                    if (!sampleBuffer.isEmpty()) {
-                        viewState = applyColor(viewState.refreshFromResult(sampleBuffer.peekLast().result()));
+                    if (viewedSequence < 0) {
+                        if (latestResult != null) {
+                            viewState = applyColor(viewState.refreshFromResult(latestResult));
+                        }
+                    } else if (history.get(viewedSequence) == null) {
+                        // The viewed tick was evicted: jump to the oldest retained one
+                        viewedSequence = history.oldestSequence();
+                        scrubPending = true;
                     }
+                    renderer.setHistoryInfo(historyInfo());
                     renderFrame(renderer, viewState);
                 }
 
@@ -251,9 +358,17 @@ public class LiveModeRunner {
             // JVM is already shutting down
         }
         shutdownScheduler();
+        stopProfiler();
         persistIfNeeded();
     }
 
+    private void stopProfiler() {
+        ContinuousProfiler p = profiler;
+        if (p != null) {
+            p.close();
+        }
+    }
+
     private int collectSample() {
         try {
             long t0 = System.currentTimeMillis();
@@ -265,16 +380,13 @@ public class LiveModeRunner {
 
             AnalyzerResult result;
             if (previousByType == null) {
-                previousRawCollected = currentSample.rawCollected;
                 previousByType = currentSample.byType;
-                result = analyzeGracefully(currentSample.byType);
-                bufferSample(now, currentSample.rawCollected, currentSample.byType, result);
+                result = withProfileTab(analyzeGracefully(currentSample.byType), profileOutput());
+                bufferSample(now, currentSample.rawCollected, result);
             } else {
                 var mergedByType = CollectedDataHelper.merge(previousByType, currentSample.byType);
-                var mergedRaw = CollectedDataHelper.merge(previousRawCollected, currentSample.rawCollected);
-                result = analyze(mergedByType);
-                bufferSample(now, mergedRaw, mergedByType, result);
-                previousRawCollected = currentSample.rawCollected;
+                result = withProfileTab(analyze(mergedByType), profileOutput());
+                bufferSample(now, currentSample.rawCollected, result);
                 previousByType = currentSample.byType;
             }
             lastAnalysisMs = System.currentTimeMillis() - t1;
@@ -296,8 +408,7 @@ public class LiveModeRunner {
                     helper = executor.reconnectDiagnosticHelper(pid);
                 } catch (Exception ignored) {}
             }
-            bufferSample(Instant.now(), Map.of(), Map.of(),
-                    AnalyzerResult.withExitCode(errorMsg, 1));
+            bufferError(Instant.now(), AnalyzerResult.withExitCode(errorMsg, 1));
             return 1;
         }
     }
@@ -329,6 +440,8 @@ public class LiveModeRunner {
                 case '/' -> renderer.enterFilterMode();
                 case 'r', 'R' -> forceCollection = true;
                 case 's' -> secondarySortPending = true;
+                case '[' -> stepHistory(-1);
+                case ']' -> stepHistory(1);
                 case '+', '=' -> {
                     long secs = liveInterval.getSeconds();
                     liveInterval = Duration.ofSeconds(Math.min(secs + 1, 300));
@@ -401,31 +514,37 @@ public class LiveModeRunner {
             Instant now = Instant.now();
 
             if (previousByType == null) {
-                previousRawCollected = currentSample.rawCollected;
                 previousByType = currentSample.byType;
-                AnalyzerResult result = analyzeGracefully(currentSample.byType);
-                bufferSample(now, currentSample.rawCollected, currentSample.byType, result);
-                display(now, result.shouldDisplay() ? result.output() : null);
+                AnalyzerResult result = withProfileTab(analyzeGracefully(currentSample.byType), profileOutput());
+                bufferSample(now, currentSample.rawCollected, result);
+                show(now, result);
                 return result.exitCode();
             }
 
             // Merge previous + current for comparative analysis
             var mergedByType = CollectedDataHelper.merge(previousByType, currentSample.byType);
-            var mergedRaw = CollectedDataHelper.merge(previousRawCollected, currentSample.rawCollected);
 
-            AnalyzerResult result = analyze(mergedByType);
-            bufferSample(now, mergedRaw, mergedByType, result);
+            AnalyzerResult result = withProfileTab(analyze(mergedByType), profileOutput());
+            bufferSample(now, currentSample.rawCollected, result);
 
             // Shift: current becomes previous for next cycle
-            previousRawCollected = currentSample.rawCollected;
             previousByType = currentSample.byType;
 
-            display(now, result.shouldDisplay() ? result.output() : null);
+            show(now, result);
             return result.exitCode();
         } catch (Exception e) {
             sampleCount++;
-            display(Instant.now(), null);
+            if (ndjson != null) {
+                ndjson.writeError(analyzer.name(), ndjsonTarget(), sampleCount, e.getMessage() != null ? e.getMessage() : e.toString());
+            } else {
+                display(Instant.now(), null);
+            }
             System.err.println("Error collecting data: " + e.getMessage());
+            RawTerminal terminal = activeTerminal;
+            if (terminal != null) {
+                // The message was written over the screen: redraw everything on the next frame
+                terminal.markDisturbed();
+            }
             if (isJvmGone(e)) {
                 if (e instanceof CommandExecutor.SSHCommandException) {
                     System.err.println("SSH/CF connection failed — live mode stopped.");
@@ -454,6 +573,11 @@ public class LiveModeRunner {
         DataRequirements requirements = analyzer.getDataRequirements(singleSampleOptions);
         DataCollector collector = new DataCollector(helper, requirements, sharedScheduler);
         Map<DataRequirement, List<CollectedData>> rawCollected = collector.collectAll();
+        ContinuousProfiler p = profiler;
+        if (p != null) {
+            rawCollected = new LinkedHashMap<>(rawCollected);
+            rawCollected.put(p.requirement(), List.of(p.poll()));
+        }
         Map<String, List<CollectedData>> byType = CollectedDataHelper.toByTypeMap(rawCollected);
         return new RawSample(rawCollected, byType);
     }
@@ -464,7 +588,9 @@ public class LiveModeRunner {
         List<ThreadDumpSnapshot> threadDumps = ThreadDumpRequirement.toSnapshots(
                 dumpData, systemProps, SystemEnvironment.create(executor));
         ResolvedData data = ResolvedData.fromDumpsAndCollectedData(threadDumps, mergedByType);
-        return analyzer.analyze(data, options);
+        try (Timings.Span span = Timings.span("analyze", analyzer.name())) {
+            return analyzer.analyze(data, options);
+        }
     }
 
     /**
@@ -480,23 +606,143 @@ public class LiveModeRunner {
         }
     }
 
-    private void bufferSample(Instant now, Map<DataRequirement, List<CollectedData>> mergedRaw,
-                              Map<String, List<CollectedData>> mergedByType, AnalyzerResult result) {
-        // Always buffer at least 1 sample for interactive display; respect keepSamples for persistence
-        int maxBuffer = Math.max(keepSamples, 1);
-        if (sampleBuffer.size() >= maxBuffer) {
-            sampleBuffer.pollFirst();
+    /**
+     * Records the data collected in this tick (not the merged analysis input) and the latest result.
+     */
+    private void bufferSample(Instant now, Map<DataRequirement, List<CollectedData>> currentRaw,
+                              AnalyzerResult result) {
+        history.add(now, currentRaw);
+        latestResult = result;
+    }
+
+    private void bufferError(Instant now, AnalyzerResult errorResult) {
+        history.addError(now, errorResult);
+        latestResult = errorResult;
+    }
+
+    /**
+     * Moves the viewed tick by {@code delta} (negative = older). Stepping past the newest
+     * tick returns to following live data.
+     */
+    private void stepHistory(int delta) {
+        if (history.isEmpty()) return;
+        long oldest = history.oldestSequence();
+        long newest = history.newestSequence();
+        long current = viewedSequence < 0 ? newest : viewedSequence;
+        long target = current + delta;
+        if (target > newest) {
+            if (viewedSequence < 0) return;
+            viewedSequence = -1;
+        } else {
+            target = Math.max(target, oldest);
+            if (target == current && viewedSequence >= 0) return;
+            viewedSequence = target;
+        }
+        scrubPending = true;
+    }
+
+    private String historyInfo() {
+        if (viewedSequence < 0) return null;
+        SampleHistory.Tick tick = history.get(viewedSequence);
+        if (tick == null) return null;
+        String time = LocalDateTime.ofInstant(tick.timestamp(), java.time.ZoneId.systemDefault())
+                .format(HISTORY_TIME_FMT);
+        long behind = history.newestSequence() - viewedSequence;
+        return String.format("⏪ %s (-%d of %d)", time, behind, history.size() - 1);
+    }
+
+    /**
+     * Re-runs the analyzer for a past tick from the history, merging it with its predecessor
+     * exactly like the live collection did. No data is re-collected.
+     */
+    private AnalyzerResult analyzeHistoryTick(long sequence) {
+        SampleHistory.Tick tick = history.get(sequence);
+        if (tick == null) {
+            return AnalyzerResult.ok("Sample is no longer in the history buffer.");
+        }
+        if (tick.isError()) {
+            return tick.errorResult();
+        }
+        var byType = CollectedDataHelper.toByTypeMap(tick.rawCollected());
+        SampleHistory.Tick previous = history.previousSuccessful(sequence);
+        AnalyzerResult result = previous == null
+                ? analyzeGracefully(byType)
+                : analyze(CollectedDataHelper.merge(CollectedDataHelper.toByTypeMap(previous.rawCollected()), byType));
+        return withProfileTab(result, historyProfileOutput(tick));
+    }
+
+    /** The rolling profile of the live session, null if not profiling. */
+    private AnalyzerOutput profileOutput() {
+        ContinuousProfiler p = profiler;
+        return p == null ? null : p.topMethods();
+    }
+
+    /**
+     * The rolling profile as it was at a past tick, rebuilt from the profile deltas stored in the
+     * ticks of the preceding {@link ContinuousProfiler#ROLLING_WINDOW}.
+     */
+    private AnalyzerOutput historyProfileOutput(SampleHistory.Tick tick) {
+        ContinuousProfiler p = profiler;
+        if (p == null) {
+            return null;
+        }
+        List<FlameProfile> deltas = new ArrayList<>();
+        for (long seq = tick.sequence(); seq >= 0 && seq >= history.oldestSequence(); seq--) {
+            SampleHistory.Tick past = seq == tick.sequence() ? tick : history.get(seq);
+            if (past == null) continue;
+            if (Duration.between(past.timestamp(), tick.timestamp()).compareTo(ContinuousProfiler.ROLLING_WINDOW) > 0) break;
+            for (CollectedData delta : past.rawCollected().getOrDefault(p.requirement(), List.of())) {
+                if (!delta.rawData().isEmpty()) {
+                    deltas.add(FlameProfile.parseCollapsed(delta.rawData()));
+                }
+            }
+        }
+        return ContinuousProfiler.topMethods(deltas, profilingInterval);
+    }
+
+    /** Appends {@code profile} as a "Profile" tab; returns {@code result} unchanged if null. */
+    private AnalyzerResult withProfileTab(AnalyzerResult result, AnalyzerOutput profile) {
+        if (profile == null || !result.shouldDisplay() || result.structured() == null) {
+            return result;
         }
-        sampleBuffer.addLast(new LiveSample(now, mergedRaw, mergedByType, result));
+        return AnalyzerResult.withExitCode(withProfileTab(result.structured(), profile), result.exitCode());
+    }
+
+    private AnalyzerOutput withProfileTab(AnalyzerOutput output, AnalyzerOutput profile) {
+        List<AnalyzerOutput.CompositeOutput.Section> sections = new ArrayList<>();
+        if (output instanceof AnalyzerOutput.CompositeOutput composite) {
+            sections.addAll(composite.sections());
+        } else {
+            sections.add(new AnalyzerOutput.CompositeOutput.Section(analyzer.name(), output));
+        }
+        sections.add(new AnalyzerOutput.CompositeOutput.Section("Profile", profile));
+        return new AnalyzerOutput.CompositeOutput(sections);
+    }
+
+    private void show(Instant now, AnalyzerResult result) {
+        if (ndjson != null) {
+            ndjson.writeResult(analyzer.name(), ndjsonTarget(), sampleCount, now.toString(), result);
+        } else {
+            display(now, result.shouldDisplay() ? result.output() : null);
+        }
+    }
+
+    private Map<String, Object> ndjsonTarget() {
+        Map<String, Object> target = new LinkedHashMap<>();
+        target.put("pid", pid);
+        target.put("mainClass", mainClass);
+        return target;
     }
 
     private void display(Instant now, String body) {
-        System.out.print(CLEAR_SCREEN);
-        System.out.println(formatHeader(now));
-        System.out.println();
+        // Without a tty there is no cursor addressing to diff against, but still emit
+        // the whole frame as one write to avoid partial frames on slow links
+        StringBuilder frame = new StringBuilder(CLEAR_SCREEN);
+        frame.append(formatHeader(now)).append('\n').append('\n');
         if (body != null) {
-            System.out.println(body);
+            frame.append(body).append('\n');
         }
+        System.out.print(frame);
         System.out.flush();
     }
 
@@ -530,6 +776,8 @@ public class LiveModeRunner {
 
     private void onShutdown() {
         running = false;
+        // Do not leave the profiler running in the target
+        stopProfiler();
         // Ensure terminal is restored even if JVM exits abruptly
         RawTerminal t = activeTerminal;
         if (t != null) {
@@ -538,7 +786,13 @@ public class LiveModeRunner {
     }
 
     private void persistIfNeeded() {
-        if (keepSamples <= 0 || sampleBuffer.isEmpty()) {
+        if (keepSamples <= 0 || history.isEmpty()) {
+            return;
+        }
+        List<SampleHistory.Tick> tail = history.tail(keepSamples).stream()
+                .filter(tick -> !tick.isError())
+                .toList();
+        if (tail.isEmpty()) {
             return;
         }
         try {
@@ -547,16 +801,16 @@ public class LiveModeRunner {
 
             // Build collected data in the format RecordingProvider expects
             Map<DataRequirement, List<CollectedData>> mergedData = new LinkedHashMap<>();
-            for (LiveSample sample : sampleBuffer) {
-                for (Map.Entry<DataRequirement, List<CollectedData>> entry : sample.rawCollected().entrySet()) {
+            for (SampleHistory.Tick tick : tail) {
+                for (Map.Entry<DataRequirement, List<CollectedData>> entry : tick.rawCollected().entrySet()) {
                     mergedData.computeIfAbsent(entry.getKey(), __ -> new ArrayList<>())
                               .addAll(entry.getValue());
                 }
             }
 
             JVMDiscovery.JVMProcess process = new JVMDiscovery.JVMProcess(pid, mainClass);
-            long startedAt = sampleBuffer.peekFirst().timestamp().toEpochMilli();
-            long finishedAt = sampleBuffer.peekLast().timestamp().toEpochMilli();
+            long startedAt = tail.get(0).timestamp().toEpochMilli();
+            long finishedAt = tail.get(tail.size() - 1).timestamp().toEpochMilli();
 
             RecordingProvider.CollectedJvmData jvmData =
                     RecordingProvider.CollectedJvmData.success(process, mergedData, startedAt, finishedAt);
@@ -565,7 +819,7 @@ public class LiveModeRunner {
             RecordingProvider provider = new RecordingProvider(executor, Main.VERSION);
             provider.writeSingleTargetRecording(jvmData, requirements, outputFile);
 
-            System.err.println("\nSaved " + sampleBuffer.size() + " samples to " + outputFile.toAbsolutePath());
+            System.err.println("\nSaved " + tail.size() + " samples to " + outputFile.toAbsolutePath());
         } catch (Exception e) {
             System.err.println("\nFailed to persist live samples: " + e.getMessage());
         }
@@ -0,0 +1,39 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.LockContentionAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ranks contended locks over a series of thread dumps.
+ */
+@Command(
+    name = "lock-contention",
+    description = "Rank contended locks over time (queue length, owner changes, wait estimates)"
+)
+public class LockContentionCommand extends BaseAnalyzerCommand {
+
+    @Option(names = "--top", description = "Number of top locks to show (default: 10, -1 for all)")
+    private int top = 10;
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new LockContentionAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all locks");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("top", top);
+        return options;
+    }
+}
@@ -0,0 +1,27 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.NativeMemoryAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+
+/**
+ * Ranks native memory categories by growth from NMT summary diffs against a baseline.
+ */
+@Command(
+    name = "native-memory",
+    description = "Rank native memory categories by growth (NMT baseline + summary.diff)",
+    footer = """
+            Requires the target JVM to run with -XX:NativeMemoryTracking=summary.
+
+            Examples:
+              jstall native-memory 12345 --dump-count 6 --interval 30s
+              jstall native-memory MyApp --dump-count 12 --interval 5m
+            """
+)
+public class NativeMemoryCommand extends BaseAnalyzerCommand {
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new NativeMemoryAnalyzer();
+    }
+}
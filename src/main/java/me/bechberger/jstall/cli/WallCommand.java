@@ -0,0 +1,44 @@
+package me.bechberger.jstall.cli;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.impl.WallClockAnalyzer;
+import me.bechberger.femtocli.annotations.Command;
+import me.bechberger.femtocli.annotations.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Breaks down the wall-clock time of thread pools from a wall-mode profile correlated with thread dumps.
+ */
+@Command(
+    name = "wall",
+    description = "Break down wall-clock time per thread pool into CPU, network, DB, lock and I/O",
+    footer = """
+            Examples:
+              jstall wall 12345 --dump-count 5 --interval 2s
+              jstall wall MyApp --top 5
+            """
+)
+public class WallCommand extends BaseAnalyzerCommand {
+
+    @Option(names = "--top", description = "Number of thread groups to show (default: 10, -1 for all)")
+    private int top = 10;
+
+    @Override
+    protected Analyzer getAnalyzer() {
+        return new WallClockAnalyzer();
+    }
+
+    @Override
+    protected Map<String, Object> getAdditionalOptions() {
+        if (top != -1 && top <= 0) {
+            throw new IllegalArgumentException(
+                "--top must be a positive integer (>= 1) or -1 to show all entries");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("top", top);
+        return options;
+    }
+}
@@ -0,0 +1,230 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.provider.requirement.AsyncProfilerWindowRequirement;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.CollectionSchedule;
+import me.bechberger.jstall.util.CommandExecutor;
+import me.bechberger.jstall.util.CommandResult;
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import me.bechberger.jstall.util.flame.FlameDiff;
+import me.bechberger.jstall.util.flame.FlameProfile;
+import one.profiler.AsyncProfilerLoader;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Keeps async-profiler attached to the live-mode target at a low sampling rate.
+ * <p>
+ * The profiler is started once ({@code asprof start}) and stays running; every tick
+ * {@link #poll()} dumps the profile collected so far ({@code asprof dump -o collapsed}) without
+ * stopping it. async-profiler dumps are cumulative, so the delta of the tick is the streaming
+ * {@link FlameDiff#merge difference} to the previous dump. Deltas are returned as
+ * {@link AsyncProfilerWindowRequirement} samples (so they end up in the live history and in
+ * recordings written with {@code --keep-samples}) and summed over the last
+ * {@link #ROLLING_WINDOW} for the top-methods table.
+ * <p>
+ * Not thread-safe, except for {@link #close()}, which may be called from a shutdown hook.
+ */
+public class ContinuousProfiler implements AutoCloseable {
+
+    /** Default sampling interval, 5x coarser than {@code flame} to keep the overhead low. */
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(50);
+    /** How far back the top-methods table looks. */
+    public static final Duration ROLLING_WINDOW = Duration.ofMinutes(1);
+    static final String EVENT = "cpu";
+    static final int TOP_METHODS = 50;
+
+    private record Window(long timestamp, FlameProfile delta) {}
+
+    private final JMXDiagnosticHelper helper;
+    private final Duration interval;
+    private final AsyncProfilerWindowRequirement requirement;
+    private final Deque<Window> rolling = new ArrayDeque<>();
+    private FlameProfile lastDump;
+    private long lastPollMs;
+    private boolean started;
+    private String lastError;
+
+    public ContinuousProfiler(JMXDiagnosticHelper helper, Duration interval) {
+        this.helper = helper;
+        this.interval = interval;
+        this.requirement = new AsyncProfilerWindowRequirement(CollectionSchedule.once(), EVENT, false, interval.toNanos());
+    }
+
+    /** The requirement the deltas are stored under in the live history. */
+    public AsyncProfilerWindowRequirement requirement() {
+        return requirement;
+    }
+
+    /**
+     * Starts the profiler in the target.
+     *
+     * @throws IOException if async-profiler is not available or could not attach
+     */
+    public void start() throws IOException {
+        if (!helper.getExecutor().isRemote() && !AsyncProfilerWindowRequirement.isPlatformSupported()) {
+            throw new IOException("async-profiler is not supported on this OS and architecture");
+        }
+        runProfiler("start", "-e", EVENT, "-i", String.valueOf(interval.toNanos()), "-t", String.valueOf(helper.pid()));
+        synchronized (this) {
+            started = true;
+        }
+        lastPollMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Dumps the profile and returns the samples since the previous poll as collapsed stacks.
+     * Failures are remembered for {@link #topMethods} and returned as a skipped sample.
+     */
+    public CollectedData poll() {
+        long now = System.currentTimeMillis();
+        long windowMs = now - lastPollMs;
+        lastPollMs = now;
+        FlameProfile dump;
+        try {
+            dump = FlameProfile.parseCollapsed(dumpCollapsed());
+            lastError = null;
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            return new CollectedData(now, "", Map.of("skip", "true", "reason", "profile-dump-failed"));
+        }
+        FlameProfile delta = delta(lastDump, dump);
+        lastDump = dump;
+
+        rolling.addLast(new Window(now, delta));
+        while (!rolling.isEmpty() && now - rolling.peekFirst().timestamp() > ROLLING_WINDOW.toMillis()) {
+            rolling.removeFirst();
+        }
+        if (delta.isEmpty()) {
+            return new CollectedData(now, "", Map.of("skip", "true", "reason", "no-samples"));
+        }
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("windowMs", String.valueOf(windowMs));
+        metadata.put("event", EVENT);
+        metadata.put(AsyncProfilerWindowRequirement.FORMAT_KEY, AsyncProfilerWindowRequirement.FORMAT_COLLAPSED);
+        return new CollectedData(now, delta.toCollapsed(), metadata);
+    }
+
+    /**
+     * Samples in {@code current} that are not in {@code previous}, stack by stack. If the dump
+     * shrank, the profiler was restarted in between and {@code current} is the delta itself.
+     */
+    static FlameProfile delta(FlameProfile previous, FlameProfile current) {
+        if (previous == null || current.totalSamples() < previous.totalSamples()) {
+            return current;
+        }
+        FlameProfile delta = new FlameProfile();
+        try {
+            FlameDiff.merge(previous.stacks(), current.stacks(), (stack, before, after) -> {
+                if (after > before) {
+                    delta.add(stack, after - before);
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // the consumer does not throw
+        }
+        return delta;
+    }
+
+    /** Top-methods table over the deltas of the rolling window. */
+    public AnalyzerOutput topMethods() {
+        if (lastError != null) {
+            return new AnalyzerOutput.TextOutput("Profiler: " + lastError);
+        }
+        return topMethods(rolling.stream().map(Window::delta).toList(), interval);
+    }
+
+    /** Top-methods table over the given deltas (e.g. past ticks from the live history). */
+    public static AnalyzerOutput topMethods(List<FlameProfile> deltas, Duration interval) {
+        FlameProfile sum = new FlameProfile();
+        deltas.forEach(sum::merge);
+
+        Map<String, long[]> byMethod = new HashMap<>();
+        Map<String, Map<String, Long>> threadsByMethod = new HashMap<>();
+        for (Iterator<FlameProfile.Stack> it = sum.stacks(); it.hasNext(); ) {
+            FlameProfile.Stack stack = it.next();
+            String leaf = stack.frames().get(stack.frames().size() - 1);
+            if (FlameProfile.threadName(leaf) != null) {
+                continue;
+            }
+            byMethod.computeIfAbsent(leaf, k -> new long[1])[0] += stack.samples();
+            String thread = stack.threadName();
+            if (thread != null) {
+                threadsByMethod.computeIfAbsent(leaf, k -> new HashMap<>()).merge(thread, stack.samples(), Long::sum);
+            }
+        }
+        long total = byMethod.values().stream().mapToLong(v -> v[0]).sum();
+        List<Map.Entry<String, long[]>> ranked = new ArrayList<>(byMethod.entrySet());
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> -e.getValue()[0])
+            .thenComparing(Map.Entry::getKey));
+
+        TableModel.Builder table = TableModel.builder()
+            .setMaxCellWidth(80)
+            .addColumn("METHOD", TableModel.Alignment.LEFT)
+            .addColumn("SAMPLES", TableModel.Alignment.RIGHT)
+            .addColumn("SHARE", TableModel.Alignment.RIGHT)
+            .addColumn("TOP THREAD", TableModel.Alignment.LEFT);
+        for (Map.Entry<String, long[]> e : ranked.subList(0, Math.min(TOP_METHODS, ranked.size()))) {
+            long samples = e.getValue()[0];
+            double pct = total > 0 ? samples * 100.0 / total : 0;
+            String topThread = threadsByMethod.getOrDefault(e.getKey(), Map.of()).entrySet().stream()
+                .max(Map.Entry.<String, Long>comparingByValue().thenComparing(Map.Entry::getKey, Comparator.reverseOrder()))
+                .map(Map.Entry::getKey).orElse("");
+            table.addRow(Cell.text(e.getKey()), Cell.integer(samples),
+                Cell.number(String.format(Locale.US, "%.1f%%", pct), pct,
+                    pct >= 50 ? Cell.Color.RED : pct >= 20 ? Cell.Color.YELLOW : null),
+                Cell.text(topThread));
+        }
+        String preamble = String.format(Locale.US, "%s samples every %dms, last %ds: %,d samples in %d methods",
+            EVENT, interval.toMillis(), ROLLING_WINDOW.toSeconds(), total, ranked.size());
+        return new AnalyzerOutput.TableOutput(List.of(preamble), table.build());
+    }
+
+    private String dumpCollapsed() throws IOException {
+        CommandExecutor.TemporaryFile file = helper.getExecutor().createTemporaryFile("jstall-live-profile-", ".collapsed");
+        try {
+            runProfiler("dump", "-o", AsyncProfilerWindowRequirement.FORMAT_COLLAPSED, "-f", file.getPath(),
+                String.valueOf(helper.pid()));
+            return file.readContent();
+        } finally {
+            try { file.delete(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void runProfiler(String... args) throws IOException {
+        if (helper.getExecutor().isRemote()) {
+            CommandResult result = helper.getExecutor().executeCommand("asprof", args);
+            if (result.exitCode() != 0) {
+                throw new IOException("asprof " + args[0] + " failed: " + result.err().strip());
+            }
+            return;
+        }
+        try {
+            AsyncProfilerLoader.executeProfiler(args);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running async-profiler", e);
+        }
+    }
+
+    /** Stops the profiler in the target; safe to call more than once. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            started = false;
+        }
+        try {
+            runProfiler("stop", String.valueOf(helper.pid()));
+        } catch (IOException ignored) {
+            // the target may already be gone
+        }
+    }
+}
@@ -7,12 +7,14 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Interactive renderer that handles the full screen draw loop.
  * Renders: status bar + preamble + table viewport + help bar.
- * Flicker-free using cursor-home + line-by-line overwrite + clear-to-EOL.
+ * Frames are diffed against the previous one by {@link ScreenBuffer}, so only changed
+ * cells are written (one buffered write per frame).
  */
 public class InteractiveRenderer {
 
@@ -23,9 +25,11 @@ public class InteractiveRenderer {
     private static final String INVERSE_OFF = AnsiCodes.INVERSE_OFF;
 
     private final RawTerminal terminal;
+    private final ScreenBuffer screen = new ScreenBuffer();
     private String statusInfo = "";
     private boolean filterMode = false;
     private String filterInput = "";
+    private String historyInfo = null;
 
     public InteractiveRenderer(RawTerminal terminal) {
         this.terminal = terminal;
@@ -55,6 +59,17 @@ public class InteractiveRenderer {
         this.filterInput = text;
     }
 
+    /**
+     * Sets the label of the past tick currently shown (null = following live data).
+     */
+    public void setHistoryInfo(String info) {
+        this.historyInfo = info;
+    }
+
+    public boolean isShowingHistory() {
+        return historyInfo != null;
+    }
+
     public void appendFilterChar(char ch) {
         this.filterInput += ch;
     }
@@ -87,44 +102,53 @@ public class InteractiveRenderer {
 
     /**
      * Renders the full screen frame with optional tab bar and timing info.
+     * Only the cells that changed since the previous frame are sent to the terminal.
      */
     public void render(TableViewModel model, String rawOutput, int sampleNumber, int interval,
                        List<String> tabNames, int activeTab, String timing) {
         int rows = terminal.getRows();
         int cols = terminal.getCols();
+        List<String> frame = buildFrame(model, rawOutput, sampleNumber, interval, tabNames, activeTab, timing, rows, cols);
+        terminal.writeFrame(screen.update(frame, rows, cols));
+    }
 
-        terminal.cursorHome();
+    /**
+     * Forces the next frame to be drawn completely (e.g. after the screen was disturbed).
+     */
+    public void invalidate() {
+        screen.invalidate();
+    }
 
-        int linesPrinted = 0;
+    /**
+     * Builds the lines of one frame: status bar + tabs + preamble + table viewport + footer.
+     */
+    List<String> buildFrame(TableViewModel model, String rawOutput, int sampleNumber, int interval,
+                            List<String> tabNames, int activeTab, String timing, int rows, int cols) {
+        List<String> lines = new ArrayList<>(rows);
 
         // Line 1: Status bar (inverse video)
         String time = LocalDateTime.now().format(TIME_FMT);
         String timingStr = timing != null ? " | " + timing : "";
-        String statusLine = String.format(" %s | Sample #%d | %ds interval%s | %s",
-                time, sampleNumber, interval, timingStr, statusInfo);
-        terminal.write(INVERSE_ON);
-        terminal.writeLine(pad(statusLine, cols));
-        terminal.write(INVERSE_OFF);
-        linesPrinted++;
+        String historyStr = historyInfo != null ? " | " + historyInfo : "";
+        String statusLine = String.format(" %s | Sample #%d | %ds interval%s%s | %s",
+                time, sampleNumber, interval, timingStr, historyStr, statusInfo);
+        lines.add(INVERSE_ON + pad(statusLine, cols) + INVERSE_OFF);
 
         // Line 2: Tab bar (if tabs are present)
         if (tabNames != null && tabNames.size() > 1) {
-            terminal.writeLine(buildTabBar(tabNames, activeTab, cols));
-            linesPrinted++;
+            lines.add(buildTabBar(tabNames, activeTab, cols));
         }
 
         // Empty line after status/tabs
-        terminal.writeLine("");
-        linesPrinted++;
+        lines.add("");
 
         String scrollPosInfo = null;
 
         if (model != null) {
             // Preamble lines
             for (String preamble : model.getPreambleLines()) {
-                if (linesPrinted >= rows - 2) break; // Reserve 2 lines for footer
-                terminal.writeLine(preamble);
-                linesPrinted++;
+                if (lines.size() >= rows - 2) break; // Reserve 2 lines for footer
+                lines.add(preamble);
             }
 
             // Sort indicator info (skip in text mode)
@@ -141,26 +165,19 @@ public class InteractiveRenderer {
                     if (!model.getFilterText().isEmpty()) {
                         sortInfo.append(" | Filter: \"").append(model.getFilterText()).append("\"");
                     }
-                    terminal.writeLine(sortInfo.toString());
-                    linesPrinted++;
+                    lines.add(sortInfo.toString());
                 } else if (!model.getFilterText().isEmpty()) {
-                    terminal.writeLine("Filter: \"" + model.getFilterText() + "\"");
-                    linesPrinted++;
+                    lines.add("Filter: \"" + model.getFilterText() + "\"");
                 }
             } else if (!model.getFilterText().isEmpty()) {
-                terminal.writeLine("Filter: \"" + model.getFilterText() + "\"");
-                linesPrinted++;
+                lines.add("Filter: \"" + model.getFilterText() + "\"");
             }
 
             // Table viewport
-            int availableRows = rows - linesPrinted - 2; // Reserve 2 for footer
+            int availableRows = rows - lines.size() - 2; // Reserve 2 for footer
             int headerRows = model.isTextMode() ? 0 : 2; // header + separator
             if (availableRows > headerRows + 1) { // Need at least 1 data row
-                List<String> tableLines = model.renderViewport(availableRows - headerRows, cols);
-                for (String line : tableLines) {
-                    terminal.writeLine(line);
-                    linesPrinted++;
-                }
+                lines.addAll(model.renderViewport(availableRows - headerRows, cols));
             }
 
             // Calculate scroll position info for footer
@@ -176,38 +193,39 @@ public class InteractiveRenderer {
             String text = rawOutput != null ? rawOutput : "";
             if (!text.isEmpty()) {
                 String[] outputLines = text.split("\n", -1);
-                int availableRows = rows - linesPrinted - 2;
+                int availableRows = rows - lines.size() - 2;
                 for (int i = 0; i < Math.min(outputLines.length, availableRows); i++) {
-                    terminal.writeLine(outputLines[i]);
-                    linesPrinted++;
+                    lines.add(outputLines[i]);
                 }
             }
         }
 
-        // Clear remaining lines
-        while (linesPrinted < rows - 1) {
-            terminal.writeLine("");
-            linesPrinted++;
+        // Blank lines up to the footer; cut any overflow so the footer stays on the last row
+        while (lines.size() < rows - 1) {
+            lines.add("");
+        }
+        while (lines.size() > Math.max(rows - 1, 0)) {
+            lines.remove(lines.size() - 1);
         }
 
         // Footer: help bar or filter prompt
-        terminal.write(INVERSE_ON);
+        String footer;
         if (filterMode) {
             String filterPrompt = " Filter: " + filterInput + "█";
-            terminal.write(pad(filterPrompt, cols));
+            footer = pad(filterPrompt, cols);
         } else {
-            String help = " q:quit  ↑↓/jk:scroll  ←→/hl:pan  Tab:tabs  +/-:interval  r:refresh  1-9:sort  s+N:subsort  /:filter";
+            String help = " q:quit  ↑↓/jk:scroll  ←→/hl:pan  Tab:tabs  +/-:interval  r:refresh  [/]:history  1-9:sort  s+N:subsort  /:filter";
             if (scrollPosInfo != null && help.length() + 2 + scrollPosInfo.length() <= cols) {
                 // Right-align scroll position in footer
                 int padding = cols - help.length() - scrollPosInfo.length();
-                terminal.write(help + " ".repeat(padding) + scrollPosInfo);
+                footer = help + " ".repeat(padding) + scrollPosInfo;
             } else {
-                terminal.write(pad(help, cols));
+                footer = pad(help, cols);
             }
         }
-        terminal.write(INVERSE_OFF);
+        lines.add(INVERSE_ON + footer + INVERSE_OFF);
 
-        terminal.flush();
+        return lines;
     }
 
     private String pad(String s, int width) {
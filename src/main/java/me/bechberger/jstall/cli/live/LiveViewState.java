@@ -159,6 +159,7 @@ public record LiveViewState(String fullOutput,
                 }
             }
         }
+        newModel.seedOrderFrom(oldModel);
         newModel.setFilter(oldModel.getFilterText());
         newModel.setScrollOffset(oldModel.getScrollOffset());
         newModel.setHorizontalOffset(oldModel.getHorizontalOffset());
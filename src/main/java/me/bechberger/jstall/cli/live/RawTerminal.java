@@ -17,6 +17,7 @@ public class RawTerminal implements AutoCloseable {
     private volatile int termRows = 24;
     private volatile int termCols = 80;
     private boolean rawMode = false;
+    private volatile boolean disturbed = false;
 
     public RawTerminal() {
         this.out = System.out;
@@ -45,10 +46,50 @@ public class RawTerminal implements AutoCloseable {
 
         // Install SIGWINCH handler for resize detection
         try {
-            sun.misc.Signal.handle(new sun.misc.Signal("WINCH"), sig -> refreshSize());
+            sun.misc.Signal.handle(new sun.misc.Signal("WINCH"), sig -> {
+                refreshSize();
+                disturbed = true;
+            });
         } catch (IllegalArgumentException ignored) {
             // Signal not available on this platform
         }
+        // After a suspend (Ctrl-Z, fg) the shell has restored cooked mode and drawn over the screen
+        try {
+            sun.misc.Signal.handle(new sun.misc.Signal("CONT"), sig -> resume());
+        } catch (IllegalArgumentException ignored) {
+            // Signal not available on this platform
+        }
+    }
+
+    private void resume() {
+        if (!rawMode) return;
+        try {
+            stty("-echo", "-icanon", "min", "1", "time", "0");
+        } catch (IOException ignored) {
+            // Keep going with whatever mode the terminal is in
+        }
+        out.print(AnsiCodes.ALT_SCREEN_ON + AnsiCodes.CURSOR_HIDE);
+        out.flush();
+        refreshSize();
+        disturbed = true;
+    }
+
+    /**
+     * Marks the screen content as unknown, e.g. after other output was written to the terminal.
+     */
+    public void markDisturbed() {
+        disturbed = true;
+    }
+
+    /**
+     * Returns true (once) if the screen was resized, the process was resumed after a suspend or
+     * {@link #markDisturbed()} was called since the last call, i.e. the next frame has to be
+     * drawn completely.
+     */
+    public boolean consumeDisturbed() {
+        if (!disturbed) return false;
+        disturbed = false;
+        return true;
     }
 
     /**
@@ -238,6 +279,17 @@ public class RawTerminal implements AutoCloseable {
         return result.toString();
     }
 
+    /**
+     * Writes a complete frame update in a single write and flushes, so slow links
+     * receive one burst per frame instead of many small writes.
+     */
+    public void writeFrame(String frame) {
+        if (frame.isEmpty()) return;
+        byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+    }
+
     /**
      * Writes text without newline.
      */
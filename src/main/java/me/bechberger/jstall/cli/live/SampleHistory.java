@@ -0,0 +1,237 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Fixed-capacity ring buffer of live-mode ticks, used for scrubbing back in time and
+ * for persisting the last samples on quit.
+ * <p>
+ * Each tick stores only the data collected in that tick (not the merged previous+current
+ * maps used for analysis), so a past analysis can be reproduced by merging a tick with its
+ * predecessor. Raw outputs are split into blank-line separated blocks (one per thread in a
+ * thread dump); the first line of each block (thread header with cpu/elapsed counters) is
+ * kept per tick, the remaining lines (the stack) are shared through a reference-counted
+ * intern pool. Idle threads therefore cost a header line per tick instead of a full stack.
+ */
+public class SampleHistory {
+
+    /**
+     * A reconstructed tick.
+     *
+     * @param sequence     Monotonic tick number (starts at 0)
+     * @param timestamp    When the tick was collected
+     * @param rawCollected Data collected in this tick only (empty for failed ticks)
+     * @param errorResult  Result to show for a failed tick, {@code null} on success
+     */
+    public record Tick(long sequence, Instant timestamp,
+                       Map<DataRequirement, List<CollectedData>> rawCollected,
+                       AnalyzerResult errorResult) {
+
+        public boolean isError() {
+            return errorResult != null;
+        }
+    }
+
+    private record CompactData(long timestamp, String[] heads, String[] bodies,
+                               Map<String, String> metadata, Map<String, Path> tempFiles) {}
+
+    private record Entry(long sequence, Instant timestamp,
+                         Map<DataRequirement, List<CompactData>> data,
+                         AnalyzerResult errorResult) {}
+
+    private static final class Interned {
+        final String value;
+        int refs;
+
+        Interned(String value) {
+            this.value = value;
+        }
+    }
+
+    private final Entry[] ring;
+    private final Map<String, Interned> pool = new HashMap<>();
+    private int head = 0; // index of the oldest entry
+    private int size = 0;
+    private long nextSequence = 0;
+
+    public SampleHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be >= 1");
+        }
+        this.ring = new Entry[capacity];
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Sequence number of the oldest retained tick, or -1 if empty. */
+    public synchronized long oldestSequence() {
+        return size == 0 ? -1 : ring[head].sequence();
+    }
+
+    /** Sequence number of the newest tick, or -1 if empty. */
+    public synchronized long newestSequence() {
+        return size == 0 ? -1 : nextSequence - 1;
+    }
+
+    /** Number of distinct interned stack bodies currently held. */
+    public synchronized int internedCount() {
+        return pool.size();
+    }
+
+    /**
+     * Appends a successfully collected tick, evicting the oldest one if the buffer is full.
+     *
+     * @return the sequence number assigned to the tick
+     */
+    public synchronized long add(Instant timestamp, Map<DataRequirement, List<CollectedData>> rawCollected) {
+        Map<DataRequirement, List<CompactData>> compact = new LinkedHashMap<>();
+        for (Map.Entry<DataRequirement, List<CollectedData>> e : rawCollected.entrySet()) {
+            List<CompactData> samples = new ArrayList<>(e.getValue().size());
+            for (CollectedData data : e.getValue()) {
+                samples.add(compact(data));
+            }
+            compact.put(e.getKey(), samples);
+        }
+        return append(new Entry(nextSequence, timestamp, compact, null));
+    }
+
+    /**
+     * Appends a failed tick that only carries the error result to display.
+     *
+     * @return the sequence number assigned to the tick
+     */
+    public synchronized long addError(Instant timestamp, AnalyzerResult errorResult) {
+        return append(new Entry(nextSequence, timestamp, Map.of(), errorResult));
+    }
+
+    /**
+     * Returns the tick with the given sequence number, or {@code null} if it was evicted
+     * or does not exist yet.
+     */
+    public synchronized Tick get(long sequence) {
+        Entry entry = entry(sequence);
+        return entry == null ? null : expand(entry);
+    }
+
+    /**
+     * Returns the nearest successful tick before {@code sequence}, or {@code null} if none is retained.
+     * This is the sample live mode merged with {@code sequence} for analysis.
+     */
+    public synchronized Tick previousSuccessful(long sequence) {
+        for (long seq = sequence - 1; seq >= oldestSequence() && seq >= 0; seq--) {
+            Entry entry = entry(seq);
+            if (entry != null && entry.errorResult() == null) {
+                return expand(entry);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns up to {@code count} of the newest ticks in chronological order.
+     */
+    public synchronized List<Tick> tail(int count) {
+        int n = Math.max(0, Math.min(count, size));
+        List<Tick> ticks = new ArrayList<>(n);
+        for (int i = size - n; i < size; i++) {
+            ticks.add(expand(ring[(head + i) % ring.length]));
+        }
+        return ticks;
+    }
+
+    private long append(Entry entry) {
+        if (size == ring.length) {
+            release(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+        }
+        ring[(head + size) % ring.length] = entry;
+        size++;
+        return nextSequence++;
+    }
+
+    private Entry entry(long sequence) {
+        if (size == 0) return null;
+        long oldest = ring[head].sequence();
+        if (sequence < oldest || sequence >= nextSequence) return null;
+        return ring[(int) ((head + (sequence - oldest)) % ring.length)];
+    }
+
+    private Tick expand(Entry entry) {
+        Map<DataRequirement, List<CollectedData>> raw = new LinkedHashMap<>();
+        for (Map.Entry<DataRequirement, List<CompactData>> e : entry.data().entrySet()) {
+            List<CollectedData> samples = new ArrayList<>(e.getValue().size());
+            for (CompactData data : e.getValue()) {
+                samples.add(new CollectedData(data.timestamp(), join(data), data.metadata(), data.tempFiles()));
+            }
+            raw.put(e.getKey(), samples);
+        }
+        return new Tick(entry.sequence(), entry.timestamp(), raw, entry.errorResult());
+    }
+
+    private CompactData compact(CollectedData data) {
+        String raw = data.rawData() == null ? "" : data.rawData();
+        String[] blocks = raw.split("\n\n", -1);
+        String[] heads = new String[blocks.length];
+        String[] bodies = new String[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            String block = blocks[i];
+            int nl = block.indexOf('\n');
+            if (nl < 0) {
+                heads[i] = block;
+                bodies[i] = "";
+            } else {
+                heads[i] = block.substring(0, nl);
+                bodies[i] = intern(block.substring(nl));
+            }
+        }
+        return new CompactData(data.timestamp(), heads, bodies, data.metadata(), data.tempFiles());
+    }
+
+    private static String join(CompactData data) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.heads().length; i++) {
+            if (i > 0) sb.append("\n\n");
+            sb.append(data.heads()[i]).append(data.bodies()[i]);
+        }
+        return sb.toString();
+    }
+
+    private String intern(String body) {
+        if (body.isEmpty()) return body;
+        Interned interned = pool.computeIfAbsent(body, Interned::new);
+        interned.refs++;
+        return interned.value;
+    }
+
+    private void release(Entry entry) {
+        for (List<CompactData> samples : entry.data().values()) {
+            for (CompactData data : samples) {
+                for (String body : data.bodies()) {
+                    if (body.isEmpty()) continue;
+                    Interned interned = pool.get(body);
+                    if (interned != null && --interned.refs <= 0) {
+                        pool.remove(body);
+                    }
+                }
+            }
+        }
+    }
+}
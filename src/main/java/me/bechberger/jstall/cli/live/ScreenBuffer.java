@@ -0,0 +1,222 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.util.render.AnsiCodes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Double-buffered screen model for the live TUI.
+ * <p>
+ * Each frame is given as a list of lines (with embedded SGR color/attribute sequences).
+ * Lines are parsed into cells (code point + active style) and compared with the previous
+ * frame; only the changed span of each changed line is emitted, using absolute cursor
+ * addressing. The whole update is returned as one string so the caller can write it in a
+ * single call. A size change (or {@link #invalidate()}) forces a full redraw.
+ * <p>
+ * Cells are terminal columns: a wide character (CJK, most emoji) occupies its cell and a
+ * following {@link #CONTINUATION} cell, so that cursor addressing stays aligned.
+ */
+public class ScreenBuffer {
+
+    private static final String ELLIPSIS = "…";
+
+    /** Marks the second column of a wide character. */
+    private static final int CONTINUATION = -1;
+
+    /** Code point ranges (inclusive pairs) that terminals draw two columns wide. */
+    private static final int[] WIDE = {
+        0x1100, 0x115F, 0x231A, 0x231B, 0x2329, 0x232A, 0x23E9, 0x23EC, 0x23F0, 0x23F0,
+        0x23F3, 0x23F3, 0x25FD, 0x25FE, 0x2614, 0x2615, 0x2648, 0x2653, 0x267F, 0x267F,
+        0x2693, 0x2693, 0x26A1, 0x26A1, 0x26AA, 0x26AB, 0x26BD, 0x26BE, 0x26C4, 0x26C5,
+        0x26CE, 0x26CE, 0x26D4, 0x26D4, 0x26EA, 0x26EA, 0x26F2, 0x26F3, 0x26F5, 0x26F5,
+        0x26FA, 0x26FA, 0x26FD, 0x26FD, 0x2705, 0x2705, 0x270A, 0x270B, 0x2728, 0x2728,
+        0x274C, 0x274C, 0x274E, 0x274E, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797,
+        0x27B0, 0x27B0, 0x27BF, 0x27BF, 0x2B1B, 0x2B1C, 0x2B50, 0x2B50, 0x2B55, 0x2B55,
+        0x2E80, 0x303E, 0x3041, 0x33FF, 0x3400, 0x4DBF, 0x4E00, 0x9FFF, 0xA000, 0xA4CF,
+        0xAC00, 0xD7A3, 0xF900, 0xFAFF, 0xFE30, 0xFE4F, 0xFF00, 0xFF60, 0xFFE0, 0xFFE6,
+        0x1F300, 0x1F64F, 0x1F680, 0x1F6FF, 0x1F900, 0x1F9FF, 0x20000, 0x3FFFD
+    };
+
+    /** One parsed screen line: code points and the SGR state active for each of them. */
+    private record Line(int[] codePoints, String[] styles) {
+        static final Line EMPTY = new Line(new int[0], new String[0]);
+
+        int length() {
+            return codePoints.length;
+        }
+
+        boolean isContinuation(int col) {
+            return col < length() && codePoints[col] == CONTINUATION;
+        }
+
+        boolean sameCell(Line other, int col) {
+            return col < length() && col < other.length()
+                    && codePoints[col] == other.codePoints[col]
+                    && styles[col].equals(other.styles[col]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Line l && Arrays.equals(codePoints, l.codePoints) && Arrays.equals(styles, l.styles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(Arrays.hashCode(codePoints), Arrays.hashCode(styles));
+        }
+    }
+
+    private Line[] previous = null;
+    private int rows = -1;
+    private int cols = -1;
+
+    /** Forces the next {@link #update} to redraw the whole screen. */
+    public void invalidate() {
+        previous = null;
+    }
+
+    /**
+     * Computes the terminal output that turns the previous frame into {@code lines}.
+     * Lines beyond {@code rows} are ignored; missing lines are blank.
+     *
+     * @return escape sequences and text to write (empty if nothing changed)
+     */
+    public String update(List<String> lines, int rows, int cols) {
+        Line[] next = new Line[rows];
+        for (int r = 0; r < rows; r++) {
+            next[r] = r < lines.size() ? parse(lines.get(r), cols) : Line.EMPTY;
+        }
+
+        StringBuilder out = new StringBuilder();
+        boolean full = previous == null || rows != this.rows || cols != this.cols;
+        if (full) {
+            out.append(AnsiCodes.CLEAR_SCREEN);
+        }
+        for (int r = 0; r < rows; r++) {
+            Line before = full ? Line.EMPTY : previous[r];
+            if (!full && before.equals(next[r])) continue;
+            appendLineDiff(out, r, before, next[r]);
+        }
+        if (!out.isEmpty()) {
+            out.append(AnsiCodes.RESET);
+        }
+
+        this.previous = next;
+        this.rows = rows;
+        this.cols = cols;
+        return out.toString();
+    }
+
+    private static void appendLineDiff(StringBuilder out, int row, Line before, Line after) {
+        int first = 0;
+        while (before.sameCell(after, first)) first++;
+        if (first >= after.length() && first >= before.length()) return;
+        // Never start in the middle of a wide character
+        while (first > 0 && (after.isContinuation(first) || before.isContinuation(first))) first--;
+
+        int last = after.length() - 1;
+        if (after.length() == before.length()) {
+            while (last > first && before.sameCell(after, last)) last--;
+            while (after.isContinuation(last + 1)) last++;
+        }
+
+        out.append("\033[").append(row + 1).append(';').append(first + 1).append('H');
+        String style = null;
+        for (int c = first; c <= last; c++) {
+            if (after.codePoints[c] == CONTINUATION) continue;
+            if (!after.styles[c].equals(style)) {
+                style = after.styles[c];
+                out.append(AnsiCodes.RESET).append(style);
+            }
+            out.appendCodePoint(after.codePoints[c]);
+        }
+        if (after.length() < before.length()) {
+            out.append(AnsiCodes.RESET).append(AnsiCodes.CLEAR_LINE);
+        }
+    }
+
+    /**
+     * Number of terminal columns {@code cp} occupies: 0 for combining marks and format
+     * characters, 2 for wide characters, 1 otherwise.
+     */
+    static int displayWidth(int cp) {
+        int type = Character.getType(cp);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.FORMAT) {
+            return 0;
+        }
+        if (cp < WIDE[0]) {
+            return 1;
+        }
+        for (int i = 0; i < WIDE.length; i += 2) {
+            if (cp < WIDE[i]) {
+                return 1;
+            }
+            if (cp <= WIDE[i + 1]) {
+                return 2;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Parses a line into cells, keeping SGR ({@code ESC[...m}) sequences as per-cell style and
+     * dropping other control sequences and zero-width characters. Lines wider than {@code cols}
+     * end with an ellipsis.
+     */
+    private static Line parse(String text, int cols) {
+        int[] codePoints = new int[Math.min(text.length() * 2, cols)];
+        String[] styles = new String[codePoints.length];
+        StringBuilder style = new StringBuilder();
+        String currentStyle = "";
+        int n = 0;
+        int i = 0;
+        boolean truncated = false;
+        while (i < text.length()) {
+            char ch = text.charAt(i);
+            if (ch == '\033' && i + 1 < text.length() && text.charAt(i + 1) == '[') {
+                int start = i;
+                i += 2;
+                while (i < text.length() && !Character.isLetter(text.charAt(i))) i++;
+                if (i < text.length()) {
+                    if (text.charAt(i) == 'm') {
+                        String seq = text.substring(start, i + 1);
+                        if (seq.equals(AnsiCodes.RESET) || seq.equals("\033[m")) {
+                            style.setLength(0);
+                        } else {
+                            style.append(seq);
+                        }
+                        currentStyle = style.toString();
+                    }
+                    i++;
+                }
+                continue;
+            }
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (cp == '\n' || cp == '\r') continue;
+            int width = displayWidth(cp);
+            if (width == 0) continue;
+            if (n + width > cols) {
+                truncated = true;
+                break;
+            }
+            codePoints[n] = cp;
+            styles[n] = currentStyle;
+            n++;
+            if (width == 2) {
+                codePoints[n] = CONTINUATION;
+                styles[n] = currentStyle;
+                n++;
+            }
+        }
+        if (truncated && n > 0) {
+            if (codePoints[n - 1] == CONTINUATION) {
+                n--;
+            }
+            codePoints[n - 1] = ELLIPSIS.codePointAt(0);
+        }
+        return new Line(Arrays.copyOf(codePoints, n), Arrays.copyOf(styles, n));
+    }
+}
@@ -5,11 +5,15 @@ import me.bechberger.jstall.analyzer.TableModel;
 import me.bechberger.jstall.analyzer.TableModel.Alignment;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Provides sorting, filtering, and viewport extraction for table data.
  * Can be constructed directly from a TableModel (structured) or by parsing a text string (fallback).
+ * <p>
+ * Processing is lazy and incremental: the model keeps a sorted permutation of row indices
+ * (re-sorted only when the sort keys change, and seeded from the previous tick's order via
+ * {@link #seedOrderFrom}), a match set per filter text (narrowed from the previous set while
+ * the user keeps typing), and materializes {@link Cell} rows only for the visible viewport.
  */
 public class TableViewModel {
 
@@ -28,7 +32,26 @@ public class TableViewModel {
     private int horizontalOffset = 0;
     private boolean colorEnabled = false;
 
-    private List<Cell[]> processedRows; // after filter + sort
+    // Lazily (re)computed processing state, see visibleRows()
+    private Integer[] order;           // all row indices sorted by the current sort keys
+    private boolean orderDirty = true;
+    private int[] visible;             // indices of rows passing the filter, in sort order
+    private boolean visibleDirty = true;
+    private BitSet matches;            // rows matching filterText, null when not filtering
+    private String[] searchText;       // lower-cased cell texts per row, built on first filter
+    private final Map<Integer, ColumnKeys> columnKeys = new HashMap<>();
+    private final LinkedHashMap<String, BitSet> filterCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BitSet> eldest) {
+            return size() > FILTER_CACHE_SIZE;
+        }
+    };
+
+    private static final int FILTER_CACHE_SIZE = 32;
+    private static final char CELL_SEPARATOR = '\u0000';
+
+    /** Pre-extracted sort keys of one column, so comparisons avoid boxing and re-formatting. */
+    private record ColumnKeys(double[] values, boolean[] numeric, String[] text) {}
 
     /** A sort key: column index + direction. */
     public record SortKey(int column, boolean ascending) {}
@@ -42,7 +65,6 @@ public class TableViewModel {
         this.columnWidths = columnWidths;
         this.rows = rows;
         this.textMode = textMode;
-        this.processedRows = new ArrayList<>(rows);
     }
 
     /**
@@ -154,7 +176,7 @@ public class TableViewModel {
     }
 
     public int getTotalRowCount() {
-        return processedRows.size();
+        return visibleRows().length;
     }
 
     public int getRawRowCount() {
@@ -194,7 +216,7 @@ public class TableViewModel {
             sortAscending = false; // Default to descending (show highest first)
         }
         secondarySorts.clear();
-        reprocess();
+        orderDirty = true;
     }
 
     /**
@@ -215,12 +237,12 @@ public class TableViewModel {
             if (secondarySorts.get(i).column() == column) {
                 SortKey old = secondarySorts.get(i);
                 secondarySorts.set(i, new SortKey(column, !old.ascending()));
-                reprocess();
+                orderDirty = true;
                 return;
             }
         }
         secondarySorts.add(new SortKey(column, false)); // Default descending
-        reprocess();
+        orderDirty = true;
     }
 
     /**
@@ -229,23 +251,24 @@ public class TableViewModel {
     public void setFilter(String text) {
         String newFilter = text == null ? "" : text;
         if (newFilter.equals(this.filterText)) return;
+        String previousFilter = this.filterText;
         this.filterText = newFilter;
         this.scrollOffset = 0;
-        reprocess();
+        updateMatches(previousFilter);
     }
 
     /**
      * Scrolls by delta rows (positive = down, negative = up).
      */
     public void scroll(int delta) {
-        scrollOffset = Math.max(0, Math.min(scrollOffset + delta, Math.max(0, processedRows.size() - 1)));
+        scrollOffset = Math.max(0, Math.min(scrollOffset + delta, Math.max(0, visibleRows().length - 1)));
     }
 
     /**
      * Sets scroll offset to an absolute value.
      */
     public void setScrollOffset(int offset) {
-        scrollOffset = Math.max(0, Math.min(offset, Math.max(0, processedRows.size() - 1)));
+        scrollOffset = Math.max(0, Math.min(offset, Math.max(0, visibleRows().length - 1)));
     }
 
     /**
@@ -287,17 +310,53 @@ public class TableViewModel {
      * Scrolls to bottom (adjusted by viewport when rendering).
      */
     public void scrollToBottom() {
-        scrollOffset = Math.max(0, processedRows.size() - 1);
+        scrollOffset = Math.max(0, visibleRows().length - 1);
     }
 
     /**
-     * Returns visible rows for the given viewport size.
+     * Returns visible rows for the given viewport size. Only these rows are materialized.
      */
     public List<Cell[]> getViewport(int maxRows) {
-        if (processedRows.isEmpty()) return List.of();
-        int end = Math.min(scrollOffset + maxRows, processedRows.size());
+        int[] rowIndices = visibleRows();
+        if (rowIndices.length == 0) return List.of();
+        int end = Math.min(scrollOffset + Math.max(maxRows, 0), rowIndices.length);
         int start = Math.min(scrollOffset, end);
-        return processedRows.subList(start, end);
+        List<Cell[]> viewport = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            viewport.add(rows.get(rowIndices[i]));
+        }
+        return viewport;
+    }
+
+    /**
+     * Seeds the sorted permutation with the row order of the previous tick's model, so that
+     * re-sorting only has to fix up rows that were added, removed or changed. Rows are matched
+     * by the text of their first column (and occurrence, for duplicates). This is only an
+     * optimization; the resulting order is the same as a full sort.
+     */
+    public void seedOrderFrom(TableViewModel previous) {
+        if (previous == null || textMode || previous.textMode || sortColumn < 0 || rows.isEmpty()) return;
+        Integer[] previousOrder = previous.sortedOrder();
+        String[] previousKeys = previous.rowKeys();
+        Map<String, Integer> rankByKey = new HashMap<>(previousOrder.length * 2);
+        for (int rank = 0; rank < previousOrder.length; rank++) {
+            rankByKey.put(previousKeys[previousOrder[rank]], rank);
+        }
+        String[] keys = rowKeys();
+        long[] packed = new long[rows.size()];
+        for (int i = 0; i < packed.length; i++) {
+            Integer rank = rankByKey.get(keys[i]);
+            // Known rows in their previous order first, new rows after them in table order
+            long position = rank != null ? rank : previousOrder.length + (long) i;
+            packed[i] = (position << 32) | i;
+        }
+        Arrays.sort(packed);
+        Integer[] seeded = new Integer[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            seeded[i] = (int) packed[i];
+        }
+        order = seeded;
+        orderDirty = true;
     }
 
     /**
@@ -414,43 +473,152 @@ public class TableViewModel {
         };
     }
 
-    private void reprocess() {
-        // Apply filter
-        List<Cell[]> filtered;
-        if (filterText.isEmpty()) {
-            filtered = new ArrayList<>(rows);
-        } else {
-            String lower = filterText.toLowerCase();
-            filtered = rows.stream()
-                    .filter(row -> {
-                        for (Cell cell : row) {
-                            if (cell.display().toLowerCase().contains(lower)) return true;
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toCollection(ArrayList::new));
-        }
-
-        // Apply sort (primary + secondary keys)
-        if (sortColumn >= 0 && sortColumn < columnHeaders.size()) {
-            Comparator<Cell[]> cmp = (a, b) -> Cell.compare(a[sortColumn], b[sortColumn]);
-            if (!sortAscending) cmp = cmp.reversed();
-            for (SortKey sk : secondarySorts) {
-                if (sk.column() >= 0 && sk.column() < columnHeaders.size()) {
-                    Comparator<Cell[]> secondary = (a, b) -> Cell.compare(a[sk.column()], b[sk.column()]);
-                    if (!sk.ascending()) secondary = secondary.reversed();
-                    cmp = cmp.thenComparing(secondary);
+    /** Returns indices of the rows passing the filter, in sort order. */
+    private int[] visibleRows() {
+        if (orderDirty || visibleDirty || visible == null) {
+            Integer[] sorted = sortedOrder();
+            int[] result = new int[matches == null ? sorted.length : matches.cardinality()];
+            int n = 0;
+            for (Integer row : sorted) {
+                if (matches == null || matches.get(row)) {
+                    result[n++] = row;
                 }
             }
-            filtered.sort(cmp);
+            visible = result;
+            visibleDirty = false;
+            // Clamp scroll
+            if (scrollOffset >= visible.length) {
+                scrollOffset = Math.max(0, visible.length - 1);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Returns all row indices sorted by primary + secondary keys, ties broken by table order
+     * (the same result as a stable sort of the rows). The sort runs on the previous
+     * permutation, which TimSort handles in near-linear time when little has changed.
+     */
+    private Integer[] sortedOrder() {
+        if (order == null) {
+            order = new Integer[rows.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+        }
+        if (orderDirty) {
+            if (sortColumn >= 0 && sortColumn < columnHeaders.size()) {
+                Arrays.sort(order, rowComparator());
+            }
+            orderDirty = false;
+            visibleDirty = true;
+        }
+        return order;
+    }
+
+    private Comparator<Integer> rowComparator() {
+        List<SortKey> keys = new ArrayList<>();
+        keys.add(new SortKey(sortColumn, sortAscending));
+        for (SortKey sk : secondarySorts) {
+            if (sk.column() >= 0 && sk.column() < columnHeaders.size()) {
+                keys.add(sk);
+            }
+        }
+        ColumnKeys[] columns = new ColumnKeys[keys.size()];
+        boolean[] ascending = new boolean[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            columns[k] = keysForColumn(keys.get(k).column());
+            ascending[k] = keys.get(k).ascending();
         }
+        return (a, b) -> {
+            for (int k = 0; k < columns.length; k++) {
+                int c = compareKeys(columns[k], a, b);
+                if (c != 0) return ascending[k] ? c : -c;
+            }
+            return Integer.compare(a, b);
+        };
+    }
 
-        processedRows = filtered;
+    /** Same semantics as {@link Cell#compare}: numeric if both cells are numeric, else case-insensitive text. */
+    private static int compareKeys(ColumnKeys keys, int a, int b) {
+        if (keys.numeric()[a] && keys.numeric()[b]) {
+            return Double.compare(keys.values()[a], keys.values()[b]);
+        }
+        return keys.text()[a].compareToIgnoreCase(keys.text()[b]);
+    }
+
+    private ColumnKeys keysForColumn(int column) {
+        return columnKeys.computeIfAbsent(column, col -> {
+            double[] values = new double[rows.size()];
+            boolean[] numeric = new boolean[rows.size()];
+            String[] text = new String[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Cell cell = rows.get(i)[col];
+                Double value = cell.sortValue();
+                numeric[i] = value != null;
+                values[i] = value != null ? value : 0;
+                text[i] = cell.display();
+            }
+            return new ColumnKeys(values, numeric, text);
+        });
+    }
 
-        // Clamp scroll
-        if (scrollOffset >= processedRows.size()) {
-            scrollOffset = Math.max(0, processedRows.size() - 1);
+    /**
+     * Recomputes the filter match set. If the new filter contains the previous one, only rows
+     * that matched before can match now, so just those are re-checked.
+     */
+    private void updateMatches(String previousFilter) {
+        visibleDirty = true;
+        if (filterText.isEmpty()) {
+            matches = null;
+            return;
+        }
+        String lower = filterText.toLowerCase();
+        BitSet cached = filterCache.get(lower);
+        if (cached != null) {
+            matches = cached;
+            return;
+        }
+        String[] texts = searchTexts();
+        String previousLower = previousFilter.toLowerCase();
+        BitSet result = new BitSet(rows.size());
+        if (matches != null && !previousLower.isEmpty() && lower.contains(previousLower)) {
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                if (texts[i].contains(lower)) result.set(i);
+            }
+        } else {
+            for (int i = 0; i < texts.length; i++) {
+                if (texts[i].contains(lower)) result.set(i);
+            }
+        }
+        filterCache.put(lower, result);
+        matches = result;
+    }
+
+    private String[] searchTexts() {
+        if (searchText == null) {
+            searchText = new String[rows.size()];
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < rows.size(); i++) {
+                sb.setLength(0);
+                for (Cell cell : rows.get(i)) {
+                    sb.append(cell.display().toLowerCase()).append(CELL_SEPARATOR);
+                }
+                searchText[i] = sb.toString();
+            }
+        }
+        return searchText;
+    }
+
+    /** Identity keys used to match rows across ticks: first column text plus occurrence. */
+    private String[] rowKeys() {
+        String[] keys = new String[rows.size()];
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Cell[] row = rows.get(i);
+            String base = row.length > 0 ? row[0].display() : "";
+            int occurrence = occurrences.merge(base, 1, Integer::sum);
+            keys[i] = occurrence == 1 ? base : base + CELL_SEPARATOR + occurrence;
         }
+        return keys;
     }
 
     private static boolean isSeparatorLine(String line) {
@@ -65,6 +65,11 @@ public class RecordCommand implements Callable<Integer> {
 
     @Override
     public Integer call() throws Exception {
+        Main main = spec != null ? spec.getParent(Main.class) : null;
+        return main != null ? main.withTimings(this::record) : record();
+    }
+
+    private Integer record() throws Exception {
         if (target == null || target.isBlank()) {
             System.err.println("Error: No target specified. Use: all | PID | filter");
             return 1;
@@ -167,6 +172,14 @@ public class RecordCommand implements Callable<Integer> {
             merged = merged.merge(analyzer.getDataRequirements(options));
         }
 
+        if (count > 1 && full) {
+            DataRequirements events = DataRequirements.builder()
+                .withDefaults(count, intervalMs)
+                .addJfrEvents()
+                .build();
+            merged = merged.merge(events);
+        }
+
         if (count > 1 && full && AsyncProfilerWindowRequirement.isPlatformSupported()) {
             DataRequirements profiling = DataRequirements.builder()
                 .withDefaults(count, intervalMs)
@@ -5,6 +5,7 @@ import me.bechberger.jstall.provider.requirement.DataRequirement;
 import me.bechberger.jstall.provider.requirement.DataRequirements;
 import me.bechberger.jstall.provider.requirement.IntervalWindowRequirement;
 import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import me.bechberger.jstall.util.Timings;
 
 import java.io.IOException;
 import java.util.*;
@@ -78,7 +79,7 @@ public class DataCollector {
                     System.out.println("      " + req.getDescription());
                 }
                 List<CollectedData> samples = new ArrayList<>();
-                try {
+                try (Timings.Span span = Timings.span("collect", req.getDescription())) {
                     samples.add(req.collect(helper, 0));
                 } catch (IOException e) {
                     if (verbose) {
@@ -147,7 +148,7 @@ public class DataCollector {
                     if (req.getSchedule().count() <= sampleIndex || req instanceof IntervalWindowRequirement) {
                         continue;
                     }
-                    try {
+                    try (Timings.Span span = Timings.span("collect", req.getDescription() + " #" + sampleIndex)) {
                         results.get(req).add(req.collect(helper, sampleIndex));
                     } catch (IOException e) {
                         exceptions.add(e);
@@ -163,19 +164,14 @@ public class DataCollector {
                     long elapsedAfterPointCollection = System.currentTimeMillis() - cycleStart;
                     long windowMs = Math.max(0, intervalMs - elapsedAfterPointCollection - BETWEEN_SAMPLE_SAFETY_MARGIN_MS);
 
+                    List<IntervalWindowRequirement> windows = new ArrayList<>();
                     for (DataRequirement req : reqs) {
-                        if (!(req instanceof IntervalWindowRequirement windowRequirement)
-                            || req.getSchedule().count() <= sampleIndex) {
-                            continue;
-                        }
-                        try {
-                            CollectedData sample = windowRequirement.collectWindow(helper, sampleIndex, windowMs);
-                            if (!"true".equals(sample.metadata().get("skip"))) {
-                                results.get(req).add(sample);
-                            }
-                        } catch (IOException ignored) {
+                        if (req instanceof IntervalWindowRequirement windowRequirement
+                            && req.getSchedule().count() > sampleIndex) {
+                            windows.add(windowRequirement);
                         }
                     }
+                    collectWindows(windows, sampleIndex, windowMs, results);
 
                     long elapsedTotal = System.currentTimeMillis() - cycleStart;
                     long sleepMs = intervalMs - elapsedTotal;
@@ -197,4 +193,41 @@ public class DataCollector {
             }
         }
     }
+
+    /**
+     * Collects the windows of one cycle side by side, so that each covers the whole window and the
+     * cycle still takes one interval. All but the last window run on the scheduler.
+     */
+    private void collectWindows(List<IntervalWindowRequirement> windows, int sampleIndex, long windowMs,
+                                Map<DataRequirement, List<CollectedData>> results) throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < windows.size() - 1; i++) {
+            IntervalWindowRequirement window = windows.get(i);
+            futures.add(scheduler.submit(() -> collectWindow(window, sampleIndex, windowMs, results.get(window))));
+        }
+        if (!windows.isEmpty()) {
+            IntervalWindowRequirement last = windows.get(windows.size() - 1);
+            collectWindow(last, sampleIndex, windowMs, results.get(last));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while collecting interval data", e);
+            } catch (ExecutionException ignored) {
+            }
+        }
+    }
+
+    private void collectWindow(IntervalWindowRequirement req, int sampleIndex, long windowMs, List<CollectedData> samples) {
+        try (Timings.Span span = Timings.span("collect", req.getDescription() + " #" + sampleIndex)) {
+            CollectedData sample = req.collectWindow(helper, sampleIndex, windowMs);
+            if (!"true".equals(sample.metadata().get("skip"))) {
+                samples.add(sample);
+            }
+        } catch (IOException ignored) {
+        }
+    }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import me.bechberger.jstall.provider.requirement.JcmdRequirement;
 import me.bechberger.jstall.util.CommandExecutor;
 import me.bechberger.jstall.util.JMXDiagnosticHelper;
 import me.bechberger.jstall.util.JVMDiscovery;
+import me.bechberger.jstall.util.Timings;
 import me.bechberger.util.json.PrettyPrinter;
 
 import java.io.IOException;
@@ -56,6 +57,9 @@ public class RecordingProvider {
 
     /**
      * Records data from the specified JVM targets into a ZIP archive.
+     * <p>
+     * The {@link Timings} of the collection are stored in the {@code timings} field of
+     * metadata.json, collected by a recorder of its own so that {@code --timings} is not affected.
      */
     public RecordingSummary record(List<JVMDiscovery.JVMProcess> targets,
                                    DataRequirements requirements,
@@ -64,7 +68,16 @@ public class RecordingProvider {
         if (targets == null || targets.isEmpty()) {
             throw new IOException("No JVM targets to record");
         }
+        try (Timings.Recorder timings = Timings.collect()) {
+            return recordTargets(targets, requirements, outputFile, parallel, timings);
+        }
+    }
 
+    private RecordingSummary recordTargets(List<JVMDiscovery.JVMProcess> targets,
+                                           DataRequirements requirements,
+                                           Path outputFile,
+                                           boolean parallel,
+                                           Timings.Recorder timings) throws IOException {
         if (verbose) {
             System.out.println("Starting recording to " + outputFile.toAbsolutePath());
             System.out.println("Parallel: " + parallel);
@@ -90,11 +103,12 @@ public class RecordingProvider {
             System.out.println("Writing ZIP file to " + outputFile.toAbsolutePath());
         }
 
-        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(outputFile))) {
+        try (Timings.Span span = Timings.span("write recording", outputFile.getFileName());
+             ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(outputFile))) {
             if (verbose) {
                 System.out.println("  Writing metadata.json");
             }
-            writeMetadata(zipOut, recordingRoot, collected, requirements);
+            writeMetadata(zipOut, recordingRoot, collected, requirements, timings.toJson());
             if (verbose) {
                 System.out.println("  Writing README.md");
             }
@@ -103,7 +117,9 @@ public class RecordingProvider {
                 if (verbose) {
                     System.out.println("  Writing data for PID " + targetData.process().pid());
                 }
-                writeJvmData(zipOut, recordingRoot, targetData, requirements);
+                try (Timings.Span dataSpan = Timings.span("write PID", targetData.process().pid())) {
+                    writeJvmData(zipOut, recordingRoot, targetData, requirements);
+                }
             }
         }
 
@@ -169,7 +185,7 @@ public class RecordingProvider {
         if (verbose) {
             System.out.println("Recording PID " + process.pid() + " (" + process.mainClass() + ")...");
         }
-        try {
+        try (Timings.Span span = Timings.span("collect PID", process.pid())) {
             var helper = executor.diagnosticHelper(process.pid());
             if (verbose) {
                 System.out.println("  Connected to JMX for PID " + process.pid());
@@ -210,7 +226,8 @@ public class RecordingProvider {
     private void writeMetadata(ZipOutputStream zipOut,
                                String recordingRoot,
                                List<CollectedJvmData> collected,
-                               DataRequirements requirements) throws IOException {
+                               DataRequirements requirements,
+                               Map<String, Object> timings) throws IOException {
         long createdAt = System.currentTimeMillis();
 
         List<Object> jvms = new ArrayList<>();
@@ -250,6 +267,9 @@ public class RecordingProvider {
         root.put("createdAt", createdAt);
         root.put("requirements", requirementsToJson(requirements));
         root.put("jvms", jvms);
+        if (timings != null) {
+            root.put("timings", timings);
+        }
 
         writeJsonEntry(zipOut, recordingRoot + "metadata.json", root);
     }
@@ -386,7 +406,8 @@ public class RecordingProvider {
         String recordingRoot = recordingRootFromOutput(outputFile);
 
         try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(outputFile))) {
-            writeMetadata(zipOut, recordingRoot, List.of(targetData), requirements);
+            writeMetadata(zipOut, recordingRoot, List.of(targetData), requirements,
+                Timings.isEnabled() ? Timings.toJson() : null);
             writeReadme(zipOut, recordingRoot, List.of(targetData), requirements);
             writeJvmData(zipOut, recordingRoot, targetData, requirements);
         }
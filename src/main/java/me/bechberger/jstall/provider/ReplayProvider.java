@@ -9,15 +9,22 @@ import me.bechberger.jstall.provider.requirement.SystemEnvironmentRequirement;
 import me.bechberger.jstall.util.JsonValueUtils;
 import me.bechberger.jstall.util.JVMDiscovery;
 import me.bechberger.jstall.util.JcmdOutputParsers;
+import me.bechberger.jstall.util.Timings;
+import me.bechberger.jstall.util.flame.FlameGraphHtml;
+import me.bechberger.jstall.util.flame.FlameProfile;
 import me.bechberger.util.json.JSONParser;
 import me.bechberger.util.json.Util;
 import me.bechberger.jthreaddump.model.ThreadDump;
 import me.bechberger.jthreaddump.parser.ThreadDumpParser;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -26,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -44,7 +52,8 @@ public class ReplayProvider {
 
     public ReplayProvider(Path recordingZip) throws IOException {
         this.recordingZip = recordingZip;
-        try (ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
+        try (Timings.Span span = Timings.span("replay open", recordingZip.getFileName());
+             ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
             this.rootPath = detectRootPath(zipFile);
             this.metadata = loadMetadata(zipFile, rootPath);
         }
@@ -125,7 +134,8 @@ public class ReplayProvider {
         List<CollectedData> systemPropertiesData;
         List<CollectedData> systemEnvironmentData;
 
-        try (ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
+        try (Timings.Span span = Timings.span("replay read thread dumps", pid);
+             ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
             threadDumpData = threadDumpRequirement.load(zipFile, pidPath);
             systemPropertiesData = systemPropertiesRequirement.load(zipFile, pidPath);
             systemEnvironmentData = systemEnvironmentRequirement.load(zipFile, pidPath);
@@ -136,19 +146,21 @@ public class ReplayProvider {
         }
 
         List<ThreadDumpSnapshot> snapshots = new ArrayList<>(threadDumpData.size());
-        for (CollectedData threadSample : threadDumpData) {
-            ThreadDump parsed = ThreadDumpParser.parse(threadSample.rawData());
+        try (Timings.Span span = Timings.span("parse thread dumps")) {
+            for (CollectedData threadSample : threadDumpData) {
+                ThreadDump parsed = ThreadDumpParser.parse(threadSample.rawData());
 
-            CollectedData propsSample = nearestSample(systemPropertiesData, threadSample.timestamp());
-            CollectedData envSample = nearestSample(systemEnvironmentData, threadSample.timestamp());
+                CollectedData propsSample = nearestSample(systemPropertiesData, threadSample.timestamp());
+                CollectedData envSample = nearestSample(systemEnvironmentData, threadSample.timestamp());
 
-            Map<String, String> systemProperties = propsSample == null
-                ? null
-                : JcmdOutputParsers.parseVmSystemProperties(propsSample.rawData());
+                Map<String, String> systemProperties = propsSample == null
+                    ? null
+                    : JcmdOutputParsers.parseVmSystemProperties(propsSample.rawData());
 
-            SystemEnvironment environment = envSample == null ? null : parseSystemEnvironment(envSample.rawData());
+                SystemEnvironment environment = envSample == null ? null : parseSystemEnvironment(envSample.rawData());
 
-            snapshots.add(new ThreadDumpSnapshot(parsed, threadSample.rawData(), environment, systemProperties));
+                snapshots.add(new ThreadDumpSnapshot(parsed, threadSample.rawData(), environment, systemProperties));
+            }
         }
 
         snapshots.sort(Comparator.comparing(s -> s.parsed().timestamp()));
@@ -163,7 +175,8 @@ public class ReplayProvider {
         String pidPrefix = rootPath + pid + "/";
         Map<String, List<CollectedDataWithName>> grouped = new HashMap<>();
 
-        try (ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
+        try (Timings.Span span = Timings.span("replay read collected data", pid);
+             ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
             zipFile.stream()
                 .filter(entry -> !entry.isDirectory())
                 .map(ZipEntry::getName)
@@ -180,13 +193,21 @@ public class ReplayProvider {
                     String fileName = remaining.substring(slashIndex + 1);
 
                     try {
-                        String content = new String(
-                            zipFile.getInputStream(zipFile.getEntry(name)).readAllBytes(),
-                            StandardCharsets.UTF_8
-                        );
                         long timestamp = parseTimestampFromFileName(fileName);
+                        CollectedData data;
+                        if (fileName.endsWith(".jfr")) {
+                            // Binary and potentially large: extract to disk instead of loading it as text
+                            data = new CollectedData(timestamp, "", Map.of("file", fileName),
+                                Map.of("jfr", extractToTempFile(zipFile, zipFile.getEntry(name), ".jfr")));
+                        } else {
+                            String content = new String(
+                                zipFile.getInputStream(zipFile.getEntry(name)).readAllBytes(),
+                                StandardCharsets.UTF_8
+                            );
+                            data = new CollectedData(timestamp, content, Map.of("file", fileName));
+                        }
                         grouped.computeIfAbsent(type, __ -> new ArrayList<>())
-                            .add(new CollectedDataWithName(fileName, new CollectedData(timestamp, content, Map.of())));
+                            .add(new CollectedDataWithName(fileName, data));
                     } catch (IOException e) {
                         throw new RuntimeException("Failed to load replay entry: " + name, e);
                     }
@@ -215,6 +236,19 @@ public class ReplayProvider {
         return byType;
     }
 
+    /**
+     * Streams a zip entry into a temporary file that is deleted on exit (or earlier via
+     * {@link CollectedData#close()}).
+     */
+    private static Path extractToTempFile(ZipFile zipFile, ZipEntry entry, String suffix) throws IOException {
+        Path file = Files.createTempFile("jstall-replay-", suffix);
+        file.toFile().deleteOnExit();
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
     private Map<String, Object> findJvmMetadata(long pid) {
         Object jvmsValue = metadata.get("jvms");
         if (!(jvmsValue instanceof List<?> items)) {
@@ -319,13 +353,56 @@ public class ReplayProvider {
     }
 
     /**
-     * Gets the flamegraph HTML content for the specified PID.
+     * Gets the profile of the specified PID, summed over all recorded windows
+     * ({@code <pid>/flamegraphs/NNN-<timestamp>.collapsed}). Returns null if the recording has no
+     * collapsed stacks (e.g. archives of older versions, which only contain {@code flame.html}).
+     */
+    public ProfileData getProfile(long pid) throws IOException {
+        return getProfile(pid, window -> true);
+    }
+
+    /**
+     * Like {@link #getProfile(long)}, but only sums the windows whose index (0-based, in recording
+     * order) matches {@code windowFilter}. Returns null if no window matches.
+     */
+    public ProfileData getProfile(long pid, IntPredicate windowFilter) throws IOException {
+        String prefix = pid + "/flamegraphs/";
+        try (ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
+            List<? extends ZipEntry> windows = zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".collapsed"))
+                .filter(entry -> entry.getName().startsWith(rootPath + prefix) || entry.getName().startsWith(prefix))
+                .sorted(Comparator.comparing(ZipEntry::getName))
+                .toList();
+            FlameProfile profile = new FlameProfile();
+            int summed = 0;
+            for (int i = 0; i < windows.size(); i++) {
+                if (!windowFilter.test(i)) {
+                    continue;
+                }
+                try (var reader = new InputStreamReader(zipFile.getInputStream(windows.get(i)), StandardCharsets.UTF_8)) {
+                    profile.merge(FlameProfile.parseCollapsed(reader));
+                }
+                summed++;
+            }
+            if (summed == 0) {
+                return null;
+            }
+            return new ProfileData(profile, summed, loadFlameMetadata(zipFile, pid));
+        }
+    }
+
+    /**
+     * Gets the flamegraph HTML for the specified PID, rendered from the summed profile
+     * ({@link #getProfile}) or, for older archives, the recorded {@code <pid>/flamegraphs/flame.html}.
      * Returns null if no flamegraph is available.
-     * Flamegraph is always at: <pid>/flamegraphs/flame.html
      */
     public FlamegraphData getFlamegraph(long pid) throws IOException {
+        ProfileData profile = getProfile(pid);
+        if (profile != null) {
+            return new FlamegraphData(FlameGraphHtml.render(profile.profile(), "PID " + pid),
+                System.currentTimeMillis(), profile.metadata());
+        }
         String flamePath = pid + "/flamegraphs/flame.html";
-        String metaPath = pid + "/flamegraphs/flame.meta.json";
 
         try (ZipFile zipFile = new ZipFile(recordingZip.toFile())) {
             var flameEntry = findEntry(zipFile, flamePath).orElse(null);
@@ -339,20 +416,30 @@ public class ReplayProvider {
             );
 
             long timestamp = System.currentTimeMillis(); // Timestamp from when extracted
+            return new FlamegraphData(html, timestamp, loadFlameMetadata(zipFile, pid));
+        }
+    }
 
-            // Load metadata from .meta.json file
-            Map<String, String> profilingMetadata = new HashMap<>();
-            var metaEntry = findEntry(zipFile, metaPath).orElse(null);
-            if (metaEntry != null) {
-                String metaJson = new String(
-                    zipFile.getInputStream(metaEntry).readAllBytes(),
-                    StandardCharsets.UTF_8
-                );
-                profilingMetadata = parseMetadataJson(metaJson);
-            }
+    /** Loads {@code <pid>/flamegraphs/flame.meta.json} (event, windowMs, interval), empty if missing. */
+    private Map<String, String> loadFlameMetadata(ZipFile zipFile, long pid) throws IOException {
+        var metaEntry = findEntry(zipFile, pid + "/flamegraphs/flame.meta.json").orElse(null);
+        if (metaEntry == null) {
+            return new HashMap<>();
+        }
+        String metaJson = new String(
+            zipFile.getInputStream(metaEntry).readAllBytes(),
+            StandardCharsets.UTF_8
+        );
+        return parseMetadataJson(metaJson);
+    }
 
-            return new FlamegraphData(html, timestamp, profilingMetadata);
-        }
+    /**
+     * Profile summed over all recorded windows of one JVM.
+     *
+     * @param windows  Number of profiling windows that were summed
+     * @param metadata Contents of {@code flame.meta.json} (event, windowMs, intervalNanos)
+     */
+    public record ProfileData(FlameProfile profile, int windows, Map<String, String> metadata) {
     }
 
     /**
@@ -14,11 +14,26 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
-/** Async Profiler and JFR recording requirement */
+/**
+ * Async Profiler and JFR recording requirement.
+ * <p>
+ * Each window is profiled into async-profiler's collapsed stack format with one root frame per
+ * thread ({@code -o collapsed -t}); the text is kept as the sample's raw data and persisted as
+ * {@code flamegraphs/NNN-<timestamp>.collapsed}, so windows can be summed, filtered by thread
+ * and diffed ({@link me.bechberger.jstall.util.flame.FlameProfile}). HTML is rendered on demand.
+ * <p>
+ * CPU windows use {@link #TYPE} and {@code flamegraphs/}; windows of other events (e.g.
+ * {@code wall}) get their own type and directory ({@code profiling-windows-wall},
+ * {@code flamegraphs-wall/}), so they are never summed with CPU samples.
+ */
 public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement {
 
-    private static final String TYPE = "profiling-windows";
-    private static final String FLAME_SUBDIR = "flamegraphs/";
+    public static final String TYPE = "profiling-windows";
+    private static final String DEFAULT_EVENT = "cpu";
+    private static final String FLAME_DIR = "flamegraphs";
+    /** Metadata key/value marking a sample as collapsed stacks. */
+    public static final String FORMAT_KEY = "format";
+    public static final String FORMAT_COLLAPSED = "collapsed";
     private static final String JFR_SUBDIR = "jfr/";
     private static final long PROFILE_SAMPLE_INTERVAL_NANOS = 10_000_000L;
     private static final long MIN_WINDOW_MS = 500;
@@ -29,7 +44,7 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
     private final long intervalNanos;
 
     public AsyncProfilerWindowRequirement(CollectionSchedule schedule, boolean recordJfr) {
-        this(schedule, "cpu", recordJfr);
+        this(schedule, DEFAULT_EVENT, recordJfr);
     }
 
     public AsyncProfilerWindowRequirement(CollectionSchedule schedule, String event, boolean recordJfr) {
@@ -48,13 +63,29 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
         return new AsyncProfilerWindowRequirement(CollectionSchedule.intervals(windows, intervalMs), false);
     }
 
+    /** Like {@link #forSampling(int, long)}, profiling {@code event} every {@code sampleIntervalNanos}. */
+    public static AsyncProfilerWindowRequirement forSampling(int count, long intervalMs, String event, long sampleIntervalNanos) {
+        int windows = Math.max(0, count - 1);
+        return new AsyncProfilerWindowRequirement(CollectionSchedule.intervals(windows, intervalMs), event, false, sampleIntervalNanos);
+    }
+
+    /** Requirement type of the windows of {@code event}. */
+    public static String typeFor(String event) {
+        return DEFAULT_EVENT.equals(event) ? TYPE : TYPE + "-" + event;
+    }
+
+    /** Archive directory (below {@code <pid>/}) of the windows of {@code event}. */
+    public static String directoryFor(String event) {
+        return DEFAULT_EVENT.equals(event) ? FLAME_DIR : FLAME_DIR + "-" + event;
+    }
+
     public static boolean isPlatformSupported() {
         return AsyncProfilerLoader.isSupported();
     }
 
     @Override
     public String getType() {
-        return TYPE;
+        return typeFor(event);
     }
 
     @Override
@@ -66,6 +97,14 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
         return event;
     }
 
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    private String flameSubdir() {
+        return directoryFor(event) + "/";
+    }
+
     @Override
     public CollectedData collect(JMXDiagnosticHelper helper, int sampleIndex) throws IOException {
         long defaultWindow = Math.max(0, schedule.intervalMs() - 200);
@@ -90,10 +129,10 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
         }
 
         long pid = helper.pid();
-        Path flamePath;
+        Path profilePath;
         Path jfrPath = null;
         try {
-            flamePath = Files.createTempFile("jstall-flame-", ".html");
+            profilePath = Files.createTempFile("jstall-profile-", ".collapsed");
             if (recordJfr) {
                 jfrPath = Files.createTempFile("jstall-record-", ".jfr");
             }
@@ -105,29 +144,21 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
         boolean jfrStarted = recordJfr && startJfr(helper, recordingName);
         Map<String, Path> tempFiles = new LinkedHashMap<>();
         try {
-            AsyncProfilerLoader.executeProfiler("-d", windowMs / 1000.0 + "s",
-                    "-e", event,
-                    "-i", String.valueOf(intervalNanos),
-                    "-f", flamePath.toString(),
-                    String.valueOf(pid));
-
-            if (!Files.exists(flamePath)) {
-                return skip(timestamp, "flamegraph-capture-failed");
+            AsyncProfilerLoader.executeProfiler(profilerArgs(windowMs, profilePath.toString(), pid));
+
+            if (!Files.exists(profilePath) || Files.size(profilePath) == 0) {
+                return skip(timestamp, "profile-capture-failed");
             }
+            String collapsed = Files.readString(profilePath, StandardCharsets.UTF_8);
 
             if (jfrStarted) {
                 dumpJfr(helper, recordingName, jfrPath);
             }
 
-            Map<String, String> metadata = new LinkedHashMap<>();
-            metadata.put("windowMs", String.valueOf(windowMs));
-            metadata.put("event", event);
-
-            tempFiles.put("flame", flamePath);
             if (jfrPath != null && Files.exists(jfrPath) && Files.size(jfrPath) > 0) {
                 tempFiles.put("jfr", jfrPath);
             }
-            return new CollectedData(timestamp, "", metadata, Collections.unmodifiableMap(tempFiles));
+            return new CollectedData(timestamp, collapsed, metadata(windowMs), Collections.unmodifiableMap(tempFiles));
         } catch (Exception e) {
             return skip(timestamp, "profiling-failed");
         } finally {
@@ -135,13 +166,13 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
                 stopJfr(helper, recordingName);
             }
             // Only delete files not handed off to CollectedData
-            if (!tempFiles.containsKey("flame")) try { Files.deleteIfExists(flamePath); } catch (IOException ignored) {}
+            try { Files.deleteIfExists(profilePath); } catch (IOException ignored) {}
             if (!tempFiles.containsKey("jfr") && jfrPath != null) try { Files.deleteIfExists(jfrPath); } catch (IOException ignored) {}
         }
     }
 
     /**
-     * Remote path: optionally captures a flamegraph via the {@code asprof} binary (if present)
+     * Remote path: optionally captures collapsed stacks via the {@code asprof} binary (if present)
      * and/or a JFR recording via jcmd. JFR is always attempted when {@link #recordJfr} is set,
      * regardless of whether {@code asprof} is available.
      * Remote files are transferred to local temporary files via {@link CommandExecutor.TemporaryFile#copyInto(Path)}.
@@ -161,15 +192,16 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
         String recordingName = "jstall-record-" + pid + "-" + sampleIndex + "-" + timestamp;
         boolean jfrStarted = recordJfr && startJfr(helper, recordingName);
 
-        CommandExecutor.TemporaryFile remoteFlame = null;
+        CommandExecutor.TemporaryFile remoteProfile = null;
         CommandExecutor.TemporaryFile remoteJfr = null;
         Map<String, Path> tempFiles = new LinkedHashMap<>();
+        String collapsed = "";
         try {
             if (asprofAvailable) {
                 try {
-                    remoteFlame = executor.createTemporaryFile("jstall-flame-", ".html");
+                    remoteProfile = executor.createTemporaryFile("jstall-profile-", ".collapsed");
                 } catch (IOException e) {
-                    remoteFlame = null;
+                    remoteProfile = null;
                 }
             }
             if (jfrStarted) {
@@ -181,21 +213,16 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
             }
 
             // Run asprof (blocks for windowMs) — or sleep so JFR has time to record.
-            if (asprofAvailable && remoteFlame != null) {
+            if (asprofAvailable && remoteProfile != null) {
                 try {
-                    var profResult = executor.executeCommand("asprof",
-                            "-d", windowMs / 1000.0 + "s",
-                            "-e", event,
-                            "-i", String.valueOf(intervalNanos),
-                            "-f", remoteFlame.getPath(),
-                            String.valueOf(pid));
+                    var profResult = executor.executeCommand("asprof", profilerArgs(windowMs, remoteProfile.getPath(), pid));
                     if (profResult.exitCode() == 0) {
-                        Path localFlamePath = Files.createTempFile("jstall-flame-", ".html");
-                        remoteFlame.copyInto(localFlamePath);
-                        if (Files.size(localFlamePath) > 0) {
-                            tempFiles.put("flame", localFlamePath);
-                        } else {
-                            Files.deleteIfExists(localFlamePath);
+                        Path localProfilePath = Files.createTempFile("jstall-profile-", ".collapsed");
+                        try {
+                            remoteProfile.copyInto(localProfilePath);
+                            collapsed = Files.readString(localProfilePath, StandardCharsets.UTF_8);
+                        } finally {
+                            Files.deleteIfExists(localProfilePath);
                         }
                     }
                 } catch (IOException ignored) {}
@@ -217,24 +244,39 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
                 } catch (IOException ignored) {}
             }
 
-            if (tempFiles.isEmpty()) {
+            if (tempFiles.isEmpty() && collapsed.isBlank()) {
                 return skip(timestamp, asprofAvailable ? "profiling-failed" : "asprof-not-available");
             }
-
-            Map<String, String> metadata = new LinkedHashMap<>();
-            metadata.put("windowMs", String.valueOf(windowMs));
-            metadata.put("event", event);
-            return new CollectedData(timestamp, "", metadata, Collections.unmodifiableMap(tempFiles));
+            return new CollectedData(timestamp, collapsed, metadata(windowMs), Collections.unmodifiableMap(tempFiles));
         } catch (Exception e) {
             for (Path p : tempFiles.values()) try { Files.deleteIfExists(p); } catch (IOException ignored) {}
             return skip(timestamp, "profiling-failed");
         } finally {
             if (jfrStarted) stopJfr(helper, recordingName);
-            if (remoteFlame != null) { try { remoteFlame.delete(); } catch (IOException ignored) {} }
+            if (remoteProfile != null) { try { remoteProfile.delete(); } catch (IOException ignored) {} }
             if (remoteJfr   != null) { try { remoteJfr.delete();   } catch (IOException ignored) {} }
         }
     }
 
+    /** async-profiler arguments for one window, producing collapsed stacks with a frame per thread. */
+    private String[] profilerArgs(long windowMs, String outputPath, long pid) {
+        return new String[]{"-d", windowMs / 1000.0 + "s",
+            "-e", event,
+            "-i", String.valueOf(intervalNanos),
+            "-t",
+            "-o", FORMAT_COLLAPSED,
+            "-f", outputPath,
+            String.valueOf(pid)};
+    }
+
+    private Map<String, String> metadata(long windowMs) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("windowMs", String.valueOf(windowMs));
+        metadata.put("event", event);
+        metadata.put(FORMAT_KEY, FORMAT_COLLAPSED);
+        return metadata;
+    }
+
     private CollectedData skip(long timestamp, String reason) {
         return new CollectedData(timestamp, "", Map.of("skip", "true", "reason", reason));
     }
@@ -264,72 +306,60 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
 
     @Override
     public void persist(ZipOutputStream zipOut, String pidPath, List<CollectedData> samples) throws IOException {
-        // Only persist the first valid sample (there should be only one)
-        for (CollectedData sample : samples) {
+        boolean metaWritten = false;
+        boolean jfrWritten = false;
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
             if (sample.metadata().containsKey("skip")) {
                 continue;
             }
-            boolean hasFlame = sample.tempFiles().containsKey("flame") || !sample.rawData().isBlank();
-            boolean hasJfr   = sample.tempFiles().containsKey("jfr");
-            if (!hasFlame && !hasJfr) {
-                continue;
-            }
-
-            if (hasFlame) {
-                // Write flamegraph HTML as flame.html
-                ZipEntry flameZipEntry = new ZipEntry(pidPath + FLAME_SUBDIR + "flame.html");
-                zipOut.putNextEntry(flameZipEntry);
-                if (sample.tempFiles().containsKey("flame")) {
-                    zipOut.write(Files.readAllBytes(sample.tempFiles().get("flame")));
-                } else {
-                    zipOut.write(sample.rawData().getBytes(StandardCharsets.UTF_8));
-                }
+            if (!sample.rawData().isBlank()) {
+                zipOut.putNextEntry(new ZipEntry(pidPath + collapsedFileName(i, sample)));
+                zipOut.write(sample.rawData().getBytes(StandardCharsets.UTF_8));
                 zipOut.closeEntry();
 
-                // Write metadata JSON as flame.meta.json (event, windowMs, interval)
-                ZipEntry metaZipEntry = new ZipEntry(pidPath + FLAME_SUBDIR + "flame.meta.json");
-                zipOut.putNextEntry(metaZipEntry);
-                Map<String, String> metadata = new HashMap<>(sample.metadata());
-                StringBuilder metaJson = new StringBuilder("{");
-
-                if (!sample.metadata().isEmpty()) {
+                if (!metaWritten) {
+                    // flame.meta.json: event, windowMs and interval of the windows
+                    zipOut.putNextEntry(new ZipEntry(pidPath + flameSubdir() + "flame.meta.json"));
+                    Map<String, String> metadata = new HashMap<>(sample.metadata());
                     metadata.put("intervalNanos", String.valueOf(intervalNanos));
+                    zipOut.write(PrettyPrinter.prettyPrint(metadata).getBytes(StandardCharsets.UTF_8));
+                    zipOut.closeEntry();
+                    metaWritten = true;
                 }
-                zipOut.write(PrettyPrinter.prettyPrint(metadata).getBytes(StandardCharsets.UTF_8));
-                zipOut.closeEntry();
             }
 
-            if (hasJfr) {
-                ZipEntry jfrZipEntry = new ZipEntry(pidPath + JFR_SUBDIR + "default.jfr");
-                zipOut.putNextEntry(jfrZipEntry);
-                zipOut.write(Files.readAllBytes(sample.tempFiles().get("jfr")));
+            // Only the JFR recording of the first window is kept
+            if (!jfrWritten && sample.tempFiles().containsKey("jfr")) {
+                zipOut.putNextEntry(new ZipEntry(pidPath + JFR_SUBDIR + "default.jfr"));
+                Files.copy(sample.tempFiles().get("jfr"), zipOut);
                 zipOut.closeEntry();
+                jfrWritten = true;
             }
-
-            break; // only the first valid sample
         }
     }
 
     @Override
     public List<CollectedData> load(ZipFile zipFile, String pidPath) throws IOException {
         List<CollectedData> result = new ArrayList<>();
-        String flamePath = pidPath + FLAME_SUBDIR + "flame.html";
-
-        var entry = zipFile.getEntry(flamePath);
-        if (entry != null) {
-            try {
-                String html = new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
-                result.add(new CollectedData(System.currentTimeMillis(), html, Map.of()));
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to load flamegraph: " + flamePath, e);
-            }
+        String prefix = pidPath + flameSubdir();
+        List<? extends ZipEntry> entries = zipFile.stream()
+            .filter(entry -> entry.getName().startsWith(prefix) && entry.getName().endsWith(".collapsed"))
+            .sorted(Comparator.comparing(ZipEntry::getName))
+            .toList();
+        for (ZipEntry entry : entries) {
+            String content = new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+            // Extract timestamp from filename: 000-1234567890.collapsed
+            String filename = entry.getName().substring(prefix.length());
+            long timestamp = Long.parseLong(filename.substring(filename.indexOf('-') + 1, filename.lastIndexOf('.')));
+            result.add(new CollectedData(timestamp, content, Map.of(FORMAT_KEY, FORMAT_COLLAPSED)));
         }
         return result;
     }
 
     @Override
     public String getDirectoryDescription() {
-        return "async-profiler flamegraphs and JFR recordings (if supported)";
+        return "async-profiler collapsed stacks per window and JFR recordings (if supported)";
     }
 
     @Override
@@ -338,24 +368,29 @@ public class AsyncProfilerWindowRequirement implements IntervalWindowRequirement
             return List.of();
         }
         List<String> files = new ArrayList<>();
-        for (CollectedData sample : samples) {
+        boolean metaListed = false;
+        boolean jfrListed = false;
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
             if (sample.metadata().containsKey("skip")) {
                 continue;
             }
-            boolean hasFlame = sample.tempFiles().containsKey("flame") || !sample.rawData().isBlank();
-            boolean hasJfr   = sample.tempFiles().containsKey("jfr");
-            if (!hasFlame && !hasJfr) {
-                continue;
-            }
-            if (hasFlame) {
-                files.add(FLAME_SUBDIR + "flame.html");
-                files.add(FLAME_SUBDIR + "flame.meta.json");
+            if (!sample.rawData().isBlank()) {
+                files.add(collapsedFileName(i, sample));
+                if (!metaListed) {
+                    files.add(flameSubdir() + "flame.meta.json");
+                    metaListed = true;
+                }
             }
-            if (hasJfr) {
+            if (!jfrListed && sample.tempFiles().containsKey("jfr")) {
                 files.add(JFR_SUBDIR + "default.jfr");
+                jfrListed = true;
             }
-            break; // only one valid sample is persisted
         }
         return files;
     }
-}
\ No newline at end of file
+
+    private String collapsedFileName(int index, CollectedData sample) {
+        return String.format("%s%03d-%d.collapsed", flameSubdir(), index, sample.timestamp());
+    }
+}
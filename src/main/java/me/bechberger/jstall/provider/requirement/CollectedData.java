@@ -11,7 +11,7 @@ import java.util.Map;
  * @param timestamp  Milliseconds since epoch when data was collected
  * @param rawData    Raw data as string (e.g., jcmd output, thread dump, flamegraph HTML)
  * @param metadata   Optional metadata about the collection (e.g., errors, warnings)
- * @param tempFiles  Named temporary local files (e.g., "flame", "jfr"); deleted on {@link #close()}
+ * @param tempFiles  Named temporary local files (e.g., "jfr"); deleted on {@link #close()}
  */
 public record CollectedData(long timestamp, String rawData, Map<String, String> metadata, Map<String, Path> tempFiles)
         implements AutoCloseable {
@@ -100,10 +100,17 @@ public class DataRequirements {
     private DataRequirement createWithNewSchedule(DataRequirement req, CollectionSchedule schedule) {
         if (req instanceof SystemEnvironmentRequirement) {
             return new SystemEnvironmentRequirement(schedule);
+        } else if (req instanceof NativeMemoryDiffRequirement) {
+            return new NativeMemoryDiffRequirement(schedule);
         } else if (req instanceof JcmdRequirement jcmd) {
             return new JcmdRequirement(jcmd.getCommand(), jcmd.getArgs(), schedule);
         } else if (req instanceof AsyncProfilerWindowRequirement profileRequirement) {
-            return new AsyncProfilerWindowRequirement(schedule, profileRequirement.getEvent(), true);
+            return new AsyncProfilerWindowRequirement(schedule, profileRequirement.getEvent(), true,
+                profileRequirement.getIntervalNanos());
+        } else if (req instanceof JfrEventStreamRequirement) {
+            return new JfrEventStreamRequirement(schedule);
+        } else if (req instanceof MXBeanMetricsRequirement mxBean) {
+            return new MXBeanMetricsRequirement(mxBean.getKind(), schedule);
         }
         // Keep original for requirements that don't support schedule changes
         return req;
@@ -120,9 +127,19 @@ public class DataRequirements {
             return new AsyncProfilerWindowRequirement(
                 asyncProfilerWindowRequirement.getSchedule(),
                 asyncProfilerWindowRequirement.getEvent(),
-                true
+                true,
+                asyncProfilerWindowRequirement.getIntervalNanos()
             );
         }
+        if (req instanceof JfrEventStreamRequirement jfrEventStreamRequirement) {
+            return new JfrEventStreamRequirement(jfrEventStreamRequirement.getSchedule());
+        }
+        if (req instanceof MXBeanMetricsRequirement mxBeanRequirement) {
+            return new MXBeanMetricsRequirement(mxBeanRequirement.getKind(), mxBeanRequirement.getSchedule());
+        }
+        if (req instanceof NativeMemoryDiffRequirement nativeMemoryRequirement) {
+            return new NativeMemoryDiffRequirement(nativeMemoryRequirement.getSchedule());
+        }
         if (req instanceof JcmdRequirement jcmdRequirement) {
             String[] args = jcmdRequirement.getArgs();
             return new JcmdRequirement(
@@ -241,6 +258,50 @@ public class DataRequirements {
             return this;
         }
 
+        /**
+         * Adds async-profiler windows of {@code event} (e.g. {@code wall}) between consecutive
+         * samples of the default schedule, sampling every {@code sampleIntervalNanos}.
+         */
+        public Builder addAsyncProfilerWindows(String event, long sampleIntervalNanos) {
+            if (defaultCount > 1) {
+                requirements.add(AsyncProfilerWindowRequirement.forSampling(defaultCount, defaultIntervalMs, event, sampleIntervalNanos));
+            }
+            return this;
+        }
+
+        /**
+         * Adds streamed JFR event summaries, one per window between consecutive samples
+         * of the default schedule.
+         */
+        public Builder addJfrEvents() {
+            if (defaultCount > 1) {
+                requirements.add(JfrEventStreamRequirement.forSampling(defaultCount, defaultIntervalMs));
+            }
+            return this;
+        }
+
+        /**
+         * Adds platform MXBean metrics using default schedule.
+         * Only collected when a JMX connection is available; analyzers fall back to jcmd data otherwise.
+         *
+         * @param kind Group of MXBeans to read
+         */
+        public Builder addMXBeanMetrics(MXBeanMetricsRequirement.Kind kind) {
+            return addMXBeanMetrics(kind, defaultCount, defaultIntervalMs);
+        }
+
+        /**
+         * Adds platform MXBean metrics at intervals.
+         *
+         * @param kind Group of MXBeans to read
+         * @param count Number of samples to collect
+         * @param intervalMs Interval between samples in milliseconds
+         */
+        public Builder addMXBeanMetrics(MXBeanMetricsRequirement.Kind kind, int count, long intervalMs) {
+            requirements.add(new MXBeanMetricsRequirement(kind, CollectionSchedule.intervals(count, intervalMs)));
+            return this;
+        }
+
         /**
          * Adds fast/inexpensive jcmd commands that are safe to collect at startup.
          * These commands typically complete in &lt; 300ms and provide useful diagnostic info.
@@ -270,6 +331,18 @@ public class DataRequirements {
             return this;
         }
         
+        /**
+         * Adds native memory tracking at intervals: an NMT baseline with a summary first, then
+         * {@code summary.diff} against that baseline at each later sample.
+         *
+         * @param count Number of samples to collect
+         * @param intervalMs Interval between samples in milliseconds
+         */
+        public Builder addNativeMemoryDiffs(int count, long intervalMs) {
+            requirements.add(new NativeMemoryDiffRequirement(CollectionSchedule.intervals(count, intervalMs)));
+            return this;
+        }
+
         /**
          * Adds a jcmd command collection using default schedule.
          * This is the typical way to add jcmd commands in recording scenarios.
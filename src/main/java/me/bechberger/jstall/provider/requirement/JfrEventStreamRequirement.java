@@ -0,0 +1,264 @@
+package me.bechberger.jstall.provider.requirement;
+
+import jdk.management.jfr.RemoteRecordingStream;
+import me.bechberger.jstall.util.CommandExecutor;
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import me.bechberger.jstall.util.jfr.JfrEventAggregator;
+import me.bechberger.util.json.PrettyPrinter;
+
+import javax.management.MBeanServerConnection;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a small set of low-overhead JFR events from the target JVM between samples and stores
+ * one aggregated summary ({@link JfrEventAggregator#toMap()}) per window.
+ * <p>
+ * With an MBean connection the events are consumed live with a {@link RemoteRecordingStream}
+ * over the JMX connection {@link JMXDiagnosticHelper} already holds, and folded into the
+ * aggregator as they arrive; nothing is written to disk. Events are delivered per flushed chunk,
+ * so the last second of a window may be missed. Without one (remote or cross-version
+ * targets) a recording is started with jcmd using the {@code default} settings plus the settings of
+ * the events below, dumped to a temporary file at the end of the window, copied over and streamed
+ * from the file.
+ * <p>
+ * Enabled events: {@code jdk.ExecutionSample} (every {@value #EXECUTION_SAMPLE_PERIOD_MS} ms),
+ * {@code jdk.JavaMonitorEnter} and {@code jdk.ThreadPark} (above {@value #THRESHOLD_MS} ms),
+ * {@code jdk.ObjectAllocationSample} (throttled) and {@code jdk.GarbageCollection}.
+ */
+public class JfrEventStreamRequirement implements IntervalWindowRequirement {
+
+    private static final String TYPE = "jfr-events";
+    private static final String SUBDIR = "jfr-events/";
+    static final long EXECUTION_SAMPLE_PERIOD_MS = 20;
+    static final long THRESHOLD_MS = 10;
+    private static final String ALLOCATION_THROTTLE = "150/s";
+    private static final long MIN_WINDOW_MS = 500;
+
+    private final CollectionSchedule schedule;
+
+    public JfrEventStreamRequirement(CollectionSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    /** One window between each pair of consecutive samples, like {@link AsyncProfilerWindowRequirement#forSampling}. */
+    public static JfrEventStreamRequirement forSampling(int count, long intervalMs) {
+        return new JfrEventStreamRequirement(CollectionSchedule.intervals(Math.max(0, count - 1), intervalMs));
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public CollectionSchedule getSchedule() {
+        return schedule;
+    }
+
+    @Override
+    public CollectedData collect(JMXDiagnosticHelper helper, int sampleIndex) throws IOException {
+        long defaultWindow = Math.max(0, schedule.intervalMs() - 200);
+        return collectWindow(helper, sampleIndex, defaultWindow);
+    }
+
+    @Override
+    public CollectedData collectWindow(JMXDiagnosticHelper helper, int sampleIndex, long windowMs) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        if (windowMs < MIN_WINDOW_MS) {
+            return skip(timestamp, "window-too-short");
+        }
+        JfrEventAggregator aggregator;
+        String source;
+        MBeanServerConnection connection = helper.getMBeanServerConnection();
+        if (connection != null) {
+            aggregator = stream(connection, windowMs);
+            source = "stream";
+        } else {
+            aggregator = recordToFile(helper, sampleIndex, timestamp, windowMs);
+            source = "file";
+        }
+        if (aggregator == null) {
+            return skip(timestamp, "jfr-not-available");
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("windowMs", windowMs);
+        summary.put("source", source);
+        summary.putAll(aggregator.toMap());
+        return new CollectedData(timestamp, PrettyPrinter.prettyPrint(summary), Map.of("windowMs", String.valueOf(windowMs)));
+    }
+
+    /** Streams events over JMX for {@code windowMs}, aggregating them as they arrive. */
+    static JfrEventAggregator stream(MBeanServerConnection connection, long windowMs) throws IOException {
+        JfrEventAggregator aggregator = new JfrEventAggregator();
+        Object lock = new Object();
+        try (RemoteRecordingStream stream = new RemoteRecordingStream(connection)) {
+            // On JDK 17 enable(...) does not reach the remote recording; pass the settings explicitly
+            stream.setSettings(settings());
+            for (String event : JfrEventAggregator.EVENTS) {
+                stream.onEvent(event, e -> {
+                    synchronized (lock) {
+                        aggregator.accept(e);
+                    }
+                });
+            }
+            stream.startAsync();
+            Thread.sleep(windowMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while streaming JFR events", e);
+        }
+        synchronized (lock) {
+            return aggregator;
+        }
+    }
+
+    /** Recording settings for the streamed events, in {@code <event>#<setting>} form. */
+    static Map<String, String> settings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (String event : JfrEventAggregator.EVENTS) {
+            settings.put(event + "#enabled", "true");
+        }
+        settings.put(JfrEventAggregator.EXECUTION_SAMPLE + "#period", EXECUTION_SAMPLE_PERIOD_MS + " ms");
+        settings.put(JfrEventAggregator.MONITOR_ENTER + "#threshold", THRESHOLD_MS + " ms");
+        settings.put(JfrEventAggregator.MONITOR_ENTER + "#stackTrace", "true");
+        settings.put(JfrEventAggregator.THREAD_PARK + "#threshold", THRESHOLD_MS + " ms");
+        settings.put(JfrEventAggregator.THREAD_PARK + "#stackTrace", "true");
+        settings.put(JfrEventAggregator.ALLOCATION_SAMPLE + "#throttle", ALLOCATION_THROTTLE);
+        return settings;
+    }
+
+    /**
+     * Starts the recording of the file fallback with the {@code default} settings and the
+     * {@link #settings()} of the streamed events on top; targets before JDK 17 don't accept event
+     * settings on {@code JFR.start} and get the {@code default} settings only.
+     */
+    private static void startRecording(JMXDiagnosticHelper helper, String recordingName) throws IOException {
+        String output;
+        try {
+            output = helper.executeCommand("JFR.start", startArguments(recordingName, true));
+        } catch (IOException e) {
+            output = "";
+        }
+        if (!output.contains("Started recording")) {
+            helper.executeCommand("JFR.start", startArguments(recordingName, false));
+        }
+    }
+
+    /** {@code JFR.start} arguments, with the event settings in jcmd's {@code <event>#<setting>=<value>} form. */
+    public static String[] startArguments(String recordingName, boolean withEventSettings) {
+        List<String> arguments = new ArrayList<>(List.of("name=" + recordingName, "settings=default"));
+        if (withEventSettings) {
+            settings().forEach((setting, value) -> arguments.add(setting + "=" + value.replace(" ", "")));
+        }
+        return arguments.toArray(String[]::new);
+    }
+
+    /**
+     * Fallback without MBean connection: records with jcmd into a temporary file on the target host,
+     * copies it over and streams it from disk. Returns null if JFR could not be started.
+     */
+    private JfrEventAggregator recordToFile(JMXDiagnosticHelper helper, int sampleIndex, long timestamp, long windowMs)
+            throws IOException {
+        CommandExecutor executor = helper.getExecutor();
+        String recordingName = "jstall-events-" + helper.pid() + "-" + sampleIndex + "-" + timestamp;
+        CommandExecutor.TemporaryFile remoteJfr = executor.createTemporaryFile("jstall-events-", ".jfr");
+        Path localJfr = null;
+        boolean started = false;
+        try {
+            startRecording(helper, recordingName);
+            started = true;
+            Thread.sleep(windowMs);
+            helper.executeCommand("JFR.dump", "name=" + recordingName, "filename=" + remoteJfr.getPath());
+            localJfr = Files.createTempFile("jstall-events-", ".jfr");
+            remoteJfr.copyInto(localJfr);
+            if (Files.size(localJfr) == 0) {
+                return null;
+            }
+            return JfrEventAggregator.readFile(localJfr);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while recording JFR events", e);
+        } catch (IOException e) {
+            if (!started) {
+                return null;
+            }
+            throw e;
+        } finally {
+            if (started) {
+                try {
+                    helper.executeCommand("JFR.stop", "name=" + recordingName);
+                } catch (IOException ignored) {
+                }
+            }
+            try { remoteJfr.delete(); } catch (IOException ignored) {}
+            if (localJfr != null) try { Files.deleteIfExists(localJfr); } catch (IOException ignored) {}
+        }
+    }
+
+    private CollectedData skip(long timestamp, String reason) {
+        return new CollectedData(timestamp, "", Map.of("skip", "true", "reason", reason));
+    }
+
+    @Override
+    public void persist(ZipOutputStream zipOut, String pidPath, List<CollectedData> samples) throws IOException {
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
+            if (sample.metadata().containsKey("skip") || sample.rawData().isEmpty()) {
+                continue;
+            }
+            String entryName = String.format("%s%s%03d-%d.json", pidPath, SUBDIR, i, sample.timestamp());
+            zipOut.putNextEntry(new ZipEntry(entryName));
+            zipOut.write(sample.rawData().getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+        }
+    }
+
+    @Override
+    public List<CollectedData> load(ZipFile zipFile, String pidPath) throws IOException {
+        List<CollectedData> result = new ArrayList<>();
+        String prefix = pidPath + SUBDIR;
+        List<? extends ZipEntry> entries = zipFile.stream()
+            .filter(entry -> entry.getName().startsWith(prefix) && entry.getName().endsWith(".json"))
+            .sorted(Comparator.comparing((ZipEntry e) -> e.getName()))
+            .toList();
+        for (ZipEntry entry : entries) {
+            String content = new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+            // Extract timestamp from filename: 000-1234567890.json
+            String filename = entry.getName().substring(prefix.length());
+            long timestamp = Long.parseLong(filename.substring(filename.indexOf('-') + 1, filename.lastIndexOf('.')));
+            result.add(new CollectedData(timestamp, content, Map.of()));
+        }
+        return result;
+    }
+
+    @Override
+    public String getDirectoryDescription() {
+        return "aggregated JFR event summaries per sampling window";
+    }
+
+    @Override
+    public List<String> getExpectedFiles(List<CollectedData> samples) {
+        if (samples == null || samples.isEmpty()) {
+            return List.of();
+        }
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
+            if (!sample.metadata().containsKey("skip") && !sample.rawData().isEmpty()) {
+                files.add(String.format("%s%03d-%d.json", SUBDIR, i, sample.timestamp()));
+            }
+        }
+        return files;
+    }
+}
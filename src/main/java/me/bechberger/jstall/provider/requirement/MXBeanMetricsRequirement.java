@@ -0,0 +1,385 @@
+package me.bechberger.jstall.provider.requirement;
+
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.PrettyPrinter;
+import me.bechberger.util.json.Util;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reads typed values from the platform MXBeans of the target JVM over the JMX connection
+ * that {@link JMXDiagnosticHelper} already holds, instead of scraping jcmd text output.
+ * <p>
+ * Each {@link Kind} is its own requirement type (and recording directory), so analyzers only
+ * pay for the beans they need. Attributes of a bean are fetched with a single
+ * {@code getAttributes} call; per-thread CPU time and allocated bytes use the bulk
+ * {@code com.sun.management.ThreadMXBean} operations taking a {@code long[]} of thread ids.
+ * <p>
+ * Without an MBean connection {@link #collect} throws, which leaves an error sample behind;
+ * analyzers keep using the corresponding jcmd requirements as fallback.
+ * <p>
+ * Samples are stored as JSON, e.g. for {@link Kind#THREADS}:
+ * <pre>{@code
+ * {"threads": [{"id": 1, "name": "main", "state": "RUNNABLE",
+ *               "cpuTimeNanos": 120000000, "allocatedBytes": 4194304}, ...]}
+ * }</pre>
+ */
+public class MXBeanMetricsRequirement implements DataRequirement {
+
+    /** Group of platform MXBeans collected together. */
+    public enum Kind {
+        /** {@code MemoryMXBean} heap/non-heap usage and all {@code MemoryPoolMXBean}s. */
+        MEMORY("mxbean-memory", "memory pool usage (MXBean)"),
+        /** All {@code GarbageCollectorMXBean}s: collection count and accumulated time. */
+        GC("mxbean-gc", "garbage collector counters (MXBean)"),
+        /** Per-thread CPU time and allocated bytes via the bulk {@code ThreadMXBean} operations. */
+        THREADS("mxbean-threads", "per-thread CPU time and allocation (MXBean)"),
+        /** {@code OperatingSystemMXBean} load, CPU and memory attributes. */
+        OS("mxbean-os", "operating system metrics (MXBean)");
+
+        private final String type;
+        private final String description;
+
+        Kind(String type, String description) {
+            this.type = type;
+            this.description = description;
+        }
+
+        public String type() {
+            return type;
+        }
+    }
+
+    /** One thread of a {@link Kind#THREADS} sample; counters are -1 if unsupported by the target JVM. */
+    public record ThreadSample(long id, String name, String state, long cpuTimeNanos, long allocatedBytes) {
+    }
+
+    /** A {@code MemoryUsage} in bytes; {@code max} is -1 if undefined. */
+    public record Usage(long used, long committed, long max) {
+    }
+
+    /** A {@link Kind#MEMORY} sample: heap usage and the usage of each memory pool by name. */
+    public record MemorySample(Usage heap, Map<String, Usage> pools) {
+    }
+
+    /** One collector of a {@link Kind#GC} sample. */
+    public record CollectorSample(String name, long count, long timeMs) {
+    }
+
+    private static final String MEMORY_BEAN = "java.lang:type=Memory";
+    private static final String MEMORY_POOL_PATTERN = "java.lang:type=MemoryPool,*";
+    private static final String GC_PATTERN = "java.lang:type=GarbageCollector,*";
+    private static final String THREADING_BEAN = "java.lang:type=Threading";
+    private static final String OS_BEAN = "java.lang:type=OperatingSystem";
+
+    private static final String[] OS_ATTRIBUTES = {
+        "AvailableProcessors", "SystemLoadAverage", "ProcessCpuLoad", "CpuLoad", "SystemCpuLoad",
+        "ProcessCpuTime", "TotalMemorySize", "FreeMemorySize", "CommittedVirtualMemorySize",
+        "OpenFileDescriptorCount", "MaxFileDescriptorCount"
+    };
+    private static final String[] LONG_ARRAY_SIGNATURE = {"[J"};
+
+    private final Kind kind;
+    private final CollectionSchedule schedule;
+
+    public MXBeanMetricsRequirement(Kind kind, CollectionSchedule schedule) {
+        this.kind = kind;
+        this.schedule = schedule;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String getType() {
+        return kind.type;
+    }
+
+    @Override
+    public CollectionSchedule getSchedule() {
+        return schedule;
+    }
+
+    @Override
+    public CollectedData collect(JMXDiagnosticHelper helper, int sampleIndex) throws IOException {
+        MBeanServerConnection connection = helper.getMBeanServerConnection();
+        if (connection == null) {
+            throw new IOException("No MBean connection to " + helper.pid() + ", " + kind.type + " not available");
+        }
+        long timestamp = System.currentTimeMillis();
+        return new CollectedData(timestamp, PrettyPrinter.prettyPrint(read(kind, connection)), Map.of());
+    }
+
+    /**
+     * Reads the beans of {@code kind} from {@code connection} into a JSON-compatible map.
+     */
+    public static Map<String, Object> read(Kind kind, MBeanServerConnection connection) throws IOException {
+        try {
+            return switch (kind) {
+                case MEMORY -> readMemory(connection);
+                case GC -> readGc(connection);
+                case THREADS -> readThreads(connection);
+                case OS -> toJson(attributes(connection, new ObjectName(OS_BEAN), OS_ATTRIBUTES));
+            };
+        } catch (JMException e) {
+            throw new IOException("Failed to read " + kind.type + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, Object> readMemory(MBeanServerConnection connection) throws IOException, JMException {
+        Map<String, Object> root = toJson(attributes(connection, new ObjectName(MEMORY_BEAN),
+            "HeapMemoryUsage", "NonHeapMemoryUsage"));
+        List<Object> pools = new ArrayList<>();
+        for (ObjectName pool : sortedNames(connection, MEMORY_POOL_PATTERN)) {
+            pools.add(toJson(attributes(connection, pool, "Name", "Type", "Usage", "CollectionUsage")));
+        }
+        root.put("pools", pools);
+        return root;
+    }
+
+    private static Map<String, Object> readGc(MBeanServerConnection connection) throws IOException, JMException {
+        List<Object> collectors = new ArrayList<>();
+        for (ObjectName gc : sortedNames(connection, GC_PATTERN)) {
+            collectors.add(toJson(attributes(connection, gc, "Name", "CollectionCount", "CollectionTime")));
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("collectors", collectors);
+        return root;
+    }
+
+    private static Map<String, Object> readThreads(MBeanServerConnection connection) throws IOException, JMException {
+        ObjectName threading = new ObjectName(THREADING_BEAN);
+        long[] ids = (long[]) connection.getAttribute(threading, "AllThreadIds");
+        Object[] idParam = {ids};
+        // Bulk operations: one round trip each for all threads
+        long[] cpu = (long[]) connection.invoke(threading, "getThreadCpuTime", idParam, LONG_ARRAY_SIGNATURE);
+        long[] allocated = (long[]) connection.invoke(threading, "getThreadAllocatedBytes", idParam, LONG_ARRAY_SIGNATURE);
+        CompositeData[] infos = (CompositeData[]) connection.invoke(threading, "getThreadInfo",
+            new Object[]{ids, 0}, new String[]{"[J", "int"});
+
+        List<Object> threads = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            CompositeData info = infos == null ? null : infos[i];
+            if (info == null) {
+                continue; // thread terminated in between
+            }
+            Map<String, Object> thread = new LinkedHashMap<>();
+            thread.put("id", ids[i]);
+            thread.put("name", info.get("threadName"));
+            thread.put("state", String.valueOf(info.get("threadState")));
+            thread.put("cpuTimeNanos", cpu == null ? -1L : cpu[i]);
+            thread.put("allocatedBytes", allocated == null ? -1L : allocated[i]);
+            threads.add(thread);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("threads", threads);
+        return root;
+    }
+
+    /**
+     * Parses the JSON of a {@link Kind#THREADS} sample; returns an empty list for empty (failed) samples.
+     */
+    public static List<ThreadSample> parseThreads(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return List.of();
+        }
+        List<ThreadSample> result = new ArrayList<>();
+        for (Object item : Util.asList(Util.asMap(JSONParser.parse(raw)).get("threads"))) {
+            Map<String, Object> thread = Util.asMap(item);
+            result.add(new ThreadSample(
+                ((Number) thread.get("id")).longValue(),
+                String.valueOf(thread.get("name")),
+                String.valueOf(thread.get("state")),
+                ((Number) thread.get("cpuTimeNanos")).longValue(),
+                ((Number) thread.get("allocatedBytes")).longValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Parses the JSON of a {@link Kind#MEMORY} sample; returns null for empty (failed) samples.
+     */
+    public static MemorySample parseMemory(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        Map<String, Object> root = Util.asMap(JSONParser.parse(raw));
+        Usage heap = usage(root.get("HeapMemoryUsage"));
+        if (heap == null) {
+            return null;
+        }
+        Map<String, Usage> pools = new LinkedHashMap<>();
+        Object poolList = root.get("pools");
+        if (poolList != null) {
+            for (Object item : Util.asList(poolList)) {
+                Map<String, Object> pool = Util.asMap(item);
+                Usage usage = usage(pool.get("Usage"));
+                if (pool.get("Name") != null && usage != null) {
+                    pools.put(String.valueOf(pool.get("Name")), usage);
+                }
+            }
+        }
+        return new MemorySample(heap, pools);
+    }
+
+    /**
+     * Parses the JSON of a {@link Kind#GC} sample; returns an empty list for empty (failed) samples.
+     */
+    public static List<CollectorSample> parseCollectors(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return List.of();
+        }
+        List<CollectorSample> result = new ArrayList<>();
+        for (Object item : Util.asList(Util.asMap(JSONParser.parse(raw)).get("collectors"))) {
+            Map<String, Object> collector = Util.asMap(item);
+            result.add(new CollectorSample(
+                String.valueOf(collector.get("Name")),
+                number(collector.get("CollectionCount"), -1),
+                number(collector.get("CollectionTime"), -1)));
+        }
+        return result;
+    }
+
+    /**
+     * Parses the JSON of a {@link Kind#OS} sample into attribute name and value; empty for empty
+     * (failed) samples.
+     */
+    public static Map<String, Number> parseOs(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return Map.of();
+        }
+        Map<String, Number> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : Util.asMap(JSONParser.parse(raw)).entrySet()) {
+            if (entry.getValue() instanceof Number number) {
+                result.put(entry.getKey(), number);
+            }
+        }
+        return result;
+    }
+
+    private static Usage usage(Object value) {
+        if (!(value instanceof Map<?, ?>)) {
+            return null;
+        }
+        Map<String, Object> map = Util.asMap(value);
+        return new Usage(number(map.get("used"), 0), number(map.get("committed"), 0), number(map.get("max"), -1));
+    }
+
+    private static long number(Object value, long defaultValue) {
+        return value instanceof Number number ? number.longValue() : defaultValue;
+    }
+
+    /** Fetches all requested attributes of one bean in a single call; missing attributes are skipped. */
+    private static AttributeList attributes(MBeanServerConnection connection, ObjectName name, String... attributes)
+            throws IOException, JMException {
+        return connection.getAttributes(name, attributes);
+    }
+
+    private static TreeSet<ObjectName> sortedNames(MBeanServerConnection connection, String pattern)
+            throws IOException, JMException {
+        TreeSet<ObjectName> names = new TreeSet<>(Comparator.comparing(ObjectName::getCanonicalName));
+        names.addAll(connection.queryNames(new ObjectName(pattern), null));
+        return names;
+    }
+
+    private static Map<String, Object> toJson(AttributeList attributes) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Attribute attribute : attributes.asList()) {
+            Object value = toJsonValue(attribute.getValue());
+            if (value != null) {
+                result.put(attribute.getName(), value);
+            }
+        }
+        return result;
+    }
+
+    private static Object toJsonValue(Object value) {
+        if (value instanceof CompositeData composite) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (String key : new TreeSet<>(composite.getCompositeType().keySet())) {
+                Object converted = toJsonValue(composite.get(key));
+                if (converted != null) {
+                    map.put(key, converted);
+                }
+            }
+            return map;
+        }
+        if (value instanceof Double d) {
+            return d.isNaN() || d.isInfinite() ? null : d;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public void persist(ZipOutputStream zipOut, String pidPath, List<CollectedData> samples) throws IOException {
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
+            if (sample.rawData().isEmpty()) {
+                continue;
+            }
+            String entryName = String.format("%s%s/%03d-%d.json", pidPath, kind.type, i, sample.timestamp());
+            zipOut.putNextEntry(new ZipEntry(entryName));
+            zipOut.write(sample.rawData().getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+        }
+    }
+
+    @Override
+    public List<CollectedData> load(ZipFile zipFile, String pidPath) throws IOException {
+        List<CollectedData> result = new ArrayList<>();
+        String prefix = pidPath + kind.type + "/";
+        List<? extends ZipEntry> entries = zipFile.stream()
+            .filter(entry -> entry.getName().startsWith(prefix) && entry.getName().endsWith(".json"))
+            .sorted(Comparator.comparing((ZipEntry e) -> e.getName()))
+            .toList();
+        for (ZipEntry entry : entries) {
+            String content = new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+            // Extract timestamp from filename: 000-1234567890.json
+            String filename = entry.getName().substring(prefix.length());
+            long timestamp = Long.parseLong(filename.substring(filename.indexOf('-') + 1, filename.lastIndexOf('.')));
+            result.add(new CollectedData(timestamp, content, Map.of()));
+        }
+        return result;
+    }
+
+    @Override
+    public String getDirectoryDescription() {
+        return kind.description;
+    }
+
+    @Override
+    public List<String> getExpectedFiles(List<CollectedData> samples) {
+        if (samples == null || samples.isEmpty()) {
+            return List.of();
+        }
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i++) {
+            CollectedData sample = samples.get(i);
+            if (!sample.rawData().isEmpty()) {
+                files.add(String.format("%s/%03d-%d.json", kind.type, i, sample.timestamp()));
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,67 @@
+package me.bechberger.jstall.provider.requirement;
+
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks native memory over time with NMT's own baseline instead of repeated full summaries.
+ * <p>
+ * The first sample of a session runs {@code VM.native_memory baseline} and stores the
+ * {@code summary} taken right after it (the absolute starting point); every later sample runs
+ * {@code VM.native_memory summary.diff}, which reports the current size and the change since the
+ * baseline. Live mode collects every tick as a single sample 0 with the same
+ * {@link JMXDiagnosticHelper}, so there only the first tick takes the baseline. Requires
+ * {@code -XX:NativeMemoryTracking=summary} (or {@code detail}); otherwise the samples contain the
+ * JVM's "not enabled" message.
+ * <p>
+ * Stored like other interval jcmd data, as {@code vm-native-memory-diff/<index>-<timestamp>.txt}.
+ */
+public class NativeMemoryDiffRequirement extends JcmdRequirement {
+
+    public static final String TYPE = "vm-native-memory-diff";
+
+    private static final String COMMAND = "VM.native_memory";
+
+    /** Helpers whose JVM got its baseline from us; weak, so that finished sessions are dropped. */
+    private static final Set<JMXDiagnosticHelper> baselined = Collections.synchronizedSet(
+        Collections.newSetFromMap(new WeakHashMap<>()));
+
+    public NativeMemoryDiffRequirement(CollectionSchedule schedule) {
+        super(COMMAND, new String[]{"summary.diff"}, schedule);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public CollectedData collect(JMXDiagnosticHelper helper, int sampleIndex) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        // A series of several samples starts its own baseline; single-sample ticks only the first
+        if (sampleIndex == 0 && (baselined.add(helper) || getSchedule().count() > 1)) {
+            String baseline;
+            try {
+                baseline = helper.executeCommand(COMMAND, "baseline");
+            } catch (IOException e) {
+                baselined.remove(helper);
+                throw e;
+            }
+            if (baseline != null && baseline.contains("not enabled")) {
+                return new CollectedData(timestamp, baseline, Map.of());
+            }
+            return new CollectedData(timestamp, helper.executeCommand(COMMAND, "summary"), Map.of());
+        }
+        return new CollectedData(timestamp, helper.executeCommand(COMMAND, "summary.diff"), Map.of());
+    }
+
+    @Override
+    public String getDirectoryDescription() {
+        return "jcmd VM.native_memory summary at the baseline, then summary.diff against it";
+    }
+}
@@ -3,6 +3,7 @@ package me.bechberger.jstall.provider.requirement;
 import me.bechberger.jstall.model.SystemEnvironment;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
 import me.bechberger.jstall.util.CommandExecutor;
+import me.bechberger.jstall.util.Timings;
 import me.bechberger.jthreaddump.parser.ThreadDumpParser;
 
 import java.io.IOException;
@@ -48,6 +49,14 @@ public class ThreadDumpRequirement extends JcmdRequirement {
     public static List<ThreadDumpSnapshot> toSnapshots(List<CollectedData> data,
                                                        Map<String, String> systemProps,
                                                        SystemEnvironment env) {
+        try (Timings.Span span = Timings.span("parse thread dumps")) {
+            return parse(data, systemProps, env);
+        }
+    }
+
+    private static List<ThreadDumpSnapshot> parse(List<CollectedData> data,
+                                                  Map<String, String> systemProps,
+                                                  SystemEnvironment env) {
         return data.stream()
                 .filter(d -> !d.rawData().isBlank())
                 .map(d -> {
@@ -71,7 +80,7 @@ public class ThreadDumpRequirement extends JcmdRequirement {
             if (content.isBlank()) {
                 throw new IOException("Could not parse thread dump from " + file + ": file is empty");
             }
-            try {
+            try (Timings.Span span = Timings.span("parse", file.getFileName())) {
                 var parsed = ThreadDumpParser.parse(content);
                 if (parsed.timestamp() == null) {
                     throw new IOException("Could not parse thread dump from " + file + ": no valid thread dump header found");
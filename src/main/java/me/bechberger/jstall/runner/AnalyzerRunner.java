@@ -4,6 +4,7 @@ import me.bechberger.jstall.analyzer.Analyzer;
 import me.bechberger.jstall.analyzer.AnalyzerResult;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.util.Timings;
 
 import java.util.*;
 
@@ -57,7 +58,10 @@ public class AnalyzerRunner {
                 data.environment(),
                 data.collectedDataByType()
             );
-            AnalyzerResult result = analyzer.analyze(analyzerData, analyzerOptions);
+            AnalyzerResult result;
+            try (Timings.Span span = Timings.span("analyze", analyzer.name())) {
+                result = analyzer.analyze(analyzerData, analyzerOptions);
+            }
 
             // Append output (with section header) only if analyzer has something to display
             if (result.shouldDisplay() && !result.output().isBlank()) {
@@ -0,0 +1,122 @@
+package me.bechberger.jstall.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for {@code jcmd <pid> Compiler.codecache} output.
+ * <p>
+ * With a segmented code cache (JDK 9+ default) there is one line per segment:
+ * <pre>
+ * CodeHeap 'non-profiled nmethods': size=120032Kb used=2145Kb max_used=2145Kb free=117886Kb
+ *  bounds [0x00007f6e1c6a0000, 0x00007f6e1c910000, 0x00007f6e23bd8000]
+ * CodeHeap 'profiled nmethods': size=120028Kb used=8311Kb max_used=8311Kb free=111716Kb
+ * CodeHeap 'non-nmethods': size=5700Kb used=1291Kb max_used=1307Kb free=4408Kb
+ *  total_blobs=4217 nmethods=3619 adapters=510
+ *  compilation: enabled
+ *               stopped_count=0, restarted_count=0
+ *  full_count=0
+ * </pre>
+ * Without segmentation (or on JDK 8) the single segment is {@code CodeCache: size=...}.
+ */
+public final class CodeCacheParser {
+
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile(
+        "^\\s*(?:CodeHeap '([^']+)'|(CodeCache)):\\s*size=(\\d+)Kb\\s+used=(\\d+)Kb\\s+max_used=(\\d+)Kb\\s+free=(\\d+)Kb");
+    private static final Pattern BLOBS_PATTERN = Pattern.compile("total_blobs=(\\d+)\\s+nmethods=(\\d+)");
+    private static final Pattern COMPILATION_PATTERN = Pattern.compile("compilation:\\s*(enabled|disabled)(.*)$");
+    private static final Pattern STOPPED_PATTERN = Pattern.compile("stopped_count=(\\d+),\\s*restarted_count=(\\d+)");
+    private static final Pattern FULL_PATTERN = Pattern.compile("full_count=(\\d+)");
+
+    private CodeCacheParser() {
+    }
+
+    /**
+     * Parse Compiler.codecache output into a structured snapshot.
+     *
+     * @param output raw jcmd output
+     * @return parsed snapshot, or null if no segment line was found
+     */
+    @Nullable
+    public static CodeCacheSnapshot parse(@Nullable String output) {
+        if (output == null || output.isBlank()) {
+            return null;
+        }
+        List<Segment> segments = new ArrayList<>();
+        int nmethods = -1;
+        boolean compilationEnabled = true;
+        String disabledReason = null;
+        int stoppedCount = 0;
+        int restartedCount = 0;
+        int fullCount = 0;
+        for (String line : output.split("\\R")) {
+            Matcher m = SEGMENT_PATTERN.matcher(line);
+            if (m.find()) {
+                String name = m.group(1) != null ? m.group(1) : m.group(2);
+                segments.add(new Segment(name, kib(m.group(3)), kib(m.group(4)), kib(m.group(5)), kib(m.group(6))));
+                continue;
+            }
+            if ((m = BLOBS_PATTERN.matcher(line)).find()) {
+                nmethods = Integer.parseInt(m.group(2));
+            } else if ((m = COMPILATION_PATTERN.matcher(line)).find()) {
+                compilationEnabled = m.group(1).equals("enabled");
+                String reason = m.group(2).trim();
+                if (!compilationEnabled && !reason.isEmpty()) {
+                    disabledReason = reason.replaceAll("^\\((.*)\\)$", "$1");
+                }
+            } else if ((m = STOPPED_PATTERN.matcher(line)).find()) {
+                stoppedCount = Integer.parseInt(m.group(1));
+                restartedCount = Integer.parseInt(m.group(2));
+            } else if ((m = FULL_PATTERN.matcher(line)).find()) {
+                fullCount = Integer.parseInt(m.group(1));
+            }
+        }
+        if (segments.isEmpty()) {
+            return null;
+        }
+        return new CodeCacheSnapshot(segments, nmethods, compilationEnabled, disabledReason,
+            stoppedCount, restartedCount, fullCount);
+    }
+
+    private static long kib(String value) {
+        return Long.parseLong(value) * 1024;
+    }
+
+    /**
+     * One code heap segment, in bytes.
+     */
+    public record Segment(String name, long size, long used, long maxUsed, long free) {
+
+        public double usedPercent() {
+            return size > 0 ? used * 100.0 / size : 0;
+        }
+    }
+
+    /**
+     * Snapshot of the code cache at a point in time.
+     *
+     * @param nmethods number of compiled methods, -1 if not reported
+     * @param disabledReason why compilation was disabled (e.g. "not enough contiguous free space left"), or null
+     * @param stoppedCount how often compilation was stopped because the code cache was full
+     * @param restartedCount how often it was restarted after space was freed
+     * @param fullCount how often the code cache was found full
+     */
+    public record CodeCacheSnapshot(
+        List<Segment> segments,
+        int nmethods,
+        boolean compilationEnabled,
+        @Nullable String disabledReason,
+        int stoppedCount,
+        int restartedCount,
+        int fullCount
+    ) {
+        @Nullable
+        public Segment segment(String name) {
+            return segments.stream().filter(s -> s.name().equals(name)).findFirst().orElse(null);
+        }
+    }
+}
@@ -70,7 +70,11 @@ public class JMXDiagnosticHelper {
         // VirtualMachine.attach() uses a version-specific protocol; cross-major-version
         // attach (e.g. GraalVM 25 → SAP JDK 21) hangs indefinitely waiting for a socket
         // that never appears. jcmd is a separate binary that handles this transparently.
-        if (!isSameMajorVersion(pid)) {
+        boolean sameMajorVersion;
+        try (Timings.Span span = Timings.span("jcmd VM.version", pid)) {
+            sameMajorVersion = isSameMajorVersion(pid);
+        }
+        if (!sameMajorVersion) {
             this.noMBeanConnection = true;
             this.vm = null;
             return;
@@ -83,7 +87,7 @@ public class JMXDiagnosticHelper {
             return t;
         });
         VirtualMachine attached = null;
-        try {
+        try (Timings.Span span = Timings.span("attach", pid)) {
             Future<VirtualMachine> future = attachEx.submit(() -> VirtualMachine.attach(String.valueOf(pid)));
             try {
                 attached = future.get(5, TimeUnit.SECONDS);
@@ -106,7 +110,7 @@ public class JMXDiagnosticHelper {
             attachEx.shutdown(); // don't shutdownNow — let the attach thread finish cleanly
         }
         this.vm = attached;
-        try {
+        try (Timings.Span span = Timings.span("jmx connect", pid)) {
             // Start or get the JMX management agent
             String jmxUrl = vm.startLocalManagementAgent();
             JMXServiceURL url = new JMXServiceURL(jmxUrl);
@@ -151,22 +155,33 @@ public class JMXDiagnosticHelper {
 
     public String executeCommand(String command, String... args) throws IOException {
         if (noMBeanConnection) {
-            // Fall back to jcmd if MBean connection is not available
-            List<String> jcmdArgs = new ArrayList<>();
-            jcmdArgs.add(String.valueOf(pid));
-            jcmdArgs.add(command);
-            if (args != null && args.length > 0) {
-                Collections.addAll(jcmdArgs, args);
+            try (Timings.Span span = Timings.span("jcmd", command)) {
+                return executeJcmd(command, args);
             }
-            CommandResult result = executor.executeCommand("jcmd", jcmdArgs.toArray(String[]::new));
-            if (executor.isRemote() && result.exitCode() != 0 && result.out().isBlank()) {
-                String detail = result.err().isBlank() ? "(no output)" : result.err().trim();
-                throw new CommandExecutor.SSHCommandException(
-                    "Remote jcmd command failed (exit " + result.exitCode() + "): " + detail,
-                    result.exitCode());
-            }
-            return result.out();
         }
+        try (Timings.Span span = Timings.span("mbean", command)) {
+            return invokeMBean(command, args);
+        }
+    }
+
+    private String executeJcmd(String command, String... args) throws IOException {
+        List<String> jcmdArgs = new ArrayList<>();
+        jcmdArgs.add(String.valueOf(pid));
+        jcmdArgs.add(command);
+        if (args != null && args.length > 0) {
+            Collections.addAll(jcmdArgs, args);
+        }
+        CommandResult result = executor.executeCommand("jcmd", jcmdArgs.toArray(String[]::new));
+        if (executor.isRemote() && result.exitCode() != 0 && result.out().isBlank()) {
+            String detail = result.err().isBlank() ? "(no output)" : result.err().trim();
+            throw new CommandExecutor.SSHCommandException(
+                "Remote jcmd command failed (exit " + result.exitCode() + "): " + detail,
+                result.exitCode());
+        }
+        return result.out();
+    }
+
+    private String invokeMBean(String command, String... args) throws IOException {
         try {
             Object[] params = new Object[] { args };
             String[] signature = new String[] { "[Ljava.lang.String;" };
@@ -243,6 +258,22 @@ public class JMXDiagnosticHelper {
         return pid;
     }
 
+    /**
+     * Returns true if a JMX connection to the target JVM is available, i.e. platform MXBeans
+     * can be read directly instead of going through jcmd.
+     */
+    public boolean hasMBeanConnection() {
+        return !noMBeanConnection && mbsc != null;
+    }
+
+    /**
+     * Returns the JMX connection to the target JVM, or {@code null} if commands fall back
+     * to jcmd (remote executors, cross-version targets, failed attach).
+     */
+    public MBeanServerConnection getMBeanServerConnection() {
+        return hasMBeanConnection() ? mbsc : null;
+    }
+
     /**
      * Returns the {@link CommandExecutor} associated with this helper.
      * Requirements can use this to run arbitrary system commands on the same
@@ -0,0 +1,57 @@
+package me.bechberger.jstall.util;
+
+/**
+ * Least-squares linear trend of a value sampled over time, e.g. the committed bytes of an NMT
+ * category or the used bytes of a code heap segment.
+ * <pre>{@code
+ * LinearTrend trend = new LinearTrend();
+ * for (Sample sample : samples) {
+ *     trend.add(sample.timestamp(), sample.used());
+ * }
+ * double bytesPerHour = trend.slopePerHour();
+ * }</pre>
+ * Points are expected in time order; times are taken relative to the first point.
+ */
+public final class LinearTrend {
+
+    private static final double MS_PER_HOUR = 3_600_000.0;
+
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private int count;
+    private double sumT;
+    private double sumY;
+    private double sumTT;
+    private double sumTY;
+
+    /** Adds the value at {@code timestampMs} (epoch milliseconds). */
+    public LinearTrend add(long timestampMs, double value) {
+        if (count == 0) {
+            firstTimestamp = timestampMs;
+        }
+        lastTimestamp = timestampMs;
+        double t = (timestampMs - firstTimestamp) / MS_PER_HOUR;
+        count++;
+        sumT += t;
+        sumY += value;
+        sumTT += t * t;
+        sumTY += t * value;
+        return this;
+    }
+
+    /** Number of points added. */
+    public int count() {
+        return count;
+    }
+
+    /** Time between the first and the last point in milliseconds, 0 for fewer than two points. */
+    public long spanMs() {
+        return count < 2 ? 0 : lastTimestamp - firstTimestamp;
+    }
+
+    /** Slope of the least-squares line in value per hour, 0 if the points don't span any time. */
+    public double slopePerHour() {
+        double denominator = count * sumTT - sumT * sumT;
+        return count < 2 || denominator <= 0 ? 0 : (count * sumTY - sumT * sumY) / denominator;
+    }
+}
@@ -0,0 +1,206 @@
+package me.bechberger.jstall.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Literal pre-filter for regular expressions, used by the trigram indexes over stack frames and
+ * source files to narrow down candidates before running the actual pattern.
+ */
+public final class RegexLiterals {
+
+    private RegexLiterals() {
+    }
+
+    /**
+     * Like {@link #required(String)}, taking the flags of {@code pattern} into account: a
+     * {@link Pattern#LITERAL} pattern is required as a whole, and case-insensitive or comments
+     * mode disables the pre-filter.
+     */
+    public static List<String> required(Pattern pattern) {
+        if ((pattern.flags() & Pattern.LITERAL) != 0) {
+            return List.of(pattern.pattern());
+        }
+        if ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS)) != 0) {
+            return List.of();
+        }
+        return required(pattern.pattern());
+    }
+
+    /**
+     * Extracts literal strings that every match of {@code regex} must contain. Only top-level
+     * literal runs are used; groups, classes, optional characters and escapes end a run, and a
+     * top-level alternation, {@code \Q} or an inline {@code i} or {@code x} flag disables the
+     * pre-filter.
+     */
+    public static List<String> required(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 >= regex.length()) {
+                        flush(run, literals);
+                        continue;
+                    }
+                    char next = regex.charAt(++i);
+                    if (next == 'Q') {
+                        return List.of();
+                    }
+                    if (depth == 0 && !Character.isLetterOrDigit(next)) {
+                        run.append(next);
+                    } else {
+                        flush(run, literals);
+                        i = skipEscapeArgument(regex, i);
+                    }
+                }
+                case '|' -> {
+                    if (depth == 0) {
+                        return List.of();
+                    }
+                }
+                case '(' -> {
+                    if (setsIgnoringFlag(regex, i)) {
+                        return List.of();
+                    }
+                    flush(run, literals);
+                    depth++;
+                }
+                case ')' -> {
+                    flush(run, literals);
+                    depth = Math.max(0, depth - 1);
+                }
+                case '[' -> {
+                    flush(run, literals);
+                    i = skipClass(regex, i);
+                }
+                case '?', '*' -> {
+                    dropLast(run);
+                    flush(run, literals);
+                }
+                case '{' -> {
+                    dropLast(run);
+                    flush(run, literals);
+                    int end = regex.indexOf('}', i);
+                    i = end < 0 ? regex.length() : end;
+                }
+                case '+', '.', '^', '$' -> flush(run, literals);
+                default -> {
+                    if (depth == 0) {
+                        run.append(c);
+                    }
+                }
+            }
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    /**
+     * Skips the argument of the escape whose letter or digit is at {@code i} ({@code \x41},
+     * {@code \u0041}, {@code \0101}, {@code \cA}, {@code \k<name>}, {@code \p{Lu}},
+     * {@code \N{name}}, back references), returning the index of its last character.
+     */
+    private static int skipEscapeArgument(String regex, int i) {
+        char letter = regex.charAt(i);
+        return switch (letter) {
+            case 'x' -> i + 1 < regex.length() && regex.charAt(i + 1) == '{'
+                ? skipTo(regex, i + 1, '}')
+                : Math.min(i + 2, regex.length() - 1);
+            case 'u' -> Math.min(i + 4, regex.length() - 1);
+            case 'c' -> Math.min(i + 1, regex.length() - 1);
+            case '0' -> {
+                int end = i;
+                while (end + 1 < regex.length() && end - i < 3 && regex.charAt(end + 1) >= '0' && regex.charAt(end + 1) <= '7') {
+                    end++;
+                }
+                yield end;
+            }
+            case 'k' -> i + 1 < regex.length() && regex.charAt(i + 1) == '<' ? skipTo(regex, i + 1, '>') : i;
+            case 'p', 'P', 'N' -> i + 1 < regex.length() && regex.charAt(i + 1) == '{'
+                ? skipTo(regex, i + 1, '}')
+                : Math.min(i + 1, regex.length() - 1);
+            default -> {
+                int end = i;
+                if (letter >= '1' && letter <= '9') {
+                    while (end + 1 < regex.length() && Character.isDigit(regex.charAt(end + 1))) {
+                        end++;
+                    }
+                }
+                yield end;
+            }
+        };
+    }
+
+    private static int skipTo(String regex, int from, char close) {
+        int end = regex.indexOf(close, from);
+        return end < 0 ? regex.length() - 1 : end;
+    }
+
+    /** Whether the group opening at {@code open} is an inline flag group turning on {@code i} or {@code x}. */
+    private static boolean setsIgnoringFlag(String regex, int open) {
+        if (open + 1 >= regex.length() || regex.charAt(open + 1) != '?') {
+            return false;
+        }
+        for (int i = open + 2; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '-' || c == ':' || c == ')') {
+                return false;
+            }
+            if (c == 'i' || c == 'x') {
+                return true;
+            }
+            if (!Character.isLetter(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the index of the {@code ]} closing the class at {@code open}, handling nested classes. */
+    private static int skipClass(String regex, int open) {
+        int i = open + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        int nested = 0;
+        for (; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? regex.length() : end + 1;
+                } else {
+                    i++;
+                }
+            } else if (c == '[') {
+                nested++;
+            } else if (c == ']') {
+                if (nested == 0) {
+                    return i;
+                }
+                nested--;
+            }
+        }
+        return regex.length();
+    }
+
+    private static void dropLast(StringBuilder run) {
+        if (!run.isEmpty()) {
+            run.setLength(run.length() - 1);
+        }
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (!run.isEmpty()) {
+            literals.add(run.toString());
+            run.setLength(0);
+        }
+    }
+}
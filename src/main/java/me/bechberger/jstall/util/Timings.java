@@ -0,0 +1,270 @@
+package me.bechberger.jstall.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how long the steps of jstall's own pipeline take (attach, jcmd, parsing, analysis,
+ * recording I/O), for {@code --timings} and the {@code timings} field of recordings.
+ * <p>
+ * Spans go to every open {@link Recorder}: the global one that {@link #enable()} opens for
+ * {@code --timings}, and scoped ones from {@link #collect()}, e.g. the one each recording stores.
+ * Without an open recorder, {@link #span(String)} returns a shared no-op span:
+ * <pre>{@code
+ * try (Timings.Span span = Timings.span("parse thread dumps")) {
+ *     ...
+ * }
+ * }</pre>
+ * Spans nest per thread; spans of concurrent threads are kept side by side.
+ */
+public final class Timings {
+
+    /** Spans beyond this are dropped, so that long live sessions don't grow without bound. */
+    static final int MAX_SPANS = 10_000;
+
+    private static final int BAR_WIDTH = 40;
+
+    /**
+     * A finished span.
+     *
+     * @param startNanos start relative to the opening of its {@link Recorder}
+     * @param depth      nesting depth within its thread, 0 for top-level spans
+     */
+    public record Record(String name, String thread, int depth, long startNanos, long durationNanos) {
+
+        public double startMs() {
+            return startNanos / 1_000_000.0;
+        }
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+    }
+
+    /** A running span, closing it records it. */
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Collects the spans that end while it is open and were started after it was opened.
+     * Closing it stops collecting but keeps the spans, so they can still be rendered.
+     */
+    public static final class Recorder implements AutoCloseable {
+
+        private final long epochNanos = System.nanoTime();
+        private final long epochMillis = System.currentTimeMillis();
+        private final String mainThread = Thread.currentThread().getName();
+        private final ConcurrentLinkedQueue<Record> records = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger recordCount = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+        private volatile boolean open = true;
+
+        private Recorder() {
+        }
+
+        private void add(String name, String thread, int depth, long start, long end) {
+            if (!open || start < epochNanos) {
+                return;
+            }
+            if (recordCount.incrementAndGet() > MAX_SPANS) {
+                dropped.incrementAndGet();
+                return;
+            }
+            records.add(new Record(name, thread, depth, start - epochNanos, end - start));
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            active.remove(this);
+        }
+
+        /** Recorded spans ordered by start time. */
+        public List<Record> records() {
+            List<Record> list = new ArrayList<>(records);
+            list.sort(Comparator.comparingLong(Record::startNanos).thenComparingInt(Record::depth));
+            return list;
+        }
+
+        /**
+         * Renders the recorded spans as a waterfall: offset and duration in milliseconds, a bar
+         * positioned on the overall time line, and the indented span name. Spans of other threads
+         * than the one that opened the recorder are marked with their thread name.
+         */
+        public String renderWaterfall() {
+            List<Record> list = records();
+            if (list.isEmpty()) {
+                return "Timings: no spans recorded";
+            }
+            long total = 1;
+            for (Record record : list) {
+                total = Math.max(total, record.startNanos() + record.durationNanos());
+            }
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("Timings (%.1f ms total):%n", total / 1_000_000.0));
+            out.append(String.format("%10s %10s  %-" + BAR_WIDTH + "s  %s%n", "START ms", "TIME ms", "", "STEP"));
+            for (Record record : list) {
+                int from = (int) (record.startNanos() * BAR_WIDTH / total);
+                int to = (int) Math.ceil((double) (record.startNanos() + record.durationNanos()) * BAR_WIDTH / total);
+                from = Math.min(from, BAR_WIDTH - 1);
+                to = Math.max(to, from + 1);
+                String bar = " ".repeat(from) + "█".repeat(to - from) + " ".repeat(BAR_WIDTH - to);
+                out.append(String.format("%10.1f %10.1f  %s  %s%s", record.startMs(), record.durationMs(), bar,
+                    "  ".repeat(record.depth()), record.name()));
+                if (!record.thread().equals(mainThread)) {
+                    out.append(" [").append(record.thread()).append(']');
+                }
+                out.append(System.lineSeparator());
+            }
+            int droppedSpans = dropped.get();
+            if (droppedSpans > 0) {
+                out.append("(").append(droppedSpans).append(" more spans dropped)").append(System.lineSeparator());
+            }
+            return out.toString();
+        }
+
+        /** The recorded spans as JSON-compatible map, as stored in recordings' metadata.json. */
+        public Map<String, Object> toJson() {
+            List<Object> spans = new ArrayList<>();
+            for (Record record : records()) {
+                Map<String, Object> span = new LinkedHashMap<>();
+                span.put("name", record.name());
+                span.put("thread", record.thread());
+                span.put("depth", record.depth());
+                span.put("startMs", round(record.startMs()));
+                span.put("durationMs", round(record.durationMs()));
+                spans.add(span);
+            }
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("startedAt", epochMillis);
+            json.put("spans", spans);
+            if (dropped.get() > 0) {
+                json.put("droppedSpans", dropped.get());
+            }
+            return json;
+        }
+    }
+
+    private static final Span NOOP = () -> { };
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private static final CopyOnWriteArrayList<Recorder> active = new CopyOnWriteArrayList<>();
+    private static volatile Recorder global;
+
+    private Timings() {
+    }
+
+    /**
+     * Opens the global recorder for {@code --timings}, measured from now. Does nothing if already
+     * enabled.
+     *
+     * @return true if this call enabled recording, i.e. the caller should {@link #disable()} it
+     */
+    public static synchronized boolean enable() {
+        if (global != null) {
+            return false;
+        }
+        global = collect();
+        return true;
+    }
+
+    /** Closes the global recorder and discards its spans; scoped recorders are not affected. */
+    public static synchronized void disable() {
+        Recorder recorder = global;
+        global = null;
+        if (recorder != null) {
+            recorder.close();
+        }
+    }
+
+    /** Whether the global recorder is open. */
+    public static boolean isEnabled() {
+        return global != null;
+    }
+
+    /**
+     * Opens a recorder that collects all spans until it is closed, independent of
+     * {@link #enable()} and {@link #disable()}:
+     * <pre>{@code
+     * try (Timings.Recorder timings = Timings.collect()) {
+     *     ...
+     *     metadata.put("timings", timings.toJson());
+     * }
+     * }</pre>
+     */
+    public static Recorder collect() {
+        Recorder recorder = new Recorder();
+        active.add(recorder);
+        return recorder;
+    }
+
+    /** Starts a span, a no-op if no recorder is open. */
+    public static Span span(String name) {
+        if (active.isEmpty()) {
+            return NOOP;
+        }
+        return start(name);
+    }
+
+    /** Starts a span named {@code name + " " + detail}, without building the name when no recorder is open. */
+    public static Span span(String name, Object detail) {
+        if (active.isEmpty()) {
+            return NOOP;
+        }
+        return start(name + " " + detail);
+    }
+
+    private static Span start(String name) {
+        int[] depth = DEPTH.get();
+        int spanDepth = depth[0]++;
+        long start = System.nanoTime();
+        return new Span() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                depth[0]--;
+                long end = System.nanoTime();
+                String thread = Thread.currentThread().getName();
+                for (Recorder recorder : active) {
+                    recorder.add(name, thread, spanDepth, start, end);
+                }
+            }
+        };
+    }
+
+    /** Spans of the global recorder ordered by start time, empty if disabled. */
+    public static List<Record> records() {
+        Recorder recorder = global;
+        return recorder == null ? List.of() : recorder.records();
+    }
+
+    /** The waterfall of the global recorder, see {@link Recorder#renderWaterfall()}. */
+    public static String renderWaterfall() {
+        Recorder recorder = global;
+        return recorder == null ? "Timings: no spans recorded" : recorder.renderWaterfall();
+    }
+
+    /** The global recorder's spans as JSON-compatible map, see {@link Recorder#toJson()}. */
+    public static Map<String, Object> toJson() {
+        Recorder recorder = global;
+        return recorder == null ? Map.of("spans", List.of()) : recorder.toJson();
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 1000) / 1000.0;
+    }
+}
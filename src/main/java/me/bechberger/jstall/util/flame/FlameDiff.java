@@ -0,0 +1,236 @@
+package me.bechberger.jstall.util.flame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Differential profiles: compares a baseline ("before") with a second profile ("after").
+ * <p>
+ * Both sides are consumed as sorted stack streams ({@link FlameProfile#stacks()} or a collapsed
+ * file written by {@link FlameProfile#writeCollapsed}), and combined in one merge pass, like
+ * the merge step of a merge sort. Equal stacks meet at the same time, so the result is built
+ * directly: either one differential {@link FlameProfile} holding both sample counts per node, or
+ * the {@code stack before after} lines of the differential collapsed format, written without
+ * building any tree. Neither side has to be loaded into memory for the comparison.
+ * <p>
+ * Shares are compared rather than raw samples, recordings of different length are comparable.
+ */
+public final class FlameDiff {
+
+    /** Frame-wise lexicographic order, a stack before the stacks it is a prefix of. */
+    public static final Comparator<List<String>> STACK_ORDER = (a, b) -> {
+        int n = Math.min(a.size(), b.size());
+        for (int i = 0; i < n; i++) {
+            int c = a.get(i).compareTo(b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    };
+
+    /** Receives the merged stacks in order. */
+    @FunctionalInterface
+    public interface DiffConsumer {
+        void accept(List<String> stack, long before, long after) throws IOException;
+    }
+
+    /** Samples of the baseline and of the second profile. */
+    public record Totals(long before, long after) {
+    }
+
+    /** A frame whose self share changed between baseline and profile. */
+    public record Change(String frame, double beforeShare, double afterShare) {
+        public double delta() {
+            return afterShare - beforeShare;
+        }
+    }
+
+    private FlameDiff() {
+    }
+
+    /** Merges two sorted stack streams, calling {@code out} once per distinct stack. */
+    public static void merge(Iterator<FlameProfile.Stack> before, Iterator<FlameProfile.Stack> after, DiffConsumer out)
+            throws IOException {
+        FlameProfile.Stack a = before.hasNext() ? before.next() : null;
+        FlameProfile.Stack b = after.hasNext() ? after.next() : null;
+        while (a != null || b != null) {
+            int c = a == null ? 1 : b == null ? -1 : STACK_ORDER.compare(a.frames(), b.frames());
+            if (c < 0) {
+                out.accept(a.frames(), a.samples(), 0);
+                a = before.hasNext() ? before.next() : null;
+            } else if (c > 0) {
+                out.accept(b.frames(), 0, b.samples());
+                b = after.hasNext() ? after.next() : null;
+            } else {
+                out.accept(a.frames(), a.samples(), b.samples());
+                a = before.hasNext() ? before.next() : null;
+                b = after.hasNext() ? after.next() : null;
+            }
+        }
+    }
+
+    /** Builds the differential profile of two sorted stack streams. */
+    public static FlameProfile diff(Iterator<FlameProfile.Stack> before, Iterator<FlameProfile.Stack> after) {
+        FlameProfile result = FlameProfile.differential();
+        try {
+            merge(before, after, result::addDiff);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /** Writes the differential collapsed format ({@code frame1;...;frameN <before> <after>}). */
+    public static Totals writeDiffCollapsed(Iterator<FlameProfile.Stack> before, Iterator<FlameProfile.Stack> after,
+                                            Appendable out) throws IOException {
+        long[] totals = new long[2];
+        merge(before, after, (stack, b, a) -> {
+            totals[0] += b;
+            totals[1] += a;
+            out.append(String.join(";", stack))
+                .append(' ').append(Long.toString(b)).append(' ').append(Long.toString(a)).append('\n');
+        });
+        return new Totals(totals[0], totals[1]);
+    }
+
+    /**
+     * Streams the stacks of a collapsed file that is sorted in {@link #STACK_ORDER} (as written by
+     * {@link FlameProfile#writeCollapsed}). Malformed lines are skipped.
+     *
+     * @throws IllegalStateException from {@code hasNext} if a stack is out of order, e.g. the
+     *                               unsorted output of async-profiler
+     */
+    public static Iterator<FlameProfile.Stack> sortedStacks(BufferedReader reader) {
+        return new Iterator<>() {
+            private FlameProfile.Stack next;
+            private List<String> previous;
+            private int lineNumber;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    String line;
+                    try {
+                        line = reader.readLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (line == null) {
+                        return false;
+                    }
+                    lineNumber++;
+                    next = parseLine(line);
+                }
+                if (previous != null && STACK_ORDER.compare(previous, next.frames()) > 0) {
+                    throw new IllegalStateException("Collapsed stacks are not sorted (line " + lineNumber + ")");
+                }
+                return true;
+            }
+
+            @Override
+            public FlameProfile.Stack next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FlameProfile.Stack result = next;
+                previous = result.frames();
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /** Only the stacks of threads whose name matches {@code filter}; stacks without thread frame never match. */
+    public static Iterator<FlameProfile.Stack> filterThreads(Iterator<FlameProfile.Stack> stacks, Predicate<String> filter) {
+        return new Iterator<>() {
+            private FlameProfile.Stack next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && stacks.hasNext()) {
+                    FlameProfile.Stack candidate = stacks.next();
+                    String thread = candidate.threadName();
+                    if (thread != null && filter.test(thread)) {
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public FlameProfile.Stack next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FlameProfile.Stack result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /** Frames of a differential profile with the largest self share change, largest absolute change first. */
+    public static List<Change> topChanges(FlameProfile diff, int limit) {
+        long before = diff.baselineSamples();
+        long after = diff.totalSamples();
+        Map<String, long[]> selfByFrame = new HashMap<>();
+        collectSelf(diff, diff.root(), selfByFrame);
+        List<Change> changes = new ArrayList<>();
+        selfByFrame.forEach((frame, self) -> changes.add(new Change(frame,
+            before > 0 ? (double) self[0] / before : 0, after > 0 ? (double) self[1] / after : 0)));
+        changes.sort(Comparator.comparingDouble((Change c) -> -Math.abs(c.delta())).thenComparing(Change::frame));
+        return changes.size() > limit ? changes.subList(0, limit) : changes;
+    }
+
+    private static void collectSelf(FlameProfile diff, FlameProfile.Node node, Map<String, long[]> result) {
+        if (node.frame >= 0 && (node.self > 0 || node.baselineSelf > 0)
+                && FlameProfile.threadName(diff.frameName(node)) == null) {
+            long[] self = result.computeIfAbsent(diff.frameName(node), k -> new long[2]);
+            self[0] += node.baselineSelf;
+            self[1] += node.self;
+        }
+        for (FlameProfile.Node child : node.children()) {
+            collectSelf(diff, child, result);
+        }
+    }
+
+    /** Formats a change in percentage points, e.g. {@code +12.5%}. */
+    public static String formatDelta(double delta) {
+        return String.format(Locale.US, "%+.1f%%", delta * 100);
+    }
+
+    private static FlameProfile.Stack parseLine(String line) {
+        int space = line.lastIndexOf(' ');
+        if (space <= 0) {
+            return null;
+        }
+        long samples;
+        try {
+            samples = Long.parseLong(line.substring(space + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        List<String> frames = new ArrayList<>();
+        int start = 0;
+        while (start < space) {
+            int end = line.indexOf(';', start);
+            if (end < 0 || end > space) {
+                end = space;
+            }
+            frames.add(line.substring(start, end));
+            start = end + 1;
+        }
+        return new FlameProfile.Stack(List.copyOf(frames), samples);
+    }
+}
@@ -0,0 +1,195 @@
+package me.bechberger.jstall.util.flame;
+
+import java.util.List;
+
+/**
+ * Renders a {@link FlameProfile} as a self-contained interactive HTML flame graph
+ * (canvas, hover for details, click to zoom, click the bottom frame to zoom out).
+ * <p>
+ * The tree is embedded as nested arrays {@code [frameId, total, self, [children...]]} with a
+ * separate frame name table, so repeated frame names appear once in the file. Frames below
+ * {@value #MIN_SHARE} of all samples are dropped, they would be narrower than a pixel anyway.
+ * <p>
+ * Differential profiles ({@link FlameDiff}) are drawn with the shape of the second profile and
+ * each node carries its baseline samples as a fifth element; frames are colored by the change of
+ * their share of all samples, red for grown and blue for shrunk, the stronger the larger the change.
+ */
+public final class FlameGraphHtml {
+
+    static final double MIN_SHARE = 0.0001;
+
+    private FlameGraphHtml() {
+    }
+
+    public static String render(FlameProfile profile, String title) {
+        StringBuilder data = new StringBuilder();
+        data.append("{\"names\":[");
+        List<String> frames = profile.frames();
+        for (int i = 0; i < frames.size(); i++) {
+            if (i > 0) {
+                data.append(',');
+            }
+            appendJsonString(data, frames.get(i));
+        }
+        data.append(']');
+        if (profile.isDifferential()) {
+            data.append(",\"baseTotal\":").append(profile.baselineSamples());
+        }
+        data.append(",\"tree\":");
+        long minTotal = (long) Math.ceil(profile.totalSamples() * MIN_SHARE);
+        appendNode(data, profile, profile.root(), minTotal);
+        data.append('}');
+
+        StringBuilder escapedTitle = new StringBuilder();
+        for (char c : title.toCharArray()) {
+            switch (c) {
+                case '<' -> escapedTitle.append("&lt;");
+                case '>' -> escapedTitle.append("&gt;");
+                case '&' -> escapedTitle.append("&amp;");
+                default -> escapedTitle.append(c);
+            }
+        }
+        return TEMPLATE
+            .replace("/*TITLE*/", escapedTitle)
+            .replace("/*DATA*/", data);
+    }
+
+    private static void appendNode(StringBuilder out, FlameProfile profile, FlameProfile.Node node, long minTotal) {
+        out.append('[').append(node.frame).append(',').append(node.total).append(',').append(node.self).append(",[");
+        boolean first = true;
+        for (FlameProfile.Node child : profile.childrenByName(node)) {
+            if (child.total < minTotal) {
+                continue;
+            }
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendNode(out, profile, child, minTotal);
+        }
+        out.append(']');
+        if (profile.isDifferential()) {
+            out.append(',').append(node.baseline);
+        }
+        out.append(']');
+    }
+
+    private static void appendJsonString(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '<' -> out.append("\\u003c");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static final String TEMPLATE = """
+        <!DOCTYPE html>
+        <html>
+        <head>
+        <meta charset="utf-8">
+        <title>/*TITLE*/</title>
+        <style>
+        body { font: 12px sans-serif; margin: 8px; }
+        #info { height: 18px; white-space: nowrap; overflow: hidden; }
+        canvas { width: 100%; display: block; }
+        </style>
+        </head>
+        <body>
+        <h3>/*TITLE*/</h3>
+        <div id="legend"></div>
+        <div id="info">Hover over a frame for details, click to zoom</div>
+        <canvas id="canvas"></canvas>
+        <script>
+        const data = /*DATA*/;
+        const H = 16;
+        const canvas = document.getElementById('canvas');
+        const ctx = canvas.getContext('2d');
+        const info = document.getElementById('info');
+        const rootTotal = data.tree[1];
+        const diff = 'baseTotal' in data;
+        let zoom = data.tree;
+        let rects = [];
+
+        function name(n) { return n[0] < 0 ? 'all' : data.names[n[0]]; }
+        function depth(n) { let d = 0; for (const c of n[3]) d = Math.max(d, depth(c)); return d + 1; }
+        function delta(n) { return n[1] / rootTotal - (data.baseTotal > 0 ? n[4] / data.baseTotal : 0); }
+        function maxDelta(n) { let m = Math.abs(delta(n)); for (const c of n[3]) m = Math.max(m, maxDelta(c)); return m; }
+        const deltaScale = diff ? Math.max(...data.tree[3].map(maxDelta), 1e-9) : 1;
+        function pct(v) { return (100 * v).toFixed(2) + '%'; }
+        function color(n) {
+          if (diff) {
+            const d = delta(n), i = Math.min(1, Math.abs(d) / deltaScale), c = Math.round(255 - 190 * i);
+            return d >= 0 ? `rgb(255,${c},${c})` : `rgb(${c},${c},255)`;
+          }
+          const s = name(n);
+          if (s.startsWith('[')) return '#c8c8c8';
+          if (s.endsWith('_[k]')) return '#e8a040';
+          if (s.includes('/') || s.includes('.')) return '#60c860';
+          return '#e87060';
+        }
+        function fit(s, width) {
+          const chars = Math.floor((width - 6) / 6.5);
+          return s.length <= chars ? s : s.substring(0, Math.max(0, chars - 2)) + '..';
+        }
+        function draw() {
+          const w = canvas.clientWidth;
+          const d = depth(zoom);
+          canvas.width = w * devicePixelRatio;
+          canvas.height = d * H * devicePixelRatio;
+          canvas.style.height = (d * H) + 'px';
+          ctx.setTransform(devicePixelRatio, 0, 0, devicePixelRatio, 0, 0);
+          ctx.font = '11px sans-serif';
+          rects = [];
+          const scale = w / zoom[1];
+          (function walk(n, x, level) {
+            const width = n[1] * scale;
+            if (width < 0.5) return;
+            const y = (d - level - 1) * H;
+            ctx.fillStyle = color(n);
+            ctx.fillRect(x, y, Math.max(width - 1, 0.5), H - 1);
+            if (width > 30) { ctx.fillStyle = '#000'; ctx.fillText(fit(name(n), width), x + 3, y + 12); }
+            rects.push([x, y, width, n]);
+            let cx = x;
+            for (const c of n[3]) { walk(c, cx, level + 1); cx += c[1] * scale; }
+          })(zoom, 0, 0);
+        }
+        function at(e) {
+          const r = canvas.getBoundingClientRect();
+          const x = e.clientX - r.left, y = e.clientY - r.top;
+          return rects.find(([rx, ry, rw]) => x >= rx && x < rx + rw && y >= ry && y < ry + H);
+        }
+        canvas.onmousemove = e => {
+          const hit = at(e);
+          if (!hit) return;
+          const n = hit[3];
+          info.textContent = diff
+            ? `${name(n)}: ${pct(n[4] / Math.max(data.baseTotal, 1))} → ${pct(n[1] / rootTotal)} (${delta(n) >= 0 ? '+' : ''}${pct(delta(n))}), ${n[4]} → ${n[1]} samples`
+            : `${name(n)}: ${n[1]} samples (${(100 * n[1] / rootTotal).toFixed(2)}%), self ${n[2]}`;
+        };
+        canvas.onclick = e => {
+          const hit = at(e);
+          if (!hit) return;
+          zoom = hit[3] === zoom ? data.tree : hit[3];
+          draw();
+        };
+        if (diff) document.getElementById('legend').textContent =
+          `Differential: ${data.baseTotal} baseline samples, ${rootTotal} samples; red = share grew, blue = share shrank`;
+        window.onresize = draw;
+        draw();
+        </script>
+        </body>
+        </html>
+        """;
+}
@@ -0,0 +1,381 @@
+package me.bechberger.jstall.util.flame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * In-memory sampling profile as a prefix tree of stack frames, built from async-profiler's
+ * collapsed stack format ({@code frame1;frame2;...;frameN <samples>}, root frame first).
+ * <p>
+ * Frame names are interned per profile, so each node holds an int id instead of a string and a
+ * frame that occurs in many stacks is stored once. With async-profiler's {@code -t} option the
+ * first frame of each stack is the thread ({@code [name tid=123]}), which {@link #filterThreads}
+ * and {@link #threadSamples} use. Profiles of several windows or recordings can be summed with
+ * {@link #merge}; HTML is only rendered on demand ({@link FlameGraphHtml}).
+ * <p>
+ * A differential profile ({@link FlameDiff}) additionally carries the samples of a baseline
+ * profile per node, so one tree holds both sides of the comparison.
+ * Not thread-safe.
+ */
+public final class FlameProfile {
+
+    private final List<String> frames = new ArrayList<>();
+    private final Map<String, Integer> frameIds = new HashMap<>();
+    private final Node root = new Node(-1);
+    private boolean differential;
+
+    /**
+     * One frame in the tree; {@code total} includes the samples of all descendants. In a
+     * differential profile {@code baseline} and {@code baselineSelf} are the baseline's samples.
+     */
+    public static final class Node {
+        final int frame;
+        long total;
+        long self;
+        long baseline;
+        long baselineSelf;
+        private Map<Integer, Node> children;
+
+        Node(int frame) {
+            this.frame = frame;
+        }
+
+        Node child(int frame) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(frame, Node::new);
+        }
+
+        Collection<Node> children() {
+            return children == null ? List.of() : children.values();
+        }
+
+        public long total() {
+            return total;
+        }
+
+        public long self() {
+            return self;
+        }
+
+        public long baseline() {
+            return baseline;
+        }
+    }
+
+    /** One distinct stack (root frame first) with its self samples. */
+    public record Stack(List<String> frames, long samples) {
+
+        /** Thread name of the first frame, or null if the stack has no thread frame. */
+        public String threadName() {
+            return frames.isEmpty() ? null : FlameProfile.threadName(frames.get(0));
+        }
+    }
+
+    /** Creates an empty differential profile, filled with {@link #addDiff}. */
+    static FlameProfile differential() {
+        FlameProfile profile = new FlameProfile();
+        profile.differential = true;
+        return profile;
+    }
+
+    /** Parses collapsed stacks; malformed lines are skipped. */
+    public static FlameProfile parseCollapsed(String collapsed) {
+        try {
+            return parseCollapsed(new StringReader(collapsed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Parses collapsed stacks line by line; malformed lines are skipped. */
+    public static FlameProfile parseCollapsed(Reader reader) throws IOException {
+        FlameProfile profile = new FlameProfile();
+        BufferedReader lines = reader instanceof BufferedReader b ? b : new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            profile.addCollapsedLine(line);
+        }
+        return profile;
+    }
+
+    /** Adds one {@code frame1;...;frameN <samples>} line. Returns false if it was malformed. */
+    public boolean addCollapsedLine(String line) {
+        int space = line.lastIndexOf(' ');
+        if (space <= 0) {
+            return false;
+        }
+        long samples;
+        try {
+            samples = Long.parseLong(line.substring(space + 1).trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        Node node = root;
+        node.total += samples;
+        int start = 0;
+        while (start < space) {
+            int end = line.indexOf(';', start);
+            if (end < 0 || end > space) {
+                end = space;
+            }
+            node = node.child(intern(line.substring(start, end)));
+            node.total += samples;
+            start = end + 1;
+        }
+        node.self += samples;
+        return true;
+    }
+
+    /** Adds {@code samples} for a stack given root frame first. */
+    public void add(List<String> stack, long samples) {
+        Node node = root;
+        node.total += samples;
+        for (String frame : stack) {
+            node = node.child(intern(frame));
+            node.total += samples;
+        }
+        node.self += samples;
+    }
+
+    /** Adds {@code before} baseline samples and {@code after} samples for a stack given root frame first. */
+    void addDiff(List<String> stack, long before, long after) {
+        Node node = root;
+        node.baseline += before;
+        node.total += after;
+        for (String frame : stack) {
+            node = node.child(intern(frame));
+            node.baseline += before;
+            node.total += after;
+        }
+        node.baselineSelf += before;
+        node.self += after;
+    }
+
+    /** Adds all samples of {@code other} to this profile. */
+    public FlameProfile merge(FlameProfile other) {
+        mergeNode(root, other.root, other);
+        return this;
+    }
+
+    private void mergeNode(Node target, Node source, FlameProfile sourceProfile) {
+        target.total += source.total;
+        target.self += source.self;
+        target.baseline += source.baseline;
+        target.baselineSelf += source.baselineSelf;
+        for (Node child : source.children()) {
+            mergeNode(target.child(intern(sourceProfile.frames.get(child.frame))), child, sourceProfile);
+        }
+    }
+
+    /**
+     * Returns a profile with only the stacks of threads whose name matches {@code filter}.
+     * Stacks without a thread frame never match.
+     */
+    public FlameProfile filterThreads(Predicate<String> filter) {
+        FlameProfile result = new FlameProfile();
+        result.differential = differential;
+        for (Node thread : root.children()) {
+            String name = threadName(frames.get(thread.frame));
+            if (name != null && filter.test(name)) {
+                result.mergeNode(result.root.child(result.intern(frames.get(thread.frame))), thread, this);
+                result.root.total += thread.total;
+                result.root.baseline += thread.baseline;
+            }
+        }
+        return result;
+    }
+
+    public long totalSamples() {
+        return root.total;
+    }
+
+    public boolean isEmpty() {
+        return root.total == 0;
+    }
+
+    /** Samples of the baseline, 0 unless this is a {@linkplain #isDifferential() differential} profile. */
+    public long baselineSamples() {
+        return root.baseline;
+    }
+
+    public boolean isDifferential() {
+        return differential;
+    }
+
+    public Node root() {
+        return root;
+    }
+
+    List<String> frames() {
+        return frames;
+    }
+
+    public String frameName(Node node) {
+        return node.frame < 0 ? "all" : frames.get(node.frame);
+    }
+
+    /** Children of {@code node}, largest first, then by name. */
+    public List<Node> sortedChildren(Node node) {
+        List<Node> children = new ArrayList<>(node.children());
+        children.sort(Comparator.comparingLong((Node n) -> n.total).reversed()
+            .thenComparing(n -> frames.get(n.frame)));
+        return children;
+    }
+
+    /** Samples per thread name (stacks with a thread frame only), largest first. */
+    public Map<String, Long> threadSamples() {
+        Map<String, Long> result = new HashMap<>();
+        for (Node thread : root.children()) {
+            String name = threadName(frames.get(thread.frame));
+            if (name != null) {
+                result.merge(name, thread.total, Long::sum);
+            }
+        }
+        return sortedByValue(result);
+    }
+
+    /** Self samples per frame, i.e. where the samples were taken, largest first. */
+    public Map<String, Long> selfSamples() {
+        Map<String, Long> result = new HashMap<>();
+        collectSelf(root, result);
+        return sortedByValue(result);
+    }
+
+    private void collectSelf(Node node, Map<String, Long> result) {
+        if (node.self > 0 && node.frame >= 0 && threadName(frames.get(node.frame)) == null) {
+            result.merge(frames.get(node.frame), node.self, Long::sum);
+        }
+        for (Node child : node.children()) {
+            collectSelf(child, result);
+        }
+    }
+
+    /**
+     * Writes the profile in collapsed format, one line per distinct stack, in frame-wise
+     * lexicographic order (siblings sorted by name), so two profiles written this way can be
+     * merged line by line in one pass.
+     */
+    public void writeCollapsed(Appendable out) throws IOException {
+        for (Iterator<Stack> it = stacks(); it.hasNext(); ) {
+            Stack stack = it.next();
+            out.append(String.join(";", stack.frames())).append(' ').append(Long.toString(stack.samples())).append('\n');
+        }
+    }
+
+    /**
+     * Iterates the stacks with self samples in the order of {@link #writeCollapsed}: frame-wise
+     * lexicographic, a stack before the stacks it is a prefix of. Walks the tree lazily, so only
+     * the current path is materialized.
+     */
+    public Iterator<Stack> stacks() {
+        return new Iterator<>() {
+            private final Deque<Iterator<Node>> pending = new ArrayDeque<>(List.of(childrenByName(root).iterator()));
+            private final List<String> path = new ArrayList<>();
+            private Stack next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !pending.isEmpty()) {
+                    Iterator<Node> siblings = pending.peek();
+                    if (!siblings.hasNext()) {
+                        pending.pop();
+                        if (!path.isEmpty()) {
+                            path.remove(path.size() - 1);
+                        }
+                        continue;
+                    }
+                    Node child = siblings.next();
+                    path.add(frames.get(child.frame));
+                    pending.push(childrenByName(child).iterator());
+                    if (child.self > 0) {
+                        next = new Stack(List.copyOf(path), child.self);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Stack next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Stack result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    List<Node> childrenByName(Node node) {
+        List<Node> children = new ArrayList<>(node.children());
+        children.sort(Comparator.comparing(n -> frames.get(n.frame)));
+        return children;
+    }
+
+    public String toCollapsed() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeCollapsed(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the thread name of an async-profiler thread frame ({@code [name tid=123]} or
+     * {@code [name]}), or null if {@code frame} is not a thread frame.
+     */
+    public static String threadName(String frame) {
+        if (frame.length() < 2 || frame.charAt(0) != '[' || frame.charAt(frame.length() - 1) != ']') {
+            return null;
+        }
+        String inner = frame.substring(1, frame.length() - 1);
+        int tid = inner.lastIndexOf(" tid=");
+        return tid >= 0 ? inner.substring(0, tid) : inner;
+    }
+
+    /**
+     * Returns the native thread id of an async-profiler thread frame ({@code [name tid=123]}),
+     * or null if {@code frame} is not a thread frame or carries no id.
+     */
+    public static Long threadId(String frame) {
+        if (threadName(frame) == null) {
+            return null;
+        }
+        int tid = frame.lastIndexOf(" tid=");
+        if (tid < 0) {
+            return null;
+        }
+        try {
+            return Long.parseLong(frame.substring(tid + 5, frame.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private int intern(String frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = frames.size();
+            frames.add(frame);
+            frameIds.put(frame, id);
+        }
+        return id;
+    }
+
+    private static Map<String, Long> sortedByValue(Map<String, Long> map) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        map.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+}
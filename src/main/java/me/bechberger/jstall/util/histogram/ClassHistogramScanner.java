@@ -0,0 +1,120 @@
+package me.bechberger.jstall.util.histogram;
+
+/**
+ * Single-pass scanner for {@code GC.class_histogram} / {@code jmap -histo} output.
+ * <p>
+ * Reads the rows ({@code   1:   2438780   332349064  [B (java.base@21.0.9)}) character by
+ * character, parsing the counts as longs and interning the class name in a {@link ClassNameTable}
+ * without creating row objects or substrings. Header, separator, pid and {@code Total} lines don't
+ * start with {@code <num>:} followed by two counts and are skipped.
+ */
+public final class ClassHistogramScanner {
+
+    /** Receives one histogram row. */
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(int classId, long instances, long bytes);
+    }
+
+    private ClassHistogramScanner() {
+    }
+
+    /**
+     * Scans all rows of {@code histogram}, passing them to {@code consumer} in order.
+     *
+     * @return the number of rows
+     */
+    public static int scan(CharSequence histogram, ClassNameTable names, RowConsumer consumer) {
+        int rows = 0;
+        int length = histogram.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && histogram.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (scanRow(histogram, lineStart, lineEnd, names, consumer)) {
+                rows++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return rows;
+    }
+
+    private static boolean scanRow(CharSequence s, int pos, int end, ClassNameTable names, RowConsumer consumer) {
+        pos = skipSpaces(s, pos, end);
+        int numEnd = skipDigits(s, pos, end);
+        if (numEnd == pos || numEnd >= end || s.charAt(numEnd) != ':') {
+            return false;
+        }
+        pos = skipSpaces(s, numEnd + 1, end);
+        int instancesEnd = skipDigits(s, pos, end);
+        if (instancesEnd == pos) {
+            return false;
+        }
+        long instances = parseLong(s, pos, instancesEnd);
+        pos = skipSpaces(s, instancesEnd, end);
+        int bytesEnd = skipDigits(s, pos, end);
+        if (bytesEnd == pos) {
+            return false;
+        }
+        long bytes = parseLong(s, pos, bytesEnd);
+        pos = skipSpaces(s, bytesEnd, end);
+
+        // class name, optionally followed by " (module)"
+        int nameEnd = end;
+        while (nameEnd > pos && Character.isWhitespace(s.charAt(nameEnd - 1))) {
+            nameEnd--;
+        }
+        int moduleStart = -1;
+        int moduleEnd = -1;
+        if (nameEnd > pos && s.charAt(nameEnd - 1) == ')') {
+            int open = nameEnd - 2;
+            while (open >= pos && s.charAt(open) != '(') {
+                open--;
+            }
+            if (open >= pos) {
+                moduleStart = skipSpaces(s, open + 1, nameEnd - 1);
+                moduleEnd = nameEnd - 1;
+                while (moduleEnd > moduleStart && s.charAt(moduleEnd - 1) == ' ') {
+                    moduleEnd--;
+                }
+                nameEnd = open;
+                while (nameEnd > pos && s.charAt(nameEnd - 1) == ' ') {
+                    nameEnd--;
+                }
+            }
+        }
+        if (nameEnd == pos) {
+            return false;
+        }
+        int id = names.intern(s, pos, nameEnd);
+        if (moduleStart >= 0) {
+            names.setModuleIfAbsent(id, s, moduleStart, moduleEnd);
+        }
+        consumer.accept(id, instances, bytes);
+        return true;
+    }
+
+    private static int skipSpaces(CharSequence s, int pos, int end) {
+        while (pos < end && (s.charAt(pos) == ' ' || s.charAt(pos) == '\t' || s.charAt(pos) == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(CharSequence s, int pos, int end) {
+        while (pos < end && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long parseLong(CharSequence s, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+}
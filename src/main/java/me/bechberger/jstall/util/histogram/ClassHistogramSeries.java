@@ -0,0 +1,209 @@
+package me.bechberger.jstall.util.histogram;
+
+import java.util.Arrays;
+
+/**
+ * Streams over a series of class histograms with constant memory per class.
+ * <p>
+ * Each histogram is {@linkplain ClassHistogramScanner scanned} into parallel primitive arrays
+ * indexed by the class id of a shared {@link ClassNameTable}: the first and latest instance and
+ * byte counts, in how many intervals between consecutive histograms a class grew or shrank, and
+ * the running sums of a least-squares {@linkplain #bytesSlope linear trend} over all histograms.
+ * Rows of the same class name (one per class loader) are summed; a class missing from a histogram
+ * counts as zero. Histograms are not kept, so any number of them can be added.
+ * Not thread-safe.
+ */
+public final class ClassHistogramSeries {
+
+    private final ClassNameTable names = new ClassNameTable();
+    private long[] firstInstances = new long[0];
+    private long[] firstBytes = new long[0];
+    private long[] lastInstances = new long[0];
+    private long[] lastBytes = new long[0];
+    private long[] currentInstances = new long[0];
+    private long[] currentBytes = new long[0];
+    private int[] grown = new int[0];
+    private int[] shrunk = new int[0];
+    // least-squares sums over (t = seconds since the first histogram, y = value)
+    private double[] sumBytes = new double[0];
+    private double[] sumTimeBytes = new double[0];
+    private double[] sumInstances = new double[0];
+    private double[] sumTimeInstances = new double[0];
+    private double sumTime;
+    private double sumTimeSquared;
+    private double sumTotalBytes;
+    private double sumTimeTotalBytes;
+    private int samples;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long firstTotalBytes;
+    private long lastTotalBytes;
+
+    /**
+     * Adds the next histogram of the series.
+     *
+     * @return false (and nothing is added) if {@code histogram} has no rows
+     */
+    public boolean add(long timestamp, CharSequence histogram) {
+        Arrays.fill(currentInstances, 0);
+        Arrays.fill(currentBytes, 0);
+        int rows = ClassHistogramScanner.scan(histogram, names, this::accumulate);
+        if (rows == 0) {
+            return false;
+        }
+        int classes = names.size();
+        ensureCapacity(classes);
+        double t = samples == 0 ? 0 : (timestamp - firstTimestamp) / 1000.0;
+        long totalBytes = 0;
+        for (int id = 0; id < classes; id++) {
+            totalBytes += currentBytes[id];
+            sumBytes[id] += currentBytes[id];
+            sumTimeBytes[id] += t * currentBytes[id];
+            sumInstances[id] += currentInstances[id];
+            sumTimeInstances[id] += t * currentInstances[id];
+            if (samples > 0) {
+                if (currentBytes[id] > lastBytes[id]) {
+                    grown[id]++;
+                } else if (currentBytes[id] < lastBytes[id]) {
+                    shrunk[id]++;
+                }
+            }
+        }
+        if (samples == 0) {
+            System.arraycopy(currentInstances, 0, firstInstances, 0, classes);
+            System.arraycopy(currentBytes, 0, firstBytes, 0, classes);
+            firstTimestamp = timestamp;
+            firstTotalBytes = totalBytes;
+        }
+        long[] swap = lastInstances;
+        lastInstances = currentInstances;
+        currentInstances = swap;
+        swap = lastBytes;
+        lastBytes = currentBytes;
+        currentBytes = swap;
+        lastTimestamp = timestamp;
+        lastTotalBytes = totalBytes;
+        sumTime += t;
+        sumTotalBytes += totalBytes;
+        sumTimeTotalBytes += t * totalBytes;
+        sumTimeSquared += t * t;
+        samples++;
+        return true;
+    }
+
+    private void accumulate(int classId, long instances, long bytes) {
+        ensureCapacity(classId + 1);
+        currentInstances[classId] += instances;
+        currentBytes[classId] += bytes;
+    }
+
+    private void ensureCapacity(int classes) {
+        if (classes <= currentBytes.length) {
+            return;
+        }
+        int capacity = Math.max(classes, currentBytes.length * 2);
+        firstInstances = Arrays.copyOf(firstInstances, capacity);
+        firstBytes = Arrays.copyOf(firstBytes, capacity);
+        lastInstances = Arrays.copyOf(lastInstances, capacity);
+        lastBytes = Arrays.copyOf(lastBytes, capacity);
+        currentInstances = Arrays.copyOf(currentInstances, capacity);
+        currentBytes = Arrays.copyOf(currentBytes, capacity);
+        grown = Arrays.copyOf(grown, capacity);
+        shrunk = Arrays.copyOf(shrunk, capacity);
+        sumBytes = Arrays.copyOf(sumBytes, capacity);
+        sumTimeBytes = Arrays.copyOf(sumTimeBytes, capacity);
+        sumInstances = Arrays.copyOf(sumInstances, capacity);
+        sumTimeInstances = Arrays.copyOf(sumTimeInstances, capacity);
+    }
+
+    public ClassNameTable names() {
+        return names;
+    }
+
+    /** Number of distinct classes seen in any histogram. */
+    public int classCount() {
+        return names.size();
+    }
+
+    /** Number of histograms added. */
+    public int samples() {
+        return samples;
+    }
+
+    /** Number of intervals between consecutive histograms. */
+    public int intervals() {
+        return Math.max(0, samples - 1);
+    }
+
+    public long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public long firstTotalBytes() {
+        return firstTotalBytes;
+    }
+
+    public long lastTotalBytes() {
+        return lastTotalBytes;
+    }
+
+    public long firstBytes(int classId) {
+        return firstBytes[classId];
+    }
+
+    public long lastBytes(int classId) {
+        return lastBytes[classId];
+    }
+
+    public long lastInstances(int classId) {
+        return lastInstances[classId];
+    }
+
+    public long deltaBytes(int classId) {
+        return lastBytes[classId] - firstBytes[classId];
+    }
+
+    public long deltaInstances(int classId) {
+        return lastInstances[classId] - firstInstances[classId];
+    }
+
+    /** Intervals in which the bytes of class {@code classId} grew. */
+    public int grownIntervals(int classId) {
+        return grown[classId];
+    }
+
+    /** Intervals in which the bytes of class {@code classId} shrank. */
+    public int shrunkIntervals(int classId) {
+        return shrunk[classId];
+    }
+
+    /**
+     * Slope of the least-squares line through the bytes of class {@code classId} over all
+     * histograms, in bytes per second; 0 with fewer than two histograms or no elapsed time.
+     */
+    public double bytesSlope(int classId) {
+        return slope(sumBytes[classId], sumTimeBytes[classId]);
+    }
+
+    /** Like {@link #bytesSlope}, for the instance count (instances per second). */
+    public double instancesSlope(int classId) {
+        return slope(sumInstances[classId], sumTimeInstances[classId]);
+    }
+
+    /** Like {@link #bytesSlope}, for the bytes of all classes together. */
+    public double totalBytesSlope() {
+        return slope(sumTotalBytes, sumTimeTotalBytes);
+    }
+
+    private double slope(double sumY, double sumTimeY) {
+        double denominator = samples * sumTimeSquared - sumTime * sumTime;
+        if (samples < 2 || denominator <= 0) {
+            return 0;
+        }
+        return (samples * sumTimeY - sumTime * sumY) / denominator;
+    }
+}
@@ -0,0 +1,126 @@
+package me.bechberger.jstall.util.histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interns class names to dense int ids, looked up directly from a region of the histogram text.
+ * <p>
+ * Open addressing over an {@code int[]} of ids; a name already in the table is found by hashing
+ * and comparing the characters in place, so scanning a histogram whose classes are known allocates
+ * nothing. A new name is copied out once. Each class also remembers the first module it was seen with.
+ * Not thread-safe.
+ */
+public final class ClassNameTable {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> modules = new ArrayList<>();
+    private int[] hashes = new int[64];
+    private int[] slots = emptySlots(64);
+
+    /** Returns the id of {@code text[start, end)}, adding it if it is new. */
+    public int intern(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot];
+            if (id < 0) {
+                id = names.size();
+                names.add(text.subSequence(start, end).toString());
+                modules.add(null);
+                slots[slot] = id;
+                hashes[slot] = hash;
+                if (names.size() * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (hashes[slot] == hash && equals(names.get(id), text, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    /** Returns the id of {@code name}, adding it if it is new. */
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /** Returns the id of {@code name}, or -1 if it was never interned. */
+    public int find(String name) {
+        int hash = hash(name, 0, name.length());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && names.get(slots[slot]).equals(name)) {
+                return slots[slot];
+            }
+        }
+        return -1;
+    }
+
+    /** Sets the module of class {@code id} to {@code text[start, end)} unless it already has one. */
+    public void setModuleIfAbsent(int id, CharSequence text, int start, int end) {
+        if (modules.get(id) == null && end > start) {
+            modules.set(id, text.subSequence(start, end).toString());
+        }
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /** Module of class {@code id}, or null if none was given. */
+    public String module(int id) {
+        return modules.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private void rehash() {
+        int[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        slots = emptySlots(oldSlots.length * 2);
+        hashes = new int[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] < 0) {
+                continue;
+            }
+            int slot = oldHashes[i] & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = oldSlots[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    private static int[] emptySlots(int size) {
+        int[] slots = new int[size];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package me.bechberger.jstall.util.histogram;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Selects the ids with the largest keys through a bounded min-heap of ints, in
+ * {@code O(n log k)} time and {@code O(k)} memory instead of sorting all {@code n} ids.
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * Returns up to {@code k} of the ids {@code 0..n-1} with the largest {@code key}, largest first;
+     * ties are broken by the smaller id. {@code k <= 0} selects all ids.
+     */
+    public static int[] largest(int n, int k, IntToLongFunction key) {
+        int capacity = k <= 0 ? n : Math.min(k, n);
+        int[] heap = new int[capacity];
+        long[] keys = new long[capacity];
+        int size = 0;
+        for (int id = 0; id < n; id++) {
+            long value = key.applyAsLong(id);
+            if (size < capacity) {
+                heap[size] = id;
+                keys[size] = value;
+                siftUp(heap, keys, size++);
+            } else if (capacity > 0 && before(value, id, keys[0], heap[0])) {
+                heap[0] = id;
+                keys[0] = value;
+                siftDown(heap, keys, 0, size);
+            }
+        }
+        // Pop the smallest to the back: heap sort into descending order
+        for (int end = size - 1; end > 0; end--) {
+            swap(heap, keys, 0, end);
+            siftDown(heap, keys, 0, end);
+        }
+        return size == heap.length ? heap : Arrays.copyOf(heap, size);
+    }
+
+    /** True if ({@code keyA}, {@code idA}) ranks before ({@code keyB}, {@code idB}). */
+    private static boolean before(long keyA, int idA, long keyB, int idB) {
+        return keyA > keyB || (keyA == keyB && idA < idB);
+    }
+
+    private static void siftUp(int[] heap, long[] keys, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!before(keys[parent], heap[parent], keys[i], heap[i])) {
+                return;
+            }
+            swap(heap, keys, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, long[] keys, int i, int size) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && before(keys[smallest], heap[smallest], keys[left], heap[left])) {
+                smallest = left;
+            }
+            if (right < size && before(keys[smallest], heap[smallest], keys[right], heap[right])) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(heap, keys, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, long[] keys, int a, int b) {
+        int id = heap[a];
+        heap[a] = heap[b];
+        heap[b] = id;
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+    }
+}
@@ -0,0 +1,140 @@
+package me.bechberger.jstall.util.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits JFR files into their chunks and aggregates the chunks in parallel.
+ * <p>
+ * A JFR file is a sequence of self-contained chunks, each starting with the magic {@code FLR\0},
+ * the format version and the chunk size in bytes. Every chunk carries its own metadata and
+ * constant pools, so a chunk copied into a file of its own is a valid recording. Large recordings
+ * consist of many chunks (the JVM rotates them at about 12 MB), which are read concurrently
+ * with one {@link JfrEventAggregator} each and merged afterwards.
+ */
+public final class JfrChunks {
+
+    private static final int MAGIC = 0x464C5200; // "FLR\0"
+    private static final int HEADER_SIZE = 16;
+
+    /** Byte range of one chunk within a JFR file. */
+    public record Chunk(long offset, long size) {
+    }
+
+    private JfrChunks() {
+    }
+
+    /**
+     * Returns the chunks of {@code file} by walking the chunk headers. A chunk with an unknown
+     * size (still being written) extends to the end of the file.
+     *
+     * @throws IOException if the file does not start with a JFR chunk header
+     */
+    public static List<Chunk> chunks(Path file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (offset + HEADER_SIZE <= fileSize) {
+                header.clear();
+                if (channel.read(header, offset) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                    if (chunks.isEmpty()) {
+                        throw new IOException("Not a JFR file: " + file);
+                    }
+                    break;
+                }
+                long size = header.getLong(8);
+                if (size <= HEADER_SIZE || offset + size > fileSize) {
+                    chunks.add(new Chunk(offset, fileSize - offset));
+                    break;
+                }
+                chunks.add(new Chunk(offset, size));
+                offset += size;
+            }
+        }
+        if (chunks.isEmpty()) {
+            throw new IOException("Not a JFR file: " + file);
+        }
+        return chunks;
+    }
+
+    /**
+     * Aggregates all events of {@code file}, reading up to {@code parallelism} chunks at once.
+     * Each chunk is copied to a temporary file (the JFR parser only reads whole files) and deleted
+     * after it was read, so at most {@code parallelism} chunk copies exist at a time.
+     */
+    public static JfrEventAggregator aggregate(Path file, int parallelism) throws IOException {
+        List<Chunk> chunks = chunks(file);
+        int threads = Math.max(1, Math.min(parallelism, chunks.size()));
+        if (threads == 1) {
+            return JfrEventAggregator.readFile(file);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jstall-jfr-chunk");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<JfrEventAggregator>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> readChunk(file, chunk), executor))
+                .toList();
+
+            JfrEventAggregator result = new JfrEventAggregator();
+            for (CompletableFuture<JfrEventAggregator> future : futures) {
+                try {
+                    result.merge(future.join());
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw e;
+                }
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static JfrEventAggregator readChunk(Path file, Chunk chunk) {
+        Path chunkFile = null;
+        try {
+            chunkFile = Files.createTempFile("jstall-chunk-", ".jfr");
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(chunkFile, StandardOpenOption.WRITE)) {
+                long copied = 0;
+                while (copied < chunk.size()) {
+                    long n = in.transferTo(chunk.offset() + copied, chunk.size() - copied, out);
+                    if (n <= 0) {
+                        break;
+                    }
+                    copied += n;
+                }
+            }
+            return JfrEventAggregator.readFile(chunkFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (chunkFile != null) try { Files.deleteIfExists(chunkFile); } catch (IOException ignored) {}
+        }
+    }
+}
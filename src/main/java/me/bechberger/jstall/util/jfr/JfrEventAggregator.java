@@ -0,0 +1,342 @@
+package me.bechberger.jstall.util.jfr;
+
+import jdk.jfr.consumer.EventStream;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Incrementally aggregates the JFR events jstall streams from a target JVM into a few bounded
+ * counters: hot methods and per-thread samples ({@code jdk.ExecutionSample}), contended monitors
+ * and their call sites ({@code jdk.JavaMonitorEnter}), park sites ({@code jdk.ThreadPark}),
+ * allocation by class, site and thread ({@code jdk.ObjectAllocationSample}) and GC pauses
+ * ({@code jdk.GarbageCollection}).
+ * <p>
+ * Events are folded in as they arrive, so memory depends on the number of distinct methods,
+ * classes and threads, not on the number of events. Aggregators of different windows or file
+ * chunks can be combined with {@link #merge}. Not thread-safe; use one instance per stream.
+ */
+public final class JfrEventAggregator {
+
+    public static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    public static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    public static final String THREAD_PARK = "jdk.ThreadPark";
+    public static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    public static final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+
+    /** Events this aggregator understands, in the order they are listed in summaries. */
+    public static final List<String> EVENTS = List.of(
+        EXECUTION_SAMPLE, MONITOR_ENTER, THREAD_PARK, ALLOCATION_SAMPLE, GARBAGE_COLLECTION);
+
+    /** Maximum entries per table in {@link #toMap}. */
+    static final int MAX_ENTRIES = 50;
+
+    /** Count and accumulated value (nanoseconds or bytes) of one key. */
+    public static final class Counter {
+        long count;
+        long total;
+        long max;
+
+        void add(long value) {
+            count++;
+            total += value;
+            max = Math.max(max, value);
+        }
+
+        void merge(Counter other) {
+            count += other.count;
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long total() {
+            return total;
+        }
+
+        public long max() {
+            return max;
+        }
+    }
+
+    private final Map<String, Counter> hotMethods = new HashMap<>();
+    private final Map<String, Counter> samplesByThread = new HashMap<>();
+    private final Map<String, Counter> monitorsByClass = new HashMap<>();
+    private final Map<String, Counter> monitorBlockedByThread = new HashMap<>();
+    private final Map<String, Counter> monitorSites = new HashMap<>();
+    private final Map<String, Counter> parksByClass = new HashMap<>();
+    private final Map<String, Counter> allocationByClass = new HashMap<>();
+    private final Map<String, Counter> allocationByThread = new HashMap<>();
+    private final Map<String, Counter> allocationSites = new HashMap<>();
+    private final Map<String, Counter> gcByName = new HashMap<>();
+    private final Counter gcPauses = new Counter();
+    private long events;
+
+    /** Registers this aggregator for all {@link #EVENTS} of {@code stream}. */
+    public void attach(EventStream stream) {
+        for (String event : EVENTS) {
+            stream.onEvent(event, this::accept);
+        }
+    }
+
+    /**
+     * Reads a JFR file through a fresh aggregator. {@link RecordingFile} reads event by event,
+     * so the file is never held in memory as a whole. See {@link JfrChunks#aggregate} for
+     * reading the chunks of a large file in parallel.
+     */
+    public static JfrEventAggregator readFile(Path file) throws IOException {
+        JfrEventAggregator aggregator = new JfrEventAggregator();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                aggregator.accept(recording.readEvent());
+            }
+        }
+        return aggregator;
+    }
+
+    /** Folds a single event into the counters; unknown event types are ignored. */
+    public void accept(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case EXECUTION_SAMPLE -> {
+                String method = topMethod(event.getStackTrace());
+                if (method != null) {
+                    hotMethods.computeIfAbsent(method, k -> new Counter()).add(1);
+                }
+                samplesByThread.computeIfAbsent(threadName(event, "sampledThread"), k -> new Counter()).add(1);
+            }
+            case MONITOR_ENTER -> {
+                long nanos = event.getDuration().toNanos();
+                monitorsByClass.computeIfAbsent(className(event, "monitorClass"), k -> new Counter()).add(nanos);
+                monitorBlockedByThread.computeIfAbsent(threadName(event, "eventThread"), k -> new Counter()).add(nanos);
+                monitorSites.computeIfAbsent(site(event), k -> new Counter()).add(nanos);
+            }
+            case THREAD_PARK -> parksByClass.computeIfAbsent(className(event, "parkedClass"), k -> new Counter())
+                .add(event.getDuration().toNanos());
+            case ALLOCATION_SAMPLE -> {
+                long weight = event.hasField("weight") ? event.getLong("weight") : 0;
+                allocationByClass.computeIfAbsent(className(event, "objectClass"), k -> new Counter()).add(weight);
+                allocationByThread.computeIfAbsent(threadName(event, "eventThread"), k -> new Counter()).add(weight);
+                allocationSites.computeIfAbsent(site(event), k -> new Counter()).add(weight);
+            }
+            case GARBAGE_COLLECTION -> {
+                Duration pauses = event.hasField("sumOfPauses") ? event.getDuration("sumOfPauses") : event.getDuration();
+                String name = event.hasField("name") ? event.getString("name") : "GC";
+                gcByName.computeIfAbsent(name == null ? "GC" : name, k -> new Counter()).add(pauses.toNanos());
+                gcPauses.add(pauses.toNanos());
+            }
+            default -> {
+                return;
+            }
+        }
+        events++;
+    }
+
+    /** Adds the counters of {@code other} to this aggregator. */
+    public JfrEventAggregator merge(JfrEventAggregator other) {
+        mergeInto(hotMethods, other.hotMethods);
+        mergeInto(samplesByThread, other.samplesByThread);
+        mergeInto(monitorsByClass, other.monitorsByClass);
+        mergeInto(monitorBlockedByThread, other.monitorBlockedByThread);
+        mergeInto(monitorSites, other.monitorSites);
+        mergeInto(parksByClass, other.parksByClass);
+        mergeInto(allocationByClass, other.allocationByClass);
+        mergeInto(allocationByThread, other.allocationByThread);
+        mergeInto(allocationSites, other.allocationSites);
+        mergeInto(gcByName, other.gcByName);
+        gcPauses.merge(other.gcPauses);
+        events += other.events;
+        return this;
+    }
+
+    public long eventCount() {
+        return events;
+    }
+
+    public Map<String, Counter> hotMethods() {
+        return Collections.unmodifiableMap(hotMethods);
+    }
+
+    public Map<String, Counter> samplesByThread() {
+        return Collections.unmodifiableMap(samplesByThread);
+    }
+
+    public Map<String, Counter> monitorsByClass() {
+        return Collections.unmodifiableMap(monitorsByClass);
+    }
+
+    public Map<String, Counter> monitorBlockedByThread() {
+        return Collections.unmodifiableMap(monitorBlockedByThread);
+    }
+
+    /** Blocked time by the top Java frame of the contended monitor enter. */
+    public Map<String, Counter> monitorSites() {
+        return Collections.unmodifiableMap(monitorSites);
+    }
+
+    public Map<String, Counter> parksByClass() {
+        return Collections.unmodifiableMap(parksByClass);
+    }
+
+    public Map<String, Counter> allocationByClass() {
+        return Collections.unmodifiableMap(allocationByClass);
+    }
+
+    public Map<String, Counter> allocationByThread() {
+        return Collections.unmodifiableMap(allocationByThread);
+    }
+
+    /** Sampled allocation weight by the top Java frame of the allocation. */
+    public Map<String, Counter> allocationSites() {
+        return Collections.unmodifiableMap(allocationSites);
+    }
+
+    public Map<String, Counter> gcByName() {
+        return Collections.unmodifiableMap(gcByName);
+    }
+
+    public Counter gcPauses() {
+        return gcPauses;
+    }
+
+    /**
+     * Returns a JSON-compatible summary with the top {@value #MAX_ENTRIES} entries of each table,
+     * ordered by total, e.g. {@code {"hotMethods": [{"key": "Foo.bar", "count": 12, "total": 12, "max": 1}]}}.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("events", events);
+        root.put("hotMethods", top(hotMethods));
+        root.put("samplesByThread", top(samplesByThread));
+        root.put("monitorsByClass", top(monitorsByClass));
+        root.put("monitorBlockedByThread", top(monitorBlockedByThread));
+        root.put("monitorSites", top(monitorSites));
+        root.put("parksByClass", top(parksByClass));
+        root.put("allocationByClass", top(allocationByClass));
+        root.put("allocationByThread", top(allocationByThread));
+        root.put("allocationSites", top(allocationSites));
+        root.put("gcByName", top(gcByName));
+        root.put("gcPauses", entry("all", gcPauses));
+        return root;
+    }
+
+    /** Rebuilds an aggregator from a {@link #toMap} summary (entries beyond the top are lost). */
+    @SuppressWarnings("unchecked")
+    public static JfrEventAggregator fromMap(Map<String, Object> map) {
+        JfrEventAggregator aggregator = new JfrEventAggregator();
+        aggregator.events = ((Number) map.getOrDefault("events", 0)).longValue();
+        readTable(map.get("hotMethods"), aggregator.hotMethods);
+        readTable(map.get("samplesByThread"), aggregator.samplesByThread);
+        readTable(map.get("monitorsByClass"), aggregator.monitorsByClass);
+        readTable(map.get("monitorBlockedByThread"), aggregator.monitorBlockedByThread);
+        readTable(map.get("monitorSites"), aggregator.monitorSites);
+        readTable(map.get("parksByClass"), aggregator.parksByClass);
+        readTable(map.get("allocationByClass"), aggregator.allocationByClass);
+        readTable(map.get("allocationByThread"), aggregator.allocationByThread);
+        readTable(map.get("allocationSites"), aggregator.allocationSites);
+        readTable(map.get("gcByName"), aggregator.gcByName);
+        if (map.get("gcPauses") instanceof Map<?, ?> pauses) {
+            aggregator.gcPauses.merge(readCounter((Map<String, Object>) pauses));
+        }
+        return aggregator;
+    }
+
+    /** Returns the entries of {@code table} ordered by total (then count), largest first. */
+    public static List<Map.Entry<String, Counter>> ranked(Map<String, Counter> table) {
+        List<Map.Entry<String, Counter>> entries = new ArrayList<>(table.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Counter> e) -> e.getValue().total)
+            .thenComparingLong(e -> e.getValue().count)
+            .reversed()
+            .thenComparing(Map.Entry::getKey));
+        return entries;
+    }
+
+    private static List<Object> top(Map<String, Counter> table) {
+        List<Object> result = new ArrayList<>();
+        for (Map.Entry<String, Counter> e : ranked(table)) {
+            if (result.size() == MAX_ENTRIES) {
+                break;
+            }
+            result.add(entry(e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> entry(String key, Counter counter) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("key", key);
+        entry.put("count", counter.count);
+        entry.put("total", counter.total);
+        entry.put("max", counter.max);
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readTable(Object value, Map<String, Counter> table) {
+        if (!(value instanceof List<?> list)) {
+            return;
+        }
+        for (Object item : list) {
+            Map<String, Object> entry = (Map<String, Object>) item;
+            table.computeIfAbsent(String.valueOf(entry.get("key")), k -> new Counter()).merge(readCounter(entry));
+        }
+    }
+
+    private static Counter readCounter(Map<String, Object> entry) {
+        Counter counter = new Counter();
+        counter.count = ((Number) entry.getOrDefault("count", 0)).longValue();
+        counter.total = ((Number) entry.getOrDefault("total", 0)).longValue();
+        counter.max = ((Number) entry.getOrDefault("max", 0)).longValue();
+        return counter;
+    }
+
+    private static void mergeInto(Map<String, Counter> target, Map<String, Counter> source) {
+        source.forEach((key, counter) -> target.computeIfAbsent(key, k -> new Counter()).merge(counter));
+    }
+
+    private static String topMethod(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod() != null) {
+                return simpleName(frame.getMethod().getType().getName()) + "." + frame.getMethod().getName();
+            }
+        }
+        return null;
+    }
+
+    private static String site(RecordedEvent event) {
+        String method = topMethod(event.getStackTrace());
+        return method != null ? method : "<no stack>";
+    }
+
+    private static String threadName(RecordedEvent event, String field) {
+        RecordedThread thread = event.hasField(field) ? event.getThread(field) : event.getThread();
+        if (thread == null) {
+            return "<unknown>";
+        }
+        String name = thread.getJavaName();
+        return name != null ? name : thread.getOSName();
+    }
+
+    private static String className(RecordedEvent event, String field) {
+        RecordedClass clazz = event.hasField(field) ? event.getClass(field) : null;
+        return clazz == null ? "<unknown>" : clazz.getName();
+    }
+
+    private static String simpleName(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot >= 0 ? className.substring(dot + 1) : className;
+    }
+}
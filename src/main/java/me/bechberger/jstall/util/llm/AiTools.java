@@ -4,6 +4,7 @@ import me.bechberger.jstall.analyzer.AnalyzerResult;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.analyzer.impl.*;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.util.stacks.StackIndex;
 import me.bechberger.jthreaddump.model.LockInfo;
 import me.bechberger.jthreaddump.model.ThreadDump;
 import me.bechberger.jthreaddump.model.ThreadInfo;
@@ -20,11 +21,20 @@ import java.util.stream.Collectors;
 public class AiTools {
 
     private final ResolvedData data;
+    private StackIndex stackIndex;
 
     public AiTools(ResolvedData data) {
         this.data = data;
     }
 
+    /** Index over the stacks of all dumps, built on first use and shared by all tool calls. */
+    private synchronized StackIndex stackIndex() {
+        if (stackIndex == null) {
+            stackIndex = StackIndex.build(data.dumps().stream().map(ThreadDumpSnapshot::parsed).toList());
+        }
+        return stackIndex;
+    }
+
     /**
      * Returns the list of tool definitions available for the AI to call.
      */
@@ -175,11 +185,18 @@ public class AiTools {
         if (dump == null) return "No thread dumps available.";
         if (pattern.isBlank()) return "Please provide a search pattern.";
 
-        String lowerPattern = pattern.toLowerCase();
-        List<ThreadInfo> matching = dump.threads().stream()
-            .filter(t -> t.stackTrace() != null && t.stackTrace().stream()
-                .anyMatch(f -> f.toString().toLowerCase().contains(lowerPattern)))
-            .toList();
+        // Matching frames of the latest dump per thread, in dump and stack order
+        int latest = data.dumps().size() - 1;
+        List<ThreadInfo> matching = new ArrayList<>();
+        List<List<String>> matchingFrames = new ArrayList<>();
+        for (StackIndex.Match match : stackIndex().findIgnoreCase(pattern)) {
+            if (match.dump() != latest) continue;
+            if (matching.isEmpty() || matching.get(matching.size() - 1) != match.thread()) {
+                matching.add(match.thread());
+                matchingFrames.add(new ArrayList<>());
+            }
+            matchingFrames.get(matchingFrames.size() - 1).add(match.frame().toString());
+        }
 
         if (matching.isEmpty()) {
             return "No threads have '" + pattern + "' in their stack trace.";
@@ -196,13 +213,8 @@ public class AiTools {
             ThreadInfo t = matching.get(i);
             sb.append("## ").append(t.name()).append(" (").append(t.state()).append(")\n");
             // Show matching frames
-            if (t.stackTrace() != null) {
-                for (var frame : t.stackTrace()) {
-                    String frameStr = frame.toString();
-                    if (frameStr.toLowerCase().contains(lowerPattern)) {
-                        sb.append("  → ").append(frameStr).append("\n");
-                    }
-                }
+            for (String frameStr : matchingFrames.get(i)) {
+                sb.append("  → ").append(frameStr).append("\n");
             }
             sb.append("\n");
         }
@@ -448,9 +460,7 @@ public class AiTools {
                 + "'. Valid: BLOCKED, WAITING, TIMED_WAITING, RUNNABLE, NEW, TERMINATED.";
         }
 
-        List<ThreadInfo> matching = dump.threads().stream()
-            .filter(t -> t.state() == targetState)
-            .toList();
+        List<ThreadInfo> matching = stackIndex().threadsInState(data.dumps().size() - 1, targetState);
 
         if (matching.isEmpty()) return "No threads in state " + targetState + ".";
 
@@ -0,0 +1,22 @@
+package me.bechberger.jstall.util.llm;
+
+import java.nio.file.Path;
+
+/**
+ * Location of jstall's on-disk caches: {@code $XDG_CACHE_HOME/jstall}, falling back to
+ * {@code ~/.cache/jstall}.
+ */
+final class CacheDirectory {
+
+    private CacheDirectory() {
+    }
+
+    /** Returns the directory of the cache called {@code name}, without creating it. */
+    static Path resolve(String name) {
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        Path base = xdg != null && !xdg.isBlank()
+            ? Path.of(xdg)
+            : Path.of(System.getProperty("user.home"), ".cache");
+        return base.resolve("jstall").resolve(name);
+    }
+}
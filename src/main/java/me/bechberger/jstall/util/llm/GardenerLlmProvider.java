@@ -4,7 +4,10 @@ import me.bechberger.jstall.util.llm.AnsweringMachineClient.ApiException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * LLM provider implementation for Gardener AI (answering-machine).
@@ -13,12 +16,22 @@ public class GardenerLlmProvider implements LlmProvider {
 
     private final AnsweringMachineClient client;
     private final String apiKey;
+    private LlmResponseCache responseCache;
 
     public GardenerLlmProvider(String apiKey) {
-        this.client = new AnsweringMachineClient();
+        this(new AnsweringMachineClient(), apiKey);
+    }
+
+    GardenerLlmProvider(AnsweringMachineClient client, String apiKey) {
+        this.client = client;
         this.apiKey = apiKey;
     }
 
+    @Override
+    public void setResponseCache(LlmResponseCache cache) {
+        this.responseCache = cache;
+    }
+
     @Override
     public String chat(String model, List<LlmProvider.Message> messages, StreamHandlers handlers)
             throws IOException, LlmProvider.LlmException {
@@ -26,6 +39,15 @@ public class GardenerLlmProvider implements LlmProvider {
         // Gardener doesn't support streamed "thinking" tokens separately.
         var responseHandler = handlers != null ? handlers.responseHandler() : null;
 
+        String cacheKey = cacheKey(model, messages);
+        Optional<String> cached = cacheKey != null ? responseCache.get(cacheKey) : Optional.empty();
+        if (cached.isPresent()) {
+            if (responseHandler != null && !cached.get().isEmpty()) {
+                responseHandler.accept(cached.get());
+            }
+            return cached.get();
+        }
+
         List<AnsweringMachineClient.Message> clientMessages = convertMessages(messages);
         StringBuilder response = new StringBuilder();
 
@@ -36,6 +58,9 @@ public class GardenerLlmProvider implements LlmProvider {
                     responseHandler.accept(content);
                 }
             });
+            if (cacheKey != null && !response.isEmpty()) {
+                responseCache.put(cacheKey, response.toString());
+            }
             return response.toString();
         } catch (ApiException e) {
             throw new LlmProvider.LlmException("Gardener API error: " + e.getMessage(), e.getStatusCode());
@@ -54,6 +79,24 @@ public class GardenerLlmProvider implements LlmProvider {
         }
     }
 
+    private String cacheKey(String model, List<LlmProvider.Message> messages) {
+        if (responseCache == null) {
+            return null;
+        }
+        List<Object> msgs = new ArrayList<>();
+        for (LlmProvider.Message msg : messages) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("role", msg.role());
+            m.put("content", msg.content());
+            msgs.add(m);
+        }
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("provider", "gardener");
+        request.put("model", model);
+        request.put("messages", msgs);
+        return LlmResponseCache.key(request);
+    }
+
     private List<AnsweringMachineClient.Message> convertMessages(List<LlmProvider.Message> messages) {
         List<AnsweringMachineClient.Message> clientMessages = new ArrayList<>();
         for (LlmProvider.Message msg : messages) {
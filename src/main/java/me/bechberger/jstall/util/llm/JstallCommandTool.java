@@ -12,6 +12,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Exposes jstall commands as a single generic tool for local AI use.
@@ -24,13 +26,18 @@ import java.util.Set;
  *       confirmation on stderr/stdin (auto-denied when stdin is not a TTY).</li>
  *   <li>Hard-blocked commands ({@code ai}, {@code install-claude-*}) — never allowed.</li>
  * </ul>
+ *
+ * <p>Commands write to the process-wide standard streams, so invocations are serialized even
+ * when the AI tool loop runs several tool calls concurrently. A queued invocation starts its
+ * {@link ToolCallRunner} timeout only once it holds the lock, and stops waiting when it is
+ * cancelled, so a command that ignores its own cancellation does not pile up waiting threads.
  */
 public class JstallCommandTool {
 
     private static final Set<String> SAFE_COMMANDS = Set.of(
-        "list", "threads", "deadlock", "most-work", "waiting-threads",
-        "dependency-graph", "dependency-tree", "gc-heap-info",
-        "vm-metaspace", "vm-classloader-stats", "vm-vitals", "compiler-queue",
+        "list", "threads", "grep-stacks", "deadlock", "most-work", "waiting-threads", "lock-contention",
+        "allocation", "jfr", "wall", "leak-suspects", "native-memory", "dependency-graph", "dependency-tree", "gc-heap-info",
+        "vm-metaspace", "vm-classloader-stats", "vm-vitals", "compiler-queue", "jit",
         "jvm-support", "processes", "status", "help",
         "record extract", "record summary"
     );
@@ -43,6 +50,8 @@ public class JstallCommandTool {
         "ai", "install-claude-mcp", "install-claude-skill", "install-claude-code-skill"
     );
 
+    private static final ReentrantLock COMMAND_LOCK = new ReentrantLock();
+
     private final boolean allowMutations;
     private final List<String> defaultTargets;
 
@@ -112,10 +121,15 @@ public class JstallCommandTool {
                 return "Error: command '" + command + "' has side effects. "
                     + "Run jstall with --allow-mutations to permit it.";
             }
-            // Require interactive confirmation
-            if (!confirmMutation(command)) {
-                return "Denied by user: '" + command + "' was not confirmed.";
-            }
+            return withCommandLock(command, () -> {
+                // Require interactive confirmation
+                if (!confirmMutation(command)) {
+                    return "Denied by user: '" + command + "' was not confirmed.";
+                }
+                // The time the user took to answer doesn't count
+                ToolCallRunner.restartTimeout();
+                return runCommand(command, args);
+            });
         } else {
             // Verify it's in the safe set
             boolean isSafe = false;
@@ -130,7 +144,23 @@ public class JstallCommandTool {
             }
         }
 
-        return runCommand(command, args);
+        return withCommandLock(command, () -> runCommand(command, args));
+    }
+
+    /** Runs {@code action} holding {@link #COMMAND_LOCK}, giving up if interrupted while waiting for it. */
+    private static String withCommandLock(String command, Supplier<String> action) {
+        try {
+            COMMAND_LOCK.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Error: '" + command + "' was cancelled while waiting for another jstall command.";
+        }
+        try {
+            ToolCallRunner.restartTimeout();
+            return action.get();
+        } finally {
+            COMMAND_LOCK.unlock();
+        }
     }
 
     private String runCommand(String command, String args) {
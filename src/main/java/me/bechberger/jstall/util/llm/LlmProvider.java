@@ -71,6 +71,15 @@ public interface LlmProvider {
         return "";
     }
 
+    /**
+     * Attaches an on-disk cache that replays responses to identical requests.
+     * Providers without cache support ignore it.
+     *
+     * @param cache The cache to use, or null to disable caching
+     */
+    default void setResponseCache(LlmResponseCache cache) {
+    }
+
     /**
      * Chat with the LLM using the specified model and messages.
      *
@@ -0,0 +1,154 @@
+package me.bechberger.jstall.util.llm;
+
+import me.bechberger.util.json.PrettyPrinter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache for LLM responses.
+ *
+ * <p>Entries are keyed by the SHA-256 of the canonical JSON of a request — model, system prompt,
+ * analysis context and the tool transcript so far — so rerunning {@code jstall ai} on the same
+ * recording replays the earlier answer instead of querying the model again. Each entry is one
+ * file; reading an entry refreshes its modification time and the least recently used entries are
+ * evicted once the cache grows beyond its size bound.
+ *
+ * <p>The cache is best effort: I/O errors are treated as misses and never fail a request.
+ */
+public class LlmResponseCache {
+
+    /** Default size bound of the on-disk cache. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public LlmResponseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the cache in {@code $XDG_CACHE_HOME/jstall/llm}, falling back to
+     * {@code ~/.cache/jstall/llm}.
+     */
+    public static LlmResponseCache openDefault() {
+        return new LlmResponseCache(CacheDirectory.resolve("llm"), DEFAULT_MAX_BYTES);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Computes the cache key of a JSON-compatible request description. Map keys are sorted first,
+     * so the key does not depend on map iteration order.
+     */
+    public static String key(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(PrettyPrinter.compactPrint(canonicalize(request)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Object canonicalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), canonicalize(v)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(canonicalize(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value for {@code key} and marks the entry as recently used.
+     */
+    public Optional<String> get(String key) {
+        Path file = entry(key);
+        try {
+            String value = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(value);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores {@code value} under {@code key}, then evicts least recently used entries until the
+     * cache fits its size bound again.
+     */
+    public void put(String key, String value) {
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(tmp, value, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+            evict();
+        } catch (IOException ignored) {
+            // A failed write only costs a future cache miss
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private record Entry(Path path, long size, long lastUsed) {}
+
+    private void evict() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(SUFFIX)) {
+                    try {
+                        entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                    } catch (IOException ignored) {
+                        // Removed concurrently
+                    }
+                }
+            }
+        }
+        long total = entries.stream().mapToLong(Entry::size).sum();
+        entries.sort(Comparator.comparingLong(Entry::lastUsed));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -28,6 +29,9 @@ import java.util.stream.Collectors;
  *
  * <p>Automatically retries on transient errors (429 Too Many Requests, 503 Service Unavailable)
  * with exponential backoff.
+ *
+ * <p>With a {@link LlmResponseCache} attached, responses to identical requests (including the
+ * tool transcript of a tool-calling loop) are replayed from disk instead of being sent again.
  */
 public class OpenAiLlmProvider implements LlmProvider {
 
@@ -37,6 +41,9 @@ public class OpenAiLlmProvider implements LlmProvider {
     private final URI baseUri;
     private final HttpClient httpClient;
     private boolean enableThinking = false;
+    private LlmResponseCache responseCache;
+    private int toolParallelism = ToolCallRunner.DEFAULT_PARALLELISM;
+    private Duration toolTimeout = ToolCallRunner.DEFAULT_TIMEOUT;
 
     public OpenAiLlmProvider(String host) {
         this.baseUri = URI.create(host.endsWith("/") ? host.substring(0, host.length() - 1) : host);
@@ -55,6 +62,20 @@ public class OpenAiLlmProvider implements LlmProvider {
         this.enableThinking = enableThinking;
     }
 
+    /**
+     * Sets how many tool calls of one model turn run concurrently in {@link #chatWithToolLoop}
+     * and how long each of them may take.
+     */
+    public void setToolExecution(int parallelism, Duration timeout) {
+        this.toolParallelism = parallelism;
+        this.toolTimeout = timeout;
+    }
+
+    @Override
+    public void setResponseCache(LlmResponseCache cache) {
+        this.responseCache = cache;
+    }
+
     @Override
     public boolean supportsStreaming() {
         return true;
@@ -70,6 +91,15 @@ public class OpenAiLlmProvider implements LlmProvider {
             throws IOException, LlmProvider.LlmException {
 
         Map<String, Object> body = buildRequestBody(model, messages, true);
+        String cacheKey = cacheKey("chat", body);
+        Optional<ChatResponse> cached = cachedResponse(cacheKey);
+        if (cached.isPresent()) {
+            String content = cached.get().content() != null ? cached.get().content() : "";
+            if (!content.isEmpty() && handlers != null && handlers.responseHandler() != null) {
+                handlers.responseHandler().accept(content);
+            }
+            return content;
+        }
         HttpRequest request = HttpRequest.newBuilder()
             .uri(baseUri.resolve("/v1/chat/completions"))
             .timeout(Duration.ofMinutes(20))
@@ -123,6 +153,9 @@ public class OpenAiLlmProvider implements LlmProvider {
                 }
             }
 
+            if (!fullResponse.isEmpty()) {
+                cacheResponse(cacheKey, fullResponse.toString(), null);
+            }
             return fullResponse.toString();
     }
 
@@ -203,6 +236,11 @@ public class OpenAiLlmProvider implements LlmProvider {
             throws IOException, LlmProvider.LlmException {
 
         Map<String, Object> body = buildRequestBody(model, messages, false, tools);
+        String cacheKey = cacheKey("tools", body);
+        Optional<ChatResponse> cached = cachedResponse(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         HttpRequest request = HttpRequest.newBuilder()
             .uri(baseUri.resolve("/v1/chat/completions"))
             .timeout(Duration.ofMinutes(20))
@@ -211,7 +249,9 @@ public class OpenAiLlmProvider implements LlmProvider {
             .build();
 
         HttpResponse<String> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofString());
-        return parseChatResponse(response.body());
+        ChatResponse parsed = parseChatResponse(response.body());
+        cacheResponse(cacheKey, parsed.content(), parsed.rawToolCalls());
+        return parsed;
     }
 
     /**
@@ -240,6 +280,17 @@ public class OpenAiLlmProvider implements LlmProvider {
             throws IOException, LlmProvider.LlmException {
 
         Map<String, Object> body = buildRequestBody(model, messages, true, tools);
+        String cacheKey = cacheKey("tools", body);
+        Optional<ChatResponse> cached = cachedResponse(cacheKey);
+        if (cached.isPresent()) {
+            ChatResponse replayed = cached.get();
+            if (replayed.hasToolCalls() && verboseHandler != null
+                    && replayed.content() != null && !replayed.content().isEmpty()) {
+                verboseHandler.accept(replayed.content());
+                System.err.println();
+            }
+            return replayed;
+        }
         HttpRequest request = HttpRequest.newBuilder()
             .uri(baseUri.resolve("/v1/chat/completions"))
             .timeout(Duration.ofMinutes(20))
@@ -275,7 +326,9 @@ public class OpenAiLlmProvider implements LlmProvider {
 
         if (tcNames.isEmpty()) {
             // Direct answer — caller's responseHandler will stream it; don't also send to verboseHandler
-            return new ChatResponse(contentBuf.isEmpty() ? null : contentBuf.toString(), List.of(), null);
+            String content = contentBuf.isEmpty() ? null : contentBuf.toString();
+            cacheResponse(cacheKey, content, null);
+            return new ChatResponse(content, List.of(), null);
         }
 
         // Pre-tool reasoning content — send to verboseHandler before announcing tool calls
@@ -306,7 +359,60 @@ public class OpenAiLlmProvider implements LlmProvider {
             tcMap.put("function", fnMap);
             rawList.add(tcMap);
         }
-        return new ChatResponse(contentBuf.isEmpty() ? null : contentBuf.toString(), toolCalls, rawList);
+        String content = contentBuf.isEmpty() ? null : contentBuf.toString();
+        cacheResponse(cacheKey, content, rawList);
+        return new ChatResponse(content, toolCalls, rawList);
+    }
+
+    /**
+     * Cache key of a request: the request body without the transport-only {@code stream} flag,
+     * plus the endpoint and the kind of call ({@code chat} returns text only, {@code tools} may
+     * return tool calls).
+     */
+    private String cacheKey(String call, Map<String, Object> body) {
+        if (responseCache == null) {
+            return null;
+        }
+        Map<String, Object> request = new LinkedHashMap<>(body);
+        request.remove("stream");
+        request.put("call", call);
+        request.put("endpoint", baseUri.toString());
+        return LlmResponseCache.key(request);
+    }
+
+    private Optional<ChatResponse> cachedResponse(String cacheKey) {
+        if (cacheKey == null) {
+            return Optional.empty();
+        }
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(parseChatResponse(cached.get()));
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty(); // corrupt entry, treat as a miss
+        }
+    }
+
+    /** Stores a response in the shape of a non-streaming completion, so it is read back with {@link #parseChatResponse}. */
+    private void cacheResponse(String cacheKey, String content, Object rawToolCalls) {
+        if (cacheKey == null) {
+            return;
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", "assistant");
+        if (content != null) {
+            message.put("content", content);
+        }
+        if (rawToolCalls != null) {
+            message.put("tool_calls", rawToolCalls);
+        }
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("message", message);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("choices", List.of(choice));
+        responseCache.put(cacheKey, PrettyPrinter.compactPrint(root));
     }
 
     @SuppressWarnings("unchecked")
@@ -524,6 +630,9 @@ public class OpenAiLlmProvider implements LlmProvider {
     /**
      * Tool-calling loop with optional verbose handler for streaming pre-tool reasoning tokens.
      *
+     * <p>The tool calls of one model turn are executed concurrently (see {@link ToolCallRunner});
+     * their results are added to the conversation in call order.
+     *
      * <p>After the first iteration the tool definitions are omitted from subsequent requests —
      * the model already has the schemas in its assistant messages, so resending them wastes
      * ~2400 tokens per round. {@code buildRequestBody} already handles {@code tools=null}
@@ -538,6 +647,18 @@ public class OpenAiLlmProvider implements LlmProvider {
                                     boolean appendFinalAssistant,
                                     Consumer<String> verboseHandler)
             throws IOException, LlmProvider.LlmException {
+        try (ToolCallRunner runner = new ToolCallRunner(executor, toolParallelism, toolTimeout)) {
+            return runToolLoop(model, conversation, tools, runner, handlers, maxIterations,
+                appendFinalAssistant, verboseHandler);
+        }
+    }
+
+    private String runToolLoop(String model, List<LlmProvider.Message> conversation,
+                               List<ToolDefinition> tools, ToolCallRunner runner,
+                               StreamHandlers handlers, int maxIterations,
+                               boolean appendFinalAssistant,
+                               Consumer<String> verboseHandler)
+            throws IOException, LlmProvider.LlmException {
 
         boolean toolsLoaded = false;
         for (int iteration = 0; iteration < maxIterations; iteration++) {
@@ -574,10 +695,12 @@ public class OpenAiLlmProvider implements LlmProvider {
             // Model wants to call tools
             conversation.add(LlmProvider.Message.assistantWithToolCalls(response.rawToolCalls()));
 
-            // Execute each tool call and add results
-            for (ToolCall call : response.toolCalls()) {
-                System.err.println("  [tool] " + call.name() + "(" + formatArgs(call.arguments()) + ")");
-                String result = executor.execute(call);
+            // Execute the tool calls concurrently and add the results in call order
+            for (ToolCallRunner.Result executed : runner.run(response.toolCalls())) {
+                ToolCall call = executed.call();
+                System.err.println("  [tool] " + call.name() + "(" + formatArgs(call.arguments()) + ") "
+                    + (executed.timedOut() ? "timed out" : executed.latencyMs() + " ms"));
+                String result = executed.output() != null ? executed.output() : "";
                 if (result.length() > 8000) {
                     result = result.substring(0, 8000) + "\n... (truncated to 8000 chars)";
                 }
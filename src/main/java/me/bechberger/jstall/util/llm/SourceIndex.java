@@ -0,0 +1,620 @@
+package me.bechberger.jstall.util.llm;
+
+import me.bechberger.jstall.util.RegexLiterals;
+import me.bechberger.jthreaddump.model.StackFrame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Trigram index over the files of a source root, used by {@link SourceTools} so that
+ * {@code grep_source} and {@code list_source_files} do not walk and scan the whole tree per call.
+ *
+ * <p>Every file gets a dense id. Its text is folded into a 64-character alphabet (letters
+ * case-insensitive, digits, common punctuation, everything else in one class) and each distinct
+ * trigram maps to a delta-encoded list of file ids. A grep intersects the postings of the literals
+ * the pattern requires and only reads the remaining candidate files. Files larger than
+ * {@link #MAX_INDEXED_BYTES} are not tokenized and always scanned, binary files are never grepped.
+ *
+ * <p>The index is persisted per root in {@code $XDG_CACHE_HOME/jstall/source-index} and validated
+ * against the size and modification time of every file when opened: unchanged files keep their
+ * postings, changed and new files are re-indexed, and ids of changed or deleted files are
+ * tombstoned until enough of them accumulate to compact the index.
+ *
+ * <p>The index also maps stack frames to files: the package declaration of every JVM source file
+ * is recorded, so {@link #resolve(StackFrame)} finds {@code com.example.Foo$Inner.run(Foo.java:42)}
+ * through a lookup of {@code com/example/Foo.java} instead of a search.
+ *
+ * <p>Thread-safe once opened.
+ */
+public final class SourceIndex {
+
+    /** One line matching a grep. */
+    public record Hit(String relativePath, int line, String text) {}
+
+    /**
+     * Source position of a stack frame.
+     *
+     * @param line   1-based line number
+     * @param offset byte offset of the start of {@code line} in the file
+     */
+    public record Location(Path file, String relativePath, int line, long offset) {}
+
+    /** Directory names that are never indexed. */
+    static final Set<String> SKIP_DIRS = Set.of(
+        "target", "build", ".git", "node_modules", ".gradle", "out", ".idea"
+    );
+    /** Files above this size are not tokenized but scanned on every grep. */
+    static final int MAX_INDEXED_BYTES = 1024 * 1024;
+
+    private static final int MAGIC = 0x4a535849; // "JSXI"
+    private static final int VERSION = 1;
+    private static final int BINARY_PROBE_BYTES = 8000;
+    private static final int PACKAGE_PROBE_CHARS = 8192;
+    private static final String PUNCTUATION = "_.$(){}[]<>=:;,\"'@+-*/!&|#";
+    private static final int OTHER_CLASS = 63;
+    private static final int TRIGRAM_SPACE = 1 << 18;
+    private static final Set<String> JVM_SOURCE_SUFFIXES = Set.of(".java", ".kt", ".scala", ".groovy");
+    private static final Pattern PACKAGE = Pattern.compile("(?m)^\\s*package\\s+([\\w.]+)");
+
+    private static final byte INDEXED = 1;
+    private static final byte BINARY = 2;
+
+    private static final class Entry {
+        final String path;
+        final long modified;
+        final long size;
+        final byte flags;
+        final String sourceKey;
+        boolean alive = true;
+
+        Entry(String path, long modified, long size, byte flags, String sourceKey) {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+            this.flags = flags;
+            this.sourceKey = sourceKey;
+        }
+    }
+
+    private final Path root;
+    private List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> byPath = new HashMap<>();
+    private final Map<String, Integer> bySourceKey = new HashMap<>();
+    private final byte[][] postings = new byte[TRIGRAM_SPACE][];
+    private final int[] postingLengths = new int[TRIGRAM_SPACE];
+    private final int[] lastIds = new int[TRIGRAM_SPACE];
+    private int deadCount;
+    /** Live ids in path order, computed once the index is up to date. */
+    private int[] sorted = new int[0];
+
+    private SourceIndex(Path root) {
+        this.root = root;
+        Arrays.fill(lastIds, -1);
+    }
+
+    /** Returns the default directory for persisted indexes. */
+    public static Path defaultDirectory() {
+        return CacheDirectory.resolve("source-index");
+    }
+
+    /**
+     * Opens the index of {@code root}: loads the persisted index from {@code directory} if present,
+     * brings it up to date with the files on disk and persists it again if anything changed.
+     *
+     * @param directory where indexes are persisted, or null to keep the index in memory only
+     */
+    public static SourceIndex open(Path root, Path directory) {
+        Path normalized = root.toAbsolutePath().normalize();
+        Path file = directory != null ? directory.resolve(fileName(normalized)) : null;
+        SourceIndex index = file != null ? load(file, normalized) : null;
+        boolean loaded = index != null;
+        if (index == null) {
+            index = new SourceIndex(normalized);
+        }
+        boolean changed = index.refresh();
+        if (index.deadCount * 4 > index.entries.size()) {
+            index.compact();
+        }
+        index.sorted = index.sortLive();
+        if (file != null && (changed || !loaded)) {
+            index.save(file);
+        }
+        return index;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /** Number of files in the index. */
+    public int fileCount() {
+        return sorted.length;
+    }
+
+    /** Lists the relative paths accepted by {@code filter}, in path order. */
+    public List<String> list(Predicate<String> filter, int limit) {
+        List<String> result = new ArrayList<>();
+        for (int id : sorted) {
+            if (result.size() >= limit) {
+                break;
+            }
+            String path = entries.get(id).path;
+            if (filter.test(path)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the lines containing {@code pattern} ({@link Matcher#find()}) in the files accepted by
+     * {@code filter}, in path and line order.
+     */
+    public List<Hit> grep(Pattern pattern, Predicate<String> filter, int limit) {
+        List<String> literals = RegexLiterals.required(pattern);
+        BitSet candidates = candidates(literals);
+        List<Hit> hits = new ArrayList<>();
+        for (int id : sorted) {
+            if (hits.size() >= limit) {
+                break;
+            }
+            Entry entry = entries.get(id);
+            if ((entry.flags & BINARY) != 0
+                || ((entry.flags & INDEXED) != 0 && candidates != null && !candidates.get(id))
+                || !filter.test(entry.path)) {
+                continue;
+            }
+            String text;
+            try {
+                text = new String(Files.readAllBytes(root.resolve(entry.path)), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                continue;
+            }
+            int lineNumber = 0;
+            for (String line : (Iterable<String>) text.lines()::iterator) {
+                lineNumber++;
+                if (pattern.matcher(line).find()) {
+                    hits.add(new Hit(entry.path, lineNumber, line));
+                    if (hits.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    /** Resolves the source file and line of a stack frame. */
+    public Optional<Location> resolve(StackFrame frame) {
+        return resolve(frame.className(), frame.fileName(), frame.lineNumber() != null ? frame.lineNumber() : 0);
+    }
+
+    /**
+     * Resolves the source file of {@code className} (nested classes map to their top-level
+     * class) and the byte offset of {@code line} in it.
+     *
+     * @param fileName the file name recorded in the frame, or null to assume {@code Simple.java}
+     * @param line     1-based line, values below 1 map to the start of the file
+     */
+    public Optional<Location> resolve(String className, String fileName, int line) {
+        if (className == null || className.isEmpty()) {
+            return Optional.empty();
+        }
+        int dot = className.lastIndexOf('.');
+        String packagePath = dot > 0 ? className.substring(0, dot).replace('.', '/') : "";
+        String file = fileName;
+        if (file == null || file.isBlank()) {
+            String simple = className.substring(dot + 1);
+            int dollar = simple.indexOf('$');
+            file = (dollar > 0 ? simple.substring(0, dollar) : simple) + ".java";
+        }
+        String key = packagePath.isEmpty() ? file : packagePath + "/" + file;
+        Integer id = bySourceKey.get(key);
+        if (id == null) {
+            // Package declaration unknown (large file, default package): match by path suffix
+            for (int candidate : sorted) {
+                String path = entries.get(candidate).path;
+                if (path.equals(key) || path.endsWith("/" + key)) {
+                    id = candidate;
+                    break;
+                }
+            }
+        }
+        if (id == null) {
+            return Optional.empty();
+        }
+        String relativePath = entries.get(id).path;
+        Path path = root.resolve(relativePath);
+        int effectiveLine = Math.max(1, line);
+        long offset = 0;
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            int current = 1;
+            for (int i = 0; i < bytes.length && current < effectiveLine; i++) {
+                if (bytes[i] == '\n') {
+                    current++;
+                    offset = i + 1;
+                }
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return Optional.of(new Location(path, relativePath, effectiveLine, offset));
+    }
+
+    // -------------------------------------------------------------------------
+
+    /** Ids of the files that may contain all literals, or null if the index cannot narrow it down. */
+    private BitSet candidates(List<String> literals) {
+        BitSet result = null;
+        for (String literal : literals) {
+            for (int i = 0; i + 3 <= literal.length(); i++) {
+                int key = trigram(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2));
+                BitSet ids = decode(key);
+                if (result == null) {
+                    result = ids;
+                } else {
+                    result.and(ids);
+                }
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private BitSet decode(int key) {
+        BitSet ids = new BitSet(entries.size());
+        byte[] list = postings[key];
+        int length = postingLengths[key];
+        int id = -1;
+        int pos = 0;
+        while (pos < length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = list[pos++];
+                delta |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += delta;
+            ids.set(id);
+        }
+        return ids;
+    }
+
+    private static int charClass(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        int punctuation = PUNCTUATION.indexOf(c);
+        return punctuation >= 0 ? 37 + punctuation : OTHER_CLASS;
+    }
+
+    private static int trigram(char a, char b, char c) {
+        return (charClass(a) << 12) | (charClass(b) << 6) | charClass(c);
+    }
+
+    /** Walks the root and re-indexes new and changed files; returns whether anything changed. */
+    private boolean refresh() {
+        int previous = entries.size();
+        BitSet seen = new BitSet(previous);
+        boolean[] changed = {false};
+        BitSet trigrams = new BitSet(TRIGRAM_SPACE);
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return !dir.equals(root) && SKIP_DIRS.contains(dir.getFileName().toString())
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String path = root.relativize(file).toString();
+                    long modified = attrs.lastModifiedTime().toMillis();
+                    Integer id = byPath.get(path);
+                    if (id != null) {
+                        Entry entry = entries.get(id);
+                        if (entry.modified == modified && entry.size == attrs.size()) {
+                            seen.set(id);
+                            return FileVisitResult.CONTINUE;
+                        }
+                        kill(id);
+                    }
+                    add(file, path, modified, attrs.size(), trigrams);
+                    changed[0] = true;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {
+            // Unreadable root: the index stays as it is
+        }
+        for (int id = 0; id < previous; id++) {
+            if (entries.get(id).alive && !seen.get(id)) {
+                kill(id);
+                changed[0] = true;
+            }
+        }
+        return changed[0];
+    }
+
+    private void add(Path file, String path, long modified, long size, BitSet trigrams) {
+        int id = entries.size();
+        byte flags = 0;
+        String sourceKey = null;
+        if (size <= MAX_INDEXED_BYTES) {
+            try {
+                byte[] bytes = Files.readAllBytes(file);
+                if (isBinary(bytes)) {
+                    flags = BINARY;
+                } else {
+                    String text = new String(bytes, StandardCharsets.UTF_8);
+                    indexTrigrams(id, text, trigrams);
+                    sourceKey = sourceKey(path, text);
+                    flags = INDEXED;
+                }
+            } catch (IOException e) {
+                // Unreadable now: left unindexed, so it is scanned if it becomes readable
+            }
+        }
+        entries.add(new Entry(path, modified, size, flags, sourceKey));
+        byPath.put(path, id);
+        if (sourceKey != null) {
+            bySourceKey.putIfAbsent(sourceKey, id);
+        }
+    }
+
+    private void kill(int id) {
+        Entry entry = entries.get(id);
+        entry.alive = false;
+        deadCount++;
+        byPath.remove(entry.path, id);
+        if (entry.sourceKey != null) {
+            bySourceKey.remove(entry.sourceKey, id);
+        }
+    }
+
+    private static boolean isBinary(byte[] bytes) {
+        for (int i = 0; i < Math.min(bytes.length, BINARY_PROBE_BYTES); i++) {
+            if (bytes[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void indexTrigrams(int id, String text, BitSet trigrams) {
+        trigrams.clear();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.set(trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+        }
+        for (int key = trigrams.nextSetBit(0); key >= 0; key = trigrams.nextSetBit(key + 1)) {
+            append(key, id);
+        }
+    }
+
+    private void append(int key, int id) {
+        int delta = id - lastIds[key];
+        lastIds[key] = id;
+        byte[] list = postings[key];
+        int length = postingLengths[key];
+        if (list == null) {
+            list = new byte[8];
+        } else if (length + 5 > list.length) {
+            list = Arrays.copyOf(list, Math.max(list.length * 2, length + 5));
+        }
+        while ((delta & ~0x7f) != 0) {
+            list[length++] = (byte) ((delta & 0x7f) | 0x80);
+            delta >>>= 7;
+        }
+        list[length++] = (byte) delta;
+        postings[key] = list;
+        postingLengths[key] = length;
+    }
+
+    /** {@code com/example/Foo.java} for a JVM source file declaring {@code package com.example}. */
+    private static String sourceKey(String path, String text) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || !JVM_SOURCE_SUFFIXES.contains(path.substring(dot))) {
+            return null;
+        }
+        String fileName = Path.of(path).getFileName().toString();
+        Matcher matcher = PACKAGE.matcher(text).region(0, Math.min(text.length(), PACKAGE_PROBE_CHARS));
+        return matcher.find() ? matcher.group(1).replace('.', '/') + "/" + fileName : fileName;
+    }
+
+    /** Drops tombstoned entries and renumbers the remaining ones. */
+    private void compact() {
+        int[] remap = new int[entries.size()];
+        List<Entry> live = new ArrayList<>(entries.size() - deadCount);
+        for (int id = 0; id < entries.size(); id++) {
+            Entry entry = entries.get(id);
+            remap[id] = entry.alive ? live.size() : -1;
+            if (entry.alive) {
+                live.add(entry);
+            }
+        }
+        for (int key = 0; key < TRIGRAM_SPACE; key++) {
+            if (postings[key] == null) {
+                continue;
+            }
+            BitSet ids = decode(key);
+            postings[key] = null;
+            postingLengths[key] = 0;
+            lastIds[key] = -1;
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                if (remap[id] >= 0) {
+                    append(key, remap[id]);
+                }
+            }
+        }
+        entries = live;
+        deadCount = 0;
+        byPath.clear();
+        bySourceKey.clear();
+        for (int id = 0; id < entries.size(); id++) {
+            Entry entry = entries.get(id);
+            byPath.put(entry.path, id);
+            if (entry.sourceKey != null) {
+                bySourceKey.putIfAbsent(entry.sourceKey, id);
+            }
+        }
+    }
+
+    private int[] sortLive() {
+        return IntStream.range(0, entries.size())
+            .filter(id -> entries.get(id).alive)
+            .boxed()
+            .sorted(Comparator.comparing(id -> entries.get(id).path))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static String fileName(Path root) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16) + ".idx";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Reads a persisted index, or returns null if it is missing, corrupt or for another root. */
+    private static SourceIndex load(Path file, Path root) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(root.toString())) {
+                return null;
+            }
+            SourceIndex index = new SourceIndex(root);
+            int count = in.readInt();
+            for (int id = 0; id < count; id++) {
+                String path = in.readUTF();
+                long modified = in.readLong();
+                long size = in.readLong();
+                byte flags = in.readByte();
+                boolean alive = in.readBoolean();
+                String sourceKey = in.readUTF();
+                Entry entry = new Entry(path, modified, size, flags, sourceKey.isEmpty() ? null : sourceKey);
+                index.entries.add(entry);
+                if (alive) {
+                    index.byPath.put(path, id);
+                    if (entry.sourceKey != null) {
+                        index.bySourceKey.putIfAbsent(entry.sourceKey, id);
+                    }
+                } else {
+                    entry.alive = false;
+                    index.deadCount++;
+                }
+            }
+            int keys = in.readInt();
+            for (int i = 0; i < keys; i++) {
+                int key = in.readInt();
+                index.lastIds[key] = in.readInt();
+                int length = in.readInt();
+                index.postings[key] = in.readNBytes(length);
+                index.postingLengths[key] = length;
+                if (index.postings[key].length != length) {
+                    return null;
+                }
+            }
+            return index;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Persists the index; failures only cost a rebuild on the next run. */
+    private void save(Path file) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(root.toString());
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.path);
+                    out.writeLong(entry.modified);
+                    out.writeLong(entry.size);
+                    out.writeByte(entry.flags);
+                    out.writeBoolean(entry.alive);
+                    out.writeUTF(entry.sourceKey != null ? entry.sourceKey : "");
+                }
+                int keys = 0;
+                for (byte[] list : postings) {
+                    if (list != null) {
+                        keys++;
+                    }
+                }
+                out.writeInt(keys);
+                for (int key = 0; key < TRIGRAM_SPACE; key++) {
+                    if (postings[key] != null) {
+                        out.writeInt(key);
+                        out.writeInt(lastIds[key]);
+                        out.writeInt(postingLengths[key]);
+                        out.write(postings[key], 0, postingLengths[key]);
+                    }
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ignored) {
+            // Best effort, like the LLM response cache
+        }
+    }
+}
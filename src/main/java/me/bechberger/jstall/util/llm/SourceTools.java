@@ -7,6 +7,9 @@ import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Stream;
@@ -23,16 +26,24 @@ import java.util.stream.Stream;
  *
  * <p>All paths are verified to stay within the configured root (symlinks resolved).
  * Automatically skips {@code target/}, {@code build/}, {@code .git/}, {@code node_modules/}.
+ * Listing and grepping the root go through a persisted {@link SourceIndex}, opened lazily on the
+ * first call and re-opened (which re-validates it against the files on disk) when a call comes
+ * in more than {@link #REFRESH_INTERVAL_MS} after the last check, so that files created or edited
+ * during a session are found; the fallback directories are still walked.
  */
 public class SourceTools {
 
-    private static final List<String> SKIP_DIRS = List.of(
-        "target", "build", ".git", "node_modules", ".gradle", "out", ".idea"
-    );
     private static final int MAX_LIST_RESULTS = 200;
     private static final int MAX_GREP_HITS = 50;
     private static final int MAX_READ_LINES = 500;
     private static final int MAX_LINE_LENGTH = 200;
+    /** Calls within this time of the last index check reuse the index without re-validating it. */
+    static final long REFRESH_INTERVAL_MS = 2000;
+    /** Lines shown before and after the line of a stack frame passed to read_source_file. */
+    private static final int FRAME_CONTEXT_LINES = 10;
+    /** {@code com.example.Foo.bar(Foo.java:42)}, optionally prefixed with {@code at}. */
+    private static final Pattern FRAME = Pattern.compile(
+        "(?:at\\s+)?([\\w$.]+)\\.[\\w$<>]+\\(([^:()]*)(?::(\\d+))?\\)");
 
     /** Temp directories to search when the primary root yields no results. Used for grep/list. */
     private static final List<String> FALLBACK_TMP_ROOTS = buildFallbackTmpRoots();
@@ -62,9 +73,39 @@ public class SourceTools {
     }
 
     private final Path root;
+    private final Path indexDirectory;
+    private final long refreshIntervalMs;
+    private SourceIndex index;
+    private long indexCheckedNanos;
 
     public SourceTools(Path root) {
+        this(root, SourceIndex.defaultDirectory());
+    }
+
+    /**
+     * @param indexDirectory where the source index is persisted, or null to keep it in memory only
+     */
+    public SourceTools(Path root, Path indexDirectory) {
+        this(root, indexDirectory, REFRESH_INTERVAL_MS);
+    }
+
+    SourceTools(Path root, Path indexDirectory, long refreshIntervalMs) {
         this.root = root.toAbsolutePath().normalize();
+        this.indexDirectory = indexDirectory;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Returns the index of the source root, opening (and if needed building) it on first use and
+     * re-opening it if it was last checked against the files more than the refresh interval ago.
+     */
+    public synchronized SourceIndex index() {
+        long now = System.nanoTime();
+        if (index == null || now - indexCheckedNanos >= refreshIntervalMs * 1_000_000) {
+            index = SourceIndex.open(root, indexDirectory);
+            indexCheckedNanos = System.nanoTime();
+        }
+        return index;
     }
 
     public List<ToolDefinition> getToolDefinitions() {
@@ -79,10 +120,10 @@ public class SourceTools {
             ),
             new ToolDefinition(
                 "read_source_file",
-                "Read a source file. Accepts relative path, absolute path, or bare filename. Searches /tmp automatically.",
+                "Read a source file. Accepts relative path, absolute path, bare filename, or a stack frame. Searches /tmp automatically.",
                 List.of(
                     new ToolDefinition.Parameter("path", "string",
-                        "Relative path, absolute path, or filename e.g. \"BlockedApp.java\""),
+                        "Relative path, absolute path, filename e.g. \"BlockedApp.java\", or stack frame e.g. \"com.example.Foo.bar(Foo.java:42)\" (shows the lines around it)"),
                     new ToolDefinition.Parameter("start_line", "integer",
                         "First line to read (1-based, default: 1)", false),
                     new ToolDefinition.Parameter("end_line", "integer",
@@ -109,7 +150,7 @@ public class SourceTools {
                     case "list_source_files" -> listSourceFiles(call.getString("pattern", null));
                     case "read_source_file"  -> readSourceFile(
                         call.getString("path", ""),
-                        call.getInt("start_line", 1),
+                        call.getInt("start_line", 0),
                         call.getInt("end_line", -1));
                     case "grep_source"       -> grepSource(
                         call.getString("pattern", ""),
@@ -129,7 +170,7 @@ public class SourceTools {
             ? pattern
             : "**/*.{java,kt,scala,groovy}";
 
-        List<String> results = searchInRoot(root, effectivePattern);
+        List<String> results = index().list(globFilter(effectivePattern), MAX_LIST_RESULTS);
 
         // If nothing found in primary root, try fallback tmp directories
         if (results.isEmpty()) {
@@ -178,6 +219,25 @@ public class SourceTools {
     private String readSourceFile(String path, int startLine, int endLine) throws IOException {
         if (path == null || path.isBlank()) return "Error: path is required.";
 
+        // A stack frame resolves through the index to its file, centered on the frame's line
+        Matcher frame = FRAME.matcher(path.strip());
+        if (frame.matches()) {
+            int line = frame.group(3) != null ? Integer.parseInt(frame.group(3)) : 0;
+            // "Native Method" and "Unknown Source" are not file names
+            String fileName = frame.group(2).contains(".") ? frame.group(2) : null;
+            Optional<SourceIndex.Location> location = index().resolve(frame.group(1), fileName, line);
+            if (location.isEmpty()) {
+                return "Error: no source file for frame '" + path + "' under source root.";
+            }
+            path = location.get().relativePath();
+            if (startLine <= 0 && line > 0) {
+                startLine = Math.max(1, line - FRAME_CONTEXT_LINES);
+                if (endLine <= 0) {
+                    endLine = line + FRAME_CONTEXT_LINES;
+                }
+            }
+        }
+
         // Reject obvious traversal attempts
         if (path.contains("..")) {
             return "Error: path '" + path + "' contains path traversal sequences.";
@@ -251,7 +311,10 @@ public class SourceTools {
         String flatGlob = effectiveGlob.startsWith("**/") ? effectiveGlob.substring(3) : null;
         PathMatcher flatFileMatcher = flatGlob != null ? buildMatcher(flatGlob) : null;
 
-        List<String> hits = grepInRoot(root, compiled, fileMatcher, flatFileMatcher);
+        List<String> hits = new ArrayList<>();
+        for (SourceIndex.Hit hit : index().grep(compiled, globFilter(effectiveGlob), MAX_GREP_HITS)) {
+            hits.add(formatHit(hit.relativePath(), hit.line(), hit.text()));
+        }
 
         // If no hits in primary root, try fallback tmp directories
         if (hits.isEmpty()) {
@@ -290,11 +353,7 @@ public class SourceTools {
                         for (int i = 0; i < fileLines.size() && hits.size() < MAX_GREP_HITS; i++) {
                             String line = fileLines.get(i);
                             if (compiled.matcher(line).find()) {
-                                String relPath = searchRoot.relativize(file).toString();
-                                String truncated = line.length() > MAX_LINE_LENGTH
-                                    ? line.substring(0, MAX_LINE_LENGTH) + "..."
-                                    : line;
-                                hits.add(relPath + ":" + (i + 1) + ": " + truncated.strip());
+                                hits.add(formatHit(searchRoot.relativize(file).toString(), i + 1, line));
                             }
                         }
                     } catch (IOException ignored) {}
@@ -305,6 +364,13 @@ public class SourceTools {
         return hits;
     }
 
+    private static String formatHit(String relPath, int line, String text) {
+        String truncated = text.length() > MAX_LINE_LENGTH
+            ? text.substring(0, MAX_LINE_LENGTH) + "..."
+            : text;
+        return relPath + ":" + line + ": " + truncated.strip();
+    }
+
     // -------------------------------------------------------------------------
 
     /** Resolve a relative path inside the source root, rejecting traversals. */
@@ -326,11 +392,21 @@ public class SourceTools {
 
     private boolean isSkipped(Path p) {
         for (Path segment : p) {
-            if (SKIP_DIRS.contains(segment.toString())) return true;
+            if (SourceIndex.SKIP_DIRS.contains(segment.toString())) return true;
         }
         return false;
     }
 
+    /** Matches relative paths against a glob, also accepting files directly in the root for {@code **}{@code /} globs. */
+    private Predicate<String> globFilter(String glob) {
+        PathMatcher matcher = buildMatcher(glob);
+        PathMatcher flatMatcher = glob.startsWith("**/") ? buildMatcher(glob.substring(3)) : null;
+        return path -> {
+            Path rel = Path.of(path);
+            return matcher.matches(rel) || (flatMatcher != null && flatMatcher.matches(rel));
+        };
+    }
+
     private PathMatcher buildMatcher(String glob) {
         return FileSystems.getDefault().getPathMatcher("glob:" + glob);
     }
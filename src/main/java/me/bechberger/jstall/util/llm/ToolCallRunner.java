@@ -0,0 +1,172 @@
+package me.bechberger.jstall.util.llm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the tool calls of one model turn concurrently on a bounded pool of daemon threads.
+ *
+ * <p>Results are returned in the order of the calls, independent of completion order, so the
+ * conversation sent back to the model is deterministic. Each call gets its own timeout, measured
+ * from the moment it starts running; a call that does not finish in time is cancelled and
+ * reported to the model as timed out. Executors that touch global state must serialize
+ * themselves (see {@link JstallCommandTool}), waiting interruptibly and calling
+ * {@link #restartTimeout()} once it is their turn.
+ */
+public final class ToolCallRunner implements AutoCloseable {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
+
+    /**
+     * Outcome of one tool call.
+     *
+     * @param latencyMs wall-clock execution time (the timeout for timed-out calls)
+     */
+    public record Result(ToolCall call, String output, long latencyMs, boolean timedOut) {}
+
+    private static final ThreadLocal<Task> CURRENT = new ThreadLocal<>();
+
+    private final ToolExecutor executor;
+    private final int parallelism;
+    private final Duration timeout;
+    private ExecutorService pool;
+
+    public ToolCallRunner(ToolExecutor executor) {
+        this(executor, DEFAULT_PARALLELISM, DEFAULT_TIMEOUT);
+    }
+
+    public ToolCallRunner(ToolExecutor executor, int parallelism, Duration timeout) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    private final class Task implements Callable<String> {
+        final ToolCall call;
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile long startNanos;
+        volatile long endNanos;
+
+        Task(ToolCall call) {
+            this.call = call;
+        }
+
+        @Override
+        public String call() {
+            startNanos = System.nanoTime();
+            started.countDown();
+            CURRENT.set(this);
+            try {
+                return executor.execute(call);
+            } finally {
+                CURRENT.remove();
+                endNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Restarts the timeout of the tool call running on the current thread, for executors that
+     * first had to wait for a lock; does nothing outside of a tool call.
+     */
+    public static void restartTimeout() {
+        Task task = CURRENT.get();
+        if (task != null) {
+            task.startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Runs all calls, at most {@code parallelism} at a time, and waits for them.
+     *
+     * @return one result per call, in call order
+     */
+    public List<Result> run(List<ToolCall> calls) {
+        List<Task> tasks = new ArrayList<>(calls.size());
+        List<Future<String>> futures = new ArrayList<>(calls.size());
+        for (ToolCall call : calls) {
+            Task task = new Task(call);
+            tasks.add(task);
+            futures.add(pool().submit(task));
+        }
+        List<Result> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            results.add(await(tasks.get(i), futures.get(i)));
+        }
+        return results;
+    }
+
+    private Result await(Task task, Future<String> future) {
+        long timeoutNanos = timeout.toNanos();
+        try {
+            // Queued behind other calls: the timeout only starts once the call runs
+            if (!task.started.await(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                future.cancel(true);
+                return timedOut(task.call, "did not start within " + timeout.toSeconds() + "s");
+            }
+            while (true) {
+                long remaining = task.startNanos + timeoutNanos - System.nanoTime();
+                try {
+                    String output = future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                    return new Result(task.call, output, (task.endNanos - task.startNanos) / 1_000_000, false);
+                } catch (TimeoutException e) {
+                    // The call may have restarted its timeout in the meantime
+                    if (task.startNanos + timeoutNanos - System.nanoTime() <= 0) {
+                        future.cancel(true);
+                        return timedOut(task.call, "timed out after " + timeout.toSeconds() + "s");
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new Result(task.call, "Error executing tool " + task.call.name() + ": " + cause.getMessage(),
+                (task.endNanos - task.startNanos) / 1_000_000, false);
+        } catch (CancellationException e) {
+            return timedOut(task.call, "was cancelled");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return timedOut(task.call, "was interrupted");
+        }
+    }
+
+    private Result timedOut(ToolCall call, String reason) {
+        return new Result(call, "Error: tool " + call.name() + " " + reason + ".", timeout.toMillis(), true);
+    }
+
+    private ExecutorService pool() {
+        if (pool == null) {
+            AtomicInteger counter = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "jstall-tool-" + counter.incrementAndGet());
+                // Timed-out calls that ignore interruption must not keep the JVM alive
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
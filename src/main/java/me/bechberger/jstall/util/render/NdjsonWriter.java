@@ -0,0 +1,172 @@
+package me.bechberger.jstall.util.render;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.util.json.PrettyPrinter;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams analyzer results as newline-delimited JSON, straight from the structured
+ * {@link AnalyzerOutput} instead of the rendered text.
+ * <p>
+ * One result is a sequence of records, each a single line flushed as soon as it is written:
+ * <pre>{@code
+ * {"type":"begin","analyzer":"status","target":{"pid":123,"mainClass":"App"},"frame":1,"timestamp":"..."}
+ * {"type":"section","path":["gc-heap-info"]}
+ * {"type":"table","path":["gc-heap-info"],"preamble":[...],"columns":[{"name":"USED","align":"right"}],"rows":2}
+ * {"type":"row","path":["gc-heap-info"],"index":0,"cells":[{"kind":"bytes","value":1048576,"text":"1.00 MB"}]}
+ * {"type":"text","path":["deadlock"],"text":"..."}
+ * {"type":"end","analyzer":"status","frame":1,"exitCode":0}
+ * }</pre>
+ * {@code path} holds the names of the enclosing {@link AnalyzerOutput.CompositeOutput} sections
+ * (empty for top-level content). Cells carry their kind ({@code text}, {@code integer},
+ * {@code bytes}, {@code number}), the numeric value where there is one, the displayed text and
+ * an optional color. Results without anything to report only emit {@code begin} and {@code end}.
+ * Text is written without ANSI escapes.
+ */
+public final class NdjsonWriter {
+
+    private final PrintStream out;
+
+    public NdjsonWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes all records of one result.
+     *
+     * @param target JSON-compatible description of the analyzed target (e.g. pid and main class), or null
+     * @param frame sequence number of the result (live mode tick, or 0 for one-shot runs)
+     * @param timestamp ISO-8601 time of the result, or null
+     */
+    public void writeResult(String analyzer, Map<String, Object> target, long frame, String timestamp, AnalyzerResult result) {
+        Map<String, Object> begin = record("begin");
+        begin.put("analyzer", analyzer);
+        if (target != null) {
+            begin.put("target", target);
+        }
+        begin.put("frame", frame);
+        if (timestamp != null) {
+            begin.put("timestamp", timestamp);
+        }
+        write(begin);
+        if (result.shouldDisplay() && result.structured() != null) {
+            writeOutput(List.of(), result.structured());
+        }
+        Map<String, Object> end = record("end");
+        end.put("analyzer", analyzer);
+        end.put("frame", frame);
+        end.put("exitCode", result.exitCode());
+        write(end);
+    }
+
+    /** Writes an error record, e.g. for a target that could not be analyzed. */
+    public void writeError(String analyzer, Map<String, Object> target, long frame, String message) {
+        Map<String, Object> error = record("error");
+        error.put("analyzer", analyzer);
+        if (target != null) {
+            error.put("target", target);
+        }
+        error.put("frame", frame);
+        error.put("message", message);
+        write(error);
+    }
+
+    private void writeOutput(List<String> path, AnalyzerOutput output) {
+        if (output instanceof AnalyzerOutput.TextOutput text) {
+            if (text.text() == null || text.text().isBlank()) {
+                return;
+            }
+            Map<String, Object> record = record("text", path);
+            record.put("text", AnsiCodes.strip(text.text()));
+            write(record);
+        } else if (output instanceof AnalyzerOutput.TableOutput table) {
+            writeTable(path, table);
+        } else if (output instanceof AnalyzerOutput.CompositeOutput composite) {
+            for (AnalyzerOutput.CompositeOutput.Section section : composite.sections()) {
+                List<String> sectionPath = new ArrayList<>(path);
+                sectionPath.add(section.name());
+                write(record("section", sectionPath));
+                writeOutput(sectionPath, section.content());
+            }
+        }
+    }
+
+    private void writeTable(List<String> path, AnalyzerOutput.TableOutput output) {
+        TableModel table = output.table();
+        Map<String, Object> header = record("table", path);
+        List<Object> preamble = new ArrayList<>();
+        for (String line : output.preambleLines()) {
+            preamble.add(AnsiCodes.strip(line));
+        }
+        header.put("preamble", preamble);
+        List<Object> columns = new ArrayList<>();
+        for (TableModel.Column column : table.getColumns()) {
+            Map<String, Object> c = new LinkedHashMap<>();
+            c.put("name", column.header());
+            c.put("align", column.alignment().name().toLowerCase(Locale.ROOT));
+            columns.add(c);
+        }
+        header.put("columns", columns);
+        header.put("rows", table.getRowCount());
+        write(header);
+
+        int index = 0;
+        for (Cell[] row : table.getRows()) {
+            Map<String, Object> record = record("row", path);
+            record.put("index", index++);
+            List<Object> cells = new ArrayList<>(row.length);
+            for (Cell cell : row) {
+                cells.add(cell(cell));
+            }
+            record.put("cells", cells);
+            write(record);
+        }
+    }
+
+    static Map<String, Object> cell(Cell cell) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        if (cell instanceof Cell.IntegerCell integer) {
+            json.put("kind", "integer");
+            json.put("value", integer.value());
+        } else if (cell instanceof Cell.BytesCell bytes) {
+            json.put("kind", "bytes");
+            json.put("value", bytes.bytes());
+        } else if (cell instanceof Cell.NumberCell number) {
+            json.put("kind", "number");
+            json.put("value", Double.isFinite(number.value()) ? number.value() : null);
+        } else {
+            json.put("kind", "text");
+        }
+        json.put("text", AnsiCodes.strip(cell.display()));
+        if (cell.color() != null) {
+            json.put("color", cell.color().name().toLowerCase(Locale.ROOT));
+        }
+        return json;
+    }
+
+    private static Map<String, Object> record(String type) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", type);
+        return record;
+    }
+
+    private static Map<String, Object> record(String type, List<String> path) {
+        Map<String, Object> record = record(type);
+        record.put("path", new ArrayList<Object>(path));
+        return record;
+    }
+
+    private void write(Map<String, Object> record) {
+        out.println(PrettyPrinter.compactPrint(record));
+        out.flush();
+    }
+}
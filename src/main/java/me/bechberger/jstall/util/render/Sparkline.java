@@ -0,0 +1,37 @@
+package me.bechberger.jstall.util.render;
+
+/** Renders a series of non-negative values as a one-line block-character sparkline. */
+public final class Sparkline {
+
+    private static final char[] BLOCKS = {'▁', '▂', '▃', '▄', '▅', '▆', '▇', '█'};
+
+    private Sparkline() {}
+
+    /**
+     * Renders {@code values} scaled to {@code max}; zero values are shown as a space,
+     * negative values (no data) as a dot.
+     */
+    public static String render(double[] values, double max) {
+        StringBuilder sb = new StringBuilder(values.length);
+        for (double v : values) {
+            if (v < 0) {
+                sb.append('·');
+            } else if (v == 0 || max <= 0) {
+                sb.append(' ');
+            } else {
+                int idx = (int) Math.ceil(Math.min(v / max, 1.0) * BLOCKS.length) - 1;
+                sb.append(BLOCKS[Math.max(0, idx)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Renders {@code values} scaled to their own maximum. */
+    public static String render(double[] values) {
+        double max = 0;
+        for (double v : values) {
+            max = Math.max(max, v);
+        }
+        return render(values, max);
+    }
+}
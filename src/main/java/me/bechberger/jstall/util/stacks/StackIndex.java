@@ -0,0 +1,371 @@
+package me.bechberger.jstall.util.stacks;
+
+import me.bechberger.jstall.util.RegexLiterals;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over the stack frames of a series of thread dumps, built once and queried many
+ * times (AI tool calls, {@code grep-stacks}).
+ * <p>
+ * Every distinct frame ({@code com.example.Foo.bar(Foo.java:10)}) gets a dense id; its occurrences
+ * are stored as one sorted {@code long[]} of packed (dump, thread, depth) triples. Two dictionaries
+ * map to frame ids: the trigrams of the lower-cased frame text, and its class, method, package and
+ * file name tokens. A query intersects the trigram postings of the literals it requires (tokens for
+ * literals shorter than three characters), verifies only the remaining candidate frames and
+ * expands their occurrences, so its cost depends on the number of distinct frames that could
+ * match rather than on the number of threads and frames in all dumps.
+ * <p>
+ * Immutable and thread-safe once built.
+ */
+public final class StackIndex {
+
+    /**
+     * One frame occurrence.
+     *
+     * @param dump  0-based index of the dump
+     * @param depth 0-based position in the stack, 0 is the top frame
+     */
+    public record Match(int dump, ThreadInfo thread, int depth, StackFrame frame, String frameText) {}
+
+    private static final int DEPTH_BITS = 20;
+    private static final int THREAD_BITS = 24;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+    private static final long THREAD_MASK = (1L << THREAD_BITS) - 1;
+
+    private final List<List<ThreadInfo>> threads;
+    private final List<Map<Thread.State, int[]>> threadsByState;
+    private final StackFrame[] frames;
+    private final String[] frameTexts;
+    private final long[][] occurrences;
+    private final long[] trigramKeys;
+    private final int[][] trigramPostings;
+    private final String[] tokenKeys;
+    private final int[][] tokenPostings;
+    private final int occurrenceCount;
+
+    private StackIndex(Builder builder) {
+        this.threads = builder.threads;
+        this.threadsByState = builder.threadsByState;
+        this.frames = builder.frames.toArray(new StackFrame[0]);
+        this.frameTexts = builder.frameTexts.toArray(new String[0]);
+        this.occurrences = new long[frames.length][];
+        int total = 0;
+        for (int id = 0; id < frames.length; id++) {
+            occurrences[id] = Arrays.copyOf(builder.occurrences.get(id), builder.occurrenceCounts[id]);
+            total += occurrences[id].length;
+        }
+        this.occurrenceCount = total;
+
+        Map<Long, IntList> trigrams = new HashMap<>();
+        Map<String, IntList> tokens = new TreeMap<>();
+        for (int id = 0; id < frameTexts.length; id++) {
+            String lower = frameTexts[id].toLowerCase(Locale.ROOT);
+            for (int i = 0; i + 3 <= lower.length(); i++) {
+                trigrams.computeIfAbsent(trigram(lower, i), k -> new IntList()).addUnique(id);
+            }
+            for (String token : tokenize(lower)) {
+                tokens.computeIfAbsent(token, k -> new IntList()).addUnique(id);
+            }
+        }
+        this.trigramKeys = trigrams.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        this.trigramPostings = new int[trigramKeys.length][];
+        for (int i = 0; i < trigramKeys.length; i++) {
+            trigramPostings[i] = trigrams.get(trigramKeys[i]).toArray();
+        }
+        this.tokenKeys = tokens.keySet().toArray(new String[0]);
+        this.tokenPostings = new int[tokenKeys.length][];
+        for (int i = 0; i < tokenKeys.length; i++) {
+            tokenPostings[i] = tokens.get(tokenKeys[i]).toArray();
+        }
+    }
+
+    /** Indexes the given dumps, in order. */
+    public static StackIndex build(List<ThreadDump> dumps) {
+        Builder builder = new Builder();
+        for (ThreadDump dump : dumps) {
+            builder.add(dump);
+        }
+        return new StackIndex(builder);
+    }
+
+    public int dumpCount() {
+        return threads.size();
+    }
+
+    public int distinctFrameCount() {
+        return frames.length;
+    }
+
+    public int occurrenceCount() {
+        return occurrenceCount;
+    }
+
+    /** Returns the threads of {@code dump} in {@code state}, in dump order. */
+    public List<ThreadInfo> threadsInState(int dump, Thread.State state) {
+        int[] indices = threadsByState.get(dump).get(state);
+        if (indices == null) {
+            return List.of();
+        }
+        List<ThreadInfo> dumpThreads = threads.get(dump);
+        List<ThreadInfo> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(dumpThreads.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Finds all frame occurrences whose text contains {@code pattern} somewhere
+     * ({@link java.util.regex.Matcher#find()}), ordered by dump, thread and depth.
+     */
+    public List<Match> find(Pattern pattern) {
+        List<String> literals = RegexLiterals.required(pattern);
+        return matches(candidates(literals), id -> pattern.matcher(frameTexts[id]).find());
+    }
+
+    /** Finds all frame occurrences whose text contains {@code text}, ignoring case. */
+    public List<Match> findIgnoreCase(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        return matches(candidates(List.of(lower)), id -> frameTexts[id].toLowerCase(Locale.ROOT).contains(lower));
+    }
+
+    private List<Match> matches(int[] candidates, IntPredicate verify) {
+        IntList matching = new IntList();
+        int total = 0;
+        for (int id : candidates) {
+            if (verify.test(id)) {
+                matching.add(id);
+                total += occurrences[id].length;
+            }
+        }
+        // Each frame's occurrences are sorted; merge them by packed value, i.e. by dump, thread, depth
+        int[] ids = matching.toArray();
+        int[] positions = new int[ids.length];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, ids.length),
+            Comparator.comparingLong(i -> occurrences[ids[i]][positions[i]]));
+        for (int i = 0; i < ids.length; i++) {
+            heads.add(i);
+        }
+        List<Match> result = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int i = heads.poll();
+            int id = ids[i];
+            long occurrence = occurrences[id][positions[i]];
+            int dump = (int) (occurrence >>> (THREAD_BITS + DEPTH_BITS));
+            int thread = (int) ((occurrence >>> DEPTH_BITS) & THREAD_MASK);
+            int depth = (int) (occurrence & DEPTH_MASK);
+            result.add(new Match(dump, threads.get(dump).get(thread), depth, frames[id], frameTexts[id]));
+            if (++positions[i] < occurrences[id].length) {
+                heads.add(i);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the ids of all frames that may contain every one of the (case-insensitive) literals. */
+    private int[] candidates(List<String> literals) {
+        int[] result = null;
+        for (String literal : literals) {
+            int[] postings = literalCandidates(literal.toLowerCase(Locale.ROOT));
+            if (postings == null) {
+                continue;
+            }
+            result = result == null ? postings : intersect(result, postings);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        if (result == null) {
+            result = new int[frames.length];
+            Arrays.setAll(result, i -> i);
+        }
+        return result;
+    }
+
+    /** Candidate frames for one lower-case literal, or null if the index cannot narrow it down. */
+    private int[] literalCandidates(String literal) {
+        if (literal.length() >= 3) {
+            int[] result = null;
+            for (int i = 0; i + 3 <= literal.length(); i++) {
+                int slot = Arrays.binarySearch(trigramKeys, trigram(literal, i));
+                if (slot < 0) {
+                    return new int[0];
+                }
+                result = result == null ? trigramPostings[slot] : intersect(result, trigramPostings[slot]);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        }
+        if (literal.isEmpty() || !isTokenText(literal)) {
+            return null;
+        }
+        // Short literals lie within one token: union the postings of all tokens containing them
+        IntList union = new IntList();
+        for (int i = 0; i < tokenKeys.length; i++) {
+            if (tokenKeys[i].contains(literal)) {
+                for (int id : tokenPostings[i]) {
+                    union.add(id);
+                }
+            }
+        }
+        int[] ids = union.toArray();
+        Arrays.sort(ids);
+        return Arrays.stream(ids).distinct().toArray();
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isTokenText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isTokenChar(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Splits a frame text into class, method, package, file name and line number tokens. */
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && isTokenChar(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    static String frameText(StackFrame frame) {
+        String text = frame.toString();
+        return text.startsWith("at ") ? text.substring(3) : text;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /** Adds {@code value} unless it was the last value added (ids are added in ascending order). */
+        void addUnique(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class Builder {
+        final List<List<ThreadInfo>> threads = new ArrayList<>();
+        final List<Map<Thread.State, int[]>> threadsByState = new ArrayList<>();
+        final Map<StackFrame, Integer> frameIds = new HashMap<>();
+        final List<StackFrame> frames = new ArrayList<>();
+        final List<String> frameTexts = new ArrayList<>();
+        final List<long[]> occurrences = new ArrayList<>();
+        int[] occurrenceCounts = new int[64];
+
+        void add(ThreadDump dump) {
+            int dumpIndex = threads.size();
+            List<ThreadInfo> dumpThreads = dump.threads() == null ? List.of() : dump.threads();
+            threads.add(dumpThreads);
+            Map<Thread.State, IntList> byState = new EnumMap<>(Thread.State.class);
+            for (int t = 0; t < dumpThreads.size(); t++) {
+                ThreadInfo thread = dumpThreads.get(t);
+                if (thread.state() != null) {
+                    byState.computeIfAbsent(thread.state(), s -> new IntList()).add(t);
+                }
+                List<StackFrame> stack = thread.stackTrace();
+                if (stack == null) {
+                    continue;
+                }
+                for (int depth = 0; depth < stack.size(); depth++) {
+                    int id = frameId(stack.get(depth));
+                    long occurrence = ((long) dumpIndex << (THREAD_BITS + DEPTH_BITS))
+                        | ((long) t << DEPTH_BITS) | depth;
+                    long[] list = occurrences.get(id);
+                    int count = occurrenceCounts[id];
+                    if (count == list.length) {
+                        list = Arrays.copyOf(list, count * 2);
+                        occurrences.set(id, list);
+                    }
+                    list[count] = occurrence;
+                    occurrenceCounts[id] = count + 1;
+                }
+            }
+            Map<Thread.State, int[]> states = new EnumMap<>(Thread.State.class);
+            byState.forEach((state, list) -> states.put(state, list.toArray()));
+            threadsByState.add(states);
+        }
+
+        private int frameId(StackFrame frame) {
+            Integer id = frameIds.get(frame);
+            if (id != null) {
+                return id;
+            }
+            int newId = frames.size();
+            frameIds.put(frame, newId);
+            frames.add(frame);
+            frameTexts.add(frameText(frame));
+            occurrences.add(new long[2]);
+            if (newId == occurrenceCounts.length) {
+                occurrenceCounts = Arrays.copyOf(occurrenceCounts, newId * 2);
+            }
+            return newId;
+        }
+    }
+}
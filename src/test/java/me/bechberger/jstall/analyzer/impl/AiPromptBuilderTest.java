@@ -0,0 +1,126 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.ThreadDumpTestBuilder;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiPromptBuilderTest {
+
+    private static final String LOCK_A = "0x00000000d0000001";
+    private static final String LOCK_B = "0x00000000d0000002";
+    private static final String CACHE = "0x00000000d0000003";
+
+    @Test
+    void testPacksFactsInPriorityOrder() throws IOException {
+        String prompt = new AiPromptBuilder(AiPromptBuilder.DEFAULT_TOKEN_BUDGET)
+            .build(ResolvedData.fromDumps(List.of(snapshot(0, 0), snapshot(10, 4000))), null);
+
+        int deadlocks = prompt.indexOf("=== deadlocks ===");
+        int chains = prompt.indexOf("=== blocked lock chains ===");
+        int hot = prompt.indexOf("=== hot threads ===");
+        int states = prompt.indexOf("=== thread states ===");
+        assertTrue(deadlocks >= 0 && deadlocks < chains && chains < hot && hot < states, prompt);
+
+        assertTrue(prompt.contains("Deadlock between 2 threads"), prompt);
+        assertTrue(prompt.contains("\"Philosopher-1\" waits for com.example.Fork <" + LOCK_B + "> held by \"Philosopher-2\""), prompt);
+        assertTrue(prompt.contains("com.example.Cache <" + CACHE + "> held by \"Loader\" (RUNNABLE at com.example.Cache.load)"), prompt);
+        assertTrue(prompt.contains("3 waiting: \"Waiter-0\", \"Waiter-1\", \"Waiter-2\""), prompt);
+        assertTrue(prompt.contains("contended in 2/2 dumps"), prompt);
+        assertTrue(prompt.contains("\"Loader\" 4.00s CPU (40% of a core), RUNNABLE"), prompt);
+        assertTrue(prompt.contains("2 thread dump(s) over 10.0s"), prompt);
+        assertFalse(prompt.contains("omitted"), prompt);
+    }
+
+    @Test
+    void testBudgetDropsLowerPriorityFacts() throws IOException {
+        String prompt = new AiPromptBuilder(120)
+            .build(ResolvedData.fromDumps(List.of(snapshot(0, 0), snapshot(10, 4000))), null);
+
+        assertTrue(prompt.contains("Deadlock between 2 threads"), prompt);
+        // The blocked chain does not fit, the smaller hot-thread fact after it still does
+        assertFalse(prompt.contains("=== blocked lock chains ==="), prompt);
+        assertTrue(prompt.contains("=== hot threads ==="), prompt);
+        assertTrue(prompt.contains("fact(s) omitted to fit the token budget]"), prompt);
+        assertTrue(AiPromptBuilder.estimateTokens(prompt) <= 120 + 10, prompt);
+    }
+
+    @Test
+    void testHeapTrendAndRemainingSections() throws IOException {
+        List<CollectedData> heap = List.of(
+            new CollectedData(0, heapInfo(131072), Map.of()),
+            new CollectedData(60_000, heapInfo(196608), Map.of()));
+        AnalyzerOutput status = new AnalyzerOutput.CompositeOutput(List.of(
+            new AnalyzerOutput.CompositeOutput.Section("uptime", new AnalyzerOutput.TextOutput("VM uptime: 1.5h")),
+            new AnalyzerOutput.CompositeOutput.Section("threads", new AnalyzerOutput.TextOutput("covered by facts")),
+            new AnalyzerOutput.CompositeOutput.Section("jit", new AnalyzerOutput.TableOutput(List.of("\033[33m⚠ code cache 95% full\033[0m"),
+                TableModel.builder()
+                    .addColumn("SEGMENT", TableModel.Alignment.LEFT)
+                    .addColumn("USED", TableModel.Alignment.RIGHT)
+                    .addRow(Cell.text("profiled nmethods"), Cell.bytes(1024 * 1024))
+                    .build()))));
+
+        String prompt = new AiPromptBuilder(AiPromptBuilder.DEFAULT_TOKEN_BUDGET).build(
+            ResolvedData.fromDumpsAndCollectedData(List.of(snapshot(0, 0)), Map.of("gc-heap-info", heap)), status);
+
+        assertTrue(prompt.startsWith("VM uptime: 1.5h\n"), prompt);
+        assertTrue(prompt.contains("Heap used 192.00 MB of 256.00 MB committed (75.0%), max 4.00 GB; +64.00 MB over 60s (+64.00 MB/min)"), prompt);
+        assertTrue(prompt.contains("=== jit ===\n⚠ code cache 95% full\nSEGMENT | USED\nprofiled nmethods | 1.00 MB"), prompt);
+        assertFalse(prompt.contains("covered by facts"), prompt);
+    }
+
+    @Test
+    void testSectionsAreTruncatedToTheRemainingBudget() {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longText.append("line ").append(i).append('\n');
+        }
+        List<AiPromptBuilder.Fact> facts = List.of(
+            new AiPromptBuilder.Fact(AiPromptBuilder.Priority.SECTION, 0, "vm-vitals", longText.toString(), true),
+            new AiPromptBuilder.Fact(AiPromptBuilder.Priority.HEAP_TREND, 50, null, "Heap used 50%", false));
+
+        String packed = AiPromptBuilder.pack(facts, 100);
+
+        assertTrue(packed.startsWith("=== heap ===\nHeap used 50%\n\n=== vm-vitals ===\nline 0\n"), packed);
+        assertTrue(packed.contains("... (truncated)"), packed);
+        assertFalse(packed.contains("line 199"), packed);
+        assertTrue(AiPromptBuilder.estimateTokens(packed) <= 100, packed);
+    }
+
+    /** Two deadlocked threads, a cache monitor with three waiters and a busy loader thread. */
+    private static ThreadDumpSnapshot snapshot(int second, double loaderCpuMs) throws IOException {
+        ThreadDumpTestBuilder dump = new ThreadDumpTestBuilder(second)
+            .thread(1, "Philosopher-1", "BLOCKED (on object monitor)",
+                "at com.example.Table.eat(Table.java:10)",
+                "- waiting to lock <" + LOCK_B + "> (a com.example.Fork)",
+                "- locked <" + LOCK_A + "> (a com.example.Fork)")
+            .thread(2, "Philosopher-2", "BLOCKED (on object monitor)",
+                "at com.example.Table.eat(Table.java:10)",
+                "- waiting to lock <" + LOCK_A + "> (a com.example.Fork)",
+                "- locked <" + LOCK_B + "> (a com.example.Fork)")
+            .thread(3, "Loader", "RUNNABLE", loaderCpuMs,
+                "at com.example.Cache.load(Cache.java:15)",
+                "- locked <" + CACHE + "> (a com.example.Cache)");
+        for (int w = 0; w < 3; w++) {
+            dump.thread(10 + w, "Waiter-" + w, "BLOCKED (on object monitor)",
+                "at com.example.Cache.get(Cache.java:20)",
+                "- waiting to lock <" + CACHE + "> (a com.example.Cache)");
+        }
+        return dump.snapshot();
+    }
+
+    private static String heapInfo(long usedK) {
+        return " garbage-first heap   total reserved 4194304K, committed 262144K, used " + usedK + "K [0x0000000700000000, 0x0000000800000000)\n"
+            + " Metaspace       used 1024K, committed 2048K, reserved 1114112K\n";
+    }
+}
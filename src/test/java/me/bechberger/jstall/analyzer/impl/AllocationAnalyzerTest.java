@@ -0,0 +1,124 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.ThreadDumpTestBuilder;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement;
+import me.bechberger.util.json.PrettyPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationAnalyzerTest {
+
+    @Test
+    void testRequiresThreadSamplesAlongsideDumps() {
+        AllocationAnalyzer analyzer = new AllocationAnalyzer();
+        assertEquals("allocation", analyzer.name());
+        List<String> types = analyzer.getDataRequirements(Map.of("dump-count", 4, "interval", 1000L))
+            .getRequirements().stream().map(DataRequirement::getType).sorted().toList();
+        assertEquals(List.of("mxbean-threads", "thread-dumps"), types);
+    }
+
+    @Test
+    void testNoSamplesWithoutMBeanConnection() {
+        ResolvedData data = new ResolvedData(List.of(), null, null,
+            Map.of("mxbean-threads", List.of(new CollectedData(1000, "", Map.of("error", "no connection")))));
+        AnalyzerResult result = new AllocationAnalyzer().analyze(data, Map.of());
+        assertTrue(result.output().contains("No per-thread allocation data"), result.output());
+    }
+
+    @Test
+    void testRanksThreadsAndStackGroupsByRate() throws IOException {
+        // Over 2s: two workers in the same stack allocate 10 MB and 6 MB, the logger 8 MB,
+        // main nothing; the JMX connection thread is ignored
+        List<CollectedData> samples = List.of(
+            sample(0, new long[]{1, 0}, new long[]{20, 0}, new long[]{21, 0}, new long[]{30, 0}, new long[]{40, 0}),
+            sample(1000, new long[]{1, 0}, new long[]{20, 5}, new long[]{21, 3}, new long[]{30, 4}, new long[]{40, 50}),
+            sample(2000, new long[]{1, 0}, new long[]{20, 10}, new long[]{21, 6}, new long[]{30, 8}, new long[]{40, 100}));
+        Map<String, List<CollectedData>> byType = new LinkedHashMap<>();
+        byType.put(MXBeanMetricsRequirement.Kind.THREADS.type(), samples);
+        ResolvedData data = new ResolvedData(List.of(dump()), null, null, byType);
+
+        AnalyzerResult result = new AllocationAnalyzer().analyze(data, Map.of());
+
+        AnalyzerOutput.CompositeOutput composite =
+            assertInstanceOf(AnalyzerOutput.CompositeOutput.class, result.structured());
+        List<Cell[]> threads = table(composite, 0).getRows();
+        assertEquals(List.of("worker-1", "logger", "worker-2", "main"),
+            threads.stream().map(row -> row[0].display()).toList());
+        assertEquals("5.00 MB/s", threads.get(0)[1].display());
+        assertEquals("Worker.fill", threads.get(0)[5].display());
+        assertEquals("41.7%", threads.get(0)[3].display());
+
+        List<Cell[]> stacks = table(composite, 1).getRows();
+        assertTrue(stacks.get(0)[0].display().startsWith("Worker.fill ← Worker.run"), stacks.get(0)[0].display());
+        assertEquals("2", stacks.get(0)[1].display());
+        assertEquals("8.00 MB/s", stacks.get(0)[2].display());
+        assertTrue(result.output().contains("12.00 MB/s total"), result.output());
+    }
+
+    @Test
+    void testTopLimitsRows() throws IOException {
+        List<CollectedData> samples = List.of(
+            sample(0, new long[]{20, 0}, new long[]{21, 0}, new long[]{30, 0}),
+            sample(1000, new long[]{20, 3}, new long[]{21, 2}, new long[]{30, 1}));
+        ResolvedData data = new ResolvedData(List.of(dump()), null, null,
+            Map.of(MXBeanMetricsRequirement.Kind.THREADS.type(), samples));
+
+        AnalyzerResult result = new AllocationAnalyzer().analyze(data, Map.of("top", 1));
+        AnalyzerOutput.CompositeOutput composite =
+            assertInstanceOf(AnalyzerOutput.CompositeOutput.class, result.structured());
+        assertEquals(1, table(composite, 0).getRows().size());
+        assertTrue(result.output().contains("Showing top 1 of 3 threads"), result.output());
+    }
+
+    private static me.bechberger.jstall.analyzer.TableModel table(AnalyzerOutput.CompositeOutput composite, int section) {
+        return assertInstanceOf(AnalyzerOutput.TableOutput.class, composite.sections().get(section).content()).table();
+    }
+
+    /** Builds a thread sample; each entry is {thread id, allocated MB}. */
+    private static CollectedData sample(long timestamp, long[]... threads) {
+        Map<Long, String> names = Map.of(1L, "main", 20L, "worker-1", 21L, "worker-2", 30L, "logger",
+            40L, "RMI TCP Connection(2)-127.0.0.1");
+        List<Object> list = new ArrayList<>();
+        for (long[] thread : threads) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", thread[0]);
+            entry.put("name", names.get(thread[0]));
+            entry.put("state", "RUNNABLE");
+            entry.put("cpuTimeNanos", 0L);
+            entry.put("allocatedBytes", thread[1] * 1024 * 1024);
+            list.add(entry);
+        }
+        return new CollectedData(timestamp, PrettyPrinter.prettyPrint(Map.of("threads", list)), Map.of());
+    }
+
+    private static ThreadDumpSnapshot dump() throws IOException {
+        return new ThreadDumpTestBuilder(0)
+            .thread(1, "main", "TIMED_WAITING (sleeping)", "at java.lang.Thread.sleep(java.base@21/Native Method)")
+            .thread(20, "worker-1", "RUNNABLE", WORKER_FRAMES)
+            .thread(21, "worker-2", "RUNNABLE", WORKER_FRAMES)
+            .thread(30, "logger", "RUNNABLE",
+                "at com.example.Logger.format(Logger.java:12)",
+                "at com.example.Logger.run(Logger.java:5)")
+            .snapshot();
+    }
+
+    private static final String[] WORKER_FRAMES = {
+        "at com.example.Worker.fill(Worker.java:42)",
+        "at com.example.Worker.run(Worker.java:10)",
+        "at java.lang.Thread.run(java.base@21/Thread.java:1583)"
+    };
+}
@@ -42,4 +42,25 @@ class ClassHistogramDiffAnalyzerTest {
         assertTrue(r.output().contains("Class histogram delta"));
         assertTrue(r.output().contains("a.A"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void reportsGrowthAcrossAllHistograms() {
+        List<CollectedData> samples = new java.util.ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            samples.add(new CollectedData(1000L * i, """
+                num     #instances         #bytes  class name (module)
+                -------------------------------------------------------
+                   1:   %d   %d  com.example.Leak
+                   2:   5   %d  com.example.Flat
+                """.formatted(10 + i, 100 + 100 * i, i % 2 == 0 ? 50 : 70), Map.of()));
+        }
+        ResolvedData data = new ResolvedData(List.of(), Map.of(), null, Map.of("gc-class-histogram", samples));
+
+        AnalyzerResult r = new ClassHistogramDiffAnalyzer().analyze(data, Map.of("top", 1));
+
+        String output = r.output();
+        assertTrue(output.contains("first -> last of 4 histograms"), output);
+        assertTrue(output.matches("(?s).*300\\s+3\\s+3/3\\s+com\\.example\\.Leak.*"), output);
+        assertTrue(output.contains("Total bytes: 150 -> 470"), output);
+    }
+}
@@ -0,0 +1,63 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jthreaddump.parser.ThreadDumpParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GrepStacksAnalyzerTest {
+
+    private static ThreadDumpSnapshot snapshot(String workerState, String workerFrame) throws IOException {
+        String text = "2024-01-01 12:00:00\nFull thread dump Java HotSpot(TM) 64-Bit Server VM (21+35-2513 mixed mode):\n\n"
+            + "\"main\" #1 prio=5 os_prio=0 cpu=1.00ms elapsed=10.00s tid=0x1 nid=0x1 waiting\n"
+            + "   java.lang.Thread.State: RUNNABLE\n"
+            + "\tat com.zaxxer.hikari.pool.HikariPool.getConnection(HikariPool.java:181)\n"
+            + "\tat com.example.Dao.load(Dao.java:12)\n\n"
+            + "\"worker-1\" #2 prio=5 os_prio=0 cpu=1.00ms elapsed=10.00s tid=0x2 nid=0x2 waiting\n"
+            + "   java.lang.Thread.State: " + workerState + "\n"
+            + "\tat " + workerFrame + "\n\n";
+        return new ThreadDumpSnapshot(ThreadDumpParser.parse(text), text, null, null);
+    }
+
+    private static ResolvedData data() throws IOException {
+        return ResolvedData.fromDumps(List.of(
+            snapshot("RUNNABLE", "com.example.Dao.load(Dao.java:12)"),
+            snapshot("TIMED_WAITING", "java.lang.Thread.sleep(Native Method)")));
+    }
+
+    @Test
+    void testRowsPerThreadFrameAndDepth() throws IOException {
+        AnalyzerResult result = new GrepStacksAnalyzer().analyze(data(), Map.of("pattern", "com\\.example\\.Dao"));
+
+        assertEquals(0, result.exitCode());
+        AnalyzerOutput.TableOutput table = (AnalyzerOutput.TableOutput) result.structured();
+        assertEquals(List.of("3 frames matching /com\\.example\\.Dao/ in 2 threads across 2 dumps"), table.preambleLines());
+        String output = result.output();
+        assertTrue(output.contains("main"), output);
+        assertTrue(output.contains("2/2"), output);
+        assertTrue(output.contains("1/2"), output);
+        assertTrue(output.contains("com.example.Dao.load(Dao.java:12)"), output);
+        assertEquals(2, table.table().getRowCount());
+    }
+
+    @Test
+    void testIgnoreCaseAndTop() throws IOException {
+        AnalyzerResult none = new GrepStacksAnalyzer().analyze(data(), Map.of("pattern", "hikaripool"));
+        assertEquals(1, none.exitCode());
+        assertTrue(none.output().contains("No frames matching /hikaripool/ in 2 dumps"), none.output());
+
+        AnalyzerResult result = new GrepStacksAnalyzer().analyze(data(),
+            Map.of("pattern", "com\\.", "ignore-case", true, "top", 1));
+        AnalyzerOutput.TableOutput table = (AnalyzerOutput.TableOutput) result.structured();
+        assertEquals(1, table.table().getRowCount());
+        assertTrue(table.preambleLines().get(0).endsWith("(showing first 1 of 3 rows)"), table.preambleLines().get(0));
+    }
+}
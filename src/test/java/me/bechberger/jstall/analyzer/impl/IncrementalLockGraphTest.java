@@ -0,0 +1,85 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.impl.DependencyTreeAnalyzer.DependencyGraph;
+import me.bechberger.jstall.analyzer.impl.DependencyTreeAnalyzer.LockDependencies;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalLockGraphTest {
+
+    private static ThreadInfo thread(long id) {
+        return new ThreadInfo("t-" + id, id, id, 5, false, Thread.State.BLOCKED, null, null,
+            List.of(), List.of(), null);
+    }
+
+    /** Builds dependencies where {@code ownerToWaiters[i][0]} owns lock i and the rest wait on it. */
+    private static LockDependencies deps(ThreadInfo[]... ownerToWaiters) {
+        Map<ThreadInfo, Set<String>> owners = new HashMap<>();
+        Map<ThreadInfo, Set<String>> waiters = new HashMap<>();
+        for (int lock = 0; lock < ownerToWaiters.length; lock++) {
+            String lockId = "0x" + lock;
+            ThreadInfo[] group = ownerToWaiters[lock];
+            owners.computeIfAbsent(group[0], k -> new HashSet<>()).add(lockId);
+            for (int i = 1; i < group.length; i++) {
+                waiters.computeIfAbsent(group[i], k -> new HashSet<>()).add(lockId);
+            }
+        }
+        return new LockDependencies(owners, waiters);
+    }
+
+    @Test
+    void appliesDeltasBetweenDumps() {
+        ThreadInfo a = thread(1), b = thread(2), c = thread(3);
+        IncrementalLockGraph graph = new IncrementalLockGraph();
+
+        graph.update(List.of(a, b, c), deps(new ThreadInfo[]{a, b, c}));
+        assertEquals(2, graph.edgeCount());
+        DependencyGraph tree = graph.treeFrom(a, null);
+        assertEquals(3, tree.size());
+
+        // c now waits on a lock held by b instead of on a
+        graph.update(List.of(a, b, c), deps(new ThreadInfo[]{a, b}, new ThreadInfo[]{b, c}));
+        assertEquals(2, graph.edgeCount());
+        tree = graph.treeFrom(a, null);
+        assertEquals(List.of(2L), tree.adjacency().get(1L));
+        assertEquals(List.of(3L), tree.adjacency().get(2L));
+        assertFalse(graph.hasCycle());
+    }
+
+    @Test
+    void detectsCyclesOnlineAndClearsThemOnRemoval() {
+        ThreadInfo a = thread(1), b = thread(2), c = thread(3);
+        IncrementalLockGraph graph = new IncrementalLockGraph();
+
+        // a waits on b, b waits on c, c waits on a
+        graph.update(List.of(a, b, c),
+            deps(new ThreadInfo[]{b, a}, new ThreadInfo[]{c, b}, new ThreadInfo[]{a, c}));
+        assertTrue(graph.hasCycle());
+
+        // c no longer waits on a
+        graph.update(List.of(a, b, c), deps(new ThreadInfo[]{b, a}, new ThreadInfo[]{c, b}));
+        assertFalse(graph.hasCycle());
+    }
+
+    @Test
+    void addEdgeIgnoresSelfAndDuplicateEdges() {
+        ThreadInfo a = thread(1), b = thread(2);
+        IncrementalLockGraph graph = new IncrementalLockGraph();
+        graph.addEdge(a, a);
+        graph.addEdge(a, b);
+        graph.addEdge(a, b);
+        assertEquals(1, graph.edgeCount());
+        assertFalse(graph.hasCycle());
+
+        graph.addEdge(b, a);
+        assertTrue(graph.hasCycle());
+    }
+}
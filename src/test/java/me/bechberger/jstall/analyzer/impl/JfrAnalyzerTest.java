@@ -0,0 +1,119 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import jdk.jfr.Recording;
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.util.jfr.JfrChunks;
+import me.bechberger.jstall.util.jfr.JfrEventAggregator;
+import me.bechberger.util.json.PrettyPrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrAnalyzerTest {
+
+    static volatile Object sink;
+
+    @Test
+    void testRequiresDumpsAndEventWindows() {
+        List<String> types = new JfrAnalyzer().getDataRequirements(Map.of("dump-count", 3, "interval", 1000L))
+            .getRequirements().stream().map(DataRequirement::getType).sorted().toList();
+        assertEquals(List.of("jfr-events", "thread-dumps"), types);
+    }
+
+    @Test
+    void testNoData() {
+        AnalyzerResult result = new JfrAnalyzer().analyze(new ResolvedData(List.of(), null, null, Map.of()), Map.of());
+        assertTrue(result.output().contains("No JFR data"), result.output());
+    }
+
+    @Test
+    void testChunksAreAggregatedInParallel(@TempDir Path tempDir) throws Exception {
+        // Concatenated recordings form one valid multi-chunk JFR file
+        Path file = tempDir.resolve("default.jfr");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < 3; i++) {
+                Path part = record(tempDir.resolve("part" + i + ".jfr"));
+                Files.copy(part, out);
+            }
+        }
+        List<JfrChunks.Chunk> chunks = JfrChunks.chunks(file);
+        assertTrue(chunks.size() >= 3, chunks.toString());
+        assertEquals(Files.size(file), chunks.stream().mapToLong(JfrChunks.Chunk::size).sum());
+
+        JfrEventAggregator sequential = JfrEventAggregator.readFile(file);
+        JfrEventAggregator parallel = JfrChunks.aggregate(file, 4);
+        assertEquals(sequential.eventCount(), parallel.eventCount());
+        assertEquals(sequential.gcPauses().count(), parallel.gcPauses().count());
+        assertEquals(sequential.gcPauses().total(), parallel.gcPauses().total());
+    }
+
+    @Test
+    void testRejectsNonJfrFile(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("default.jfr");
+        Files.writeString(file, "not a recording, just some text");
+        assertThrows(IOException.class, () -> JfrChunks.chunks(file));
+    }
+
+    @Test
+    void testSummarizesRecordingAndEventWindows(@TempDir Path tempDir) throws Exception {
+        Path file = record(tempDir.resolve("default.jfr"));
+        Map<String, Object> window = new JfrEventAggregator().toMap();
+        Map<String, List<CollectedData>> byType = Map.of(
+            "jfr", List.of(new CollectedData(0, "", Map.of("file", "default.jfr"), Map.of("jfr", file))),
+            "jfr-events", List.of(new CollectedData(1000, PrettyPrinter.prettyPrint(window), Map.of())));
+
+        AnalyzerResult result = new JfrAnalyzer().analyze(new ResolvedData(List.of(), null, null, byType), Map.of("top", 3));
+
+        AnalyzerOutput.CompositeOutput composite =
+            assertInstanceOf(AnalyzerOutput.CompositeOutput.class, result.structured());
+        assertEquals(List.of("Hot methods", "Lock contention", "GC pauses", "Allocation"),
+            composite.sections().stream().map(AnalyzerOutput.CompositeOutput.Section::name).toList());
+        assertTrue(result.output().contains("default.jfr, 1 event window"), result.output());
+        AnalyzerOutput.TableOutput gc = assertInstanceOf(AnalyzerOutput.TableOutput.class, composite.sections().get(2).content());
+        assertFalse(gc.table().getRows().isEmpty());
+        AnalyzerOutput.TableOutput allocation = assertInstanceOf(AnalyzerOutput.TableOutput.class, composite.sections().get(3).content());
+        assertTrue(allocation.table().getRows().size() <= 3);
+    }
+
+    @Test
+    void testFormatNanos() {
+        assertEquals("0.25ms", JfrAnalyzer.formatNanos(250_000));
+        assertEquals("42ms", JfrAnalyzer.formatNanos(42_000_000));
+        assertEquals("1.5s", JfrAnalyzer.formatNanos(1_500_000_000));
+    }
+
+    private static Path record(Path file) throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrEventAggregator.ALLOCATION_SAMPLE).with("throttle", "1000/s");
+            recording.enable(JfrEventAggregator.GARBAGE_COLLECTION);
+            recording.enable(JfrEventAggregator.EXECUTION_SAMPLE).withPeriod(Duration.ofMillis(10));
+            recording.start();
+            List<byte[]> garbage = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                garbage.add(new byte[16 * 1024]);
+                if (garbage.size() > 100) {
+                    garbage.clear();
+                }
+            }
+            sink = garbage;
+            System.gc();
+            recording.stop();
+            recording.dump(file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,130 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JitAnalyzerTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void testNothingWithoutCodeCacheSamples() {
+        AnalyzerResult result = new JitAnalyzer().analyze(new ResolvedData(List.of(), Map.of(), null, Map.of()), Map.of());
+        assertFalse(result.shouldDisplay());
+    }
+
+    @Test
+    void testProjectsExhaustionAndReportsStuckC2() {
+        // profiled nmethods grow by 10 MB per minute with ~21 MB left
+        List<CollectedData> codeCache = List.of(
+            new CollectedData(0, codeCache(80_000, 3600), Map.of()),
+            new CollectedData(MINUTE, codeCache(90_240, 3700), Map.of()),
+            new CollectedData(2 * MINUTE, codeCache(100_480, 3800), Map.of()));
+        String stuck = """
+            Current compiles:
+            C2 CompilerThread0  1234       4       com.example.Parser::parseAll (4800 bytes)
+
+            C1 compile queue:
+            Empty
+
+            C2 compile queue:
+            2001       4       com.example.Foo::bar (120 bytes)
+            """;
+        List<CollectedData> queues = List.of(
+            new CollectedData(0, stuck, Map.of()),
+            new CollectedData(MINUTE, stuck, Map.of()),
+            new CollectedData(2 * MINUTE, stuck, Map.of()));
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        List<ThreadDumpSnapshot> dumps = List.of(
+            dump(start, 1.0), dump(start.plusSeconds(120), 61.0));
+        ResolvedData data = ResolvedData.fromDumpsAndCollectedData(dumps,
+            Map.of("compiler-codecache", codeCache, "compiler-queue", queues));
+
+        String output = new JitAnalyzer().analyze(data, Map.of()).output();
+
+        assertTrue(output.contains("compilation enabled"), output);
+        assertTrue(output.contains("'profiled nmethods' projected full in 2min at +600.00 MB/h"), output);
+        assertTrue(output.contains("C2 compilation 1234 of com.example.Parser::parseAll active for at least 2min"), output);
+        assertTrue(output.contains("C2 queue is not draining (1 -> 1 tasks over 3 samples)"), output);
+        assertTrue(output.contains("Compile queues: C1 0 -> 0 (max 0), C2 1 -> 1 (max 1)"), output);
+        assertTrue(output.contains("Compiler threads: 1, 60.00s CPU in 120.0s (50.0% of one core)"), output);
+        assertTrue(output.contains("+600.00 MB"), output);
+        assertFalse(output.contains("'non-nmethods' projected"), output);
+    }
+
+    @Test
+    void testNoProjectionFromShortWindow() {
+        // Same growth per sample, but over 10 seconds of warm-up
+        List<CollectedData> codeCache = List.of(
+            new CollectedData(0, codeCache(80_000, 3600), Map.of()),
+            new CollectedData(5_000, codeCache(90_240, 3700), Map.of()),
+            new CollectedData(10_000, codeCache(100_480, 3800), Map.of()));
+
+        String output = new JitAnalyzer().analyze(new ResolvedData(List.of(), Map.of(), null,
+            Map.of("compiler-codecache", codeCache)), Map.of()).output();
+
+        assertFalse(output.contains("projected full"), output);
+        assertTrue(output.contains("+20.00 MB"), "Still shows the change: " + output);
+    }
+
+    @Test
+    void testReportsDisabledCompilationAndChurn() {
+        List<CollectedData> codeCache = List.of(
+            new CollectedData(0, """
+                CodeCache: size=49152Kb used=48000Kb max_used=49100Kb free=1152Kb
+                 total_blobs=11400 nmethods=10200 adapters=900
+                 compilation: enabled
+                              stopped_count=1, restarted_count=1
+                 full_count=1
+                """, Map.of()),
+            new CollectedData(MINUTE, """
+                CodeCache: size=49152Kb used=48900Kb max_used=49100Kb free=252Kb
+                 total_blobs=9400 nmethods=8200 adapters=900
+                 compilation: disabled (not enough contiguous free space left)
+                              stopped_count=3, restarted_count=2
+                 full_count=3
+                """, Map.of()));
+
+        String output = new JitAnalyzer().analyze(new ResolvedData(List.of(), Map.of(), null,
+            Map.of("compiler-codecache", codeCache)), Map.of()).output();
+
+        assertTrue(output.contains("compilation DISABLED"), output);
+        assertTrue(output.contains("JIT compilation is disabled (not enough contiguous free space left)"), output);
+        assertTrue(output.contains("Code cache was full 3 time(s)"), output);
+        assertTrue(output.contains("stopped and restarted 1 time(s) between samples, 2000 nmethods flushed"), output);
+        assertTrue(output.contains("'CodeCache' is 99.5% full"), output);
+    }
+
+    private static String codeCache(long profiledUsedKb, int nmethods) {
+        return """
+            CodeHeap 'non-profiled nmethods': size=120032Kb used=2145Kb max_used=2145Kb free=117887Kb
+            CodeHeap 'profiled nmethods': size=120028Kb used=%dKb max_used=%dKb free=%dKb
+            CodeHeap 'non-nmethods': size=5700Kb used=1291Kb max_used=1307Kb free=4409Kb
+             total_blobs=4217 nmethods=%d adapters=510
+             compilation: enabled
+                          stopped_count=0, restarted_count=0
+             full_count=0
+            """.formatted(profiledUsedKb, profiledUsedKb, 120028 - profiledUsedKb, nmethods);
+    }
+
+    private static ThreadDumpSnapshot dump(Instant timestamp, double compilerCpuSec) {
+        List<ThreadInfo> threads = List.of(
+            new ThreadInfo("C2 CompilerThread0", 20L, 20L, 9, true, Thread.State.RUNNABLE, compilerCpuSec, 10.0,
+                List.of(), List.of(), null, null),
+            new ThreadInfo("main", 1L, 1L, 5, false, Thread.State.RUNNABLE, 5.0, 10.0,
+                List.of(new StackFrame("com.example.Main", "main", "Main.java", 1)), List.of(), null, null));
+        return new ThreadDumpSnapshot(new ThreadDump(timestamp, "dump", threads, null, null, null), "", null, null);
+    }
+}
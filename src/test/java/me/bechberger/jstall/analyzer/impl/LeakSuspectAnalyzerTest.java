@@ -0,0 +1,75 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeakSuspectAnalyzerTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void testNeedsSeveralHistograms() {
+        ResolvedData data = new ResolvedData(List.of(), Map.of(), null,
+            Map.of("gc-class-histogram", List.of(histogram(0, 10 * MB, 5 * MB, 1 * MB))));
+        AnalyzerResult result = new LeakSuspectAnalyzer().analyze(data, Map.of());
+        assertTrue(result.output().contains("Need at least 3 class histograms"), result.output());
+    }
+
+    @Test
+    void testRanksSteadilyGrowingClassesAndProjectsOom() {
+        List<CollectedData> histograms = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // Leak: +10 MB/h, Slow: +2 MB/h, Flat: constant, Noisy: up and down
+            histograms.add(histogram(i * HOUR, (10 + 10 * i) * MB, (50 + 2 * i) * MB, (i % 2 == 0 ? 20 : 30) * MB));
+        }
+        String heapInfo = """
+             garbage-first heap   total reserved 1048576K, committed 262144K, used 200000K
+              region size 1024K, 5 young (5120K), 1 survivors (1024K)
+            """;
+        ResolvedData data = new ResolvedData(List.of(), Map.of(), null, Map.of(
+            "gc-class-histogram", histograms,
+            "gc-heap-info", List.of(new CollectedData(4 * HOUR, heapInfo, Map.of()))));
+
+        AnalyzerResult result = new LeakSuspectAnalyzer().analyze(data, Map.of("top", 10));
+        String output = result.output();
+
+        assertTrue(output.contains("5 class histograms over 4.0h, 4 classes"), output);
+        assertTrue(output.contains("2 leak suspects"), output);
+        assertTrue(output.indexOf("com.example.Leak") < output.indexOf("com.example.Slow"), output);
+        assertFalse(output.contains("com.example.Noisy"), output);
+        assertFalse(output.contains("com.example.Flat"), output);
+        assertTrue(output.contains("+10.00 MB"), output);
+        assertTrue(output.contains("4/4"), output);
+        // 1 GB max, 131 MB live, growing 12 MB/h overall and from the suspects: 893 MB / 12 MB/h
+        assertTrue(output.contains("Max heap 1.00 GB"), output);
+        assertTrue(output.contains("projected OOM in 3.1d at the overall trend, 3.1d from the suspects alone"), output);
+    }
+
+    @Test
+    void testMaxHeapFromOldG1AddressRange() {
+        String heapInfo = " garbage-first heap   total 262144K, used 1024K [0x00000000c0000000, 0x0000000100000000)\n";
+        assertEquals(1024 * 1024L, GcHeapInfoAnalyzer.maxHeapKib(List.of(new CollectedData(0, heapInfo, Map.of()))));
+        assertNull(GcHeapInfoAnalyzer.maxHeapKib(List.of(new CollectedData(0, "no heap info", Map.of()))));
+    }
+
+    private static CollectedData histogram(long timestamp, long leak, long slow, long noisy) {
+        String text = """
+            num     #instances         #bytes  class name (module)
+            -------------------------------------------------------
+               1:   %d   %d  com.example.Leak
+               2:   %d   %d  com.example.Slow
+               3:   10   %d  com.example.Noisy
+               4:   10   %d  com.example.Flat (app@1.0)
+            """.formatted(leak / 64, leak, slow / 64, slow, noisy, 3 * MB);
+        return new CollectedData(timestamp, text, Map.of());
+    }
+}
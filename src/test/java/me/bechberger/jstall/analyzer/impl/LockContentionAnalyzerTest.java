@@ -0,0 +1,126 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.DumpRequirement;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.ThreadDumpTestBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockContentionAnalyzerTest {
+
+    private static final String CACHE_LOCK = "0x00000000d0000001";
+    private static final String SYNC_LOCK = "0x00000000d0000002";
+
+    @Test
+    void testNameAndRequirements() {
+        LockContentionAnalyzer analyzer = new LockContentionAnalyzer();
+        assertEquals("lock-contention", analyzer.name());
+        assertEquals(DumpRequirement.MANY, analyzer.dumpRequirement());
+        assertTrue(analyzer.supportedOptions().contains("top"));
+    }
+
+    @Test
+    void testNoContention() throws IOException {
+        List<ThreadDumpSnapshot> dumps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            dumps.add(snapshot(i, "main", 0));
+        }
+        AnalyzerResult result = new LockContentionAnalyzer().analyze(ResolvedData.fromDumps(dumps), Map.of());
+        assertTrue(result.output().contains("No lock contention"), result.output());
+    }
+
+    @Test
+    void testRanksLocksAndTracksOwners() throws IOException {
+        // 6 dumps 1s apart: the cache monitor is owned by A for 4 dumps, then by B,
+        // with 1..3 queued threads; one thread parks on a ReentrantLock in the first 2 dumps
+        List<ThreadDumpSnapshot> dumps = new ArrayList<>();
+        int[] queue = {1, 2, 3, 3, 2, 1};
+        for (int i = 0; i < queue.length; i++) {
+            dumps.add(snapshot(i, i < 4 ? "Owner-A" : "Owner-B", queue[i], i < 2));
+        }
+
+        AnalyzerResult result = new LockContentionAnalyzer().analyze(ResolvedData.fromDumps(dumps), Map.of());
+
+        AnalyzerOutput.TableOutput table = assertInstanceOf(AnalyzerOutput.TableOutput.class, result.structured());
+        List<Cell[]> rows = table.table().getRows();
+        assertEquals(2, rows.size());
+
+        Cell[] cache = rows.get(0);
+        assertEquals("Cache <" + CACHE_LOCK + ">", cache[0].display());
+        assertEquals("6/6", cache[1].display());
+        assertEquals("2.0", cache[2].display());
+        assertEquals("3", cache[3].display());
+        assertEquals("1", cache[4].display());
+        assertEquals("Owner-A (4.0s)", cache[5].display());
+        // Waiter-0 queued in all 6 dumps (~6s), the others for shorter stretches
+        assertTrue(cache[7].sortValue() >= 5000, cache[7].display());
+        assertTrue(cache[8].display().contains("█"), cache[8].display());
+
+        Cell[] sync = rows.get(1);
+        assertTrue(sync[0].display().contains("ReentrantLock"), sync[0].display());
+        assertEquals("2/6", sync[1].display());
+    }
+
+    @Test
+    void testTopLimitsRows() throws IOException {
+        List<ThreadDumpSnapshot> dumps = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            dumps.add(snapshot(i, "Owner-A", 2, true));
+        }
+        AnalyzerResult result = new LockContentionAnalyzer()
+            .analyze(ResolvedData.fromDumps(dumps), Map.of("top", 1));
+
+        AnalyzerOutput.TableOutput table = assertInstanceOf(AnalyzerOutput.TableOutput.class, result.structured());
+        assertEquals(1, table.table().getRows().size());
+        assertTrue(result.output().contains("Showing top 1 of 2"), result.output());
+    }
+
+    @Test
+    void testWaitHistogramQuantiles() {
+        LockContentionAnalyzer.WaitHistogram histogram = new LockContentionAnalyzer.WaitHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 10.0);
+        }
+        assertEquals(500, histogram.quantile(0.5), 500 * 0.2);
+        assertEquals(990, histogram.quantile(0.99), 990 * 0.2);
+        assertEquals(1000, histogram.quantile(1.0), 1000 * 0.2);
+    }
+
+    private static ThreadDumpSnapshot snapshot(int second, String owner, int waiters) throws IOException {
+        return snapshot(second, owner, waiters, false);
+    }
+
+    private static ThreadDumpSnapshot snapshot(int second, String owner, int waiters, boolean parker)
+            throws IOException {
+        ThreadDumpTestBuilder dump = new ThreadDumpTestBuilder(second)
+            .thread(1, owner, "RUNNABLE",
+                "at com.example.Cache.load(Cache.java:15)",
+                "- locked <" + CACHE_LOCK + "> (a com.example.Cache)");
+        for (int w = 0; w < waiters; w++) {
+            dump.thread(10 + w, "Waiter-" + w, "BLOCKED (on object monitor)",
+                "at com.example.Cache.get(Cache.java:20)",
+                "- waiting to lock <" + CACHE_LOCK + "> (a com.example.Cache)");
+        }
+        if (parker) {
+            dump.thread(30, "Parker", "WAITING (parking)",
+                "at jdk.internal.misc.Unsafe.park(java.base@21/Native Method)",
+                "- parking to wait for  <" + SYNC_LOCK + "> (a java.util.concurrent.locks.ReentrantLock$NonfairSync)",
+                "at java.util.concurrent.locks.LockSupport.park(java.base@21/LockSupport.java:221)");
+        }
+        // Idle pool thread: parked on a condition, not contention
+        dump.thread(40, "pool-idle", "WAITING (parking)",
+            "at jdk.internal.misc.Unsafe.park(java.base@21/Native Method)",
+            "- parking to wait for  <0x00000000d0000003> (a java.util.concurrent.locks.AbstractQueuedSynchronizer$ConditionObject)");
+        return dump.snapshot();
+    }
+}
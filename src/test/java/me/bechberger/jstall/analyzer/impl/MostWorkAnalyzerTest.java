@@ -4,6 +4,7 @@ import me.bechberger.jstall.analyzer.AnalyzerResult;
 import me.bechberger.jstall.analyzer.DumpRequirement;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
 import me.bechberger.jthreaddump.model.StackFrame;
 import me.bechberger.jthreaddump.model.ThreadDump;
 import me.bechberger.jthreaddump.model.ThreadInfo;
@@ -135,4 +136,25 @@ class MostWorkAnalyzerTest {
         assertTrue(output.contains("Activity:"), "Output should contain 'Activity:' label");
         assertTrue(output.contains("I/O Read"), "Output should categorize I/O read activity");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProfiledMethodsFromCollapsedWindows() {
+        ThreadInfo worker = new ThreadInfo("worker", 1L, null, 5, false, Thread.State.RUNNABLE, 1.0, 10.0,
+            List.of(new StackFrame("com.example.Worker", "run", "Worker.java", 10)), List.of(), null, null);
+        ThreadInfo worker2 = new ThreadInfo("worker", 1L, null, 5, false, Thread.State.RUNNABLE, 2.0, 20.0,
+            List.of(new StackFrame("com.example.Worker", "run", "Worker.java", 10)), List.of(), null, null);
+        List<ThreadDumpSnapshot> dumps = List.of(
+            new ThreadDumpSnapshot(new ThreadDump(Instant.now().minusSeconds(10), "1", List.of(worker), null, null, null), "", null, null),
+            new ThreadDumpSnapshot(new ThreadDump(Instant.now(), "2", List.of(worker2), null, null, null), "", null, null));
+        String collapsed = "[worker tid=7];Worker.run;Worker.compute 6\n[worker tid=7];Worker.run;HashMap.get 2\n[other tid=8];Other.run 5\n";
+        Map<String, List<CollectedData>> profiles = Map.of("flamegraphs", List.of(
+            new CollectedData(1000, collapsed, Map.of("file", "000-1000.collapsed")),
+            new CollectedData(0, "{\"event\": \"cpu\"}", Map.of("file", "flame.meta.json"))));
+
+        AnalyzerResult result = new MostWorkAnalyzer().analyze(
+            ResolvedData.fromDumpsAndCollectedData(dumps, profiles), Map.of("top", 1));
+
+        assertTrue(result.output().contains("Profiled in: Worker.compute (75.0%), HashMap.get (25.0%) of 8 samples"),
+            result.output());
+    }
+}
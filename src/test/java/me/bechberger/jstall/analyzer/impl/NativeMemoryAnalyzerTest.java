@@ -0,0 +1,129 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.impl.NativeMemoryAnalyzer.Category;
+import me.bechberger.jstall.analyzer.impl.NativeMemoryAnalyzer.Snapshot;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.NativeMemoryDiffRequirement;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeMemoryAnalyzerTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final String BASELINE_SUMMARY = """
+        Native Memory Tracking:
+
+        Total: reserved=1628746KB, committed=63874KB
+
+        -                 Java Heap (reserved=262144KB, committed=16384KB)
+                                    (mmap: reserved=262144KB, committed=16384KB)
+
+        -                     Class (reserved=1048818KB, committed=242KB)
+                                    (classes #538)
+
+        -                    Thread (reserved=20519KB, committed=1024KB)
+                                    (thread #20)
+                                    (stack: reserved=20480KB, committed=648KB)
+
+        -                      Code (reserved=247772KB, committed=7676KB)
+
+        -                        GC (reserved=48564KB, committed=36500KB)
+
+        -                  Internal (reserved=384KB, committed=384KB)
+
+        -                    Symbol (reserved=1024KB, committed=1024KB)
+        """;
+
+    private static final String DIFF_1 = """
+        Native Memory Tracking:
+
+        Total: reserved=1631794KB +3048KB, committed=66922KB +3048KB
+
+        -                    Thread (reserved=22567KB +2048KB, committed=3072KB +2048KB)
+                                    (thread #22 +2)
+
+        -                  Internal (reserved=1384KB +1000KB, committed=1384KB +1000KB)
+        """;
+
+    private static final String DIFF_2 = """
+        Native Memory Tracking:
+
+        Total: reserved=1634866KB +6120KB, committed=69994KB +6120KB
+
+        -                    Thread (reserved=24615KB +4096KB, committed=5120KB +4096KB)
+                                    (thread #24 +4)
+
+        -                    Symbol (reserved=2048KB +1024KB, committed=2048KB +1024KB)
+        """;
+
+    @Test
+    void testDiffsCarryForwardUnchangedCategories() {
+        List<Snapshot> snapshots = NativeMemoryAnalyzer.parseSeries(samples());
+
+        assertEquals(3, snapshots.size());
+        Snapshot last = snapshots.get(2);
+        assertEquals(5120 * 1024L, last.committed()[Category.THREAD.ordinal()]);
+        assertEquals(1384 * 1024L, last.committed()[Category.INTERNAL.ordinal()], "missing from the last diff");
+        assertEquals(2048 * 1024L, last.committed()[Category.OTHER.ordinal()]);
+        assertEquals(242 * 1024L, last.committed()[Category.CLASS.ordinal()]);
+        assertEquals(24, last.threads());
+        // Java heap is not native memory
+        assertEquals((242 + 1024 + 7676 + 36500 + 384 + 1024) * 1024L, snapshots.get(0).total());
+    }
+
+    @Test
+    void testRanksCategoriesByGrowthAndJoinsThreadCounts() {
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        List<ThreadDumpSnapshot> dumps = List.of(dump(start, 20), dump(start.plusSeconds(3600), 22), dump(start.plusSeconds(7200), 24));
+        ResolvedData data = ResolvedData.fromDumpsAndCollectedData(dumps, Map.of(NativeMemoryDiffRequirement.TYPE, samples()));
+
+        String output = new NativeMemoryAnalyzer().analyze(data, Map.of()).output();
+
+        assertTrue(output.contains("3 samples over 2.0h"), output);
+        assertTrue(output.contains("threads 20 -> 24, Thread memory +4.00 MB (1.00 MB per added thread)"), output);
+        assertTrue(output.contains("+2.00 MB"), output);
+        int thread = output.indexOf("\nThread ");
+        int other = output.indexOf("\nOther ");
+        int internal = output.indexOf("\nInternal ");
+        assertTrue(thread > 0 && thread < other && other < internal, output);
+        assertFalse(output.contains("Java Heap"), output);
+    }
+
+    @Test
+    void testNmtDisabled() {
+        ResolvedData data = new ResolvedData(List.of(), Map.of(), null, Map.of(NativeMemoryDiffRequirement.TYPE,
+            List.of(new CollectedData(0, "Native memory tracking is not enabled", Map.of()))));
+        AnalyzerResult result = new NativeMemoryAnalyzer().analyze(data, Map.of());
+        assertTrue(result.output().contains("-XX:NativeMemoryTracking=summary"), result.output());
+    }
+
+    private static List<CollectedData> samples() {
+        List<CollectedData> samples = new ArrayList<>();
+        samples.add(new CollectedData(0, BASELINE_SUMMARY, Map.of()));
+        samples.add(new CollectedData(HOUR, DIFF_1, Map.of()));
+        samples.add(new CollectedData(2 * HOUR, DIFF_2, Map.of()));
+        return samples;
+    }
+
+    private static ThreadDumpSnapshot dump(Instant timestamp, int threadCount) {
+        List<ThreadInfo> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new ThreadInfo("worker-" + i, (long) i, (long) i, 5, false, Thread.State.WAITING, 0.0, 1.0,
+                List.of(new StackFrame("java.lang.Object", "wait", "Object.java", 1)), List.of(), null, null));
+        }
+        return new ThreadDumpSnapshot(new ThreadDump(timestamp, "dump", threads, null, null, null), "", null, null);
+    }
+}
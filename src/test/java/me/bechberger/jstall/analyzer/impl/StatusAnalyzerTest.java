@@ -154,6 +154,7 @@ class StatusAnalyzerTest {
             new VmClassloaderStatsAnalyzer(),
             new VmMetaspaceAnalyzer(),
             new CompilerQueueAnalyzer(),
+            new JitAnalyzer(),
             new DeadLockAnalyzer(),
             new MostWorkAnalyzer(),
             new ThreadsAnalyzer(),
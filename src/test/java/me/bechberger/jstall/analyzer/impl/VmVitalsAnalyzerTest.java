@@ -235,4 +235,92 @@ public class VmVitalsAnalyzerTest {
         assertTrue(output.contains("Class space committed"));
         assertTrue(output.contains("84,544K"));
     }
+
+    private static String memorySample(long heapUsedK, long metaspaceUsedK) {
+        return """
+            {"HeapMemoryUsage": {"used": %d, "committed": %d, "max": %d},
+             "pools": [{"Name": "Metaspace", "Type": "NON_HEAP",
+                        "Usage": {"used": %d, "committed": %d, "max": -1}}]}
+            """.formatted(heapUsedK * 1024, 2_000_000L * 1024, 4_000_000L * 1024,
+            metaspaceUsedK * 1024, 700_000L * 1024);
+    }
+
+    private static String gcSample(long count, long timeMs) {
+        return """
+            {"collectors": [{"Name": "G1 Young Generation", "CollectionCount": %d, "CollectionTime": %d}]}
+            """.formatted(count, timeMs);
+    }
+
+    @Test
+    void gcHeapInfoPrefersMXBeansAndKeepsRegionsFromJcmd() {
+        GcHeapInfoAnalyzer analyzer = new GcHeapInfoAnalyzer();
+
+        ResolvedData data = ResolvedData.fromDumpsAndCollectedData(
+            List.of(createDummySnapshot()),
+            Map.of(
+                "gc-heap-info", List.of(
+                    new CollectedData(1L, SAMPLE_GC_HEAP_INFO_PREVIOUS, Map.of()),
+                    new CollectedData(2L, SAMPLE_GC_HEAP_INFO_LATEST, Map.of())),
+                "mxbean-memory", List.of(
+                    new CollectedData(1L, memorySample(1_000_000, 650_000), Map.of()),
+                    new CollectedData(2L, memorySample(1_200_000, 651_000), Map.of())),
+                "mxbean-gc", List.of(
+                    new CollectedData(1L, gcSample(10, 100), Map.of()),
+                    new CollectedData(2L, gcSample(13, 130), Map.of())))
+        );
+
+        String output = analyzer.analyze(data, Map.of()).output();
+
+        assertTrue(output.contains("Heap and metaspace from MXBeans (last sample absolute + change):"), output);
+        assertTrue(output.contains("2,000,000K"), output);
+        assertTrue(output.contains("1,200,000K"), output);
+        assertTrue(output.contains("Δ +200,000K"), output);
+        assertTrue(output.contains("651,000K"), output);
+        assertTrue(output.contains("14 regions, 114,688K"), "Regions still come from GC.heap_info: " + output);
+        assertTrue(output.contains("GC G1 Young Generation"), output);
+        assertTrue(output.contains("130 ms total"), output);
+        assertTrue(output.contains("Δ +3 / +30 ms"), output);
+    }
+
+    @Test
+    void gcHeapInfoFallsBackToJcmdWhenMXBeanSamplesFailed() {
+        GcHeapInfoAnalyzer analyzer = new GcHeapInfoAnalyzer();
+
+        ResolvedData data = ResolvedData.fromDumpsAndCollectedData(
+            List.of(createDummySnapshot()),
+            Map.of(
+                "gc-heap-info", List.of(new CollectedData(2L, SAMPLE_GC_HEAP_INFO_LATEST, Map.of())),
+                "mxbean-memory", List.of(new CollectedData(2L, "", Map.of("error", "no connection"))))
+        );
+
+        String output = analyzer.analyze(data, Map.of()).output();
+
+        assertTrue(output.contains("GC.heap_info (last dump absolute + change):"), output);
+        assertTrue(output.contains("2,203,648K"), output);
+    }
+
+    @Test
+    void fallsBackToOperatingSystemMXBean() {
+        VmVitalsAnalyzer analyzer = new VmVitalsAnalyzer();
+
+        ResolvedData data = ResolvedData.fromDumpsAndCollectedData(
+            List.of(createDummySnapshot()),
+            Map.of("mxbean-os", List.of(new CollectedData(1L, """
+                {"ProcessCpuLoad": 0.25, "CpuLoad": 0.5, "SystemLoadAverage": 1.5, "AvailableProcessors": 8,
+                 "OpenFileDescriptorCount": 120, "MaxFileDescriptorCount": 1024,
+                 "TotalMemorySize": 17179869184}
+                """, Map.of())))
+        );
+
+        AnalyzerResult result = analyzer.analyze(data, Map.of());
+
+        assertTrue(result.shouldDisplay());
+        String output = result.output();
+        assertTrue(output.contains("OperatingSystem MXBean"), output);
+        assertTrue(output.contains("25.0%"), output);
+        assertTrue(output.contains("50.0%"), output);
+        assertTrue(output.contains("1.50"), output);
+        assertTrue(output.contains("120 of 1,024"), output);
+        assertTrue(output.contains("16,384 MiB"), output);
+    }
 }
\ No newline at end of file
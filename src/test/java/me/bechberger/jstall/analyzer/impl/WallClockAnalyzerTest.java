@@ -0,0 +1,107 @@
+package me.bechberger.jstall.analyzer.impl;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.requirement.AsyncProfilerWindowRequirement;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.util.flame.FlameProfile;
+import me.bechberger.jthreaddump.model.StackFrame;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.model.ThreadInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WallClockAnalyzerTest {
+
+    @Test
+    void testRequiresDumpsAndWallWindows() {
+        Set<DataRequirement> requirements = new WallClockAnalyzer()
+            .getDataRequirements(Map.of("dump-count", 3, "interval", 1000L)).getRequirements();
+        assertEquals(List.of("profiling-windows-wall", "thread-dumps"),
+            requirements.stream().map(DataRequirement::getType).sorted().toList());
+        AsyncProfilerWindowRequirement wall = requirements.stream()
+            .filter(r -> r instanceof AsyncProfilerWindowRequirement)
+            .map(r -> (AsyncProfilerWindowRequirement) r).findFirst().orElseThrow();
+        assertEquals("wall", wall.getEvent());
+        assertEquals(WallClockAnalyzer.SAMPLE_INTERVAL_NANOS, wall.getIntervalNanos());
+    }
+
+    @Test
+    void testNoProfile() {
+        AnalyzerResult result = new WallClockAnalyzer().analyze(ResolvedData.fromDumps(List.of()), Map.of());
+        assertTrue(result.output().contains("No wall-clock profile"), result.output());
+    }
+
+    @Test
+    void testJavaFramesAreParsedTopFirst() {
+        List<StackFrame> frames = WallClockAnalyzer.javaFrames(List.of("[main tid=1]", "java/lang/Thread.run",
+            "com.example.Db.query_[j]", "Java_java_net_SocketInputStream_socketRead0", "JVM_Sleep", "os::sleep(long)",
+            "__poll_[k]"));
+        assertEquals(2, frames.size());
+        assertEquals("com.example.Db", frames.get(0).className());
+        assertEquals("query", frames.get(0).methodName());
+        assertEquals("java.lang.Thread", frames.get(1).className());
+    }
+
+    @Test
+    void testPoolName() {
+        assertEquals("http-nio-8080-exec-#", WallClockAnalyzer.poolName("http-nio-8080-exec-12"));
+        assertEquals("main", WallClockAnalyzer.poolName("main"));
+    }
+
+    @Test
+    void testThreadId() {
+        assertEquals(42L, FlameProfile.threadId("[worker-1 tid=42]"));
+        assertNull(FlameProfile.threadId("[worker-1]"));
+        assertNull(FlameProfile.threadId("java.lang.Thread.run"));
+    }
+
+    @Test
+    void testBreaksDownWallTimePerPool() {
+        ThreadInfo exec1 = thread("http-exec-1", 101L, Thread.State.RUNNABLE);
+        ThreadInfo exec2 = thread("http-exec-2", 102L, Thread.State.WAITING);
+        ThreadInfo scheduler = thread("scheduler", 103L, Thread.State.TIMED_WAITING);
+        Instant start = Instant.ofEpochMilli(1_000);
+        List<ThreadDumpSnapshot> dumps = List.of(
+            new ThreadDumpSnapshot(new ThreadDump(start, "1", List.of(exec1, exec2, scheduler), null, null, null), "", null, null),
+            new ThreadDumpSnapshot(new ThreadDump(start.plusSeconds(5), "2", List.of(exec1, exec2, scheduler), null, null, null), "", null, null));
+        String collapsed = """
+            [http-exec-1 tid=101];java/lang/Thread.run;com/example/Handler.handle;com/example/Handler.render 4
+            [http-exec-1 tid=101];java/lang/Thread.run;com/example/Handler.handle;org/postgresql/jdbc/PgStatement.executeQuery;java/net/SocketInputStream.socketRead0;__poll_[k] 4
+            [http-exec-2 tid=102];java/lang/Thread.run;com/example/Client.call;sun/nio/ch/SocketChannelImpl.read 1
+            [http-exec-2 tid=102];java/lang/Thread.run;com/example/Cache.get;java/lang/Object.wait 1
+            [scheduler tid=103];java/lang/Thread.run;java/lang/Thread.sleep;JVM_Sleep 5
+            [RMI TCP Connection(1)-127.0.0.1 tid=104];java/lang/Thread.run 3
+            """;
+        Map<String, List<CollectedData>> profiles = Map.of("profiling-windows-wall", List.of(
+            new CollectedData(2_000, collapsed, Map.of("format", "collapsed", "event", "wall"))));
+
+        AnalyzerResult result = new WallClockAnalyzer().analyze(
+            ResolvedData.fromDumpsAndCollectedData(dumps, profiles), Map.of());
+        String output = result.output();
+
+        assertEquals(0, result.exitCode());
+        assertTrue(output.contains("Wall-clock samples: 15 in 1 window (every 50ms), 3 threads, 3 matched"), output);
+        assertFalse(output.contains("RMI"), output);
+        String execRow = output.lines().filter(l -> l.contains("http-exec-#")).findFirst().orElseThrow();
+        // 10 samples: 4 CPU, 4 DB (socket read below JDBC), 1 network, 1 lock
+        assertTrue(execRow.matches(".*http-exec-#\\s+2\\s+0\\.50s\\s+40\\.0%\\s+10\\.0%\\s+40\\.0%\\s+10\\.0%\\s+0\\.0%\\s+0\\.0%.*"), execRow);
+        assertTrue(execRow.contains("java.net.SocketInputStream.socketRead0"), execRow);
+        String schedulerRow = output.lines().filter(l -> l.contains("scheduler")).findFirst().orElseThrow();
+        assertTrue(schedulerRow.contains("java.lang.Thread.sleep"), schedulerRow);
+        assertTrue(output.indexOf("http-exec-#") < output.indexOf("scheduler"), output);
+    }
+
+    private static ThreadInfo thread(String name, long nativeId, Thread.State state) {
+        return new ThreadInfo(name, nativeId, nativeId, 5, false, state, 1.0, 10.0,
+            List.of(new StackFrame("java.lang.Thread", "run", "Thread.java", 100)), List.of(), null, null);
+    }
+}
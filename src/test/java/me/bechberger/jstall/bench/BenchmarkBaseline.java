@@ -0,0 +1,197 @@
+package me.bechberger.jstall.bench;
+
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.PrettyPrinter;
+import me.bechberger.util.json.Util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of a {@link ScenarioBenchmark} run, stored as JSON so later runs can be compared
+ * against them.
+ */
+public record BenchmarkBaseline(String jvm, List<Measurement> measurements) {
+
+    private static final int VERSION = 1;
+
+    /**
+     * Measurements of one jstall command against one scenario app; times are medians over the
+     * repetitions, memory values maxima.
+     *
+     * @param collectionMs        attach and collection of all data requirements, including the
+     *                            scheduled waits between samples
+     * @param scheduledWaitMs     the part of {@code collectionMs} spent waiting for the next sample
+     * @param parseMs             parsing the collected thread dumps
+     * @param analysisMs          {@code Analyzer.analyze}
+     * @param heapPeakBytes       peak heap usage of jstall during the command
+     * @param rssPeakBytes        peak RSS of jstall during the command, -1 where unavailable
+     * @param safepoints          safepoints of the target during the command
+     * @param safepointPauseMs    total safepoint pause time of the target during the command
+     * @param safepointOverheadMs pause time above the target's idle safepoint rate, i.e. the pause
+     *                            time caused by jstall (noisy for apps that GC constantly)
+     */
+    public record Measurement(String app, String command, int runs,
+                              long collectionMs, long scheduledWaitMs, long parseMs, long analysisMs,
+                              long heapPeakBytes, long rssPeakBytes,
+                              long safepoints, double safepointPauseMs, double safepointOverheadMs) {
+
+        /** Collection time without the scheduled waits, the part collector work can improve. */
+        public long collectionOverheadMs() {
+            return collectionMs - scheduledWaitMs;
+        }
+
+        String key() {
+            return app + "/" + command;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("app", app);
+            map.put("command", command);
+            map.put("runs", runs);
+            map.put("collectionMs", collectionMs);
+            map.put("scheduledWaitMs", scheduledWaitMs);
+            map.put("parseMs", parseMs);
+            map.put("analysisMs", analysisMs);
+            map.put("heapPeakBytes", heapPeakBytes);
+            map.put("rssPeakBytes", rssPeakBytes);
+            map.put("safepoints", safepoints);
+            map.put("safepointPauseMs", safepointPauseMs);
+            map.put("safepointOverheadMs", safepointOverheadMs);
+            return map;
+        }
+
+        static Measurement fromMap(Map<String, Object> map) {
+            return new Measurement(
+                (String) map.get("app"),
+                (String) map.get("command"),
+                number(map, "runs").intValue(),
+                number(map, "collectionMs").longValue(),
+                number(map, "scheduledWaitMs").longValue(),
+                number(map, "parseMs").longValue(),
+                number(map, "analysisMs").longValue(),
+                number(map, "heapPeakBytes").longValue(),
+                number(map, "rssPeakBytes").longValue(),
+                number(map, "safepoints").longValue(),
+                number(map, "safepointPauseMs").doubleValue(),
+                number(map, "safepointOverheadMs").doubleValue());
+        }
+
+        private static Number number(Map<String, Object> map, String key) {
+            Object value = map.get(key);
+            return value instanceof Number number ? number : 0;
+        }
+    }
+
+    /**
+     * Compared metrics: a metric regresses when it grows by more than the relative tolerance and
+     * by more than its absolute floor, so that noise on tiny values is ignored.
+     */
+    private enum Metric {
+        COLLECTION("collection overhead", "ms", 20) {
+            @Override
+            double value(Measurement m) {
+                return m.collectionOverheadMs();
+            }
+        },
+        PARSE("parse", "ms", 20) {
+            @Override
+            double value(Measurement m) {
+                return m.parseMs();
+            }
+        },
+        ANALYSIS("analysis", "ms", 20) {
+            @Override
+            double value(Measurement m) {
+                return m.analysisMs();
+            }
+        },
+        HEAP("heap peak", "MiB", 8) {
+            @Override
+            double value(Measurement m) {
+                return m.heapPeakBytes() / (1024.0 * 1024);
+            }
+        },
+        SAFEPOINT("target safepoint overhead", "ms", 5) {
+            @Override
+            double value(Measurement m) {
+                return m.safepointOverheadMs();
+            }
+        };
+
+        final String label;
+        final String unit;
+        final double floor;
+
+        Metric(String label, String unit, double floor) {
+            this.label = label;
+            this.unit = unit;
+            this.floor = floor;
+        }
+
+        abstract double value(Measurement m);
+    }
+
+    /**
+     * Compares {@code current} against this baseline.
+     *
+     * @param tolerance allowed relative growth, e.g. 0.5 for 50%
+     * @return one line per regressed metric, empty if none regressed
+     */
+    public List<String> regressions(BenchmarkBaseline current, double tolerance) {
+        Map<String, Measurement> base = new LinkedHashMap<>();
+        for (Measurement m : measurements) {
+            base.put(m.key(), m);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Measurement now : current.measurements()) {
+            Measurement before = base.get(now.key());
+            if (before == null) {
+                continue;
+            }
+            for (Metric metric : Metric.values()) {
+                double old = metric.value(before);
+                double value = metric.value(now);
+                if (value > old * (1 + tolerance) && value - old > metric.floor) {
+                    regressions.add(String.format(Locale.US, "%s: %s %.1f %s -> %.1f %s",
+                        now.key(), metric.label, old, metric.unit, value, metric.unit));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    public void write(Path file) throws IOException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("version", VERSION);
+        root.put("jvm", jvm);
+        root.put("measurements", measurements.stream().map(Measurement::toMap).toList());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, PrettyPrinter.prettyPrint(root));
+    }
+
+    public static BenchmarkBaseline read(Path file) throws IOException {
+        Map<String, Object> root = Util.asMap(JSONParser.parse(Files.readString(file)));
+        Object version = root.get("version");
+        if (!(version instanceof Number number) || number.intValue() != VERSION) {
+            throw new IOException("Unsupported benchmark baseline version " + version + " in " + file);
+        }
+        List<Measurement> measurements = new ArrayList<>();
+        Object list = root.get("measurements");
+        if (list instanceof List<?> entries) {
+            for (Object entry : entries) {
+                measurements.add(Measurement.fromMap(Util.asMap(entry)));
+            }
+        }
+        return new BenchmarkBaseline((String) root.get("jvm"), measurements);
+    }
+}
@@ -0,0 +1,42 @@
+package me.bechberger.jstall.bench;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchmarkBaselineTest {
+
+    @TempDir
+    Path tmp;
+
+    private static BenchmarkBaseline.Measurement measurement(String app, long collectionMs, long analysisMs) {
+        return new BenchmarkBaseline.Measurement(app, "status", 3, collectionMs, 1000, 5, analysisMs,
+            32L * 1024 * 1024, 200L * 1024 * 1024, 4, 1.5, 0.25);
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        BenchmarkBaseline baseline = new BenchmarkBaseline("OpenJDK 64-Bit Server VM 21",
+            List.of(measurement("Deadlock", 1200, 30), measurement("GcPressure", 1300, 40)));
+        Path file = tmp.resolve("baseline.json");
+        baseline.write(file);
+        assertEquals(baseline, BenchmarkBaseline.read(file));
+    }
+
+    @Test
+    void regressionsRespectToleranceAndFloor() {
+        BenchmarkBaseline baseline = new BenchmarkBaseline("jvm",
+            List.of(measurement("Deadlock", 1200, 30), measurement("GcPressure", 1300, 4)));
+        BenchmarkBaseline current = new BenchmarkBaseline("jvm",
+            List.of(measurement("Deadlock", 1250, 90), measurement("GcPressure", 1300, 12),
+                measurement("HotLoop", 5000, 500)));
+
+        // Deadlock analysis tripled; GcPressure grew 3x but only by 8 ms; HotLoop has no baseline
+        assertEquals(List.of("Deadlock/status: analysis 30.0 ms -> 90.0 ms"), baseline.regressions(current, 0.5));
+        assertEquals(List.of(), baseline.regressions(current, 2.5));
+    }
+}
@@ -0,0 +1,346 @@
+package me.bechberger.jstall.bench;
+
+import me.bechberger.jstall.analyzer.Analyzer;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.ResolvedData;
+import me.bechberger.jstall.analyzer.impl.DeadLockAnalyzer;
+import me.bechberger.jstall.analyzer.impl.DependencyTreeAnalyzer;
+import me.bechberger.jstall.analyzer.impl.GcHeapInfoAnalyzer;
+import me.bechberger.jstall.analyzer.impl.MostWorkAnalyzer;
+import me.bechberger.jstall.analyzer.impl.StatusAnalyzer;
+import me.bechberger.jstall.analyzer.impl.ThreadsAnalyzer;
+import me.bechberger.jstall.analyzer.impl.WaitingThreadsAnalyzer;
+import me.bechberger.jstall.cli.CollectedDataHelper;
+import me.bechberger.jstall.model.SystemEnvironment;
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jstall.provider.DataCollector;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.ThreadDumpRequirement;
+import me.bechberger.jstall.testframework.TestAppLauncher;
+import me.bechberger.jstall.util.CommandExecutor;
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks jstall's collectors and analyzers against the reproducible pathology apps in
+ * {@code ai-eval/apps}.
+ * <p>
+ * Each app is launched with {@link TestAppLauncher}, then every command runs in-process against
+ * it, split into the phases of {@code BaseAnalyzerCommand}: attach and collection, thread dump
+ * parsing and analysis. For each phase the median over the repetitions is recorded, together with
+ * the peak heap and RSS of this JVM and the safepoint pauses of the target (from its
+ * {@code sun.rt.safepoint*} performance counters, minus its idle safepoint rate).
+ * <p>
+ * Disabled unless {@code -Djstall.bench=true}:
+ * <pre>
+ * mvn test -Dtest=ScenarioBenchmark -Djstall.bench=true
+ * </pre>
+ * System properties:
+ * <dl>
+ *     <dt>jstall.bench.apps</dt>
+ *     <dd>comma-separated app names, or {@code all} (default: a representative set); {@code all}
+ *     skips the apps that need third-party jars</dd>
+ *     <dt>jstall.bench.commands</dt>
+ *     <dd>comma-separated commands (default: all of {@link #COMMANDS})</dd>
+ *     <dt>jstall.bench.repetitions</dt>
+ *     <dd>runs per app and command (default: 3)</dd>
+ *     <dt>jstall.bench.interval</dt>
+ *     <dd>interval between samples in ms (default: 1000)</dd>
+ *     <dt>jstall.bench.output</dt>
+ *     <dd>where to write the results (default: target/jstall-bench/results.json)</dd>
+ *     <dt>jstall.bench.baseline</dt>
+ *     <dd>baseline to compare against (default: ai-eval/bench-baseline.json); baselines are
+ *     machine-specific and not checked in, so the first run records one with
+ *     {@code jstall.bench.update-baseline}</dd>
+ *     <dt>jstall.bench.update-baseline=true</dt>
+ *     <dd>write the results to the baseline instead of comparing</dd>
+ *     <dt>jstall.bench.tolerance</dt>
+ *     <dd>allowed relative growth per metric before the run fails (default: 0.5)</dd>
+ * </dl>
+ */
+@EnabledIfSystemProperty(named = "jstall.bench", matches = "true")
+public class ScenarioBenchmark {
+
+    private static final Path APPS_DIR = Path.of("ai-eval", "apps");
+
+    private static final List<String> DEFAULT_APPS = List.of(
+        "ConcurrentHashMapContention", "FalseSharing", "GcPressure", "EventLoopBlocked",
+        "Deadlock", "HotLoop", "MassContention", "ThreadLeak", "PoolStarvation", "Healthy"
+    );
+
+    private static final Map<String, Supplier<Analyzer>> COMMANDS = new LinkedHashMap<>();
+
+    static {
+        COMMANDS.put("status", StatusAnalyzer::new);
+        COMMANDS.put("threads", ThreadsAnalyzer::new);
+        COMMANDS.put("deadlock", DeadLockAnalyzer::new);
+        COMMANDS.put("most-work", MostWorkAnalyzer::new);
+        COMMANDS.put("waiting-threads", WaitingThreadsAnalyzer::new);
+        COMMANDS.put("dependency-tree", DependencyTreeAnalyzer::new);
+        COMMANDS.put("gc-heap-info", GcHeapInfoAnalyzer::new);
+    }
+
+    /** How long the target is observed without jstall to estimate its own safepoint rate. */
+    private static final long IDLE_OBSERVATION_MS = 2000;
+
+    private record Run(long collectionMs, long scheduledWaitMs, long parseMs, long analysisMs,
+                       long heapPeakBytes, long rssPeakBytes, long safepoints, double safepointPauseMs,
+                       double safepointOverheadMs) {}
+
+    /** Snapshot of the target's safepoint counters. */
+    private record Safepoints(long count, double pauseMs) {
+        static Safepoints read(TestAppLauncher app) throws IOException, InterruptedException {
+            Map<String, Long> counters = app.readPerfCounters();
+            double ticksPerMs = counters.getOrDefault("sun.os.hrt.frequency", 1_000_000_000L) / 1000.0;
+            return new Safepoints(counters.getOrDefault("sun.rt.safepoints", 0L),
+                counters.getOrDefault("sun.rt.safepointTime", 0L) / ticksPerMs);
+        }
+    }
+
+    @Test
+    public void benchmarkScenarioApps() throws Exception {
+        assertTrue(Files.isDirectory(APPS_DIR), "Run from the project root, " + APPS_DIR + " not found");
+        int repetitions = Integer.getInteger("jstall.bench.repetitions", 3);
+        long intervalMs = Long.getLong("jstall.bench.interval", 1000);
+
+        List<BenchmarkBaseline.Measurement> measurements = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        for (String app : apps()) {
+            try {
+                measurements.addAll(benchmarkApp(app, commands(), repetitions, intervalMs));
+            } catch (Exception e) {
+                // One app that does not start must not abort the others
+                failures.add(app + ": " + e.getMessage());
+                System.out.println("  " + app + " FAILED: " + e.getMessage());
+            }
+        }
+        BenchmarkBaseline results = new BenchmarkBaseline(
+            System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version"), measurements);
+        printTable(measurements);
+
+        Path output = Path.of(System.getProperty("jstall.bench.output", "target/jstall-bench/results.json"));
+        results.write(output);
+        System.out.println("Results written to " + output);
+
+        Path baselineFile = Path.of(System.getProperty("jstall.bench.baseline", "ai-eval/bench-baseline.json"));
+        if (Boolean.getBoolean("jstall.bench.update-baseline")) {
+            results.write(baselineFile);
+            System.out.println("Baseline updated: " + baselineFile);
+        } else if (Files.exists(baselineFile)) {
+            double tolerance = Double.parseDouble(System.getProperty("jstall.bench.tolerance", "0.5"));
+            List<String> regressions = BenchmarkBaseline.read(baselineFile).regressions(results, tolerance);
+            regressions.forEach(r -> System.out.println("REGRESSION " + r));
+            assertTrue(regressions.isEmpty(), regressions.size() + " regression(s) against " + baselineFile);
+        } else {
+            System.out.println("No baseline at " + baselineFile
+                + ", nothing compared; record one with -Djstall.bench.update-baseline=true");
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " app(s) failed:\n" + String.join("\n", failures));
+    }
+
+    private static List<String> apps() throws IOException {
+        String property = System.getProperty("jstall.bench.apps", "");
+        if (property.equals("all")) {
+            List<String> apps = new ArrayList<>();
+            try (var files = Files.list(APPS_DIR)) {
+                for (Path file : files.filter(p -> p.getFileName().toString().endsWith(".java")).sorted().toList()) {
+                    String name = file.getFileName().toString();
+                    String app = name.substring(0, name.length() - ".java".length());
+                    if (needsThirdPartyJars(file)) {
+                        System.out.println("  " + app + " skipped: needs third-party jars on the class path");
+                    } else {
+                        apps.add(app);
+                    }
+                }
+            }
+            return apps;
+        }
+        return property.isBlank() ? DEFAULT_APPS : Arrays.stream(property.split(",")).map(String::strip).toList();
+    }
+
+    private static final List<String> JDK_PACKAGES =
+        List.of("java.", "javax.", "jdk.", "com.sun.", "sun.", "org.xml.", "org.w3c.", "org.ietf.");
+
+    /**
+     * Whether the single-file app imports anything outside of the JDK (HikariCP, resilience4j,
+     * commons-pool2), which the source launcher can't resolve without extra jars.
+     */
+    static boolean needsThirdPartyJars(Path source) throws IOException {
+        try (var lines = Files.lines(source)) {
+            return lines.map(String::strip)
+                .filter(line -> line.startsWith("import "))
+                .map(line -> line.substring("import ".length()).replace("static ", "").strip())
+                .anyMatch(imported -> JDK_PACKAGES.stream().noneMatch(imported::startsWith));
+        }
+    }
+
+    private static List<String> commands() {
+        String property = System.getProperty("jstall.bench.commands", "");
+        if (property.isBlank()) {
+            return List.copyOf(COMMANDS.keySet());
+        }
+        List<String> commands = Arrays.stream(property.split(",")).map(String::strip).toList();
+        for (String command : commands) {
+            assertTrue(COMMANDS.containsKey(command), "Unknown command " + command + ", known: " + COMMANDS.keySet());
+        }
+        return commands;
+    }
+
+    private List<BenchmarkBaseline.Measurement> benchmarkApp(String app, List<String> commands,
+                                                             int repetitions, long intervalMs) throws Exception {
+        Path readyFile = Files.createTempFile("jstall-bench-", ".ready");
+        Files.delete(readyFile);
+        TestAppLauncher launcher = new TestAppLauncher();
+        try {
+            launcher.launchSource(APPS_DIR.resolve(app + ".java"), readyFile.toString());
+            launcher.waitForFile(readyFile, 60_000);
+
+            Safepoints idleStart = Safepoints.read(launcher);
+            Thread.sleep(IDLE_OBSERVATION_MS);
+            Safepoints idleEnd = Safepoints.read(launcher);
+            double idlePausePerMs = (idleEnd.pauseMs() - idleStart.pauseMs()) / IDLE_OBSERVATION_MS;
+
+            List<BenchmarkBaseline.Measurement> measurements = new ArrayList<>();
+            for (String command : commands) {
+                List<Run> runs = new ArrayList<>();
+                for (int i = 0; i < repetitions; i++) {
+                    runs.add(runCommand(launcher, COMMANDS.get(command).get(), intervalMs, idlePausePerMs));
+                }
+                measurements.add(new BenchmarkBaseline.Measurement(app, command, runs.size(),
+                    median(runs, Run::collectionMs),
+                    median(runs, Run::scheduledWaitMs),
+                    median(runs, Run::parseMs),
+                    median(runs, Run::analysisMs),
+                    runs.stream().mapToLong(Run::heapPeakBytes).max().orElse(0),
+                    runs.stream().mapToLong(Run::rssPeakBytes).max().orElse(-1),
+                    median(runs, Run::safepoints),
+                    median(runs, r -> Math.round(r.safepointPauseMs() * 1000)) / 1000.0,
+                    median(runs, r -> Math.round(r.safepointOverheadMs() * 1000)) / 1000.0));
+                System.out.println("  " + app + " / " + command + " done");
+            }
+            return measurements;
+        } finally {
+            launcher.stop();
+            Files.deleteIfExists(readyFile);
+        }
+    }
+
+    /** Runs one command the way {@code BaseAnalyzerCommand} does, with a fresh attach. */
+    private Run runCommand(TestAppLauncher app, Analyzer analyzer, long intervalMs, double idlePausePerMs)
+            throws Exception {
+        Map<String, Object> options = new HashMap<>();
+        options.put("dump-count", analyzer.defaultDumpCount());
+        options.put("interval", intervalMs);
+        options.put("keep", false);
+        options.put("full", false);
+        DataRequirements requirements = analyzer.getDataRequirements(options);
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        boolean rssReset = resetPeakRss();
+        Safepoints before = Safepoints.read(app);
+
+        CommandExecutor executor = new CommandExecutor.LocalCommandExecutor();
+        long start = System.nanoTime();
+        JMXDiagnosticHelper helper = executor.diagnosticHelper(app.getPid());
+        Map<String, List<CollectedData>> byType;
+        List<ThreadDumpSnapshot> dumps;
+        long collected;
+        long parsed;
+        AnalyzerResult result;
+        try {
+            Map<DataRequirement, List<CollectedData>> raw = new DataCollector(helper, requirements).collectAll();
+            byType = CollectedDataHelper.toByTypeMap(raw);
+            SystemEnvironment environment = SystemEnvironment.create(executor);
+            collected = System.nanoTime();
+            dumps = ThreadDumpRequirement.toSnapshots(byType.getOrDefault(ThreadDumpRequirement.TYPE, List.of()),
+                CollectedDataHelper.extractSystemProps(byType), environment);
+            parsed = System.nanoTime();
+            result = analyzer.analyze(ResolvedData.fromDumpsAndCollectedData(dumps, byType), options);
+        } finally {
+            helper.cleanup();
+        }
+        long analyzed = System.nanoTime();
+
+        Safepoints after = Safepoints.read(app);
+        assertNotNull(result.output(), analyzer.name() + " produced no output");
+        long heapPeak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        double pauseMs = after.pauseMs() - before.pauseMs();
+        long totalMs = (analyzed - start) / 1_000_000;
+        return new Run(
+            (collected - start) / 1_000_000,
+            requirements.getDuration(),
+            (parsed - collected) / 1_000_000,
+            (analyzed - parsed) / 1_000_000,
+            heapPeak,
+            rssReset ? procStatusBytes("VmHWM") : -1,
+            after.count() - before.count(),
+            pauseMs,
+            pauseMs - idlePausePerMs * totalMs);
+    }
+
+    private static long median(List<Run> runs, ToLongFunction<Run> metric) {
+        long[] values = runs.stream().mapToLong(metric).sorted().toArray();
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    /** Resets the peak RSS of this process (Linux only). */
+    private static boolean resetPeakRss() {
+        try {
+            Files.writeString(Path.of("/proc/self/clear_refs"), "5");
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /** Reads a {@code kB} value from {@code /proc/self/status}, -1 if unavailable. */
+    private static long procStatusBytes(String key) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith(key + ":")) {
+                    return Long.parseLong(line.substring(key.length() + 1).replace("kB", "").strip()) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // Not Linux
+        }
+        return -1;
+    }
+
+    private static void printTable(List<BenchmarkBaseline.Measurement> measurements) {
+        System.out.printf(Locale.US, "%-28s %-16s %9s %9s %7s %9s %9s %9s %6s %10s%n",
+            "APP", "COMMAND", "COLLECT", "WAIT", "PARSE", "ANALYSIS", "HEAP MiB", "RSS MiB", "SAFEP", "PAUSE+ ms");
+        for (BenchmarkBaseline.Measurement m : measurements) {
+            System.out.printf(Locale.US, "%-28s %-16s %9d %9d %7d %9d %9.1f %9s %6d %10.2f%n",
+                m.app(), m.command(), m.collectionMs(), m.scheduledWaitMs(), m.parseMs(), m.analysisMs(),
+                m.heapPeakBytes() / (1024.0 * 1024),
+                m.rssPeakBytes() < 0 ? "-" : String.format(Locale.US, "%.1f", m.rssPeakBytes() / (1024.0 * 1024)),
+                m.safepoints(), m.safepointOverheadMs());
+        }
+    }
+}
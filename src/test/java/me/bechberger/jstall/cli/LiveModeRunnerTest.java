@@ -6,8 +6,10 @@ import me.bechberger.jstall.analyzer.impl.StatusAnalyzer;
 import me.bechberger.jstall.analyzer.ResolvedData;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -43,4 +45,13 @@ class LiveModeRunnerTest {
         assertTrue(composite.sections().stream()
             .anyMatch(s -> "threads".equals(s.name())));
     }
+
+    @Test
+    void historyCapacity_coversWindowAndKeepSamples() {
+        assertEquals(60, LiveModeRunner.historyCapacity(Duration.ofMinutes(5), Duration.ofSeconds(5), 0));
+        assertEquals(100, LiveModeRunner.historyCapacity(Duration.ofMinutes(5), Duration.ofSeconds(5), 100));
+        assertEquals(1, LiveModeRunner.historyCapacity(Duration.ZERO, Duration.ofSeconds(5), 0));
+        assertEquals(LiveModeRunner.MAX_HISTORY_TICKS,
+                LiveModeRunner.historyCapacity(Duration.ofDays(1), Duration.ofSeconds(1), 0));
+    }
 }
@@ -302,4 +302,55 @@ class ReplayExtendedTest {
         // Status runs MostWorkAnalyzer, ThreadsAnalyzer, etc.
         assertTrue(out.contains("==="), "Should contain section headers (=== analyzer_name ===)");
     }
-}
\ No newline at end of file
+
+    // ================== differential flamegraphs ==================
+
+    private Path createProfileRecording(String... windows) throws Exception {
+        Path tempFile = Files.createTempFile("replay-profile-", ".zip");
+        RecordingTestBuilder.JvmRecordingBuilder jvm = new RecordingTestBuilder(Main.VERSION)
+            .withJvm(10000, "com.example.TestApp");
+        for (int i = 0; i < windows.length; i++) {
+            jvm.withCollapsedProfile(windows[i], 1000L + i);
+        }
+        jvm.build().build(tempFile);
+        tempFile.toFile().deleteOnExit();
+        return tempFile;
+    }
+
+    @Test
+    void testFlameDiffBetweenRecordings(@TempDir Path tempDir) throws Exception {
+        Path before = createProfileRecording("[main tid=1];App.run;App.parse 8\n[main tid=1];App.run;App.render 2\n");
+        Path after = createProfileRecording("[main tid=1];App.run;App.parse 2\n[main tid=1];App.run;App.render 8\n");
+        Path output = tempDir.resolve("diff.html");
+
+        RunCommandUtil.run("flame", "--diff", before.toString(), after.toString(), "--output", output.toString())
+            .hasNoError()
+            .output().contains("Differential flamegraph").contains("+60.0%  App.render (20.0% → 80.0%)")
+            .contains("-60.0%  App.parse (80.0% → 20.0%)");
+        assertTrue(Files.readString(output).contains("\"baseTotal\":10"));
+    }
+
+    @Test
+    void testFlameDiffWindowsAsCollapsed(@TempDir Path tempDir) throws Exception {
+        Path recording = createProfileRecording(
+            "[main tid=1];App.run;App.parse 4\n",
+            "[main tid=1];App.run;App.parse 1\n[main tid=1];App.run;App.render 3\n");
+        Path output = tempDir.resolve("diff.collapsed");
+
+        RunCommandUtil.run("-f", recording.toString(), "flame", "--diff-windows", "0:1", "--output", output.toString())
+            .hasNoError();
+        assertEquals("""
+            [main tid=1];App.run;App.parse 4 1
+            [main tid=1];App.run;App.render 0 3
+            """, Files.readString(output));
+    }
+
+    @Test
+    void testFlameDiffWindowsOutOfRange(@TempDir Path tempDir) throws Exception {
+        Path recording = createProfileRecording("[main tid=1];App.run 1\n");
+
+        RunCommandUtil.run("-f", recording.toString(), "flame", "--diff-windows", "0:3-5",
+                "--output", tempDir.resolve("diff.html").toString())
+            .hasError().hasErrorContaining("no collapsed profile windows in 3-5");
+    }
+}
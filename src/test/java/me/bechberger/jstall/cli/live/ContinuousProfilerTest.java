@@ -0,0 +1,52 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.util.flame.FlameProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContinuousProfilerTest {
+
+    @Test
+    void deltaIsTheDifferenceOfCumulativeDumps() {
+        FlameProfile first = FlameProfile.parseCollapsed("""
+            [main tid=1];App.run;App.parse 4
+            [main tid=1];App.run;App.render 1
+            """);
+        FlameProfile second = FlameProfile.parseCollapsed("""
+            [main tid=1];App.run;App.parse 4
+            [main tid=1];App.run;App.render 3
+            [worker tid=2];Worker.run 2
+            """);
+
+        assertSame(first, ContinuousProfiler.delta(null, first));
+        assertEquals("""
+            [main tid=1];App.run;App.render 2
+            [worker tid=2];Worker.run 2
+            """, ContinuousProfiler.delta(first, second).toCollapsed());
+    }
+
+    @Test
+    void restartedProfilerDumpIsTheDelta() {
+        FlameProfile before = FlameProfile.parseCollapsed("[main tid=1];App.run 10\n");
+        FlameProfile restarted = FlameProfile.parseCollapsed("[main tid=1];App.run 3\n");
+        assertSame(restarted, ContinuousProfiler.delta(before, restarted));
+    }
+
+    @Test
+    void topMethodsSumsTheRollingWindow() {
+        List<FlameProfile> deltas = List.of(
+            FlameProfile.parseCollapsed("[main tid=1];App.run;App.parse 3\n[io tid=2];App.run;App.parse 1\n"),
+            FlameProfile.parseCollapsed("[main tid=1];App.run;App.render 1\n[main tid=1] 5\n"));
+
+        AnalyzerOutput output = ContinuousProfiler.topMethods(deltas, Duration.ofMillis(50));
+        String rendered = output.render();
+        assertTrue(rendered.contains("cpu samples every 50ms, last 60s: 5 samples in 2 methods"), rendered);
+        assertTrue(rendered.indexOf("App.parse") < rendered.indexOf("App.render"), rendered);
+        assertTrue(rendered.matches("(?s).*App\\.parse\\s+4\\s+80\\.0%\\s+main.*"), rendered);
+    }
+}
@@ -0,0 +1,89 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.CollectionSchedule;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.provider.requirement.ThreadDumpRequirement;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleHistoryTest {
+
+    private static final DataRequirement DUMPS = new ThreadDumpRequirement(CollectionSchedule.once());
+
+    private static String dump(long cpuMs) {
+        return "2024-01-01 12:00:00\nFull thread dump OpenJDK:\n\n"
+                + "\"main\" #1 prio=5 cpu=" + cpuMs + "ms tid=0x1 nid=0x2 runnable\n"
+                + "   java.lang.Thread.State: RUNNABLE\n"
+                + "\tat Main.work(Main.java:10)\n\n"
+                + "\"idle\" #2 prio=5 cpu=1ms tid=0x3 nid=0x4 waiting on condition\n"
+                + "   java.lang.Thread.State: WAITING (parking)\n"
+                + "\tat jdk.internal.misc.Unsafe.park(Native Method)\n";
+    }
+
+    private static Map<DataRequirement, List<CollectedData>> sample(long timestamp, String raw) {
+        return Map.of(DUMPS, List.of(new CollectedData(timestamp, raw, Map.of("k", "v"))));
+    }
+
+    @Test
+    void roundTripsRawDataExactly() {
+        SampleHistory history = new SampleHistory(4);
+        String raw = dump(100) + "\n\n\ntrailing";
+        long seq = history.add(Instant.ofEpochMilli(1), sample(1, raw));
+
+        SampleHistory.Tick tick = history.get(seq);
+        CollectedData data = tick.rawCollected().get(DUMPS).get(0);
+        assertEquals(raw, data.rawData());
+        assertEquals(1, data.timestamp());
+        assertEquals(Map.of("k", "v"), data.metadata());
+        assertFalse(tick.isError());
+    }
+
+    @Test
+    void evictsOldestTicksWhenFull() {
+        SampleHistory history = new SampleHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.add(Instant.ofEpochMilli(i), sample(i, dump(i)));
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(2, history.oldestSequence());
+        assertEquals(4, history.newestSequence());
+        assertNull(history.get(1));
+        assertEquals(dump(3), history.get(3).rawCollected().get(DUMPS).get(0).rawData());
+        assertEquals(List.of(3L, 4L), history.tail(2).stream().map(SampleHistory.Tick::sequence).toList());
+    }
+
+    @Test
+    void sharesUnchangedStacksAndReleasesThemOnEviction() {
+        SampleHistory history = new SampleHistory(2);
+        history.add(Instant.ofEpochMilli(0), sample(0, dump(10)));
+        int afterFirst = history.internedCount();
+        history.add(Instant.ofEpochMilli(1), sample(1, dump(20)));
+
+        // Only the header lines changed, so no new stack bodies are needed
+        assertEquals(afterFirst, history.internedCount());
+
+        history.add(Instant.ofEpochMilli(2), sample(2, "other"));
+        history.add(Instant.ofEpochMilli(3), sample(3, "other"));
+        assertEquals(0, history.internedCount());
+    }
+
+    @Test
+    void previousSuccessfulSkipsErrorTicks() {
+        SampleHistory history = new SampleHistory(5);
+        long first = history.add(Instant.ofEpochMilli(0), sample(0, dump(1)));
+        history.addError(Instant.ofEpochMilli(1), AnalyzerResult.withExitCode("boom", 1));
+        long third = history.add(Instant.ofEpochMilli(2), sample(2, dump(2)));
+
+        assertEquals(first, history.previousSuccessful(third).sequence());
+        assertTrue(history.get(first + 1).isError());
+        assertNull(history.previousSuccessful(first));
+    }
+}
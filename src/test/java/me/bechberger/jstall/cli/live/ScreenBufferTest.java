@@ -0,0 +1,131 @@
+package me.bechberger.jstall.cli.live;
+
+import me.bechberger.jstall.util.render.AnsiCodes;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScreenBufferTest {
+
+    @Test
+    void firstFrameIsDrawnCompletely() {
+        ScreenBuffer screen = new ScreenBuffer();
+        String out = screen.update(List.of("hello", "world"), 3, 20);
+
+        assertTrue(out.startsWith(AnsiCodes.CLEAR_SCREEN));
+        int row1 = out.indexOf("\033[1;1H");
+        int row2 = out.indexOf("\033[2;1H");
+        assertTrue(row1 >= 0 && row1 < out.indexOf("hello"), out);
+        assertTrue(row2 > out.indexOf("hello") && row2 < out.indexOf("world"), out);
+    }
+
+    @Test
+    void identicalFrameProducesNoOutput() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("a", "b"), 2, 20);
+
+        assertEquals("", screen.update(List.of("a", "b"), 2, 20));
+    }
+
+    @Test
+    void onlyChangedSpanOfChangedLineIsWritten() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("header", "cpu 10% main"), 2, 40);
+
+        String out = screen.update(List.of("header", "cpu 25% main"), 2, 40);
+
+        assertFalse(out.contains("header"));
+        assertFalse(out.contains(AnsiCodes.CLEAR_SCREEN));
+        // Jump to row 2, column 5 and rewrite the two changed digits only
+        assertTrue(out.contains("\033[2;5H"), out);
+        assertTrue(AnsiCodes.strip(out).endsWith("25"), out);
+    }
+
+    @Test
+    void shorterLineClearsRemainder() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("abcdef"), 1, 20);
+
+        String out = screen.update(List.of("abc"), 1, 20);
+
+        assertTrue(out.contains("\033[1;4H"), out);
+        assertTrue(out.contains(AnsiCodes.CLEAR_LINE));
+    }
+
+    @Test
+    void styleChangeIsDetected() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("RUNNABLE"), 1, 20);
+
+        String out = screen.update(List.of("\033[31mRUNNABLE\033[0m"), 1, 20);
+
+        assertTrue(out.contains("\033[31mRUNNABLE"), out);
+    }
+
+    @Test
+    void resizeForcesFullRedraw() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("same"), 2, 20);
+
+        String out = screen.update(List.of("same"), 3, 20);
+
+        assertTrue(out.startsWith(AnsiCodes.CLEAR_SCREEN));
+        assertTrue(out.contains("same"));
+    }
+
+    @Test
+    void longLinesAreTruncatedWithEllipsis() {
+        ScreenBuffer screen = new ScreenBuffer();
+        String out = screen.update(List.of("0123456789"), 1, 5);
+
+        assertTrue(AnsiCodes.strip(out).endsWith("0123…"), out);
+    }
+
+    @Test
+    void wideCharactersTakeTwoColumns() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("⏪ 12:00:01 x"), 1, 40);
+
+        String out = screen.update(List.of("⏪ 12:00:02 x"), 1, 40);
+
+        // "⏪" is two columns wide, so the changed digit is in column 11, not 10
+        assertTrue(out.contains("\033[1;11H"), out);
+        assertEquals("2", AnsiCodes.strip(out.substring(out.indexOf("\033[1;11H") + "\033[1;11H".length())));
+        assertEquals(2, ScreenBuffer.displayWidth("⏪".codePointAt(0)));
+        assertEquals(1, ScreenBuffer.displayWidth('a'));
+        assertEquals(0, ScreenBuffer.displayWidth(0xFE0F));
+    }
+
+    @Test
+    void changedWideCharacterIsRewrittenCompletely() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("ab漢c"), 1, 20);
+
+        String out = screen.update(List.of("ab字c"), 1, 20);
+
+        assertTrue(out.contains("\033[1;3H"), out);
+        assertTrue(AnsiCodes.strip(out).endsWith("字"), out);
+    }
+
+    @Test
+    void truncationDoesNotSplitWideCharacters() {
+        ScreenBuffer screen = new ScreenBuffer();
+        String out = screen.update(List.of("abc漢字"), 1, 5);
+
+        assertTrue(AnsiCodes.strip(out).endsWith("abc…"), out);
+    }
+
+    @Test
+    void invalidateForcesFullRedraw() {
+        ScreenBuffer screen = new ScreenBuffer();
+        screen.update(List.of("same"), 2, 20);
+        screen.invalidate();
+
+        String out = screen.update(List.of("same"), 2, 20);
+
+        assertTrue(out.startsWith(AnsiCodes.CLEAR_SCREEN));
+        assertTrue(out.contains("same"));
+    }
+}
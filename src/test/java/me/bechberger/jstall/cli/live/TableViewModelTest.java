@@ -128,4 +128,67 @@ class TableViewModelTest {
             assertEquals(0, line.trim().length(), "Lines should be empty after scrolling past content");
         }
     }
+
+    private static TableModel cpuTable(String... nameCpuPairs) {
+        TableModel.Builder builder = TableModel.builder()
+            .addColumn("NAME", TableModel.Alignment.LEFT)
+            .addColumn("CPU", TableModel.Alignment.RIGHT);
+        for (int i = 0; i < nameCpuPairs.length; i += 2) {
+            builder.addRow(Cell.text(nameCpuPairs[i]), Cell.integer(Long.parseLong(nameCpuPairs[i + 1])));
+        }
+        return builder.build();
+    }
+
+    private static List<String> names(TableViewModel model) {
+        return model.getViewport(100).stream().map(row -> row[0].display()).toList();
+    }
+
+    @Test
+    void sort_isStableAndUsesSecondaryKeys() {
+        TableViewModel model = TableViewModel.fromModel(
+            cpuTable("b", "10", "a", "20", "c", "10", "d", "20"), List.of());
+
+        model.toggleSort(1); // CPU descending, ties keep table order
+        assertEquals(List.of("a", "d", "b", "c"), names(model));
+
+        model.addSecondarySort(0); // then NAME descending
+        assertEquals(List.of("d", "a", "c", "b"), names(model));
+    }
+
+    @Test
+    void filter_narrowsAndWidensAgain() {
+        TableViewModel model = TableViewModel.fromModel(
+            cpuTable("worker-1", "1", "worker-2", "2", "main", "3"), List.of());
+
+        model.setFilter("w");
+        assertEquals(2, model.getTotalRowCount());
+        model.setFilter("worker-2");
+        assertEquals(List.of("worker-2"), names(model));
+        model.setFilter("worker");
+        assertEquals(List.of("worker-1", "worker-2"), names(model));
+        model.setFilter("MAIN");
+        assertEquals(List.of("main"), names(model));
+        model.setFilter("");
+        assertEquals(3, model.getTotalRowCount());
+    }
+
+    @Test
+    void seedOrderFrom_matchesFullSortAfterRowsChange() {
+        TableViewModel previous = TableViewModel.fromModel(
+            cpuTable("a", "30", "b", "20", "c", "10"), List.of());
+        previous.toggleSort(1);
+        assertEquals(List.of("a", "b", "c"), names(previous));
+
+        // c overtook a, b disappeared, d is new
+        TableModel next = cpuTable("a", "30", "c", "40", "d", "35");
+        TableViewModel seeded = TableViewModel.fromModel(next, List.of());
+        seeded.toggleSort(1);
+        seeded.seedOrderFrom(previous);
+
+        TableViewModel fresh = TableViewModel.fromModel(next, List.of());
+        fresh.toggleSort(1);
+
+        assertEquals(List.of("c", "d", "a"), names(seeded));
+        assertEquals(names(fresh), names(seeded));
+    }
 }
@@ -68,6 +68,79 @@ class DataCollectorTest {
         }
     }
 
+    /** Sleeps for the whole window, like the JFR and async-profiler windows do. */
+    private static final class StubWindowRequirement implements IntervalWindowRequirement {
+        private final String type;
+        private final CollectionSchedule schedule;
+
+        private StubWindowRequirement(String type, CollectionSchedule schedule) {
+            this.type = type;
+            this.schedule = schedule;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public CollectionSchedule getSchedule() {
+            return schedule;
+        }
+
+        @Override
+        public CollectedData collect(JMXDiagnosticHelper helper, int sampleIndex) throws IOException {
+            return collectWindow(helper, sampleIndex, schedule.intervalMs());
+        }
+
+        @Override
+        public CollectedData collectWindow(JMXDiagnosticHelper helper, int sampleIndex, long windowMs) throws IOException {
+            long start = System.currentTimeMillis();
+            try {
+                Thread.sleep(windowMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new CollectedData(start, type, Map.of("windowMs", String.valueOf(windowMs)));
+        }
+
+        @Override
+        public void persist(ZipOutputStream zipOut, String pidPath, List<CollectedData> samples) {
+        }
+
+        @Override
+        public List<CollectedData> load(ZipFile zipFile, String pidPath) {
+            return List.of();
+        }
+    }
+
+    @Test
+    void windowsOfOneCycleRunConcurrently() throws Exception {
+        long intervalMs = 1000;
+        DataRequirement points = new StubRequirement("thread-dump", CollectionSchedule.intervals(3, intervalMs), false, "dump");
+        DataRequirement jfr = new StubWindowRequirement("jfr-events", CollectionSchedule.intervals(2, intervalMs));
+        DataRequirement profiler = new StubWindowRequirement("profiles", CollectionSchedule.intervals(2, intervalMs));
+
+        long start = System.currentTimeMillis();
+        Map<DataRequirement, List<CollectedData>> collected =
+            new DataCollector(null, requirementsOf(points, jfr, profiler)).collectAll();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(3, collected.get(points).size());
+        assertEquals(2, collected.get(jfr).size());
+        assertEquals(2, collected.get(profiler).size());
+        // Two cycles of one interval each; sequential windows would take about 2 * 1.6 s
+        assertTrue(elapsed < 2 * intervalMs + 500, "took " + elapsed + " ms");
+        for (int i = 0; i < 2; i++) {
+            CollectedData jfrWindow = collected.get(jfr).get(i);
+            CollectedData profilerWindow = collected.get(profiler).get(i);
+            assertEquals(jfrWindow.metadata().get("windowMs"), profilerWindow.metadata().get("windowMs"));
+            assertTrue(Long.parseLong(jfrWindow.metadata().get("windowMs")) >= intervalMs - 300);
+            assertTrue(Math.abs(jfrWindow.timestamp() - profilerWindow.timestamp()) < 200);
+        }
+    }
+
     @Test
     void oneTimeFailureDoesNotAbortOtherCollections() throws Exception {
         DataRequirement failingOneTime = new StubRequirement(
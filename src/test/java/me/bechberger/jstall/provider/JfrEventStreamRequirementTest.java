@@ -0,0 +1,81 @@
+package me.bechberger.jstall.provider;
+
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.JfrEventStreamRequirement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventStreamRequirementTest {
+
+    @Test
+    void persistsOnlyCollectedWindows(@TempDir Path tempDir) throws IOException {
+        JfrEventStreamRequirement requirement = JfrEventStreamRequirement.forSampling(3, 1000);
+        assertEquals(2, requirement.getSchedule().count());
+
+        List<CollectedData> samples = List.of(
+            new CollectedData(1000, "{\"events\": 3}", Map.of("windowMs", "800")),
+            new CollectedData(2000, "", Map.of("skip", "true", "reason", "jfr-not-available")));
+
+        Path zip = tempDir.resolve("recording.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            requirement.persist(out, "1/", samples);
+        }
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<CollectedData> loaded = requirement.load(zipFile, "1/");
+            assertEquals(1, loaded.size());
+            assertEquals(1000, loaded.get(0).timestamp());
+            assertEquals("{\"events\": 3}", loaded.get(0).rawData());
+        }
+        assertEquals(List.of("jfr-events/000-1000.json"), requirement.getExpectedFiles(samples));
+    }
+
+    @Test
+    void fileFallbackStartsDefaultSettingsWithEventThresholds() throws Exception {
+        String[] arguments = JfrEventStreamRequirement.startArguments("jstall-test-events", true);
+        List<String> list = List.of(arguments);
+        assertEquals(List.of("name=jstall-test-events", "settings=default"), list.subList(0, 2));
+        assertTrue(list.contains("jdk.ExecutionSample#period=20ms"), list.toString());
+        assertTrue(list.contains("jdk.ThreadPark#threshold=10ms"), list.toString());
+        assertTrue(list.contains("jdk.JavaMonitorEnter#threshold=10ms"), list.toString());
+        assertTrue(list.contains("jdk.ObjectAllocationSample#throttle=150/s"), list.toString());
+        assertTrue(list.contains("jdk.GarbageCollection#enabled=true"), list.toString());
+        assertFalse(list.stream().anyMatch(a -> a.contains("profile")));
+        assertEquals(List.of("name=jstall-test-events", "settings=default"),
+            List.of(JfrEventStreamRequirement.startArguments("jstall-test-events", false)));
+
+        // The target JVM must accept the settings as given
+        String pid = String.valueOf(ProcessHandle.current().pid());
+        List<String> command = new ArrayList<>(List.of("jcmd", pid, "JFR.start"));
+        command.addAll(list);
+        try {
+            assertTrue(run(command).contains("Started recording"));
+        } finally {
+            run(List.of("jcmd", pid, "JFR.stop", "name=jstall-test-events"));
+        }
+    }
+
+    private static String run(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        return output;
+    }
+
+    @Test
+    void builderAddsWindowsOnlyForMultipleSamples() {
+        assertTrue(DataRequirements.builder().withDefaults(1, 1000).addJfrEvents().build().getRequirements().isEmpty());
+        assertEquals(1, DataRequirements.builder().withDefaults(4, 1000).addJfrEvents().build().getRequirements().size());
+    }
+}
@@ -0,0 +1,119 @@
+package me.bechberger.jstall.provider;
+
+import me.bechberger.jstall.provider.requirement.CollectedData;
+import me.bechberger.jstall.provider.requirement.CollectionSchedule;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement;
+import me.bechberger.jstall.provider.requirement.MXBeanMetricsRequirement.Kind;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.PrettyPrinter;
+import me.bechberger.util.json.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MXBeanMetricsRequirementTest {
+
+    @Test
+    void readsThreadCpuAndAllocationInBulk() throws IOException {
+        Map<String, Object> root = MXBeanMetricsRequirement.read(Kind.THREADS, ManagementFactory.getPlatformMBeanServer());
+        List<Object> threads = Util.asList(root.get("threads"));
+        long currentId = Thread.currentThread().getId();
+        Map<String, Object> current = threads.stream()
+            .map(Util::asMap)
+            .filter(t -> ((Number) t.get("id")).longValue() == currentId)
+            .findFirst()
+            .orElseThrow();
+        assertEquals(Thread.currentThread().getName(), current.get("name"));
+        assertEquals("RUNNABLE", current.get("state"));
+        assertTrue(((Number) current.get("allocatedBytes")).longValue() > 0);
+    }
+
+    @Test
+    void readsMemoryGcAndOsBeans() throws IOException {
+        var server = ManagementFactory.getPlatformMBeanServer();
+
+        Map<String, Object> memory = MXBeanMetricsRequirement.read(Kind.MEMORY, server);
+        Map<String, Object> heap = Util.asMap(memory.get("HeapMemoryUsage"));
+        assertTrue(((Number) heap.get("used")).longValue() > 0);
+        assertFalse(Util.asList(memory.get("pools")).isEmpty());
+
+        Map<String, Object> gc = MXBeanMetricsRequirement.read(Kind.GC, server);
+        for (Object collector : Util.asList(gc.get("collectors"))) {
+            assertTrue(Util.asMap(collector).containsKey("CollectionCount"));
+        }
+
+        Map<String, Object> os = MXBeanMetricsRequirement.read(Kind.OS, server);
+        assertEquals(Runtime.getRuntime().availableProcessors(), ((Number) os.get("AvailableProcessors")).intValue());
+    }
+
+    @Test
+    void parsesMemoryGcAndOsSamples() throws IOException {
+        var server = ManagementFactory.getPlatformMBeanServer();
+
+        MXBeanMetricsRequirement.MemorySample memory = MXBeanMetricsRequirement.parseMemory(
+            PrettyPrinter.prettyPrint(MXBeanMetricsRequirement.read(Kind.MEMORY, server)));
+        assertNotNull(memory);
+        assertTrue(memory.heap().used() > 0);
+        assertTrue(memory.heap().committed() >= memory.heap().used());
+        assertTrue(memory.pools().containsKey("Metaspace"), memory.pools().keySet().toString());
+
+        List<MXBeanMetricsRequirement.CollectorSample> collectors = MXBeanMetricsRequirement.parseCollectors(
+            PrettyPrinter.prettyPrint(MXBeanMetricsRequirement.read(Kind.GC, server)));
+        assertFalse(collectors.isEmpty());
+        assertTrue(collectors.stream().allMatch(c -> c.count() >= 0 && c.timeMs() >= 0));
+
+        Map<String, Number> os = MXBeanMetricsRequirement.parseOs(
+            PrettyPrinter.prettyPrint(MXBeanMetricsRequirement.read(Kind.OS, server)));
+        assertEquals(Runtime.getRuntime().availableProcessors(), os.get("AvailableProcessors").intValue());
+
+        assertNull(MXBeanMetricsRequirement.parseMemory(""));
+        assertTrue(MXBeanMetricsRequirement.parseCollectors("").isEmpty());
+        assertTrue(MXBeanMetricsRequirement.parseOs("").isEmpty());
+    }
+
+    @Test
+    void persistAndLoadRoundTrip(@TempDir Path tempDir) throws IOException {
+        MXBeanMetricsRequirement requirement =
+            new MXBeanMetricsRequirement(Kind.GC, CollectionSchedule.intervals(2, 1000));
+        String json = PrettyPrinter.prettyPrint(
+            MXBeanMetricsRequirement.read(Kind.GC, ManagementFactory.getPlatformMBeanServer()));
+        List<CollectedData> samples = List.of(
+            new CollectedData(1000, json, Map.of()),
+            new CollectedData(2000, "", Map.of("error", "no connection")));
+
+        Path zip = tempDir.resolve("recording.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            requirement.persist(out, "1/", samples);
+        }
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<CollectedData> loaded = requirement.load(zipFile, "1/");
+            assertEquals(1, loaded.size());
+            assertEquals(1000, loaded.get(0).timestamp());
+            assertEquals(JSONParser.parse(json), JSONParser.parse(loaded.get(0).rawData()));
+        }
+        assertEquals(List.of("mxbean-gc/000-1000.json"), requirement.getExpectedFiles(samples));
+    }
+
+    @Test
+    void mergeKeepsKindAndTakesTighterSchedule() {
+        DataRequirements merged = DataRequirements.builder()
+            .addMXBeanMetrics(Kind.THREADS, 2, 5000)
+            .build()
+            .merge(DataRequirements.builder().addMXBeanMetrics(Kind.THREADS, 5, 1000).build());
+        MXBeanMetricsRequirement requirement = (MXBeanMetricsRequirement) merged.getRequirements().iterator().next();
+        assertEquals(Kind.THREADS, requirement.getKind());
+        assertEquals(5, requirement.getSchedule().count());
+        assertEquals(1000, requirement.getSchedule().intervalMs());
+    }
+}
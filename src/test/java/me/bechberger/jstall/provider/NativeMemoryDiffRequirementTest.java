@@ -0,0 +1,95 @@
+package me.bechberger.jstall.provider;
+
+import me.bechberger.jstall.provider.requirement.CollectionSchedule;
+import me.bechberger.jstall.provider.requirement.DataRequirement;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
+import me.bechberger.jstall.provider.requirement.NativeMemoryDiffRequirement;
+import me.bechberger.jstall.util.CommandExecutor;
+import me.bechberger.jstall.util.CommandResult;
+import me.bechberger.jstall.util.JMXDiagnosticHelper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeMemoryDiffRequirementTest {
+
+    @Test
+    void separateFromPlainNativeMemorySummaries() {
+        DataRequirements requirements = DataRequirements.builder()
+            .addNativeMemoryDiffs(3, 1000)
+            .addNativeMemoryIfEnabled(true)
+            .build();
+        assertEquals(2, requirements.getRequirements().size());
+        assertTrue(requirements.getRequirements().stream()
+            .anyMatch(r -> r.getType().equals(NativeMemoryDiffRequirement.TYPE)));
+    }
+
+    @Test
+    void mergeAndCopyKeepDiffRequirement() {
+        DataRequirements merged = DataRequirements.builder()
+            .addNativeMemoryDiffs(2, 5000)
+            .build()
+            .merge(DataRequirements.builder().addNativeMemoryDiffs(5, 1000).build())
+            .copy();
+        DataRequirement requirement = merged.getRequirements().iterator().next();
+        assertInstanceOf(NativeMemoryDiffRequirement.class, requirement);
+        assertEquals(5, requirement.getSchedule().count());
+        assertEquals(1000, requirement.getSchedule().intervalMs());
+    }
+
+    /** Records the jcmd commands instead of running them (remote executors don't attach). */
+    private static final class RecordingExecutor extends CommandExecutor.RemoteCommandExecutor {
+        final List<String> commands = new ArrayList<>();
+
+        RecordingExecutor() {
+            super("true");
+        }
+
+        @Override
+        public CommandResult executeCommand(String command, String... args) {
+            commands.add(String.join(" ", args));
+            return new CommandResult("Native Memory Tracking:", "", 0, -1);
+        }
+    }
+
+    @Test
+    void liveTicksTakeTheBaselineOnce() throws Exception {
+        RecordingExecutor executor = new RecordingExecutor();
+        JMXDiagnosticHelper helper = executor.diagnosticHelper(4242);
+        NativeMemoryDiffRequirement requirement = new NativeMemoryDiffRequirement(CollectionSchedule.once());
+
+        // Every live tick is a fresh single-sample collection with index 0
+        for (int tick = 0; tick < 3; tick++) {
+            requirement.collect(helper, 0);
+        }
+
+        assertEquals(List.of(
+            "4242 VM.native_memory baseline",
+            "4242 VM.native_memory summary",
+            "4242 VM.native_memory summary.diff",
+            "4242 VM.native_memory summary.diff"), executor.commands);
+    }
+
+    @Test
+    void eachRecordingSeriesTakesItsOwnBaseline() throws Exception {
+        RecordingExecutor executor = new RecordingExecutor();
+        JMXDiagnosticHelper helper = executor.diagnosticHelper(4243);
+        NativeMemoryDiffRequirement requirement = new NativeMemoryDiffRequirement(CollectionSchedule.intervals(2, 1000));
+
+        for (int series = 0; series < 2; series++) {
+            requirement.collect(helper, 0);
+            requirement.collect(helper, 1);
+        }
+
+        assertEquals(List.of(
+            "4243 VM.native_memory baseline",
+            "4243 VM.native_memory summary",
+            "4243 VM.native_memory summary.diff",
+            "4243 VM.native_memory baseline",
+            "4243 VM.native_memory summary",
+            "4243 VM.native_memory summary.diff"), executor.commands);
+    }
+}
@@ -1,8 +1,11 @@
 package me.bechberger.jstall.provider;
 
 import me.bechberger.jstall.Main;
+import me.bechberger.jstall.provider.requirement.DataRequirements;
 import me.bechberger.jstall.util.CommandExecutor;
 import me.bechberger.jstall.util.JVMDiscovery;
+import me.bechberger.jstall.util.Timings;
+import me.bechberger.util.json.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -148,6 +151,49 @@ class RecordingProviderTest {
         assertEquals(Main.VERSION, metadata.get("version"));
     }
 
+    @Test
+    void testRecordingStoresTimings(@TempDir Path tempDir) throws Exception {
+        Path outputFile = tempDir.resolve("recording-with-timings.zip");
+        // No such process: every jcmd call fails fast, but the attempts are still timed
+        long pid = 999_999_999L;
+        DataRequirements requirements = DataRequirements.builder().addJcmdOnce("VM.uptime").build();
+
+        provider.record(List.of(new JVMDiscovery.JVMProcess(pid, "com.test.Missing")), requirements, outputFile, false);
+
+        Map<String, Object> timings = Util.asMap(RecordingProvider.loadMetadata(outputFile).get("timings"));
+        assertNotNull(timings);
+        List<String> names = ((List<?>) timings.get("spans")).stream()
+            .map(span -> (String) Util.asMap(span).get("name"))
+            .toList();
+        assertTrue(names.contains("collect PID " + pid), names.toString());
+        assertTrue(names.contains("jcmd VM.uptime"), names.toString());
+    }
+
+    @Test
+    void testRecordingKeepsGlobalTimings(@TempDir Path tempDir) throws Exception {
+        Path outputFile = tempDir.resolve("recording-during-timings.zip");
+        DataRequirements requirements = DataRequirements.builder().addJcmdOnce("VM.uptime").build();
+
+        assertTrue(Timings.enable());
+        try {
+            try (Timings.Span span = Timings.span("before recording")) {
+                assertNotNull(span);
+            }
+            provider.record(List.of(new JVMDiscovery.JVMProcess(999_999_999L, "com.test.Missing")), requirements, outputFile, false);
+
+            // The recording neither wiped the spans of --timings nor turned it off
+            assertTrue(Timings.isEnabled());
+            List<String> names = Timings.records().stream().map(Timings.Record::name).toList();
+            assertEquals("before recording", names.get(0));
+            assertTrue(names.contains("jcmd VM.uptime"), names.toString());
+        } finally {
+            Timings.disable();
+        }
+        // ... and the recording's own timings don't contain spans from before it started
+        Map<String, Object> timings = Util.asMap(RecordingProvider.loadMetadata(outputFile).get("timings"));
+        assertFalse(timings.get("spans").toString().contains("before recording"));
+    }
+
     @Test
     void testRecordingWithCollectedData(@TempDir Path tempDir) throws Exception {
         Path outputFile = tempDir.resolve("recording-with-data.zip");
@@ -151,6 +151,13 @@ public class RecordingTestBuilder {
             String fileName = String.format("%s%d/flamegraphs/flame.html", rootPath, jvm.pid);
             writeZipEntry(zipOut, fileName, jvm.flamegraphs.get(0));
         }
+
+        // Write collapsed-stack profiles, one per window
+        for (int i = 0; i < jvm.profiles.size(); i++) {
+            String fileName = String.format("%s%d/flamegraphs/%03d-%d.collapsed",
+                rootPath, jvm.pid, i, jvm.profileTimestamps.get(i));
+            writeZipEntry(zipOut, fileName, jvm.profiles.get(i));
+        }
     }
 
     private void writeZipEntry(ZipOutputStream zipOut, String name, String content)
@@ -182,6 +189,8 @@ public class RecordingTestBuilder {
         private final Map<String, Long> otherDataTimestamps = new LinkedHashMap<>();
         private final List<String> flamegraphs = new ArrayList<>();
         private final List<Long> flamegraphTimestamps = new ArrayList<>();
+        private final List<String> profiles = new ArrayList<>();
+        private final List<Long> profileTimestamps = new ArrayList<>();
         private long startedAt = System.currentTimeMillis();
         private long finishedAt;
         private boolean successful = true;
@@ -222,6 +231,12 @@ public class RecordingTestBuilder {
             return this;
         }
 
+        public JvmRecordingBuilder withCollapsedProfile(String collapsed, long timestamp) {
+            profiles.add(collapsed);
+            profileTimestamps.add(timestamp);
+            return this;
+        }
+
         public JvmRecordingBuilder finishedAt(long timestamp) {
             this.finishedAt = timestamp;
             return this;
@@ -242,7 +257,8 @@ public class RecordingTestBuilder {
                 systemProperties, propTimestamps,
                 systemEnvironments, envTimestamps,
                 otherData, otherDataTimestamps,
-                flamegraphs, flamegraphTimestamps));
+                flamegraphs, flamegraphTimestamps,
+                profiles, profileTimestamps));
             return parent;
         }
     }
@@ -263,6 +279,8 @@ public class RecordingTestBuilder {
         final Map<String, Long> otherDataTimestamps;
         final List<String> flamegraphs;
         final List<Long> flamegraphTimestamps;
+        final List<String> profiles;
+        final List<Long> profileTimestamps;
 
         JvmRecording(long pid, String mainClass, boolean successful,
                     long startedAt, long finishedAt,
@@ -270,7 +288,8 @@ public class RecordingTestBuilder {
                     List<String> systemProperties, List<Long> propTimestamps,
                     List<String> systemEnvironments, List<Long> envTimestamps,
                     Map<String, List<String>> otherData, Map<String, Long> otherDataTimestamps,
-                    List<String> flamegraphs, List<Long> flamegraphTimestamps) {
+                    List<String> flamegraphs, List<Long> flamegraphTimestamps,
+                    List<String> profiles, List<Long> profileTimestamps) {
             this.pid = pid;
             this.mainClass = mainClass;
             this.successful = successful;
@@ -286,6 +305,8 @@ public class RecordingTestBuilder {
             this.otherDataTimestamps = otherDataTimestamps;
             this.flamegraphs = flamegraphs;
             this.flamegraphTimestamps = flamegraphTimestamps;
+            this.profiles = profiles;
+            this.profileTimestamps = profileTimestamps;
         }
     }
 }
\ No newline at end of file
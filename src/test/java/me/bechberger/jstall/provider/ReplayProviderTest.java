@@ -187,6 +187,48 @@ class ReplayProviderTest {
         assertEquals(2, data.get("system-properties").size());
     }
 
+    @Test
+    void testReplaySumsCollapsedProfileWindows(@TempDir Path tempDir) throws Exception {
+        Path recording = tempDir.resolve("profile.zip");
+        new RecordingTestBuilder(Main.VERSION)
+            .withJvm(TEST_PID, TEST_MAIN_CLASS)
+            .withCollapsedProfile("[main tid=1];Main.main;Main.work 3\n[worker tid=2];Worker.run 1\n", 1000)
+            .withCollapsedProfile("[main tid=1];Main.main;Main.work 2\n", 2000)
+            .withFlamegraph("<html>legacy</html>", 1000)
+            .build()
+            .build(recording);
+
+        ReplayProvider replay = new ReplayProvider(recording);
+        ReplayProvider.ProfileData profile = replay.getProfile(TEST_PID);
+        assertNotNull(profile);
+        assertEquals(2, profile.windows());
+        assertEquals(6, profile.profile().totalSamples());
+        assertEquals(5L, profile.profile().threadSamples().get("main"));
+
+        // The HTML is rendered from the profile, not taken from the recorded file
+        String html = replay.getFlamegraph(TEST_PID).htmlContent();
+        assertTrue(html.contains("Main.work"), html);
+
+        var collapsed = replay.loadCollectedDataByTypeForPid(TEST_PID).get("flamegraphs").stream()
+            .filter(d -> d.metadata().get("file").endsWith(".collapsed"))
+            .count();
+        assertEquals(2, collapsed);
+    }
+
+    @Test
+    void testReplayWithoutCollapsedProfileUsesRecordedFlamegraph(@TempDir Path tempDir) throws Exception {
+        Path recording = tempDir.resolve("legacy.zip");
+        new RecordingTestBuilder(Main.VERSION)
+            .withJvm(TEST_PID, TEST_MAIN_CLASS)
+            .withFlamegraph("<html>legacy</html>", 1000)
+            .build()
+            .build(recording);
+
+        ReplayProvider replay = new ReplayProvider(recording);
+        assertNull(replay.getProfile(TEST_PID));
+        assertEquals("<html>legacy</html>", replay.getFlamegraph(TEST_PID).htmlContent());
+    }
+
     @Test
     void testReplayFilteredByName(@TempDir Path tempDir) throws Exception {
         // Need synthetic recording with multiple JVMs for this test
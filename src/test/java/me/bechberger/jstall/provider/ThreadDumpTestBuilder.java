@@ -0,0 +1,75 @@
+package me.bechberger.jstall.provider;
+
+import me.bechberger.jstall.model.ThreadDumpSnapshot;
+import me.bechberger.jthreaddump.model.ThreadDump;
+import me.bechberger.jthreaddump.parser.ThreadDumpParser;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Test utility for building small HotSpot thread dumps in code, for tests that need a handful of
+ * threads with specific stacks and locks rather than one of the dumps in {@link ThreadDumpTestResources}.
+ * <pre>{@code
+ * ThreadDumpSnapshot snapshot = new ThreadDumpTestBuilder(0)
+ *     .thread(1, "main", "RUNNABLE",
+ *         "at com.example.Cache.load(Cache.java:15)",
+ *         "- locked <0x00000000d0000001> (a com.example.Cache)")
+ *     .snapshot();
+ * }</pre>
+ */
+public class ThreadDumpTestBuilder {
+
+    private final StringBuilder text = new StringBuilder();
+
+    /** Starts a dump taken at 2024-01-01 12:00:{@code second}. */
+    public ThreadDumpTestBuilder(int second) {
+        text.append(String.format(Locale.ROOT, "2024-01-01 12:00:%02d%n", second));
+        text.append("Full thread dump Java HotSpot(TM) 64-Bit Server VM (21+35-2513 mixed mode):\n\n");
+    }
+
+    /**
+     * Adds a thread without CPU time.
+     *
+     * @param state      the {@code java.lang.Thread.State} line, e.g. "BLOCKED (on object monitor)"
+     * @param stackLines stack lines without the leading tab, e.g. "at ..." or "- locked &lt;...&gt;"
+     */
+    public ThreadDumpTestBuilder thread(int id, String name, String state, String... stackLines) {
+        return thread(id, name, state, 0, stackLines);
+    }
+
+    /** Adds a thread that used {@code cpuMs} of CPU time so far. */
+    public ThreadDumpTestBuilder thread(int id, String name, String state, double cpuMs, String... stackLines) {
+        text.append('"').append(name).append("\" #").append(id)
+            .append(String.format(Locale.ROOT, " prio=5 os_prio=0 cpu=%.2fms elapsed=100.00s", cpuMs))
+            .append(" tid=0x").append(id).append(" nid=0x").append(id).append(' ').append(status(state)).append('\n')
+            .append("   java.lang.Thread.State: ").append(state).append('\n');
+        for (String line : stackLines) {
+            text.append('\t').append(line).append('\n');
+        }
+        text.append('\n');
+        return this;
+    }
+
+    private static String status(String state) {
+        if (state.startsWith("RUNNABLE")) {
+            return "runnable";
+        }
+        if (state.startsWith("BLOCKED")) {
+            return "waiting for monitor entry";
+        }
+        return "waiting on condition";
+    }
+
+    public String text() {
+        return text.toString();
+    }
+
+    public ThreadDump parse() throws IOException {
+        return ThreadDumpParser.parse(text());
+    }
+
+    public ThreadDumpSnapshot snapshot() throws IOException {
+        return new ThreadDumpSnapshot(parse(), text(), null, null);
+    }
+}
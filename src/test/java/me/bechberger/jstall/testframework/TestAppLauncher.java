@@ -8,7 +8,9 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,6 +37,26 @@ public class TestAppLauncher {
         command.add(mainClass);
         command.addAll(List.of(args));
 
+        return start(command);
+    }
+
+    /**
+     * Launches a single-file source program (e.g. one of the {@code ai-eval/apps}) with the
+     * source-file launcher.
+     *
+     * @param sourceFile The {@code .java} file containing the main class
+     * @param args Arguments to pass to the application
+     * @return The launcher instance
+     */
+    public TestAppLauncher launchSource(Path sourceFile, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(getJavaExecutable());
+        command.add(sourceFile.toString());
+        command.addAll(List.of(args));
+        return start(command);
+    }
+
+    private TestAppLauncher start(List<String> command) throws IOException {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectErrorStream(true);
 
@@ -81,6 +103,57 @@ public class TestAppLauncher {
         throw new RuntimeException("Application did not start within " + timeoutMs + "ms");
     }
 
+    /**
+     * Waits for the application to signal readiness by creating {@code readyFile}, the protocol
+     * of the {@code ai-eval/apps}.
+     */
+    public TestAppLauncher waitForFile(Path readyFile, long timeoutMs) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < timeoutMs) {
+            if (Files.exists(readyFile)) {
+                return this;
+            }
+            if (!process.isAlive()) {
+                throw new RuntimeException("Application exited with " + process.exitValue() + ": " + getOutput());
+            }
+            Thread.sleep(100);
+        }
+        throw new RuntimeException("Application did not create " + readyFile + " within " + timeoutMs + "ms");
+    }
+
+    /**
+     * Reads the HotSpot performance counters of the application ({@code jcmd PerfCounter.print}),
+     * e.g. {@code sun.rt.safepoints}. Non-numeric counters are skipped.
+     */
+    public Map<String, Long> readPerfCounters() throws IOException, InterruptedException {
+        Process jcmd = new ProcessBuilder("jcmd", String.valueOf(pid), "PerfCounter.print").start();
+        String output = new String(jcmd.getInputStream().readAllBytes());
+        if (jcmd.waitFor() != 0) {
+            throw new IOException("jcmd PerfCounter.print failed with exit code " + jcmd.exitValue());
+        }
+        Map<String, Long> counters = new HashMap<>();
+        for (String line : output.split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                try {
+                    counters.put(line.substring(0, eq).strip(), Long.parseLong(line.substring(eq + 1).strip()));
+                } catch (NumberFormatException ignored) {
+                    // String counter
+                }
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Returns the output of the application captured so far.
+     */
+    public String getOutput() {
+        synchronized (output) {
+            return String.join("\n", output);
+        }
+    }
+
     /**
      * Captures a thread dump using jstack.
      */
@@ -0,0 +1,76 @@
+package me.bechberger.jstall.util;
+
+import me.bechberger.jstall.util.CodeCacheParser.CodeCacheSnapshot;
+import me.bechberger.jstall.util.CodeCacheParser.Segment;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CodeCacheParser.
+ */
+public class CodeCacheParserTest {
+
+    @Test
+    public void testParseEmptyOutput() {
+        assertNull(CodeCacheParser.parse(null));
+        assertNull(CodeCacheParser.parse(""));
+        assertNull(CodeCacheParser.parse("Invalid output"));
+    }
+
+    @Test
+    public void testParseSegmentedCodeCache() {
+        String output = """
+            12345:
+            CodeHeap 'non-profiled nmethods': size=120032Kb used=2145Kb max_used=2145Kb free=117886Kb
+             bounds [0x00007f6e1c6a0000, 0x00007f6e1c910000, 0x00007f6e23bd8000]
+            CodeHeap 'profiled nmethods': size=120028Kb used=8311Kb max_used=8311Kb free=111716Kb
+             bounds [0x00007f6e14bd8000, 0x00007f6e15400000, 0x00007f6e1c10f000]
+            CodeHeap 'non-nmethods': size=5700Kb used=1291Kb max_used=1307Kb free=4408Kb
+             bounds [0x00007f6e1410f000, 0x00007f6e1437f000, 0x00007f6e14698000]
+             total_blobs=4217 nmethods=3619 adapters=510
+             compilation: enabled
+                          stopped_count=0, restarted_count=0
+             full_count=0
+            """;
+
+        CodeCacheSnapshot snapshot = CodeCacheParser.parse(output);
+
+        assertNotNull(snapshot);
+        assertEquals(3, snapshot.segments().size());
+        Segment profiled = snapshot.segment("profiled nmethods");
+        assertNotNull(profiled);
+        assertEquals(120028 * 1024L, profiled.size());
+        assertEquals(8311 * 1024L, profiled.used());
+        assertEquals(111716 * 1024L, profiled.free());
+        assertEquals(1307 * 1024L, snapshot.segment("non-nmethods").maxUsed());
+        assertEquals(3619, snapshot.nmethods());
+        assertTrue(snapshot.compilationEnabled());
+        assertNull(snapshot.disabledReason());
+        assertEquals(0, snapshot.fullCount());
+    }
+
+    @Test
+    public void testParseFullUnsegmentedCodeCache() {
+        String output = """
+            CodeCache: size=49152Kb used=48900Kb max_used=49100Kb free=252Kb
+             bounds [0x00007f0b5d000000, 0x00007f0b60000000, 0x00007f0b60000000]
+             total_blobs=11400 nmethods=10200 adapters=900
+             compilation: disabled (not enough contiguous free space left)
+                          stopped_count=3, restarted_count=2
+             full_count=4
+            """;
+
+        CodeCacheSnapshot snapshot = CodeCacheParser.parse(output);
+
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.segments().size());
+        assertEquals("CodeCache", snapshot.segments().get(0).name());
+        assertTrue(snapshot.segments().get(0).usedPercent() > 99);
+        assertFalse(snapshot.compilationEnabled());
+        assertEquals("not enough contiguous free space left", snapshot.disabledReason());
+        assertEquals(3, snapshot.stoppedCount());
+        assertEquals(2, snapshot.restartedCount());
+        assertEquals(4, snapshot.fullCount());
+    }
+}
@@ -0,0 +1,40 @@
+package me.bechberger.jstall.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearTrendTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void testSlopePerHour() {
+        LinearTrend trend = new LinearTrend()
+            .add(1_000_000, 100)
+            .add(1_000_000 + MINUTE, 110)
+            .add(1_000_000 + 2 * MINUTE, 120);
+        assertEquals(600, trend.slopePerHour(), 1e-9);
+        assertEquals(3, trend.count());
+        assertEquals(2 * MINUTE, trend.spanMs());
+    }
+
+    @Test
+    void testLeastSquaresOverNoisyPoints() {
+        LinearTrend trend = new LinearTrend()
+            .add(0, 0)
+            .add(MINUTE, 20)
+            .add(2 * MINUTE, 20)
+            .add(3 * MINUTE, 30);
+        // slope of the best fit is 9 per minute
+        assertEquals(540, trend.slopePerHour(), 1e-9);
+    }
+
+    @Test
+    void testNoSlopeWithoutTimeSpan() {
+        assertEquals(0, new LinearTrend().slopePerHour());
+        assertEquals(0, new LinearTrend().add(5, 100).slopePerHour());
+        assertEquals(0, new LinearTrend().add(5, 100).add(5, 200).slopePerHour());
+        assertEquals(0, new LinearTrend().add(5, 100).spanMs());
+    }
+}
@@ -0,0 +1,68 @@
+package me.bechberger.jstall.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexLiteralsTest {
+
+    @Test
+    void testRequired() {
+        assertEquals(List.of("com.example.Db"), RegexLiterals.required("com\\.example\\.Db"));
+        assertEquals(List.of("Hikari", ".getConnection"), RegexLiterals.required("Hikari\\w+\\.getConnection"));
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo(x|y)?Bar"));
+        assertEquals(List.of("ab", "d"), RegexLiterals.required("abc?d"));
+        assertEquals(List.of("ocket", "read"), RegexLiterals.required("[Ss]ocket.*read"));
+        assertEquals(List.of(), RegexLiterals.required("Foo|Bar"));
+        assertEquals(List.of(), RegexLiterals.required("\\QFoo\\E"));
+    }
+
+    @Test
+    void testEscapeArgumentsAreNotLiterals() {
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo\\x41Bar"));
+        assertEquals(List.of("Foo"), RegexLiterals.required("Foo\\x{41}"));
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo\\u0041Bar"));
+        assertEquals(List.of("Foo", "8"), RegexLiterals.required("Foo\\01018"));
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo\\cABar"));
+        assertEquals(List.of("Bar"), RegexLiterals.required("(?<n>a)\\k<n>Bar"));
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo\\p{Lu}Bar"));
+        assertEquals(List.of("Foo", "Bar"), RegexLiterals.required("Foo\\pLBar"));
+        assertEquals(List.of("Bar"), RegexLiterals.required("(a)\\1Bar"));
+    }
+
+    @Test
+    void testNestedClasses() {
+        assertEquals(List.of("c"), RegexLiterals.required("[a[b]]c"));
+        assertEquals(List.of("x"), RegexLiterals.required("[a-z&&[^aeiou]]x"));
+        assertEquals(List.of("d"), RegexLiterals.required("[\\Q]\\E]d"));
+    }
+
+    @Test
+    void testIgnoringFlagsDisablePreFilter() {
+        assertEquals(List.of(), RegexLiterals.required("(?i)foo"));
+        assertEquals(List.of(), RegexLiterals.required("foo(?x) bar"));
+        assertEquals(List.of("foo"), RegexLiterals.required("(?s)foo"));
+        assertEquals(List.of(), RegexLiterals.required(Pattern.compile("foo", Pattern.CASE_INSENSITIVE)));
+        assertEquals(List.of("a|b"), RegexLiterals.required(Pattern.compile("a|b", Pattern.LITERAL)));
+    }
+
+    @Test
+    void testRequiredLiteralsAreInEveryMatch() {
+        List<String> regexes = List.of("Foo\\x41Bar", "Foo\\u0041Bar", "Foo\\0101Bar", "Foo\\cABar",
+            "(?<n>a)\\k<n>Bar", "[a[b]]c", "(?i)foo", "Foo\\p{Lu}Bar");
+        List<String> inputs = List.of("FooABar", "Foo\u0001Bar", "aaBar", "bc", "FOO", "FooXBar");
+        for (String regex : regexes) {
+            Pattern pattern = Pattern.compile(regex);
+            for (String input : inputs) {
+                if (pattern.matcher(input).find()) {
+                    for (String literal : RegexLiterals.required(regex)) {
+                        assertTrue(input.contains(literal), regex + " matches " + input + " without " + literal);
+                    }
+                }
+            }
+        }
+    }
+}
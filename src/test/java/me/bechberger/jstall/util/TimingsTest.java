@@ -0,0 +1,97 @@
+package me.bechberger.jstall.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingsTest {
+
+    @AfterEach
+    void tearDown() {
+        Timings.disable();
+    }
+
+    @Test
+    void testDisabledSpansAreNotRecorded() {
+        try (Timings.Span span = Timings.span("ignored")) {
+            assertNotNull(span);
+        }
+        assertTrue(Timings.enable());
+        assertTrue(Timings.records().isEmpty());
+    }
+
+    @Test
+    void testNestedSpans() throws Exception {
+        assertTrue(Timings.enable());
+        assertFalse(Timings.enable());
+        try (Timings.Span outer = Timings.span("collect PID", 42)) {
+            try (Timings.Span inner = Timings.span("jcmd", "Thread.print")) {
+                Thread.sleep(5);
+            }
+        }
+        Thread worker = new Thread(() -> {
+            try (Timings.Span span = Timings.span("analyze status")) {
+                assertNotNull(span);
+            }
+        }, "worker");
+        worker.start();
+        worker.join();
+
+        List<Timings.Record> records = Timings.records();
+        assertEquals(List.of("collect PID 42", "jcmd Thread.print", "analyze status"),
+            records.stream().map(Timings.Record::name).toList());
+        assertEquals(0, records.get(0).depth());
+        assertEquals(1, records.get(1).depth());
+        assertEquals(0, records.get(2).depth());
+        assertTrue(records.get(1).durationMs() >= 5);
+        assertTrue(records.get(0).durationNanos() >= records.get(1).durationNanos());
+
+        String waterfall = Timings.renderWaterfall();
+        assertTrue(waterfall.contains("  jcmd Thread.print"), waterfall);
+        assertTrue(waterfall.contains("analyze status [worker]"), waterfall);
+        assertFalse(waterfall.contains("collect PID 42 ["), waterfall);
+    }
+
+    @Test
+    void testToJson() {
+        Timings.enable();
+        try (Timings.Span span = Timings.span("parse thread dumps")) {
+            assertNotNull(span);
+        }
+        Map<String, Object> json = Timings.toJson();
+        List<?> spans = (List<?>) json.get("spans");
+        assertEquals(1, spans.size());
+        Map<?, ?> span = (Map<?, ?>) spans.get(0);
+        assertEquals("parse thread dumps", span.get("name"));
+        assertEquals(0, span.get("depth"));
+        assertTrue(json.get("startedAt") instanceof Long);
+
+        Timings.disable();
+        assertTrue(Timings.records().isEmpty());
+    }
+
+    @Test
+    void testScopedRecorderIsIndependentOfGlobal() {
+        Timings.Recorder recorder = Timings.collect();
+        try (Timings.Span span = Timings.span("collect PID", 1)) {
+            assertNotNull(span);
+        }
+        assertTrue(Timings.enable());
+        try (Timings.Span span = Timings.span("analyze status")) {
+            assertNotNull(span);
+        }
+        Timings.disable();
+        recorder.close();
+        try (Timings.Span span = Timings.span("after close")) {
+            assertNotNull(span);
+        }
+
+        assertEquals(List.of("collect PID 1", "analyze status"),
+            recorder.records().stream().map(Timings.Record::name).toList());
+        assertTrue(Timings.records().isEmpty());
+    }
+}
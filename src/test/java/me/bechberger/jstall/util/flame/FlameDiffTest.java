@@ -0,0 +1,102 @@
+package me.bechberger.jstall.util.flame;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlameDiffTest {
+
+    private static final String BEFORE = """
+        [main tid=1];App.run;App.parse 6
+        [main tid=1];App.run;App.render 2
+        [gc tid=2];GC.collect 2
+        """;
+    private static final String AFTER = """
+        [main tid=1];App.run;App.parse 2
+        [main tid=1];App.run;App.render 4
+        [main tid=1];App.run;App.render;Cache.load 2
+        """;
+
+    @Test
+    void stacksAreIteratedInCollapsedOrder() {
+        FlameProfile profile = FlameProfile.parseCollapsed(AFTER + BEFORE);
+        List<List<String>> stacks = new ArrayList<>();
+        profile.stacks().forEachRemaining(s -> stacks.add(s.frames()));
+        List<List<String>> sorted = new ArrayList<>(stacks);
+        sorted.sort(FlameDiff.STACK_ORDER);
+        assertEquals(sorted, stacks);
+        assertEquals(List.of("[main tid=1]", "App.run", "App.render"), stacks.get(2));
+        assertEquals(List.of("[main tid=1]", "App.run", "App.render", "Cache.load"), stacks.get(3));
+    }
+
+    @Test
+    void diffKeepsBothSidesInOneTree() {
+        FlameProfile diff = FlameDiff.diff(FlameProfile.parseCollapsed(BEFORE).stacks(),
+            FlameProfile.parseCollapsed(AFTER).stacks());
+        assertTrue(diff.isDifferential());
+        assertEquals(10, diff.baselineSamples());
+        assertEquals(8, diff.totalSamples());
+
+        FlameProfile.Node main = diff.sortedChildren(diff.root()).get(0);
+        assertEquals("[main tid=1]", diff.frameName(main));
+        assertEquals(8, main.baseline());
+        assertEquals(8, main.total());
+
+        FlameProfile.Node gc = diff.sortedChildren(diff.root()).get(1);
+        assertEquals(2, gc.baseline());
+        assertEquals(0, gc.total());
+    }
+
+    @Test
+    void topChangesCompareSelfShares() {
+        FlameProfile diff = FlameDiff.diff(FlameProfile.parseCollapsed(BEFORE).stacks(),
+            FlameProfile.parseCollapsed(AFTER).stacks());
+        List<FlameDiff.Change> changes = FlameDiff.topChanges(diff, 2);
+        assertEquals("App.parse", changes.get(0).frame());
+        assertEquals(0.6, changes.get(0).beforeShare(), 1e-9);
+        assertEquals(0.25, changes.get(0).afterShare(), 1e-9);
+        assertEquals("-35.0%", FlameDiff.formatDelta(changes.get(0).delta()));
+        assertEquals("App.render", changes.get(1).frame());
+    }
+
+    @Test
+    void streamsSortedCollapsedFiles() throws Exception {
+        String before = FlameProfile.parseCollapsed(BEFORE).toCollapsed();
+        String after = FlameProfile.parseCollapsed(AFTER).toCollapsed();
+        StringBuilder out = new StringBuilder();
+        FlameDiff.Totals totals = FlameDiff.writeDiffCollapsed(
+            FlameDiff.sortedStacks(new BufferedReader(new StringReader(before))),
+            FlameDiff.filterThreads(FlameDiff.sortedStacks(new BufferedReader(new StringReader(after))), "main"::equals),
+            out);
+        assertEquals(new FlameDiff.Totals(10, 8), totals);
+        assertEquals("""
+            [gc tid=2];GC.collect 2 0
+            [main tid=1];App.run;App.parse 6 2
+            [main tid=1];App.run;App.render 2 4
+            [main tid=1];App.run;App.render;Cache.load 0 2
+            """, out.toString());
+    }
+
+    @Test
+    void rejectsUnsortedInput() {
+        Iterator<FlameProfile.Stack> stacks = FlameDiff.sortedStacks(new BufferedReader(new StringReader(AFTER + BEFORE)));
+        assertThrows(IllegalStateException.class, () -> stacks.forEachRemaining(s -> { }));
+    }
+
+    @Test
+    void rendersDifferentialHtml() {
+        FlameProfile diff = FlameDiff.diff(FlameProfile.parseCollapsed(BEFORE).stacks(),
+            FlameProfile.parseCollapsed(AFTER).stacks());
+        String html = FlameGraphHtml.render(diff, "before → after");
+        assertTrue(html.contains("\"baseTotal\":10"));
+        // root: frame -1, 8 samples, 0 self, children..., 10 baseline samples
+        assertTrue(html.contains("\"tree\":[-1,8,0,["));
+        assertTrue(html.endsWith("</html>\n"));
+    }
+}
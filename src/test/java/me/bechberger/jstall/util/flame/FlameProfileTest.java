@@ -0,0 +1,80 @@
+package me.bechberger.jstall.util.flame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlameProfileTest {
+
+    private static final String WINDOW_1 = """
+        [main tid=1];java/lang/Thread.run;Main.work;Main.compute 5
+        [main tid=1];java/lang/Thread.run;Main.work 1
+        [worker-1 tid=2];java/lang/Thread.run;Worker.run;java/util/HashMap.get 3
+        """;
+    private static final String WINDOW_2 = """
+        [worker-1 tid=2];java/lang/Thread.run;Worker.run;java/util/HashMap.get 2
+        [worker-2 tid=3];java/lang/Thread.run;Worker.run 4
+        not a collapsed line
+        """;
+
+    @Test
+    void parsesIntoPrefixTreeWithInternedFrames() {
+        FlameProfile profile = FlameProfile.parseCollapsed(WINDOW_1);
+        assertEquals(9, profile.totalSamples());
+        // Thread.run is shared by both threads but interned once
+        assertEquals(1, profile.frames().stream().filter("java/lang/Thread.run"::equals).count());
+
+        FlameProfile.Node main = profile.sortedChildren(profile.root()).get(0);
+        assertEquals("[main tid=1]", profile.frameName(main));
+        assertEquals(6, main.total());
+        assertEquals(0, main.self());
+    }
+
+    @Test
+    void mergesWindowsAndFiltersThreads() {
+        FlameProfile profile = FlameProfile.parseCollapsed(WINDOW_1).merge(FlameProfile.parseCollapsed(WINDOW_2));
+        assertEquals(15, profile.totalSamples());
+        assertEquals(Map.of("main", 6L, "worker-1", 5L, "worker-2", 4L), profile.threadSamples());
+        assertEquals(List.of("Main.compute", "java/util/HashMap.get", "Worker.run", "Main.work"),
+            List.copyOf(profile.selfSamples().keySet()));
+
+        FlameProfile workers = profile.filterThreads(name -> name.startsWith("worker"));
+        assertEquals(9, workers.totalSamples());
+        assertEquals(Map.of("java/util/HashMap.get", 5L, "Worker.run", 4L), workers.selfSamples());
+    }
+
+    @Test
+    void writesSortedCollapsedStacks() {
+        FlameProfile profile = FlameProfile.parseCollapsed(WINDOW_2 + WINDOW_1);
+        String collapsed = profile.toCollapsed();
+        assertEquals("""
+            [main tid=1];java/lang/Thread.run;Main.work 1
+            [main tid=1];java/lang/Thread.run;Main.work;Main.compute 5
+            [worker-1 tid=2];java/lang/Thread.run;Worker.run;java/util/HashMap.get 5
+            [worker-2 tid=3];java/lang/Thread.run;Worker.run 4
+            """, collapsed);
+        assertEquals(collapsed, FlameProfile.parseCollapsed(collapsed).toCollapsed());
+    }
+
+    @Test
+    void threadName() {
+        assertEquals("main", FlameProfile.threadName("[main tid=1]"));
+        assertEquals("pool-1 thread", FlameProfile.threadName("[pool-1 thread tid=42]"));
+        assertEquals("GC Thread#0", FlameProfile.threadName("[GC Thread#0]"));
+        assertNull(FlameProfile.threadName("java/lang/Thread.run"));
+    }
+
+    @Test
+    void rendersSelfContainedHtml() {
+        FlameProfile profile = FlameProfile.parseCollapsed(WINDOW_1);
+        profile.add(List.of("[main tid=1]", "Evil.</script>\"quote"), 1);
+        String html = FlameGraphHtml.render(profile, "PID <1>");
+        assertTrue(html.contains("<title>PID &lt;1&gt;</title>"));
+        assertTrue(html.contains("\"java/util/HashMap.get\""));
+        assertTrue(html.contains("Evil.\\u003c/script>\\\"quote"));
+        assertFalse(html.contains("/*DATA*/"));
+    }
+}
@@ -0,0 +1,90 @@
+package me.bechberger.jstall.util.histogram;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassHistogramSeriesTest {
+
+    private static final String HISTOGRAM = """
+        1631:
+         num     #instances         #bytes  class name (module)
+        -------------------------------------------------------
+           1:       2438780      332349064  [B (java.base@21.0.9)
+           2:         22611       93029504  [Ljdk.internal.vm.FillerElement; (java.base@21.0.9)
+           3:            10             20  com.example.Cache
+           4:             5             10  com.example.Cache
+        Total       2461406      425378598
+        """;
+
+    @Test
+    void scannerReadsRowsAndModules() {
+        ClassNameTable names = new ClassNameTable();
+        List<String> rows = new ArrayList<>();
+        int count = ClassHistogramScanner.scan(HISTOGRAM, names,
+            (id, instances, bytes) -> rows.add(names.name(id) + "=" + instances + "/" + bytes));
+
+        assertEquals(4, count);
+        assertEquals(List.of("[B=2438780/332349064", "[Ljdk.internal.vm.FillerElement;=22611/93029504",
+            "com.example.Cache=10/20", "com.example.Cache=5/10"), rows);
+        assertEquals(3, names.size());
+        assertEquals("java.base@21.0.9", names.module(names.find("[B")));
+        assertNull(names.module(names.find("com.example.Cache")));
+        assertEquals(-1, names.find("java.lang.String"));
+    }
+
+    @Test
+    void tableInternsFromTextRegions() {
+        ClassNameTable names = new ClassNameTable();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, names.intern("x class" + i + " y", 2, 7 + String.valueOf(i).length()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, names.find("class" + i));
+        }
+        assertEquals(1000, names.size());
+    }
+
+    @Test
+    void topKReturnsLargestFirst() {
+        long[] values = {5, 1, 9, 9, -3, 7};
+        assertArrayEquals(new int[]{2, 3, 5}, TopK.largest(values.length, 3, id -> values[id]));
+        assertArrayEquals(new int[]{2, 3, 5, 0, 1, 4}, TopK.largest(values.length, -1, id -> values[id]));
+        assertArrayEquals(new int[]{2}, TopK.largest(values.length, 1, id -> values[id]));
+        assertEquals(0, TopK.largest(0, 5, id -> 0).length);
+    }
+
+    @Test
+    void seriesTracksFirstLastAndGrowth() {
+        ClassHistogramSeries series = new ClassHistogramSeries();
+        assertTrue(series.add(1000, histogram(100, 50)));
+        assertFalse(series.add(1500, "no histogram here"));
+        assertTrue(series.add(2000, histogram(200, 40)));
+        assertTrue(series.add(3000, histogram(300, 0)));
+
+        assertEquals(3, series.samples());
+        assertEquals(2, series.intervals());
+        int leak = series.names().find("com.example.Leak");
+        int gone = series.names().find("com.example.Gone");
+        assertEquals(200, series.deltaBytes(leak));
+        assertEquals(2, series.grownIntervals(leak));
+        assertEquals(-50, series.deltaBytes(gone));
+        assertEquals(2, series.shrunkIntervals(gone));
+        assertEquals(150, series.firstTotalBytes());
+        assertEquals(300, series.lastTotalBytes());
+        assertEquals(1000, series.firstTimestamp());
+        assertEquals(3000, series.lastTimestamp());
+    }
+
+    private static String histogram(long leakBytes, long goneBytes) {
+        StringBuilder sb = new StringBuilder(" num     #instances         #bytes  class name (module)\n");
+        sb.append("   1: ").append(leakBytes / 10).append(' ').append(leakBytes).append("  com.example.Leak\n");
+        if (goneBytes > 0) {
+            sb.append("   2: 1 ").append(goneBytes).append("  com.example.Gone\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package me.bechberger.jstall.util.jfr;
+
+import jdk.jfr.Recording;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.PrettyPrinter;
+import me.bechberger.util.json.Util;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventAggregatorTest {
+
+    private static final Object MONITOR = new Object();
+    static volatile Object sink;
+
+    @Test
+    void aggregatesRecordedFile(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrEventAggregator.EXECUTION_SAMPLE).withPeriod(Duration.ofMillis(10));
+            recording.enable(JfrEventAggregator.MONITOR_ENTER).withThreshold(Duration.ofMillis(1));
+            recording.enable(JfrEventAggregator.ALLOCATION_SAMPLE).with("throttle", "1000/s");
+            recording.enable(JfrEventAggregator.GARBAGE_COLLECTION);
+            recording.start();
+
+            contendMonitor();
+            allocateAndCollect();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        JfrEventAggregator aggregator = JfrEventAggregator.readFile(file);
+        assertTrue(aggregator.eventCount() > 0);
+        assertTrue(aggregator.monitorsByClass().containsKey("java.lang.Object"), aggregator.monitorsByClass().keySet().toString());
+        assertTrue(aggregator.monitorBlockedByThread().containsKey("contender"), aggregator.monitorBlockedByThread().keySet().toString());
+        assertTrue(aggregator.gcPauses().count() >= 1);
+        assertFalse(aggregator.allocationByThread().isEmpty());
+    }
+
+    @Test
+    void summaryRoundTripAndMerge() throws Exception {
+        JfrEventAggregator aggregator = new JfrEventAggregator();
+        Path file = recordGc();
+        aggregator.merge(JfrEventAggregator.readFile(file));
+        long gcCount = aggregator.gcPauses().count();
+        assertTrue(gcCount >= 1);
+
+        Map<String, Object> map = Util.asMap(JSONParser.parse(PrettyPrinter.prettyPrint(aggregator.toMap())));
+        JfrEventAggregator restored = JfrEventAggregator.fromMap(map);
+        assertEquals(aggregator.eventCount(), restored.eventCount());
+        assertEquals(gcCount, restored.gcPauses().count());
+        assertEquals(aggregator.gcPauses().total(), restored.gcPauses().total());
+
+        restored.merge(JfrEventAggregator.fromMap(map));
+        assertEquals(2 * gcCount, restored.gcPauses().count());
+        assertEquals(2 * aggregator.eventCount(), restored.eventCount());
+    }
+
+    @Test
+    void rankedOrdersByTotal() {
+        JfrEventAggregator.Counter small = new JfrEventAggregator.Counter();
+        small.add(5);
+        JfrEventAggregator.Counter large = new JfrEventAggregator.Counter();
+        large.add(3);
+        large.add(4);
+        List<String> keys = JfrEventAggregator.ranked(Map.of("small", small, "large", large)).stream()
+            .map(Map.Entry::getKey).toList();
+        assertEquals(List.of("large", "small"), keys);
+    }
+
+    private static Path recordGc() throws Exception {
+        Path file = java.nio.file.Files.createTempFile("jstall-test-", ".jfr");
+        file.toFile().deleteOnExit();
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrEventAggregator.GARBAGE_COLLECTION);
+            recording.start();
+            System.gc();
+            recording.stop();
+            recording.dump(file);
+        }
+        return file;
+    }
+
+    private static void contendMonitor() throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        Thread contender = new Thread(() -> {
+            try {
+                held.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (MONITOR) {
+                sink = MONITOR;
+            }
+        }, "contender");
+        synchronized (MONITOR) {
+            contender.start();
+            held.countDown();
+            Thread.sleep(50);
+        }
+        contender.join();
+    }
+
+    private static void allocateAndCollect() {
+        List<byte[]> garbage = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            garbage.add(new byte[16 * 1024]);
+            if (garbage.size() > 100) {
+                garbage.clear();
+            }
+        }
+        sink = garbage;
+        System.gc();
+    }
+}
@@ -0,0 +1,59 @@
+package me.bechberger.jstall.util.llm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GardenerLlmProviderTest {
+
+    /** Stand-in for the answering-machine API that answers locally and counts requests. */
+    private static class FakeClient extends AnsweringMachineClient {
+        int requests;
+
+        @Override
+        public void streamCompletion(String apiKey, String model, List<Message> messages,
+                                     Consumer<String> outputHandler) {
+            requests++;
+            outputHandler.accept("Answer ");
+            outputHandler.accept(requests + " to " + messages.get(messages.size() - 1).content());
+        }
+    }
+
+    @Test
+    void testResponsesAreReplayedFromCache(@TempDir Path cacheDir) throws Exception {
+        FakeClient client = new FakeClient();
+        GardenerLlmProvider provider = new GardenerLlmProvider(client, "key");
+        provider.setResponseCache(new LlmResponseCache(cacheDir, LlmResponseCache.DEFAULT_MAX_BYTES));
+        List<LlmProvider.Message> messages = List.of(
+            new LlmProvider.Message("system", "You analyze thread dumps"),
+            new LlmProvider.Message("user", "why is it slow?"));
+
+        String first = provider.chat("model", messages, null);
+        StringBuilder streamed = new StringBuilder();
+        String second = provider.chat("model", messages, new LlmProvider.StreamHandlers(streamed::append));
+        String otherModel = provider.chat("other-model", messages, null);
+
+        assertThat(first).isEqualTo("Answer 1 to why is it slow?");
+        assertThat(second).isEqualTo(first);
+        assertThat(streamed.toString()).isEqualTo(first);
+        assertThat(otherModel).isEqualTo("Answer 2 to why is it slow?");
+        assertThat(client.requests).isEqualTo(2);
+    }
+
+    @Test
+    void testWithoutCacheEveryChatIsSent() throws Exception {
+        FakeClient client = new FakeClient();
+        GardenerLlmProvider provider = new GardenerLlmProvider(client, "key");
+        List<LlmProvider.Message> messages = List.of(new LlmProvider.Message("user", "hi"));
+
+        provider.chat("model", messages, null);
+        provider.chat("model", messages, null);
+
+        assertThat(client.requests).isEqualTo(2);
+    }
+}
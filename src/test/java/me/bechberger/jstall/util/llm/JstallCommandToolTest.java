@@ -52,6 +52,18 @@ class JstallCommandToolTest {
         assertTrue(result.startsWith("Error:"), result);
     }
 
+    @Test
+    void cancelledCallStopsWaitingForTheCommandLock() {
+        JstallCommandTool tool = new JstallCommandTool(false);
+        Thread.currentThread().interrupt();
+        try {
+            String result = tool.execute(call("help", null));
+            assertTrue(result.contains("cancelled while waiting"), result);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
     @Test
     void emptyCommandRejected() {
         JstallCommandTool tool = new JstallCommandTool(false);
@@ -0,0 +1,60 @@
+package me.bechberger.jstall.util.llm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmResponseCacheTest {
+
+    @Test
+    void testKeyIgnoresMapOrderButNotContent() {
+        Map<String, Object> a = new LinkedHashMap<>();
+        a.put("model", "m");
+        a.put("messages", List.of(Map.of("role", "user", "content", "hi")));
+        Map<String, Object> b = new LinkedHashMap<>();
+        b.put("messages", List.of(Map.of("content", "hi", "role", "user")));
+        b.put("model", "m");
+
+        assertThat(LlmResponseCache.key(a)).isEqualTo(LlmResponseCache.key(b)).hasSize(64);
+        assertThat(LlmResponseCache.key(Map.of("model", "m", "messages", List.of())))
+            .isNotEqualTo(LlmResponseCache.key(a));
+    }
+
+    @Test
+    void testGetReturnsStoredValue(@TempDir Path dir) {
+        LlmResponseCache cache = new LlmResponseCache(dir.resolve("llm"), 1024);
+        assertThat(cache.get("k")).isEmpty();
+
+        cache.put("k", "answer");
+        cache.put("k", "newer answer");
+
+        assertThat(cache.get("k")).contains("newer answer");
+        assertThat(new LlmResponseCache(dir.resolve("llm"), 1024).get("k")).contains("newer answer");
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntries(@TempDir Path dir) throws Exception {
+        LlmResponseCache cache = new LlmResponseCache(dir, 250);
+        String value = "x".repeat(100);
+        cache.put("a", value);
+        cache.put("b", value);
+        // Make "a" the older entry, then use it so that "b" becomes least recently used
+        Files.setLastModifiedTime(dir.resolve("a.json"), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(dir.resolve("b.json"), FileTime.fromMillis(2_000));
+        assertThat(cache.get("a")).contains(value);
+
+        cache.put("c", value);
+
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("a")).contains(value);
+        assertThat(cache.get("c")).contains(value);
+    }
+}
@@ -1,12 +1,14 @@
 package me.bechberger.jstall.util.llm;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -590,4 +592,91 @@ class OpenAiLlmProviderTest {
             server.stop(0);
         }
     }
+
+    @Test
+    void testStreamingChatIsReplayedFromCache(@TempDir Path cacheDir) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        int port = server.getAddress().getPort();
+        AtomicInteger requestCount = new AtomicInteger();
+
+        server.createContext("/v1/chat/completions", exchange -> {
+            requestCount.incrementAndGet();
+            String sseResponse =
+                "data: {\"choices\":[{\"delta\":{\"content\":\"Hello\"}}]}\n\n" +
+                "data: {\"choices\":[{\"delta\":{\"content\":\" world\"}}]}\n\n" +
+                "data: [DONE]\n\n";
+            byte[] body = sseResponse.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.getResponseBody().close();
+        });
+        server.start();
+
+        try {
+            List<String> results = new java.util.ArrayList<>();
+            for (String question : List.of("hi", "hi", "something else")) {
+                // A fresh provider per run, sharing only the on-disk cache
+                OpenAiLlmProvider provider = new OpenAiLlmProvider("http://127.0.0.1:" + port);
+                provider.setResponseCache(new LlmResponseCache(cacheDir, LlmResponseCache.DEFAULT_MAX_BYTES));
+                StringBuilder collected = new StringBuilder();
+                String result = provider.chat("test-model",
+                    List.of(new LlmProvider.Message("user", question)),
+                    new LlmProvider.StreamHandlers(collected::append));
+                assertThat(collected.toString()).isEqualTo(result);
+                results.add(result);
+            }
+
+            assertThat(results).containsExactly("Hello world", "Hello world", "Hello world");
+            // The repeated question is answered from the cache
+            assertThat(requestCount.get()).isEqualTo(2);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testToolLoopIsReplayedFromCache(@TempDir Path cacheDir) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        int port = server.getAddress().getPort();
+        AtomicInteger requestCount = new AtomicInteger();
+
+        server.createContext("/v1/chat/completions", exchange -> {
+            requestCount.incrementAndGet();
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String response = request.contains("\"role\":\"tool\"")
+                ? "{\"choices\":[{\"message\":{\"content\":\"Lock held by main\"}}]}"
+                : "{\"choices\":[{\"message\":{\"content\":null,\"tool_calls\":[{\"id\":\"call_1\","
+                    + "\"type\":\"function\",\"function\":{\"name\":\"get_lock_info\",\"arguments\":\"{\\\"lock\\\":\\\"a\\\"}\"}}]}}]}";
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.getResponseBody().close();
+        });
+        server.start();
+
+        try {
+            AtomicInteger toolCalls = new AtomicInteger();
+            ToolExecutor executor = call -> {
+                toolCalls.incrementAndGet();
+                return "lock " + call.arguments().get("lock") + " owned by main";
+            };
+            for (int run = 0; run < 2; run++) {
+                OpenAiLlmProvider provider = new OpenAiLlmProvider("http://127.0.0.1:" + port);
+                provider.setResponseCache(new LlmResponseCache(cacheDir, LlmResponseCache.DEFAULT_MAX_BYTES));
+                StringBuilder collected = new StringBuilder();
+                String result = provider.chatWithToolLoop("test-model",
+                    List.of(new LlmProvider.Message("user", "analyze")),
+                    List.of(new ToolDefinition("get_lock_info", "Lock info", List.of())),
+                    executor, new LlmProvider.StreamHandlers(collected::append), 5);
+                assertThat(result).isEqualTo("Lock held by main");
+                assertThat(collected.toString()).isEqualTo("Lock held by main");
+            }
+
+            // Both rounds of the second run are replayed, the tools themselves still run
+            assertThat(requestCount.get()).isEqualTo(2);
+            assertThat(toolCalls.get()).isEqualTo(2);
+        } finally {
+            server.stop(0);
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package me.bechberger.jstall.util.llm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceIndexTest {
+
+    @TempDir
+    Path tmp;
+
+    private Path write(String path, String content) throws Exception {
+        Path file = tmp.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void grepUsesCandidatesAndVerifiesLines() throws Exception {
+        write("a/Pool.java", "class Pool {\n  synchronized void take() {}\n}\n");
+        write("b/Queue.java", "class Queue {\n  void put() {}\n}\n");
+        write("target/Gen.java", "synchronized void generated() {}\n");
+        write("blob.bin", "synchronized\0");
+        SourceIndex index = SourceIndex.open(tmp.resolve("src"), null);
+
+        assertEquals(3, index.fileCount());
+        List<SourceIndex.Hit> hits = index.grep(Pattern.compile("SYNCHRONIZED\\s+void", Pattern.CASE_INSENSITIVE), p -> true, 10);
+        assertEquals(List.of(new SourceIndex.Hit("a/Pool.java", 2, "  synchronized void take() {}")), hits);
+        assertEquals(1, index.grep(Pattern.compile("put|take"), p -> p.startsWith("b/"), 10).size());
+        assertTrue(index.grep(Pattern.compile("ReentrantLock"), p -> true, 10).isEmpty());
+        assertEquals(List.of("a/Pool.java", "b/Queue.java"), index.list(p -> p.endsWith(".java"), 10));
+    }
+
+    @Test
+    void persistedIndexIsRefreshedByModificationTime() throws Exception {
+        Path cache = tmp.resolve("cache");
+        Path pool = write("Pool.java", "class Pool { void take() {} }\n");
+        Path queue = write("Queue.java", "class Queue { void put() {} }\n");
+        SourceIndex.open(tmp.resolve("src"), cache);
+        try (var files = Files.list(cache)) {
+            assertEquals(1, files.count());
+        }
+
+        Files.writeString(pool, "class Pool { void takeAll() {} }\n");
+        Files.setLastModifiedTime(pool, FileTime.fromMillis(Files.getLastModifiedTime(pool).toMillis() + 5000));
+        Files.delete(queue);
+        write("Lock.java", "class Lock { void put() {} }\n");
+
+        SourceIndex index = SourceIndex.open(tmp.resolve("src"), cache);
+        assertEquals(List.of("Lock.java", "Pool.java"), index.list(p -> true, 10));
+        assertEquals("Pool.java", index.grep(Pattern.compile("takeAll"), p -> true, 10).get(0).relativePath());
+        assertEquals("Lock.java", index.grep(Pattern.compile("void put"), p -> true, 10).get(0).relativePath());
+    }
+
+    @Test
+    void resolvesStackFramesThroughPackageDeclarations() throws Exception {
+        write("module/src/main/java/com/example/Worker.java", "package com.example;\n\nclass Worker {\n}\n");
+        write("other/com/example/Worker.java", "package org.other;\nclass Worker {}\n");
+        SourceIndex index = SourceIndex.open(tmp.resolve("src"), null);
+
+        SourceIndex.Location location = index.resolve("com.example.Worker$Task", "Worker.java", 3).orElseThrow();
+        assertEquals("module/src/main/java/com/example/Worker.java", location.relativePath());
+        assertEquals(3, location.line());
+        assertEquals("package com.example;\n\n".length(), location.offset());
+        assertEquals("other/com/example/Worker.java",
+            index.resolve("org.other.Worker", null, 1).orElseThrow().relativePath());
+        assertTrue(index.resolve("com.example.Missing", "Missing.java", 1).isEmpty());
+    }
+}
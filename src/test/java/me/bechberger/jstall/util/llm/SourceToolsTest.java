@@ -14,7 +14,7 @@ class SourceToolsTest {
     Path tmp;
 
     private SourceTools tools() {
-        return new SourceTools(tmp);
+        return new SourceTools(tmp, null);
     }
 
     private ToolCall call(String name, String... kvPairs) {
@@ -122,6 +122,23 @@ class SourceToolsTest {
         assertFalse(result.contains("B.java"), result);
     }
 
+    @Test
+    void grepSeesFilesEditedAndCreatedDuringTheSession() throws Exception {
+        Path file = tmp.resolve("A.java");
+        Files.writeString(file, "void foo() {}");
+        ToolExecutor exec = new SourceTools(tmp, null, 0).createExecutor();
+        assertFalse(exec.execute(call("grep_source", "pattern", "synchronized")).contains("A.java"));
+
+        Files.writeString(file, "synchronized void foo() {}");
+        Files.setLastModifiedTime(file, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Files.writeString(tmp.resolve("B.java"), "synchronized void bar() {}");
+
+        String result = exec.execute(call("grep_source", "pattern", "synchronized"));
+        assertTrue(result.contains("A.java:1"), result);
+        assertTrue(result.contains("B.java:1"), result);
+        assertTrue(exec.execute(call("list_source_files")).contains("B.java"));
+    }
+
     @Test
     void grepNoMatches() throws Exception {
         Files.writeString(tmp.resolve("A.java"), "void foo() {}");
@@ -140,6 +157,21 @@ class SourceToolsTest {
         assertTrue(result.startsWith("Error:"), result);
     }
 
+    @Test
+    void readFileByStackFrame() throws Exception {
+        Path dir = tmp.resolve("src/com/example");
+        Files.createDirectories(dir);
+        StringBuilder sb = new StringBuilder("package com.example;\n");
+        for (int i = 2; i <= 100; i++) {
+            sb.append("// line ").append(i).append('\n');
+        }
+        Files.writeString(dir.resolve("Worker.java"), sb.toString());
+        ToolExecutor exec = tools().createExecutor();
+        String result = exec.execute(call("read_source_file", "path", "at com.example.Worker$Task.run(Worker.java:50)"));
+        assertTrue(result.startsWith("src/com/example/Worker.java (lines 40-60 of 100)"), result);
+        assertTrue(result.contains("50\t// line 50"), result);
+    }
+
     @Test
     void listCapAt200() throws Exception {
         for (int i = 0; i < 250; i++) {
@@ -0,0 +1,131 @@
+package me.bechberger.jstall.util.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolCallRunnerTest {
+
+    private static ToolCall call(String id, String name) {
+        return new ToolCall(id, name, Map.of());
+    }
+
+    @Test
+    void testCallsRunConcurrentlyAndResultsKeepCallOrder() {
+        // Each call waits until all three are running, which only succeeds when they run in parallel
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        ToolExecutor executor = c -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+                // Finish in reverse order
+                Thread.sleep(c.id().equals("1") ? 60 : c.id().equals("2") ? 30 : 0);
+            } catch (Exception e) {
+                return "failed: " + e;
+            }
+            return "result " + c.id();
+        };
+
+        List<ToolCallRunner.Result> results;
+        try (ToolCallRunner runner = new ToolCallRunner(executor, 4, Duration.ofSeconds(10))) {
+            results = runner.run(List.of(call("1", "a"), call("2", "b"), call("3", "c")));
+        }
+
+        assertThat(results).extracting(ToolCallRunner.Result::output)
+            .containsExactly("result 1", "result 2", "result 3");
+        assertThat(results).noneMatch(ToolCallRunner.Result::timedOut);
+        assertThat(results.get(0).latencyMs()).isGreaterThanOrEqualTo(60);
+    }
+
+    @Test
+    void testSlowCallTimesOutWithoutAffectingOthers() {
+        ToolExecutor executor = c -> {
+            if (c.name().equals("slow")) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    return "interrupted";
+                }
+            }
+            return c.name() + " done";
+        };
+
+        List<ToolCallRunner.Result> results;
+        try (ToolCallRunner runner = new ToolCallRunner(executor, 2, Duration.ofMillis(200))) {
+            results = runner.run(List.of(call("1", "slow"), call("2", "fast")));
+        }
+
+        assertThat(results.get(0).timedOut()).isTrue();
+        assertThat(results.get(0).output()).isEqualTo("Error: tool slow timed out after 0s.");
+        assertThat(results.get(1).timedOut()).isFalse();
+        assertThat(results.get(1).output()).isEqualTo("fast done");
+    }
+
+    @Test
+    void testQueuedCallsGetTheirOwnTimeout() {
+        ToolExecutor executor = c -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+            return c.id();
+        };
+
+        // With one thread the last call only starts after 300ms, its timeout starts then
+        List<ToolCallRunner.Result> results;
+        try (ToolCallRunner runner = new ToolCallRunner(executor, 1, Duration.ofMillis(250))) {
+            results = runner.run(List.of(call("1", "a"), call("2", "b"), call("3", "c"), call("4", "d")));
+        }
+
+        assertThat(results).extracting(ToolCallRunner.Result::output).containsExactly("1", "2", "3", "4");
+        assertThat(results).noneMatch(ToolCallRunner.Result::timedOut);
+    }
+
+    @Test
+    void testTimeoutRestartsOnceTheLockIsHeld() {
+        ReentrantLock lock = new ReentrantLock();
+        ToolExecutor executor = c -> {
+            lock.lock();
+            try {
+                ToolCallRunner.restartTimeout();
+                Thread.sleep(150);
+            } catch (InterruptedException e) {
+                return "interrupted";
+            } finally {
+                lock.unlock();
+            }
+            return c.id();
+        };
+
+        // All calls start at once; the third holds the lock only after 300ms
+        List<ToolCallRunner.Result> results;
+        try (ToolCallRunner runner = new ToolCallRunner(executor, 3, Duration.ofMillis(250))) {
+            results = runner.run(List.of(call("1", "a"), call("2", "b"), call("3", "c")));
+        }
+
+        assertThat(results).extracting(ToolCallRunner.Result::output).containsExactly("1", "2", "3");
+        assertThat(results).noneMatch(ToolCallRunner.Result::timedOut);
+    }
+
+    @Test
+    void testExceptionsBecomeErrorResults() {
+        ToolExecutor executor = c -> {
+            throw new IllegalStateException("no dump");
+        };
+
+        List<ToolCallRunner.Result> results;
+        try (ToolCallRunner runner = new ToolCallRunner(executor)) {
+            results = runner.run(List.of(call("1", "get_lock_info")));
+        }
+
+        assertThat(results.get(0).output()).isEqualTo("Error executing tool get_lock_info: no dump");
+        assertThat(results.get(0).timedOut()).isFalse();
+    }
+}
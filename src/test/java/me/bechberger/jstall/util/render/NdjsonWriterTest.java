@@ -0,0 +1,95 @@
+package me.bechberger.jstall.util.render;
+
+import me.bechberger.jstall.analyzer.AnalyzerOutput;
+import me.bechberger.jstall.analyzer.AnalyzerResult;
+import me.bechberger.jstall.analyzer.Cell;
+import me.bechberger.jstall.analyzer.TableModel;
+import me.bechberger.util.json.JSONParser;
+import me.bechberger.util.json.Util;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonWriterTest {
+
+    private static List<Map<String, Object>> write(AnalyzerResult result) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new NdjsonWriter(new PrintStream(bytes, true, StandardCharsets.UTF_8))
+            .writeResult("test", Map.of("pid", 42L), 3, "2026-01-01T00:00:00Z", result);
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+            assertFalse(line.isBlank());
+            records.add(Util.asMap(JSONParser.parse(line)));
+        }
+        return records;
+    }
+
+    @Test
+    void writesOneRecordPerTableRowWithTypedCells() {
+        TableModel table = TableModel.builder()
+            .addColumn("NAME", TableModel.Alignment.LEFT)
+            .addColumn("COUNT", TableModel.Alignment.RIGHT)
+            .addColumn("SIZE", TableModel.Alignment.RIGHT)
+            .addColumn("RATE", TableModel.Alignment.RIGHT)
+            .addRow(Cell.text("main", Cell.Color.RED), Cell.integer(7), Cell.bytes(2048), Cell.number("1.5/s", 1.5))
+            .addRow(Cell.text("worker"), Cell.integer(1), Cell.bytes(0), Cell.number("n/a", Double.NaN))
+            .build();
+        List<Map<String, Object>> records = write(AnalyzerResult.ok(new AnalyzerOutput.TableOutput(List.of("\033[1mheader\033[0m"), table)));
+
+        assertEquals(List.of("begin", "table", "row", "row", "end"), records.stream().map(r -> r.get("type")).toList());
+        Map<String, Object> begin = records.get(0);
+        assertEquals("test", begin.get("analyzer"));
+        assertEquals(3, ((Number) begin.get("frame")).intValue());
+
+        Map<String, Object> header = records.get(1);
+        assertEquals(List.of("header"), header.get("preamble"));
+        assertEquals(2, ((Number) header.get("rows")).intValue());
+        Map<String, Object> count = Util.asMap(((List<?>) header.get("columns")).get(1));
+        assertEquals("COUNT", count.get("name"));
+        assertEquals("right", count.get("align"));
+
+        List<?> cells = (List<?>) records.get(2).get("cells");
+        Map<String, Object> name = Util.asMap(cells.get(0));
+        assertEquals("text", name.get("kind"));
+        assertEquals("main", name.get("text"));
+        assertEquals("red", name.get("color"));
+        assertEquals(7, ((Number) Util.asMap(cells.get(1)).get("value")).intValue());
+        assertEquals("bytes", Util.asMap(cells.get(2)).get("kind"));
+        assertEquals(2048, ((Number) Util.asMap(cells.get(2)).get("value")).intValue());
+        assertEquals(1.5, ((Number) Util.asMap(cells.get(3)).get("value")).doubleValue());
+
+        Map<String, Object> nan = Util.asMap(((List<?>) records.get(3).get("cells")).get(3));
+        assertNull(nan.get("value"));
+        assertEquals("n/a", nan.get("text"));
+    }
+
+    @Test
+    void writesSectionBoundariesWithNestedPaths() {
+        AnalyzerOutput inner = new AnalyzerOutput.CompositeOutput(List.of(
+            new AnalyzerOutput.CompositeOutput.Section("deadlock", new AnalyzerOutput.TextOutput("\033[31mno deadlock\033[0m"))));
+        AnalyzerOutput outer = new AnalyzerOutput.CompositeOutput(List.of(
+            new AnalyzerOutput.CompositeOutput.Section("status", inner),
+            new AnalyzerOutput.CompositeOutput.Section("empty", new AnalyzerOutput.TextOutput(""))));
+        List<Map<String, Object>> records = write(AnalyzerResult.withExitCode(outer, 2));
+
+        assertEquals(List.of("begin", "section", "section", "text", "section", "end"),
+            records.stream().map(r -> r.get("type")).toList());
+        assertEquals(List.of("status", "deadlock"), records.get(2).get("path"));
+        assertEquals(List.of("status", "deadlock"), records.get(3).get("path"));
+        assertEquals("no deadlock", records.get(3).get("text"));
+        assertEquals(2, ((Number) records.get(5).get("exitCode")).intValue());
+    }
+
+    @Test
+    void nothingToReportOnlyWritesBeginAndEnd() {
+        List<Map<String, Object>> records = write(AnalyzerResult.nothing());
+        assertEquals(List.of("begin", "end"), records.stream().map(r -> r.get("type")).toList());
+    }
+}
@@ -0,0 +1,66 @@
+package me.bechberger.jstall.util.stacks;
+
+import me.bechberger.jstall.provider.ThreadDumpTestBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackIndexTest {
+
+    private static StackIndex index() throws IOException {
+        return StackIndex.build(List.of(
+            new ThreadDumpTestBuilder(0)
+                .thread(1, "main", "RUNNABLE",
+                    "at java.net.SocketInputStream.socketRead0(Native Method)", "at com.example.Db.query(Db.java:42)")
+                .thread(2, "worker-1", "WAITING",
+                    "at java.lang.Object.wait(Native Method)", "at com.example.Pool.take(Pool.java:7)")
+                .parse(),
+            new ThreadDumpTestBuilder(10)
+                .thread(1, "main", "RUNNABLE",
+                    "at com.example.Db.query(Db.java:42)", "at com.example.App.main(App.java:3)")
+                .thread(2, "worker-1", "BLOCKED", "at com.example.Pool.take(Pool.java:7)")
+                .parse()));
+    }
+
+    @Test
+    void testRegexMatchesAreOrderedByDumpThreadAndDepth() throws IOException {
+        StackIndex index = index();
+        assertEquals(2, index.dumpCount());
+        assertEquals(5, index.distinctFrameCount());
+        assertEquals(7, index.occurrenceCount());
+
+        List<StackIndex.Match> matches = index.find(Pattern.compile("com\\.example\\.(Db|Pool)\\.\\w+"));
+
+        assertEquals(List.of("0 main 1 com.example.Db.query(Db.java:42)", "0 worker-1 1 com.example.Pool.take(Pool.java:7)",
+                "1 main 0 com.example.Db.query(Db.java:42)", "1 worker-1 0 com.example.Pool.take(Pool.java:7)"),
+            matches.stream().map(m -> m.dump() + " " + m.thread().name() + " " + m.depth() + " " + m.frameText()).toList());
+    }
+
+    @Test
+    void testCaseSensitivityAndShortQueries() throws IOException {
+        StackIndex index = index();
+
+        assertTrue(index.find(Pattern.compile("socketread")).isEmpty());
+        assertEquals(1, index.find(Pattern.compile("socketread", Pattern.CASE_INSENSITIVE)).size());
+        assertEquals(1, index.findIgnoreCase("SOCKETREAD0").size());
+        // Shorter than a trigram: resolved through the token dictionary, including line numbers
+        assertEquals(List.of("com.example.Db.query(Db.java:42)", "com.example.Db.query(Db.java:42)"),
+            index.find(Pattern.compile("42")).stream().map(StackIndex.Match::frameText).toList());
+        assertEquals(1, index.find(Pattern.compile("^java\\.lang\\.")).size());
+        assertEquals(2, index.find(Pattern.compile("(?i)native method")).size());
+        assertTrue(index.find(Pattern.compile("Missing")).isEmpty());
+    }
+
+    @Test
+    void testThreadsInState() throws IOException {
+        StackIndex index = index();
+
+        assertEquals(List.of("worker-1"), index.threadsInState(0, Thread.State.WAITING).stream().map(t -> t.name()).toList());
+        assertEquals(List.of("worker-1"), index.threadsInState(1, Thread.State.BLOCKED).stream().map(t -> t.name()).toList());
+        assertTrue(index.threadsInState(1, Thread.State.WAITING).isEmpty());
+    }
+}